@@ -1,16 +1,28 @@
 package nl.hva.ict.sm3.backend.api;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import nl.hva.ict.sm3.backend.dto.ElectionDto;
+import nl.hva.ict.sm3.backend.dto.MunicipalityDto;
+import nl.hva.ict.sm3.backend.dto.PartyDto;
+import nl.hva.ict.sm3.backend.dto.PollingStationDto;
+import nl.hva.ict.sm3.backend.mapper.ElectionMapper;
 import nl.hva.ict.sm3.backend.model.*;
 import nl.hva.ict.sm3.backend.repository.ElectionRepository;
 import nl.hva.ict.sm3.backend.service.DutchElectionService;
 import nl.hva.ict.sm3.backend.service.MunicipalityService;
+import nl.hva.ict.sm3.backend.service.PollingStationService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 
 /**
@@ -28,16 +40,30 @@ import java.util.List;
 public class ElectionController {
     private final DutchElectionService electionService;
     private final ElectionRepository electionRepository;
+    private final PollingStationService pollingStationService;
+    private final ElectionResponseCache responseCache;
+    private final ElectionMapper electionMapper;
+    private final ObjectMapper objectMapper;
     
     /**
      * Constructs the controller with an injected {@link DutchElectionService}.
      *
      * @param electionService service that loads, caches, and provides election data
      * @param electionRepository repository for paginated election queries
+     * @param pollingStationService service that provides the polling stations, also when they are loaded lazily
+     * @param responseCache the compressed responses of the large endpoints, which don't change with the election
+     * @param electionMapper maps an election to the projection that is sent back
+     * @param objectMapper writes the lines of the streamed responses
      */
-    public ElectionController(DutchElectionService electionService, ElectionRepository electionRepository) {
+    public ElectionController(DutchElectionService electionService, ElectionRepository electionRepository,
+                              PollingStationService pollingStationService, ElectionResponseCache responseCache,
+                              ElectionMapper electionMapper, ObjectMapper objectMapper) {
         this.electionService = electionService;
         this.electionRepository = electionRepository;
+        this.pollingStationService = pollingStationService;
+        this.responseCache = responseCache;
+        this.electionMapper = electionMapper;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -64,15 +90,39 @@ public class ElectionController {
         return ResponseEntity.ok(elections);
     }
 
+    /**
+     * Returns an election. By default only a summary is returned, with the number of constituencies, municipalities,
+     * polling stations, parties and candidates and the links to the endpoints that return them, so the response
+     * stays small however many polling stations are loaded.<br/>
+     * Example: GET http://localhost:8081/elections/TK2023?depth=1&fields=constituencies,seatAllocations
+     *
+     * @param electionId ID of the election
+     * @param depth how far the constituencies are expanded: 1 for the constituencies, 2 with their municipalities
+     *              and 3 with the polling stations too. The default 0 returns the summary.
+     * @param fields the parts of the election to include, any of <i>constituencies</i>, <i>parties</i>,
+     *               <i>candidates</i>, <i>nationalVotes</i> and <i>seatAllocations</i>. When none are given the
+     *               constituencies are included if the depth is at least 1.
+     * @return the election, {@code 400 Bad Request} for an unknown depth or field, or {@code 404 Not Found}
+     */
     @GetMapping("/{electionId}")
-    public ResponseEntity<Election> getElection(@PathVariable String electionId) {
+    public ResponseEntity<byte[]> getElection(@PathVariable String electionId,
+                                              @RequestParam(defaultValue = "0") int depth,
+                                              @RequestParam(required = false) Set<String> fields,
+                                              HttpServletRequest request) {
         validateId(electionId, "Election ID");
+        Set<String> requested = fields != null ? new TreeSet<>(fields) : new TreeSet<>();
+        if (depth < 0 || depth > ElectionMapper.MAX_DEPTH || !ElectionMapper.FIELDS.containsAll(requested)) {
+            return ResponseEntity.badRequest().build();
+        }
         // Only get from database/cache, don't parse XML
         Election election = electionService.getElectionById(electionId);
         if (election == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(election);
+        // The fields are sorted, so every combination of parameters is cached once
+        String name = "election?depth=" + depth + "&fields=" + String.join(",", requested);
+        return responseCache.respond(request, election, name,
+                () -> electionMapper.toElectionDto(election, depth, requested));
     }
     /**
      * Retrieves all municipalities for the given election.
@@ -81,7 +131,7 @@ public class ElectionController {
      * @return list of municipalities or {@code 404 Not Found} if the election could not be loaded
      */
     @GetMapping("/{electionId}/municipalities")
-    public ResponseEntity<List<Municipality>> getMunicipalities(@PathVariable String electionId) {
+    public ResponseEntity<byte[]> getMunicipalities(@PathVariable String electionId, HttpServletRequest request) {
         validateId(electionId, "Election ID");
         // Only get from database/cache, don't parse XML
         Election election = electionService.getElectionById(electionId);
@@ -89,8 +139,7 @@ public class ElectionController {
             return ResponseEntity.notFound().build();
         }
 
-        List<Municipality> municipalities = election.getAllMunicipalities();
-        return ResponseEntity.ok(municipalities);
+        return responseCache.respond(request, election, "municipalities", election::getAllMunicipalities);
     }
     /**
      * Returns a list of constituencies (kieskringen) for the given election.
@@ -99,7 +148,7 @@ public class ElectionController {
      * @return list of constituencies or {@code 404 Not Found} if unavailable
      */
     @GetMapping("/{electionId}/constituencies")
-    public ResponseEntity<List<Constituency>> getConstituencies(@PathVariable String electionId) {
+    public ResponseEntity<byte[]> getConstituencies(@PathVariable String electionId, HttpServletRequest request) {
         validateId(electionId, "Election ID");
         // Only get from database/cache, don't parse XML
         Election election = electionService.getElectionById(electionId);
@@ -111,7 +160,7 @@ public class ElectionController {
             }
         }
 
-        return ResponseEntity.ok(election.getConstituencies());
+        return responseCache.respond(request, election, "constituencies", election::getConstituencies);
     }
     /**
      * Retrieves a specific municipality by its ID within a given election.
@@ -131,7 +180,7 @@ public class ElectionController {
             return ResponseEntity.notFound().build();
         }
 
-        Municipality municipality = election.getMunicipalityById(municipalityId);
+        Municipality municipality = pollingStationService.getMunicipalityWithPollingStations(election, municipalityId);
         if (municipality == null) return ResponseEntity.notFound().build();
 
         return ResponseEntity.ok(municipality);
@@ -161,16 +210,15 @@ public class ElectionController {
      * @param electionId the id of the election, e.g. the value of the Id attribute from the ElectionIdentifier tag.
      * @param folderName the name of the folder that contains the XML result files. If none is provided the value from
      *                   the electionId is used.
-     * @return Election if the results have been processed successfully. Please be sure yoy don't output all the data!
-     * Just the general data about the election should be sent back to the front-end!<br/>
-     * <i>If you want to return something else please feel free to do so!</i>
+     * @return the summary of the election if the results have been processed successfully, the same as
+     * <code>GET /elections/{electionId}</code> returns.
      */
     @PostMapping("/{electionId}")
-    public ResponseEntity<Election> loadElection(@PathVariable String electionId,
-                                                 @RequestParam(required = false) String folderName) {
+    public ResponseEntity<ElectionDto> loadElection(@PathVariable String electionId,
+                                                    @RequestParam(required = false) String folderName) {
         Election election = electionService.readResults(electionId, folderName != null ? folderName : electionId);
         if (election == null) return ResponseEntity.status(500).build();
-        return ResponseEntity.ok(election);
+        return ResponseEntity.ok(electionMapper.toElectionSummary(election));
     }
 
     @GetMapping("/{electionId}/pollingstations/postcode/{postalCode}")
@@ -186,8 +234,7 @@ public class ElectionController {
             return ResponseEntity.status(404).body("Election not found");
         }
 
-        MunicipalityService muniService = new MunicipalityService(election);
-        PollingStation station = muniService.findPollingStationByPostalCode(postalCode);
+        PollingStation station = pollingStationService.findPollingStationByPostalCode(election, postalCode);
 
         if (station == null) {
             return ResponseEntity.status(404)
@@ -198,8 +245,8 @@ public class ElectionController {
     }
 
     @GetMapping("/{electionId}/pollingstations")
-    public ResponseEntity<List<PollingStation>> getAllPollingStations(
-            @PathVariable String electionId) {
+    public ResponseEntity<byte[]> getAllPollingStations(
+            @PathVariable String electionId, HttpServletRequest request) {
         validateId(electionId, "Election ID");
 
         Election election = electionService.getElectionById(electionId);
@@ -207,12 +254,116 @@ public class ElectionController {
             return ResponseEntity.status(404).body(null);
         }
 
-        List<PollingStation> allSb = election.getConstituencies().stream()
+        return responseCache.respond(request, election, "pollingstations", () -> election.getConstituencies().stream()
                 .flatMap(c -> c.getMunicipalities().stream())
                 .flatMap(m -> m.getPollingStations().stream())
-                .toList();
+                .toList());
+    }
+
+    /**
+     * Streams the polling stations of an election as newline delimited JSON, one station with its municipality per
+     * line. Unlike {@link #getAllPollingStations} the stations are written while the municipalities are walked, so they
+     * are never collected in one list, and polling stations that are loaded lazily are parsed one municipality at a
+     * time.<br/>
+     * Example: GET http://localhost:8081/elections/TK2023/pollingstations/stream?municipality=0363&party=VVD
+     *
+     * @param electionId ID of the election
+     * @param municipality only the stations of the municipality with this ID, either the code of the municipality
+     *                     (<code>0363</code>) or the ID prefixed with the election ID (<code>TK2023-0363</code>)
+     * @param party only the stations where the party with this ID or name has a result, with only that result
+     * @return the stream of stations, or {@code 404 Not Found} if the election or municipality is missing
+     */
+    @GetMapping(value = "/{electionId}/pollingstations/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamPollingStations(
+            @PathVariable String electionId,
+            @RequestParam(required = false) String municipality,
+            @RequestParam(required = false) String party) {
+        validateId(electionId, "Election ID");
+
+        Election election = electionService.getElectionById(electionId);
+        if (election == null) {
+            return ResponseEntity.notFound().build();
+        }
+        List<Municipality> municipalities;
+        if (municipality != null) {
+            Municipality selected = election.getMunicipalityById(municipalityId(electionId, municipality));
+            if (selected == null) {
+                return ResponseEntity.notFound().build();
+            }
+            municipalities = List.of(selected);
+        } else {
+            municipalities = election.getAllMunicipalities();
+        }
 
-        return ResponseEntity.ok(allSb);
+        return NdjsonWriter.response(objectMapper, writer -> {
+            for (Municipality m : municipalities) {
+                for (PollingStation station : pollingStationService.getPollingStations(election, m)) {
+                    PollingStationDto dto = electionMapper.toPollingStationDto(station);
+                    dto.setMunicipalityId(m.getId());
+                    if (party != null) {
+                        dto.setPartyResults(onlyParty(dto.getPartyResults(), party));
+                        if (dto.getPartyResults().isEmpty()) {
+                            continue;
+                        }
+                    }
+                    writer.write(dto);
+                }
+            }
+        });
+    }
+
+    /**
+     * Streams the municipalities of an election as newline delimited JSON, one municipality with its party results
+     * but without its polling stations per line.<br/>
+     * Example: GET http://localhost:8081/elections/TK2023/municipalities/stream?party=VVD
+     *
+     * @param electionId ID of the election
+     * @param party only the municipalities where the party with this ID or name has a result, with only that result
+     * @return the stream of municipalities, or {@code 404 Not Found} if the election is missing
+     */
+    @GetMapping(value = "/{electionId}/municipalities/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamMunicipalities(
+            @PathVariable String electionId,
+            @RequestParam(required = false) String party) {
+        validateId(electionId, "Election ID");
+
+        Election election = electionService.getElectionById(electionId);
+        if (election == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        // Only the references are copied, so a municipality that is published meanwhile doesn't break the stream
+        List<Municipality> municipalities = election.getAllMunicipalities();
+        return NdjsonWriter.response(objectMapper, writer -> {
+            for (Municipality m : municipalities) {
+                MunicipalityDto dto = electionMapper.toMunicipalityDto(m, 0);
+                if (party != null) {
+                    dto.setPartyResults(onlyParty(dto.getPartyResults(), party));
+                    if (dto.getPartyResults().isEmpty()) {
+                        continue;
+                    }
+                }
+                writer.write(dto);
+            }
+        });
+    }
+
+    // The IDs of the municipalities are prefixed with the ID of the election, see ElectionIds
+    private static String municipalityId(String electionId, String municipality) {
+        String id = municipality.trim();
+        String prefix = electionId.trim() + "-";
+        return id.startsWith(prefix) ? id : prefix + id;
+    }
+
+    // Matches the party on its ID or, ignoring case, its name
+    private static List<PartyDto> onlyParty(List<PartyDto> results, String party) {
+        if (results == null) {
+            return List.of();
+        }
+        String wanted = party.trim();
+        return results.stream()
+                .filter(result -> wanted.equals(result.getId()) || wanted.equalsIgnoreCase(result.getName()))
+                .toList();
     }
 
     private void validateId(String value, String fieldName) {
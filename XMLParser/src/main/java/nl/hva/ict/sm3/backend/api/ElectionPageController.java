@@ -0,0 +1,97 @@
+package nl.hva.ict.sm3.backend.api;
+
+import nl.hva.ict.sm3.backend.dto.KeysetPage;
+import nl.hva.ict.sm3.backend.service.ElectionPageService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Pages through the large listings of an election with keyset pagination, see {@link ElectionPageService}. A response
+ * has the <code>items</code> of the page and the <code>next</code> token, which is passed as <code>cursor</code> to
+ * get the next page and is missing on the last page.
+ */
+@RestController
+@RequestMapping("/elections/{electionId}")
+public class ElectionPageController {
+    private static final String DEFAULT_PAGE_SIZE = "100";
+
+    private final ElectionPageService pageService;
+
+    @Autowired
+    public ElectionPageController(ElectionPageService pageService) {
+        this.pageService = pageService;
+    }
+
+    /**
+     * Returns a page of the municipalities of an election, ordered by id.
+     * Example: GET http://localhost:8081/elections/TK2023/municipalities/page?size=50
+     *
+     * @param electionId ID of the election
+     * @param size the number of municipalities per page, at most {@link ElectionPageService#MAX_PAGE_SIZE}
+     * @param cursor the <code>next</code> token of the previous page, none for the first page
+     * @return the page, {@code 400 Bad Request} for an invalid size or cursor, or {@code 404 Not Found}
+     */
+    @GetMapping("/municipalities/page")
+    public ResponseEntity<?> getMunicipalities(@PathVariable String electionId,
+                                               @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int size,
+                                               @RequestParam(required = false) String cursor) {
+        return page(electionId, () -> pageService.getMunicipalities(electionId.trim(), size, cursor));
+    }
+
+    /**
+     * Returns a page of the polling stations of an election, ordered by id, or by postal code when a range is given.
+     * Example: GET http://localhost:8081/elections/TK2023/pollingstations/page?from=1000AA&to=1099ZZ
+     *
+     * @param electionId ID of the election
+     * @param from the first postal code of the range, together with <code>to</code>
+     * @param to the last postal code of the range, together with <code>from</code>
+     * @param size the number of polling stations per page, at most {@link ElectionPageService#MAX_PAGE_SIZE}
+     * @param cursor the <code>next</code> token of the previous page, none for the first page
+     * @return the page, {@code 400 Bad Request} for an invalid range, size or cursor, or {@code 404 Not Found}
+     */
+    @GetMapping("/pollingstations/page")
+    public ResponseEntity<?> getPollingStations(@PathVariable String electionId,
+                                                @RequestParam(required = false) String from,
+                                                @RequestParam(required = false) String to,
+                                                @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int size,
+                                                @RequestParam(required = false) String cursor) {
+        return page(electionId, () -> pageService.getPollingStations(electionId.trim(), from, to, size, cursor));
+    }
+
+    /**
+     * Returns a page of the candidates of an election, the candidates with the most votes first.
+     * Example: GET http://localhost:8081/elections/TK2023/candidates/page?size=20
+     *
+     * @param electionId ID of the election
+     * @param size the number of candidates per page, at most {@link ElectionPageService#MAX_PAGE_SIZE}
+     * @param cursor the <code>next</code> token of the previous page, none for the first page
+     * @return the page, {@code 400 Bad Request} for an invalid size or cursor, or {@code 404 Not Found}
+     */
+    @GetMapping("/candidates/page")
+    public ResponseEntity<?> getCandidates(@PathVariable String electionId,
+                                           @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int size,
+                                           @RequestParam(required = false) String cursor) {
+        return page(electionId, () -> pageService.getCandidates(electionId.trim(), size, cursor));
+    }
+
+    private ResponseEntity<?> page(String electionId, Supplier<KeysetPage<?>> page) {
+        if (!electionId.trim().matches("^[A-Za-z0-9_-]+$")) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Election ID contains illegal characters"));
+        }
+        KeysetPage<?> result;
+        try {
+            result = page.get();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        return result != null ? ResponseEntity.ok(result) : ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,389 @@
+package nl.hva.ict.sm3.backend.api;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import nl.hva.ict.sm3.backend.model.Election;
+import nl.hva.ict.sm3.backend.service.ElectionCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the JSON responses of the large election endpoints, such as all municipalities or polling stations of an
+ * election, as compressed bytes. Each response is serialized and compressed once per version of the election, after
+ * which a request only costs writing the bytes to the response.<br/>
+ * <br/>
+ * A response is kept gzip and, when the native library of brotli4j is available, brotli compressed, the encoding is
+ * chosen from the <code>Accept-Encoding</code> header. Clients that accept neither get the gzip bytes inflated. Every
+ * response has a strong <code>ETag</code> based on the JSON, so a request with a matching
+ * <code>If-None-Match</code> is answered with <code>304 Not Modified</code> without any body.<br/>
+ * <br/>
+ * The responses of an election are dropped when it is reloaded, which gives a new {@link Election} instance, when it
+ * is changed in place, see {@link Election#getRevision()}, and when {@link ElectionCache} drops it. The cache doesn't
+ * keep the elections reachable, and the compressed bytes of all responses are bounded by
+ * <code>election.response-cache.max-mb</code>, the least recently used responses are dropped first. A response is
+ * rendered by one request at a time, the requests that arrive in the meantime wait for it.
+ */
+@Component
+public class ElectionResponseCache {
+    private static final String GZIP = "gzip";
+    private static final String BROTLI = "br";
+    private static final boolean BROTLI_AVAILABLE = loadBrotli();
+
+    /**
+     * A response in the encodings that are kept.
+     *
+     * @param etag the quoted entity tag of the JSON, without the suffix of the encoding.
+     * @param gzip the gzip compressed JSON.
+     * @param brotli the brotli compressed JSON, <code>null</code> when brotli is not available.
+     */
+    private record Representation(String etag, byte[] gzip, byte[] brotli) {
+        long size() {
+            return gzip.length + (brotli != null ? brotli.length : 0L);
+        }
+    }
+
+    /**
+     * A version of an election, without keeping the election reachable.
+     */
+    private static final class Version {
+        private final WeakReference<Election> election;
+        private final long revision;
+
+        Version(Election election) {
+            this.election = new WeakReference<>(election);
+            this.revision = election.getRevision();
+        }
+
+        boolean matches(Election other) {
+            return election.get() == other && revision == other.getRevision();
+        }
+    }
+
+    private record Key(String electionId, String name) {}
+
+    private record Cached(Version version, Representation representation) {}
+
+    private record Rendering(Version version, CompletableFuture<Representation> result) {}
+
+    // Guarded by this, in access order so the least recently used response comes first
+    private final LinkedHashMap<Key, Cached> responses = new LinkedHashMap<>(16, 0.75f, true);
+    // Guarded by this
+    private long totalBytes;
+    // The representations that are being rendered, at most one per name of an election
+    private final Map<Key, Rendering> rendering = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper;
+
+    // Quality of the brotli compression, from 0 to 11. Above 9 compressing large responses takes seconds
+    @Value("${election.response-cache.brotli-quality:9}")
+    private int brotliQuality = 9;
+
+    // Maximum size in MB of the compressed bytes of all cached responses
+    @Value("${election.response-cache.max-mb:256}")
+    private long maxMb = 256;
+
+    /**
+     * @param objectMapper serializes the responses.
+     * @param electionCache the cache of the elections, the responses of an election are dropped with the election.
+     */
+    @Autowired
+    public ElectionResponseCache(ObjectMapper objectMapper, ElectionCache electionCache) {
+        this.objectMapper = objectMapper;
+        electionCache.addRemovalListener(this::invalidate);
+    }
+
+    /**
+     * Drops the responses of an election.
+     *
+     * @param electionId the id of the election.
+     */
+    public synchronized void invalidate(String electionId) {
+        responses.entrySet().removeIf(entry -> {
+            if (!entry.getKey().electionId().equals(electionId)) {
+                return false;
+            }
+            totalBytes -= entry.getValue().representation().size();
+            return true;
+        });
+    }
+
+    /**
+     * Answers a request for a representation of an election from the cache, serializing and compressing it first
+     * when it isn't cached for this version of the election yet.
+     *
+     * @param request the request, for its <code>Accept-Encoding</code> and <code>If-None-Match</code> headers.
+     * @param election the current version of the election.
+     * @param name the name of the representation, unique per election, e.g. <i>municipalities</i>.
+     * @param body supplies the object that is serialized to JSON.
+     * @return the response with the encoded JSON, or <code>304 Not Modified</code>.
+     */
+    public ResponseEntity<byte[]> respond(HttpServletRequest request, Election election, String name,
+                                          Supplier<Object> body) {
+        Key key = new Key(election.getId(), name);
+        Representation representation = lookup(key, election);
+        if (representation == null) {
+            representation = render(key, election, body);
+        }
+
+        String encoding = selectEncoding(request.getHeader(HttpHeaders.ACCEPT_ENCODING), representation);
+        String etag = encoding == null ? representation.etag() : suffixed(representation.etag(), encoding);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ETAG, etag);
+        headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        // May be stored, but has to be revalidated because a municipality can be published again
+        headers.set(HttpHeaders.CACHE_CONTROL, "no-cache");
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), representation.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+        }
+
+        byte[] bytes;
+        if (BROTLI.equals(encoding)) {
+            bytes = representation.brotli();
+        } else if (GZIP.equals(encoding)) {
+            bytes = representation.gzip();
+        } else {
+            bytes = inflate(representation.gzip());
+        }
+        if (encoding != null) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, encoding);
+        }
+        return ResponseEntity.ok().headers(headers).contentType(MediaType.APPLICATION_JSON).body(bytes);
+    }
+
+    private synchronized Representation lookup(Key key, Election election) {
+        Cached cached = responses.get(key);
+        if (cached == null) {
+            return null;
+        }
+        if (!cached.version().matches(election)) {
+            // Another version of the election, none of its responses is current anymore
+            invalidate(key.electionId());
+            return null;
+        }
+        return cached.representation();
+    }
+
+    /**
+     * Renders a representation outside any lock. When another request is already rendering it for the same version of
+     * the election, this waits for that request instead.
+     */
+    private Representation render(Key key, Election election, Supplier<Object> body) {
+        Rendering render = new Rendering(new Version(election), new CompletableFuture<>());
+        Rendering running = rendering.putIfAbsent(key, render);
+        if (running != null && running.version().matches(election)) {
+            return await(running.result());
+        }
+        boolean registered = running == null;
+        try {
+            // Another request may have stored it between the lookup and the registration of this render
+            Representation representation = lookup(key, election);
+            if (representation == null) {
+                representation = render(body.get());
+                store(key, render.version(), representation);
+            }
+            render.result().complete(representation);
+            return representation;
+        } catch (RuntimeException e) {
+            render.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            if (registered) {
+                rendering.remove(key, render);
+            }
+        }
+    }
+
+    private synchronized void store(Key key, Version version, Representation representation) {
+        long maxBytes = maxMb * 1024 * 1024;
+        if (representation.size() > maxBytes) {
+            // TODO replace with proper usage of a logging framework
+            System.out.printf("Not caching response %s of %s, %d bytes is more than the maximum of %d MB%n",
+                    key.name(), key.electionId(), representation.size(), maxMb);
+            return;
+        }
+        Cached replaced = responses.put(key, new Cached(version, representation));
+        totalBytes += representation.size() - (replaced != null ? replaced.representation().size() : 0);
+
+        var iterator = responses.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<Key, Cached> eldest = iterator.next();
+            if (eldest.getKey().equals(key)) {
+                continue;
+            }
+            totalBytes -= eldest.getValue().representation().size();
+            iterator.remove();
+        }
+    }
+
+    private static Representation await(CompletableFuture<Representation> render) {
+        try {
+            return render.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private Representation render(Object body) {
+        long start = System.nanoTime();
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize response", e);
+        }
+        String etag = '"' + HexFormat.of().formatHex(sha256(json), 0, 16) + '"';
+        byte[] gzip = gzip(json);
+        byte[] brotli = BROTLI_AVAILABLE ? brotli(json) : null;
+        // TODO replace with proper usage of a logging framework
+        System.out.printf("Cached response of %d bytes as %d bytes gzip and %d bytes brotli in %d ms%n", json.length,
+                gzip.length, brotli != null ? brotli.length : 0, (System.nanoTime() - start) / 1_000_000);
+        return new Representation(etag, gzip, brotli);
+    }
+
+    /**
+     * @return the preferred encoding that the client accepts and that is available, <code>null</code> for identity.
+     */
+    static String selectEncoding(String acceptEncoding, boolean brotliAvailable) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        boolean gzip = false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] parameters = part.split(";");
+            String coding = parameters[0].trim().toLowerCase();
+            if (isRejected(parameters)) {
+                continue;
+            }
+            if (brotliAvailable && (coding.equals(BROTLI) || coding.equals("*"))) {
+                return BROTLI;
+            }
+            gzip |= coding.equals(GZIP) || coding.equals("*");
+        }
+        return gzip ? GZIP : null;
+    }
+
+    private static String selectEncoding(String acceptEncoding, Representation representation) {
+        return selectEncoding(acceptEncoding, representation.brotli() != null);
+    }
+
+    // A coding with q=0 is not acceptable
+    private static boolean isRejected(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2)) <= 0;
+                } catch (NumberFormatException e) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compares the entity tags of an <code>If-None-Match</code> header weakly, as RFC 9110 prescribes. The tags of all
+     * encodings of the same JSON match.
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag) || tag.equals(suffixed(etag, GZIP)) || tag.equals(suffixed(etag, BROTLI))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Each encoding is a representation of its own, so it has its own strong entity tag
+    private static String suffixed(String etag, String encoding) {
+        return etag.substring(0, etag.length() - 1) + '-' + encoding + '"';
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length / 8);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes, 64 * 1024) {
+            {
+                // Compressed once and then served many times, so the best compression is worth its time
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] gzip) {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip), 64 * 1024)) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] brotli(byte[] json) {
+        try {
+            return Encoder.compress(json, new Encoder.Parameters().setQuality(brotliQuality));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean loadBrotli() {
+        try {
+            Brotli4jLoader.ensureAvailability();
+            return true;
+        } catch (Throwable e) {
+            // TODO replace with proper usage of a logging framework
+            System.err.println("Brotli is not available, responses are only kept gzip compressed: " + e.getMessage());
+            return false;
+        }
+    }
+}
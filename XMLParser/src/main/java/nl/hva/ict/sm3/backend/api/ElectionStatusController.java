@@ -0,0 +1,83 @@
+package nl.hva.ict.sm3.backend.api;
+
+import nl.hva.ict.sm3.backend.service.ElectionCache;
+import nl.hva.ict.sm3.backend.service.ElectionReadinessService;
+import nl.hva.ict.sm3.backend.service.EntityCacheService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reports the progress of the elections that are loaded in the background when the application starts. These
+ * endpoints are always available, so they can be used by health checks while the elections are still loading.
+ */
+@RestController
+@RequestMapping("/status/elections")
+public class ElectionStatusController {
+
+    private final ElectionReadinessService readinessService;
+    private final ElectionCache electionCache;
+    private final EntityCacheService entityCacheService;
+
+    @Autowired
+    public ElectionStatusController(ElectionReadinessService readinessService, ElectionCache electionCache,
+                                    EntityCacheService entityCacheService) {
+        this.readinessService = readinessService;
+        this.electionCache = electionCache;
+        this.entityCacheService = entityCacheService;
+    }
+
+    /**
+     * Returns whether all elections are ready and the status of each of them.
+     * Example: GET http://localhost:8081/status/elections
+     *
+     * @return <code>ready</code> and the list of <code>elections</code>, in the order in which they are loaded.
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getStatuses() {
+        List<ElectionReadinessService.Status> statuses = readinessService.getStatuses();
+        return ResponseEntity.ok(Map.of("ready", readinessService.isReady(), "elections", statuses));
+    }
+
+    /**
+     * Returns the hit, miss and load counters of the election cache.
+     * Example: GET http://localhost:8081/status/elections/cache
+     *
+     * @return the counters and the number and estimated size of the cached elections.
+     */
+    @GetMapping("/cache")
+    public ResponseEntity<ElectionCache.Stats> getCacheStats() {
+        return ResponseEntity.ok(electionCache.getStats());
+    }
+
+    /**
+     * Returns the hit, miss and put counts of the regions of the Hibernate second-level and query cache.
+     * Example: GET http://localhost:8081/status/elections/cache/regions
+     *
+     * @return the counters per region, empty when Hibernate doesn't collect statistics.
+     */
+    @GetMapping("/cache/regions")
+    public ResponseEntity<List<EntityCacheService.RegionStatistics>> getCacheRegionStatistics() {
+        return ResponseEntity.ok(entityCacheService.getRegionStatistics());
+    }
+
+    /**
+     * Returns the status of a single election.
+     * Example: GET http://localhost:8081/status/elections/TK2023
+     *
+     * @param electionId ID of the election
+     * @return the status, or 404 when the election isn't loaded in the background.
+     */
+    @GetMapping("/{electionId}")
+    public ResponseEntity<ElectionReadinessService.Status> getStatus(@PathVariable String electionId) {
+        return readinessService.getStatus(electionId.trim())
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
@@ -1,10 +1,12 @@
 package nl.hva.ict.sm3.backend.api;
 
+import jakarta.servlet.http.HttpServletRequest;
 import nl.hva.ict.sm3.backend.dto.NationalDto;
 import nl.hva.ict.sm3.backend.model.Election;
 import nl.hva.ict.sm3.backend.model.National;
 import nl.hva.ict.sm3.backend.service.DutchElectionService;
 import nl.hva.ict.sm3.backend.service.NationalService;
+import nl.hva.ict.sm3.backend.utils.seats.SeatAllocationMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -17,10 +19,13 @@ public class NationalController {
     
     private final DutchElectionService electionService;
     private final NationalService nationalService;
+    private final ElectionResponseCache responseCache;
 
-    public NationalController(DutchElectionService electionService, NationalService nationalService) {
+    public NationalController(DutchElectionService electionService, NationalService nationalService,
+                              ElectionResponseCache responseCache) {
         this.electionService = electionService;
         this.nationalService = nationalService;
+        this.responseCache = responseCache;
     }
 
     /*
@@ -29,17 +34,15 @@ public class NationalController {
       Link for national results: GET http://localhost:8081/elections/TK2023/national/results
      */
     @GetMapping("/results")
-    public ResponseEntity<List<NationalDto>> getNationalResults(@PathVariable String electionId) {
+    public ResponseEntity<byte[]> getNationalResults(@PathVariable String electionId, HttpServletRequest request) {
         Election election = getOrLoadElection(electionId);
         if (election == null) {
             return ResponseEntity.notFound().build();
         }
         
-        List<NationalDto> response = election.getNationalVotes().stream()
+        return responseCache.respond(request, election, "national-results", () -> election.getNationalVotes().stream()
                 .map(NationalDto::from)
-                .toList();
-        
-        return ResponseEntity.ok(response);
+                .toList());
     }
 
     /*
@@ -80,6 +83,28 @@ public class NationalController {
         return ResponseEntity.ok(seatAllocations);
     }
 
+    /*
+      GET /elections/{electionId}/national/seats/simulate
+      Calculates a "what if" seat allocation with another method or number of seats, nothing is stored.
+      Methods: KIESWET (default), D_HONDT, SAINTE_LAGUE, LARGEST_REMAINDER
+      Example link: GET http://localhost:8081/elections/TK2023/national/seats/simulate?method=SAINTE_LAGUE&seats=150
+     */
+    @GetMapping("/seats/simulate")
+    public ResponseEntity<Map<String, Integer>> simulateSeatAllocations(
+            @PathVariable String electionId,
+            @RequestParam(defaultValue = "KIESWET") SeatAllocationMethod method,
+            @RequestParam(defaultValue = "150") int seats) {
+        if (seats < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        Election election = getOrLoadElection(electionId);
+        if (election == null) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        return ResponseEntity.ok(nationalService.calculateSeats(election, method, seats));
+    }
+
     /*
       GET /elections/{electionId}/national/results-with-seats
       Returns national results with seats already calculated.
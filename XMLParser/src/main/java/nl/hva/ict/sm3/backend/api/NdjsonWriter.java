@@ -0,0 +1,71 @@
+package nl.hva.ict.sm3.backend.api;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes values as newline delimited JSON (<code>application/x-ndjson</code>), one value per line, directly to the
+ * response. Only the value that is being written is kept in memory, so the memory use of a response doesn't depend on
+ * the number of values. The output is flushed after the first line and then every {@link #FLUSH_INTERVAL} lines, so a
+ * client can start reading before the last value is written.
+ */
+final class NdjsonWriter {
+    private static final int FLUSH_INTERVAL = 256;
+
+    /**
+     * Writes the lines of a response.
+     */
+    @FunctionalInterface
+    interface Lines {
+        void writeTo(NdjsonWriter writer) throws IOException;
+    }
+
+    private final ObjectWriter objectWriter;
+    private final JsonGenerator generator;
+    private int count;
+
+    private NdjsonWriter(ObjectWriter objectWriter, JsonGenerator generator) {
+        this.objectWriter = objectWriter;
+        this.generator = generator;
+    }
+
+    /**
+     * Creates a response that streams the lines once the request has been handled, on a thread of the async
+     * executor of Spring MVC.
+     */
+    static ResponseEntity<StreamingResponseBody> response(ObjectMapper objectMapper, Lines lines) {
+        StreamingResponseBody body = out -> write(objectMapper, out, lines);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    static void write(ObjectMapper objectMapper, OutputStream out, Lines lines) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            // The response stream is closed by the container
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Every line ends with a newline, so no separator is needed between the values
+            generator.setRootValueSeparator(null);
+            // Flushing after every value would send every line in a packet of its own
+            ObjectWriter objectWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            lines.writeTo(new NdjsonWriter(objectWriter, generator));
+        }
+    }
+
+    /**
+     * Writes a value as one line.
+     */
+    void write(Object value) throws IOException {
+        objectWriter.writeValue(generator, value);
+        generator.writeRaw('\n');
+        if (++count % FLUSH_INTERVAL == 1) {
+            generator.flush();
+        }
+    }
+}
@@ -3,15 +3,40 @@ package nl.hva.ict.sm3.backend.config;
 import nl.hva.ict.sm3.backend.model.Election;
 import nl.hva.ict.sm3.backend.repository.ElectionRepository;
 import nl.hva.ict.sm3.backend.service.DutchElectionService;
+import nl.hva.ict.sm3.backend.service.ElectionReadinessService;
+import nl.hva.ict.sm3.backend.utils.snapshot.ElectionSnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Profile;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * DataInitializer that automatically loads election data on application startup.
- * Only runs in non-test profiles.
+ * Only runs in non-test profiles.<br/>
+ * <br/>
+ * After an election has been parsed a binary snapshot of it is written, see {@link ElectionSnapshot}. On the next
+ * start the election is read from that snapshot and put in the cache of the service, without parsing the XML files or
+ * loading it from the database. When files have been added or changed since, the election is loaded through the
+ * service instead, which only parses those files.<br/>
+ * <br/>
+ * The elections are loaded in the background on a small pool of threads of their own, so the application starts
+ * serving requests right away. The elections in <code>election.initializer.priority</code>, the ones that are
+ * requested most, are loaded first, the others follow as soon as a thread is available. Until an election is ready
+ * its endpoints answer with <code>503</code>, the progress is reported by the {@link ElectionReadinessService}.
  */
 @Component
 @Profile("!test")
@@ -20,12 +45,31 @@ public class DataInitializer implements CommandLineRunner {
     
     private final DutchElectionService electionService;
     private final ElectionRepository electionRepository;
+    private final ElectionReadinessService readinessService;
+
+    // The elections that are loaded on startup
+    @Value("${election.initializer.elections:TK2021,TK2023,TK2025}")
+    private List<String> electionIds;
+
+    // The elections that are loaded before the others, in this order
+    @Value("${election.initializer.priority:TK2023}")
+    private List<String> priorityIds;
+
+    // Number of elections that are loaded at the same time
+    @Value("${election.initializer.threads:2}")
+    private int threads;
+
+    // Folder with the binary snapshots of the parsed elections, empty to disable snapshots
+    @Value("${election.snapshot.directory:}")
+    private String snapshotDirectory;
     
     @Autowired
     public DataInitializer(DutchElectionService electionService, 
-                          ElectionRepository electionRepository) {
+                          ElectionRepository electionRepository,
+                          ElectionReadinessService readinessService) {
         this.electionService = electionService;
         this.electionRepository = electionRepository;
+        this.readinessService = readinessService;
     }
 
     @Override
@@ -38,19 +82,44 @@ public class DataInitializer implements CommandLineRunner {
         long currentCount = electionRepository.count();
         System.out.println("Elections currently in database: " + currentCount);
         
-        // Elections to load
-        String[] electionIds = {"TK2021", "TK2023", "TK2025"};
-        
-        for (String electionId : electionIds) {
-            loadElection(electionId);
+        // Elections to load, the priority ones first
+        List<String> order = getLoadOrder();
+        // Registered before any request can arrive, so no endpoint serves an election that is about to be loaded
+        order.forEach(readinessService::queued);
+
+        int poolSize = Math.max(1, Math.min(threads, order.size()));
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "election-loader-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<CompletableFuture<Void>> loads = new ArrayList<>();
+        for (String electionId : order) {
+            loads.add(CompletableFuture.runAsync(() -> loadElection(electionId), executor));
         }
-        
-        // Final status
-        long finalCount = electionRepository.count();
-        System.out.println("\n========================================");
-        System.out.println("     DataInitializer Complete");
-        System.out.println("     Elections in database: " + finalCount);
-        System.out.println("========================================\n");
+        CompletableFuture.allOf(loads.toArray(CompletableFuture[]::new)).whenComplete((result, failure) -> {
+            executor.shutdown();
+            // Final status
+            long finalCount = electionRepository.count();
+            System.out.println("\n========================================");
+            System.out.println("     DataInitializer Complete");
+            System.out.println("     Elections in database: " + finalCount);
+            System.out.println("========================================\n");
+        });
+        System.out.printf("Loading %s in the background on %d thread(s)%n", order, poolSize);
+    }
+
+    /**
+     * @return the elections to load, first the priority elections that are to be loaded at all, then the others.
+     */
+    private List<String> getLoadOrder() {
+        Set<String> all = new LinkedHashSet<>();
+        electionIds.stream().map(String::trim).filter(id -> !id.isEmpty()).forEach(all::add);
+        Set<String> order = new LinkedHashSet<>();
+        priorityIds.stream().map(String::trim).filter(all::contains).forEach(order::add);
+        order.addAll(all);
+        return new ArrayList<>(order);
     }
     
     private void loadElection(String electionId) {
@@ -59,8 +128,19 @@ public class DataInitializer implements CommandLineRunner {
             // Don't check here to avoid lazy loading issues
             
             System.out.println("\nLoading " + electionId + "...");
+
+            // A snapshot is only used when none of the files have changed since the election was parsed
+            readinessService.loading(electionId, "checking files");
+            if (!electionService.hasChangedFiles(electionId, electionId)) {
+                readinessService.loading(electionId, "reading snapshot");
+                if (loadSnapshot(electionId)) {
+                    readinessService.ready(electionId);
+                    return;
+                }
+            }
             
             // Load from XML and save to database
+            readinessService.loading(electionId, "parsing");
             Election election = electionService.readResults(electionId, electionId);
             
             if (election != null) {
@@ -69,15 +149,65 @@ public class DataInitializer implements CommandLineRunner {
                 // Also load candidate lists if needed
                 if (election.getCandidates().isEmpty()) {
                     System.out.println("  Loading candidates for " + electionId + "...");
+                    readinessService.loading(electionId, "loading candidates");
                     electionService.loadCandidateLists(election, electionId);
                 }
+
+                // The election is in the cache of the service, the snapshot is only needed for the next start
+                readinessService.ready(electionId);
+                writeSnapshot(electionId, election);
             } else {
                 System.err.println("✗ Failed to load " + electionId);
+                readinessService.failed(electionId, "could not be loaded");
             }
             
         } catch (Exception e) {
             System.err.println("✗ Error loading " + electionId + ": " + e.getMessage());
             e.printStackTrace();
+            readinessService.failed(electionId, String.valueOf(e.getMessage()));
+        }
+    }
+
+    /**
+     * Reads the election from its snapshot and puts it in the cache of the service.
+     *
+     * @return <code>true</code> when the election has been loaded, <code>false</code> when it has to be parsed.
+     */
+    private boolean loadSnapshot(String electionId) {
+        Path snapshot = getSnapshot(electionId);
+        if (snapshot == null || !Files.isRegularFile(snapshot)) {
+            return false;
         }
+
+        long start = System.nanoTime();
+        try {
+            Election election = ElectionSnapshot.read(snapshot);
+            electionService.cacheElection(electionId, election);
+            System.out.printf("✓ %s loaded from snapshot in %d ms%n", electionId, (System.nanoTime() - start) / 1_000_000);
+            return true;
+        } catch (IOException e) {
+            // An old or damaged snapshot is replaced after parsing the election again
+            System.err.println("Ignoring snapshot of " + electionId + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void writeSnapshot(String electionId, Election election) {
+        Path snapshot = getSnapshot(electionId);
+        if (snapshot == null) {
+            return;
+        }
+
+        try {
+            ElectionSnapshot.write(election, snapshot);
+            System.out.println("  Snapshot written to " + snapshot);
+        } catch (IOException e) {
+            System.err.println("  Could not write snapshot of " + electionId + ": " + e.getMessage());
+        }
+    }
+
+    private Path getSnapshot(String electionId) {
+        return snapshotDirectory == null || snapshotDirectory.isBlank()
+                ? null : Path.of(snapshotDirectory, electionId + ".snapshot");
     }
 }
@@ -0,0 +1,48 @@
+package nl.hva.ict.sm3.backend.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import nl.hva.ict.sm3.backend.service.ElectionReadinessService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Answers requests for an election that is still being loaded in the background with
+ * <code>503 Service Unavailable</code> and a <code>Retry-After</code> header, instead of letting the controller load
+ * the same election a second time or serve an incomplete one. The election is taken from the
+ * <code>{electionId}</code> path variable, requests without one are never held back. It is registered by
+ * {@link WebConfig}.
+ */
+public class ElectionReadinessInterceptor implements HandlerInterceptor {
+
+    private final ElectionReadinessService readinessService;
+
+    public ElectionReadinessInterceptor(ElectionReadinessService readinessService) {
+        this.readinessService = readinessService;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String electionId = variables != null ? variables.get("electionId") : null;
+        if (electionId == null || !readinessService.isLoading(electionId.trim())) {
+            return true;
+        }
+
+        ElectionReadinessService.Status status = readinessService.getStatus(electionId.trim()).orElseThrow();
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(readinessService.getRetryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        // The values are ids and fixed phase names, nothing that needs escaping
+        response.getWriter().printf("{\"electionId\":\"%s\",\"state\":\"%s\",\"phase\":\"%s\"}",
+                status.electionId(), status.state(), status.phase());
+        return false;
+    }
+}
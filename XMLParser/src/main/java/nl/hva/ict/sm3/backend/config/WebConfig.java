@@ -0,0 +1,31 @@
+package nl.hva.ict.sm3.backend.config;
+
+import nl.hva.ict.sm3.backend.service.ElectionReadinessService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Registers the interceptors of the election endpoints. CORS is configured in {@link CorsConfig}.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final ObjectProvider<ElectionReadinessService> readinessService;
+
+    @Autowired
+    public WebConfig(ObjectProvider<ElectionReadinessService> readinessService) {
+        this.readinessService = readinessService;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // The services are not available in the web slice tests, which only load the controllers
+        ElectionReadinessService service = readinessService.getIfAvailable();
+        if (service != null) {
+            registry.addInterceptor(new ElectionReadinessInterceptor(service)).addPathPatterns("/elections/**");
+        }
+    }
+}
@@ -1,10 +1,24 @@
 package nl.hva.ict.sm3.backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 import java.util.Map;
 
+/**
+ * An election as it is sent to the front-end. The parts that are not requested are <code>null</code> and left out of
+ * the JSON, so the summary only has the counts and the links to the sub-resources.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class ElectionDto {
     private String id;
+    private int constituencyCount;
+    private int municipalityCount;
+    // Null when the polling stations are loaded lazily, they are not in memory to be counted
+    private Integer pollingStationCount;
+    private int partyCount;
+    private int candidateCount;
+    private Map<String, String> links;
     private List<ConstituencyDto> constituencies;
     private List<PartyDto> parties;
     private List<CandidateDto> candidates;
@@ -20,6 +34,54 @@ public class ElectionDto {
         this.id = id;
     }
 
+    public int getConstituencyCount() {
+        return constituencyCount;
+    }
+
+    public void setConstituencyCount(int constituencyCount) {
+        this.constituencyCount = constituencyCount;
+    }
+
+    public int getMunicipalityCount() {
+        return municipalityCount;
+    }
+
+    public void setMunicipalityCount(int municipalityCount) {
+        this.municipalityCount = municipalityCount;
+    }
+
+    public Integer getPollingStationCount() {
+        return pollingStationCount;
+    }
+
+    public void setPollingStationCount(Integer pollingStationCount) {
+        this.pollingStationCount = pollingStationCount;
+    }
+
+    public int getPartyCount() {
+        return partyCount;
+    }
+
+    public void setPartyCount(int partyCount) {
+        this.partyCount = partyCount;
+    }
+
+    public int getCandidateCount() {
+        return candidateCount;
+    }
+
+    public void setCandidateCount(int candidateCount) {
+        this.candidateCount = candidateCount;
+    }
+
+    public Map<String, String> getLinks() {
+        return links;
+    }
+
+    public void setLinks(Map<String, String> links) {
+        this.links = links;
+    }
+
     public List<ConstituencyDto> getConstituencies() {
         return constituencies;
     }
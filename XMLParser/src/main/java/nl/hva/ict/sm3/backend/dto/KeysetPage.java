@@ -0,0 +1,13 @@
+package nl.hva.ict.sm3.backend.dto;
+
+import java.util.List;
+
+/**
+ * One page of a listing that is paged on its sort key instead of an offset, so every page costs as much as the first
+ * one and rows that are added meanwhile don't shift the pages.
+ *
+ * @param items the rows of this page.
+ * @param next the opaque token that gets the next page, <code>null</code> on the last page.
+ */
+public record KeysetPage<T>(List<T> items, String next) {
+}
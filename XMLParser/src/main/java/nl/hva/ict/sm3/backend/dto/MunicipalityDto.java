@@ -1,7 +1,10 @@
 package nl.hva.ict.sm3.backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class MunicipalityDto {
     private String id;
     private String name;
@@ -1,9 +1,13 @@
 package nl.hva.ict.sm3.backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class PollingStationDto {
     private String id;
+    private String municipalityId;
     private String name;
     private String postalCode;
     private int validVotes;
@@ -18,6 +22,14 @@ public class PollingStationDto {
         this.id = id;
     }
 
+    public String getMunicipalityId() {
+        return municipalityId;
+    }
+
+    public void setMunicipalityId(String municipalityId) {
+        this.municipalityId = municipalityId;
+    }
+
     public String getName() {
         return name;
     }
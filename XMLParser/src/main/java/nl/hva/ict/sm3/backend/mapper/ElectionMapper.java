@@ -2,9 +2,13 @@ package nl.hva.ict.sm3.backend.mapper;
 
 import nl.hva.ict.sm3.backend.dto.*;
 import nl.hva.ict.sm3.backend.model.*;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -15,40 +19,84 @@ import java.util.stream.Collectors;
 public class ElectionMapper {
     
     /**
-     * Converts an Election entity to an ElectionDto.
+     * The deepest level of {@link #toElectionDto(Election, int, Set)}: 1 adds the constituencies, 2 their
+     * municipalities and 3 the polling stations of the municipalities.
+     */
+    public static final int MAX_DEPTH = 3;
+
+    /**
+     * The parts of an election that can be requested with {@link #toElectionDto(Election, int, Set)}.
+     */
+    public static final Set<String> FIELDS =
+            Set.of("constituencies", "parties", "candidates", "nationalVotes", "seatAllocations");
+
+    // The polling stations are left out while loading, so they can't be counted, see PollingStationService
+    @Value("${election.polling-stations.lazy:false}")
+    private boolean lazyPollingStations;
+
+    /**
+     * Converts an Election entity to an ElectionDto with all its data.
      * Filters out any National objects with null type.
      */
     public ElectionDto toElectionDto(Election election) {
+        return toElectionDto(election, MAX_DEPTH, FIELDS);
+    }
+
+    /**
+     * Converts an Election entity to a summary of it: the counts of its parts and the links to the endpoints that
+     * return them. Its size doesn't depend on the number of polling stations.
+     */
+    public ElectionDto toElectionSummary(Election election) {
+        return toElectionDto(election, 0, Set.of());
+    }
+
+    /**
+     * Converts an Election entity to an ElectionDto with only the requested parts, next to the counts and links of
+     * the summary.<br/>
+     * <br/>
+     * The constituencies are included when they are in <code>fields</code>, or when no fields are given and
+     * <code>depth</code> is at least 1. The depth decides how far the constituencies are expanded, see
+     * {@link #MAX_DEPTH}.
+     *
+     * @param election the election.
+     * @param depth how far the constituencies are expanded, from 0 to {@link #MAX_DEPTH}.
+     * @param fields the parts to include, a subset of {@link #FIELDS}, empty for the default of the depth.
+     */
+    public ElectionDto toElectionDto(Election election, int depth, Set<String> fields) {
         if (election == null) {
             return null;
         }
         
         ElectionDto dto = new ElectionDto();
         dto.setId(election.getId());
+        setCounts(dto, election);
+        dto.setLinks(links(election.getId()));
         
         // Map constituencies
-        if (election.getConstituencies() != null) {
+        boolean constituencies = fields.isEmpty() ? depth > 0 : fields.contains("constituencies");
+        if (constituencies && election.getConstituencies() != null) {
+            int below = Math.max(depth, 1) - 1;
             dto.setConstituencies(election.getConstituencies().stream()
-                .map(this::toConstituencyDto)
+                .map(constituency -> toConstituencyDto(constituency, below))
                 .collect(Collectors.toList()));
         }
         
         // Map parties
-        if (election.getParties() != null) {
+        if (fields.contains("parties") && election.getParties() != null) {
             dto.setParties(election.getParties().stream()
                 .map(this::toPartyDto)
                 .collect(Collectors.toList()));
         }
         
         // Map candidates
-        if (election.getCandidates() != null) {
+        if (fields.contains("candidates") && election.getCandidates() != null) {
             dto.setCandidates(election.getCandidates().stream()
                 .map(this::toCandidateDto)
                 .collect(Collectors.toList()));
         }
         
         // Map national votes - FILTER OUT NULL TYPES
-        if (election.getNationalVotes() != null) {
+        if (fields.contains("nationalVotes") && election.getNationalVotes() != null) {
             List<NationalDto> nationalDtos = election.getNationalVotes().stream()
                 .filter(n -> n != null && n.getType() != null) // Filter out null types
                 .map(this::toNationalDto)
@@ -65,15 +113,66 @@ public class ElectionMapper {
         }
         
         // Map seat allocations
-        dto.setSeatAllocations(election.getSeatAllocations());
+        if (fields.contains("seatAllocations")) {
+            dto.setSeatAllocations(election.getSeatAllocations());
+        }
         
         return dto;
     }
+
+    // Counts the parts of the election, the polling stations are left out when they are loaded lazily
+    private void setCounts(ElectionDto dto, Election election) {
+        int municipalities = 0;
+        int pollingStations = 0;
+        List<Constituency> constituencies = election.getConstituencies();
+        if (constituencies != null) {
+            for (Constituency constituency : constituencies) {
+                if (constituency.getMunicipalities() == null) {
+                    continue;
+                }
+                municipalities += constituency.getMunicipalities().size();
+                for (Municipality municipality : constituency.getMunicipalities()) {
+                    if (municipality.getPollingStations() != null) {
+                        pollingStations += municipality.getPollingStations().size();
+                    }
+                }
+            }
+        }
+        dto.setConstituencyCount(constituencies != null ? constituencies.size() : 0);
+        dto.setMunicipalityCount(municipalities);
+        dto.setPollingStationCount(lazyPollingStations ? null : pollingStations);
+        dto.setPartyCount(election.getParties() != null ? election.getParties().size() : 0);
+        dto.setCandidateCount(election.getCandidates() != null ? election.getCandidates().size() : 0);
+    }
+
+    /**
+     * @return the endpoints that return the parts of an election, relative to the root of the API.
+     */
+    private Map<String, String> links(String electionId) {
+        String self = "/elections/" + electionId;
+        Map<String, String> links = new LinkedHashMap<>();
+        links.put("self", self);
+        links.put("constituencies", self + "/constituencies");
+        links.put("municipalities", self + "/municipalities");
+        links.put("pollingStations", self + "/pollingstations");
+        links.put("topParties", self + "/top-parties");
+        links.put("nationalResults", self + "/national/results");
+        links.put("seats", self + "/national/seats");
+        return links;
+    }
     
     /**
      * Converts a Constituency entity to a ConstituencyDto.
      */
     public ConstituencyDto toConstituencyDto(Constituency constituency) {
+        return toConstituencyDto(constituency, MAX_DEPTH - 1);
+    }
+
+    /**
+     * Converts a Constituency entity to a ConstituencyDto, with its municipalities when <code>depth</code> is at
+     * least 1 and their polling stations when it is at least 2.
+     */
+    public ConstituencyDto toConstituencyDto(Constituency constituency, int depth) {
         if (constituency == null) {
             return null;
         }
@@ -83,9 +182,9 @@ public class ElectionMapper {
         dto.setName(constituency.getName());
         dto.setTotalVotes(constituency.getTotalVotes());
         
-        if (constituency.getMunicipalities() != null) {
+        if (depth > 0 && constituency.getMunicipalities() != null) {
             dto.setMunicipalities(constituency.getMunicipalities().stream()
-                .map(this::toMunicipalityDto)
+                .map(municipality -> toMunicipalityDto(municipality, depth - 1))
                 .collect(Collectors.toList()));
         }
         
@@ -96,6 +195,14 @@ public class ElectionMapper {
      * Converts a Municipality entity to a MunicipalityDto.
      */
     public MunicipalityDto toMunicipalityDto(Municipality municipality) {
+        return toMunicipalityDto(municipality, 1);
+    }
+
+    /**
+     * Converts a Municipality entity to a MunicipalityDto, with its polling stations when <code>depth</code> is at
+     * least 1.
+     */
+    public MunicipalityDto toMunicipalityDto(Municipality municipality, int depth) {
         if (municipality == null) {
             return null;
         }
@@ -105,7 +212,7 @@ public class ElectionMapper {
         dto.setName(municipality.getName());
         dto.setValidVotes(municipality.getValidVotes());
         
-        if (municipality.getPollingStations() != null) {
+        if (depth > 0 && municipality.getPollingStations() != null) {
             dto.setPollingStations(municipality.getPollingStations().stream()
                 .map(this::toPollingStationDto)
                 .collect(Collectors.toList()));
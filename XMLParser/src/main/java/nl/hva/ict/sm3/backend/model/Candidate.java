@@ -16,9 +16,11 @@ import jakarta.persistence.*;
  * </p>
  */
 @Entity
-@Table(name = "candidates")
+// The votes index serves the keyset pages of CandidateRepository, election_id is the join column of Election
+@Table(name = "candidates",
+       indexes = @Index(name = "idx_candidates_election_votes", columnList = "election_id, votes, id"))
 @Cacheable
-@org.hibernate.annotations.Cache(usage = org.hibernate.annotations.CacheConcurrencyStrategy.READ_WRITE)
+@org.hibernate.annotations.Cache(usage = org.hibernate.annotations.CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 public class Candidate {
     @Id
     private String id;
@@ -26,13 +26,17 @@ public class Constituency {
     @Column(name = "name")
     private String name;
     
+    // Replaced instead of changed by replaceMunicipality, see getMunicipalities()
     @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JoinColumn(name = "constituency_id")
-    private List<Municipality> municipalities = new ArrayList<>();
+    private volatile List<Municipality> municipalities = new ArrayList<>();
     
     @Column(name = "total_votes")
     private int totalVotes = 0;
 
+    @Transient
+    private final EntityIndex<Municipality> municipalityIndex = EntityIndex.byKey(Municipality::getId);
+
     // Default constructor for JPA
     protected Constituency() {}
 
@@ -58,8 +62,33 @@ public class Constituency {
 
     public void addMunicipality(Municipality m) {
         municipalities.add(m);
+        municipalityIndex.added(m);
         totalVotes += m.getValidVotes(); // sum votes
     }
+    /**
+     * Replaces the municipality with the same ID by a newer version, for example when the results of a municipality
+     * have been published again. The total valid vote count is corrected for the difference.<br/>
+     * <br/>
+     * The list of municipalities is copied and the copy replaces it (copy-on-write), so code that is iterating over
+     * the municipalities at the same moment keeps iterating over the old version. A municipality that is not part of
+     * this constituency yet is added to the copy. Replacements of the same constituency must not run concurrently.
+     *
+     * @param m the new version of the municipality
+     * @return the municipality that has been replaced, or {@code null} if it was added
+     */
+    public Municipality replaceMunicipality(Municipality m) {
+        Municipality existing = getMunicipalityById(m.getId());
+        List<Municipality> copy = new ArrayList<>(municipalities);
+        if (existing == null) {
+            copy.add(m);
+        } else {
+            copy.set(copy.indexOf(existing), m);
+        }
+        municipalities = copy;
+        municipalityIndex.invalidate();
+        totalVotes += m.getValidVotes() - (existing != null ? existing.getValidVotes() : 0);
+        return existing;
+    }
     /**
      * Searches for a municipality within this constituency by ID.
      *
@@ -67,12 +96,7 @@ public class Constituency {
      * @return the matching municipality, or {@code null} if not found
      */
     public Municipality getMunicipalityById(String municipalityId) {
-        for (Municipality m : municipalities) {
-            if (m.getId().equals(municipalityId)) {
-                return m;
-            }
-        }
-        return null;
+        return municipalityIndex.get(municipalityId, municipalities, municipalities.size());
     }
     /**
      * Adds votes manually to the total vote count.
@@ -96,7 +120,8 @@ public class Constituency {
         return name;
     }
     /**
-     * @return list of municipalities belonging to this constituency
+     * @return list of municipalities belonging to this constituency. Once the constituency is shared it is only
+     *         replaced, not changed, by {@link #replaceMunicipality(Municipality)}, so it can be iterated without a lock.
      */
     public List<Municipality> getMunicipalities() { return municipalities; }
 
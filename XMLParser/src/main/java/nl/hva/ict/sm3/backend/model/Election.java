@@ -1,6 +1,8 @@
 package nl.hva.ict.sm3.backend.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import java.text.Normalizer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -17,14 +19,20 @@ import java.util.Map;
  * <ul>
  *   <li>Lazy loading - Related entities (constituencies, parties, candidates, national votes)
  *       are loaded only when accessed</li>
- *   <li>Caching - Entity is cached at the second level to reduce database queries</li>
+ *   <li>Caching - Entity is cached at the second level to reduce database queries, nonstrict read-write because
+ *       an election is saved again through JPA when <code>election.persistence.bulk</code> is off, the bulk writer
+ *       evicts the rows it rewrites, see <code>ElectionBulkWriter</code></li>
+ *   <li>Indexing - Constituencies, municipalities and candidates are looked up through in-memory hash indexes
+ *       instead of scanning the collections, see {@link EntityIndex}</li>
+ *   <li>Vote matrix - Votes are added up from a dense party × reporting unit array instead of the maps of
+ *       every municipality, see {@link VoteMatrix}</li>
  * </ul>
  * </p>
  */
 @Entity
 @Table(name = "elections")
 @Cacheable
-@org.hibernate.annotations.Cache(usage = org.hibernate.annotations.CacheConcurrencyStrategy.READ_WRITE)
+@org.hibernate.annotations.Cache(usage = org.hibernate.annotations.CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 public class Election {
     @Id
     private String id;
@@ -70,6 +78,19 @@ public class Election {
     @Column(name = "seats")
     private Map<String, Integer> seatAllocations = new HashMap<>();
 
+    @Transient
+    private final EntityIndex<Constituency> constituencyIndex = EntityIndex.byKey(Constituency::getId);
+    @Transient
+    private final EntityIndex<Municipality> municipalityIndex = EntityIndex.byKey(Municipality::getId);
+    @Transient
+    private final EntityIndex<Candidate> candidateIndex = EntityIndex.byKey(Candidate::getId);
+    @Transient
+    private final EntityIndex<Candidate> shortCodeIndex = EntityIndex.byKeys(Election::shortCodeKeys);
+    @Transient
+    private volatile VoteMatrix voteMatrix;
+    // Changes whenever the election is changed through its methods, see getRevision()
+    @Transient
+    private volatile long revision;
 
     // Default constructor for JPA
     protected Election() {}
@@ -92,6 +113,7 @@ public class Election {
     public List<National> getNationalVotesCopy() { return new ArrayList<>(nationalVotes); }
 
     public void addConstituency(Constituency newConstituency) {
+        revision++;
         Constituency existing = getConstituencyById(newConstituency.getId());
         if (existing != null) {
             for (Municipality m : newConstituency.getMunicipalities()) {
@@ -99,18 +121,24 @@ public class Election {
             }
         } else {
             constituencies.add(newConstituency);
+            constituencyIndex.added(newConstituency);
         }
     }
 
     public void addCandidate(Candidate candidate) {
+        revision++;
         candidates.add(candidate);
+        candidateIndex.added(candidate);
+        shortCodeIndex.added(candidate);
     }
 
     public void addParty(Party party) {
+        revision++;
         parties.put(party.getId(), party);
     }
 
     public void addNationalVotes(National national) {
+        revision++;
         nationalVotes.add(national);
     }
     
@@ -118,6 +146,7 @@ public class Election {
      * Clears all national votes. Use this before re-adding filtered votes.
      */
     public void clearNationalVotes() {
+        revision++;
         nationalVotes.clear();
     }
     
@@ -126,6 +155,7 @@ public class Election {
      * Used when updating seat counts.
      */
     public void replaceNationalVote(String nationalId, National updatedNational) {
+        revision++;
         for (int i = 0; i < nationalVotes.size(); i++) {
             if (nationalVotes.get(i).getId().equals(nationalId)) {
                 nationalVotes.set(i, updatedNational);
@@ -140,6 +170,7 @@ public class Election {
      * Sets the seat allocations for parties.
      */
     public void setSeatAllocations(Map<String, Integer> seatAllocations) {
+        revision++;
         this.seatAllocations = new HashMap<>(seatAllocations);
     }
     
@@ -158,10 +189,7 @@ public class Election {
     }
 
     public Constituency getConstituencyById(String id) {
-        return constituencies.stream()
-                .filter(c -> c.getId().equals(id))
-                .findFirst()
-                .orElse(null);
+        return constituencyIndex.get(id, constituencies, constituencies.size());
     }
 
     public Party getPartyById(String partyId) {
@@ -181,11 +209,74 @@ public class Election {
                 .toList();
     }
 
+    /**
+     * Returns the votes of all municipalities and polling stations as a {@link VoteMatrix}. The matrix is built the
+     * first time and again whenever municipalities or polling stations have been added since. When votes are added to
+     * existing reporting units afterward, call {@link #invalidateVoteMatrix()}.
+     */
+    @JsonIgnore
+    public VoteMatrix getVoteMatrix() {
+        VoteMatrix matrix = voteMatrix;
+        if (matrix == null || !matrix.matches(this)) {
+            matrix = VoteMatrix.of(this);
+            voteMatrix = matrix;
+        }
+        return matrix;
+    }
+
+    /**
+     * Drops the vote matrix, it is built again on the next call to {@link #getVoteMatrix()}. This also counts as a
+     * change of the election, see {@link #getRevision()}.
+     */
+    public void invalidateVoteMatrix() {
+        revision++;
+        voteMatrix = null;
+    }
+
+    /**
+     * Tells whether the election has been changed since an earlier call, e.g. because a municipality has been replaced
+     * or the seats have been calculated. The changes that are made to the constituencies, municipalities or national
+     * votes directly are not noticed, call {@link #invalidateVoteMatrix()} after those.<br/>
+     * <br/>
+     * Concurrent changes may be counted once, but the revision always differs from the one before the changes.
+     *
+     * @return a number that changes with every change of the election.
+     */
+    @JsonIgnore
+    public long getRevision() {
+        return revision;
+    }
+
+    /**
+     * Replaces a municipality, including its polling stations, by a newer version. This is how results that are
+     * published again are applied without parsing the rest of the election. The vote matrix is built again on the
+     * next call to {@link #getVoteMatrix()}.
+     *
+     * @param constituencyId the constituency of the municipality.
+     * @param municipality the new version of the municipality.
+     * @return the municipality that has been replaced, or <code>null</code> when it is new or the constituency is
+     *         unknown.
+     */
+    public Municipality replaceMunicipality(String constituencyId, Municipality municipality) {
+        Constituency constituency = getConstituencyById(constituencyId);
+        if (constituency == null) {
+            return null;
+        }
+        Municipality replaced = constituency.replaceMunicipality(municipality);
+        municipalityIndex.invalidate();
+        invalidateVoteMatrix();
+        return replaced;
+    }
+
     public Municipality getMunicipalityById(String municipalityId) {
-        return getAllMunicipalities().stream()
-                .filter(m -> m.getId().equals(municipalityId))
-                .findFirst()
-                .orElse(null);
+        // The municipalities are added to the constituencies directly, so the total tells whether the index is current.
+        int size = 0;
+        for (Constituency constituency : constituencies) {
+            size += constituency.getMunicipalities().size();
+        }
+        return municipalityIndex.get(municipalityId, () -> constituencies.stream()
+                .flatMap(c -> c.getMunicipalities().stream())
+                .iterator(), size);
     }
 
     /**
@@ -195,47 +286,74 @@ public class Election {
         if (candidateId == null || candidateId.trim().isEmpty()) {
             return null;
         }
-        return candidates.stream()
-                .filter(c -> c.getId() != null && c.getId().equals(candidateId))
-                .findFirst()
-                .orElse(null);
+        return candidateIndex.get(candidateId, candidates, candidates.size());
     }
 
     /**
      * Finds a candidate by matching shortCode from votes file with lastName + all initials.
-     * Format: lastName + all initials without dots (e.g. "YeşilgözD" or "JettenRAA" for "R.A.A.")
+     * Format: lastName + all initials without dots (e.g. "YeşilgözD" or "JettenRAA" for "R.A.A.")<br/>
+     * The comparison ignores case, diacritics and anything that is not a letter, so "YESILGOZ-D" matches as well.
+     * A short code that was present in the candidate lists is matched in the same way.
      */
     public Candidate getCandidateByShortCode(String shortCode) {
-        if (shortCode == null || shortCode.trim().isEmpty()) {
+        String key = normalizeShortCode(shortCode);
+        if (key == null) {
             return null;
         }
-        
-        String trimmedShortCode = shortCode.trim();
-        
-        for (Candidate candidate : candidates) {
-            String lastName = candidate.getLastName();
-            String initials = candidate.getInitials();
-            
-            if (lastName == null || lastName.trim().isEmpty()) {
-                continue;
-            }
-            
-            // Extract all letters from initials (remove dots, spaces, etc.)
-            String allInitials = null;
-            if (initials != null && !initials.trim().isEmpty()) {
-                // Remove all non-letter characters (dots, spaces, etc.) and keep only letters
-                allInitials = initials.replaceAll("[^A-Za-z]", "");
-            }
-            
-            if (allInitials != null && !allInitials.isEmpty()) {
-                String constructedCode = lastName.trim() + allInitials;
-                if (trimmedShortCode.equalsIgnoreCase(constructedCode)) {
-                    return candidate;
-                }
+        return shortCodeIndex.get(key, candidates, candidates.size());
+    }
+
+    /**
+     * Builds the short code index right away. Call this once all the candidate lists have been loaded, so matching
+     * the candidate votes doesn't have to build it halfway.
+     */
+    public void indexCandidateShortCodes() {
+        shortCodeIndex.build(candidates, candidates.size());
+    }
+
+    /**
+     * @return the keys of the short code index for a candidate: the short code from the candidate lists and
+     *         lastName + all letters of the initials, both normalized.
+     */
+    private static List<String> shortCodeKeys(Candidate candidate) {
+        String fromList = normalizeShortCode(candidate.getShortCode());
+        String constructed = null;
+        String lastName = candidate.getLastName();
+        String initials = normalizeShortCode(candidate.getInitials());
+        if (lastName != null && initials != null) {
+            String normalizedLastName = normalizeShortCode(lastName);
+            constructed = normalizedLastName == null ? null : normalizedLastName + initials;
+        }
+        if (fromList == null) {
+            return constructed == null ? List.of() : List.of(constructed);
+        }
+        return constructed == null || constructed.equals(fromList) ? List.of(fromList) : List.of(fromList, constructed);
+    }
+
+    /**
+     * Normalizes a short code or part of it: diacritics are removed, only letters are kept and the result is in
+     * lower case, e.g. "Yeşilgöz D." becomes "yesilgozd".
+     *
+     * @return the normalized value or <code>null</code> when no letters remain.
+     */
+    static String normalizeShortCode(String value) {
+        if (value == null) {
+            return null;
+        }
+        boolean ascii = true;
+        for (int i = 0; i < value.length() && ascii; i++) {
+            ascii = value.charAt(i) < 0x80;
+        }
+        // Decomposing splits a letter like ş into s and a combining mark, the mark is dropped below.
+        String decomposed = ascii ? value : Normalizer.normalize(value, Normalizer.Form.NFD);
+        StringBuilder key = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.isLetter(c)) {
+                key.append(Character.toLowerCase(c));
             }
         }
-        
-        return null;
+        return key.isEmpty() ? null : key.toString();
     }
 
     @Override
@@ -0,0 +1,58 @@
+package nl.hva.ict.sm3.backend.model;
+
+import jakarta.persistence.*;
+
+/**
+ * A file that has been parsed for an election, one entry of the manifest of the election.
+ * <p>
+ * On a reload the files of the election are compared with their entries, only the files that are new or whose
+ * SHA-256 hash has changed are parsed again.
+ * </p>
+ */
+@Entity
+@Table(name = "election_files", indexes = @Index(name = "idx_election_files_election", columnList = "election_id"))
+public class ElectionFile {
+    @Id
+    private String id;
+
+    @Column(name = "election_id")
+    private String electionId;
+
+    @Column(name = "file_name")
+    private String fileName;
+
+    @Column(name = "size")
+    private long size;
+
+    @Column(name = "last_modified")
+    private long lastModified;
+
+    @Column(name = "sha256", length = 64)
+    private String sha256;
+
+    // Default constructor for JPA
+    protected ElectionFile() {}
+
+    /**
+     * @param electionId   the election the file belongs to
+     * @param fileName     the name of the file, without the folder
+     * @param size         the size in bytes
+     * @param lastModified the modification time in milliseconds since the epoch
+     * @param sha256       the SHA-256 hash of the contents, as lower case hex
+     */
+    public ElectionFile(String electionId, String fileName, long size, long lastModified, String sha256) {
+        this.id = electionId + "::" + fileName;
+        this.electionId = electionId;
+        this.fileName = fileName;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.sha256 = sha256;
+    }
+
+    public String getId() { return id; }
+    public String getElectionId() { return electionId; }
+    public String getFileName() { return fileName; }
+    public long getSize() { return size; }
+    public long getLastModified() { return lastModified; }
+    public String getSha256() { return sha256; }
+}
@@ -0,0 +1,116 @@
+package nl.hva.ict.sm3.backend.model;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * An in-memory hash index on one of the collections of an entity, so lookups by key don't have to scan the
+ * collection.<br/>
+ * <br/>
+ * The index is not persisted. It is built the first time it is needed, which means it is rebuilt automatically after
+ * an entity has been loaded by JPA. Elements that are added through the entity are added to the index as well. The
+ * index also remembers how many elements it has seen, when the collection has grown or shrunk in another way (e.g.
+ * by modifying the list returned by a getter) the index is rebuilt on the next lookup.<br/>
+ * <br/>
+ * Just like a linear scan the first element with a certain key wins.
+ *
+ * @param <T> the type of the elements.
+ */
+final class EntityIndex<T> {
+    // The map and the number of elements it was built from, always replaced together and never changed once published.
+    private record Snapshot<T>(Map<String, T> elements, int size) {}
+
+    private final Function<T, List<String>> keys;
+    private volatile Snapshot<T> snapshot;
+
+    private EntityIndex(Function<T, List<String>> keys) {
+        this.keys = keys;
+    }
+
+    /**
+     * @param key computes the key of an element, elements for which it returns <code>null</code> are not indexed.
+     * @return the new index.
+     */
+    static <T> EntityIndex<T> byKey(Function<T, String> key) {
+        return new EntityIndex<>(element -> {
+            String id = key.apply(element);
+            return id == null ? List.of() : List.of(id);
+        });
+    }
+
+    /**
+     * Creates an index in which an element can be found by more than one key.
+     *
+     * @param keys computes all the keys of an element.
+     * @return the new index.
+     */
+    static <T> EntityIndex<T> byKeys(Function<T, List<String>> keys) {
+        return new EntityIndex<>(keys);
+    }
+
+    /**
+     * Looks up an element, (re)building the index first when it doesn't match the source anymore.
+     *
+     * @param id the key to look for.
+     * @param source the elements that should be indexed.
+     * @param size the number of elements in the source.
+     * @return the first element with the given key or <code>null</code> when there is none.
+     */
+    T get(String id, Iterable<T> source, int size) {
+        Snapshot<T> current = snapshot;
+        if (current == null || current.size() != size) {
+            current = rebuild(source, size);
+        }
+        return id == null ? null : current.elements().get(id);
+    }
+
+    /**
+     * Adds an element that has just been added to the source. When the index hasn't been built yet nothing happens,
+     * it will include the element once it is built.<br/>
+     * A published snapshot may be read by other threads at the same time, so the element is added to a copy of its map
+     * which is then published instead.
+     *
+     * @param element the new element.
+     */
+    void added(T element) {
+        Snapshot<T> current = snapshot;
+        if (current != null) {
+            Map<String, T> elements = new HashMap<>(current.elements());
+            for (String id : keys.apply(element)) {
+                elements.putIfAbsent(id, element);
+            }
+            snapshot = new Snapshot<>(elements, current.size() + 1);
+        }
+    }
+
+    /**
+     * Drops the index, it will be rebuilt on the next lookup.
+     */
+    void invalidate() {
+        snapshot = null;
+    }
+
+    /**
+     * Builds the index right away instead of on the next lookup.
+     *
+     * @param source the elements that should be indexed.
+     * @param size the number of elements in the source.
+     */
+    void build(Iterable<T> source, int size) {
+        rebuild(source, size);
+    }
+
+    private Snapshot<T> rebuild(Iterable<T> source, int size) {
+        Map<String, T> elements = new HashMap<>(Math.max(16, size * 4 / 3 + 1));
+        for (T element : source) {
+            for (String id : keys.apply(element)) {
+                elements.putIfAbsent(id, element);
+            }
+        }
+        Snapshot<T> built = new Snapshot<>(elements, size);
+        snapshot = built;
+        return built;
+    }
+}
@@ -17,12 +17,14 @@ public class Municipality {
     private int validVotes;
     
     @ElementCollection
+    @org.hibernate.annotations.Cache(usage = org.hibernate.annotations.CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
     @CollectionTable(name = "municipality_party_votes", joinColumns = @JoinColumn(name = "municipality_id"))
     @MapKeyColumn(name = "party_id")
     @Column(name = "votes")
     private Map<String, Integer> partyVotes = new HashMap<>();
     
     @ElementCollection
+    @org.hibernate.annotations.Cache(usage = org.hibernate.annotations.CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
     @CollectionTable(name = "municipality_party_names", joinColumns = @JoinColumn(name = "municipality_id"))
     @MapKeyColumn(name = "party_id")
     @Column(name = "party_name")
@@ -32,6 +34,9 @@ public class Municipality {
     @JoinColumn(name = "municipality_id")
     private List<PollingStation> pollingStations = new ArrayList<>();
 
+    @Transient
+    private final EntityIndex<PollingStation> pollingStationIndex = EntityIndex.byKey(PollingStation::getId);
+
     // Default constructor for JPA
     protected Municipality() {}
 
@@ -71,13 +76,11 @@ public class Municipality {
     }
     public void addPollingStation(PollingStation ps) {
         pollingStations.add(ps);
+        pollingStationIndex.added(ps);
     }
 
     public PollingStation getPollingStationById(String id) {
-        return pollingStations.stream()
-                .filter(s -> s.getId().equals(id))
-                .findFirst()
-                .orElse(null);
+        return pollingStationIndex.get(id, pollingStations, pollingStations.size());
     }
 
     public List<PollingStation> getPollingStations() {
@@ -101,6 +104,11 @@ public class Municipality {
                 .collect(Collectors.toList());
     }
 
+    /** @return the votes per party, for building the {@link VoteMatrix} */
+    Map<String, Integer> partyVotes() { return partyVotes; }
+    /** @return the names per party, for building the {@link VoteMatrix} */
+    Map<String, String> partyNames() { return partyNames; }
+
     @Override
     public String toString() {
         return "Municipality{id='%s', name='%s', validVotes=%d}".formatted(id, name, validVotes);
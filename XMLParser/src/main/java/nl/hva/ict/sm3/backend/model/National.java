@@ -10,6 +10,8 @@ import java.util.Objects;
 
 @Entity
 @Table(name = "national_results")
+@Cacheable
+@org.hibernate.annotations.Cache(usage = org.hibernate.annotations.CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 public class National {
     @Id
     private String id;
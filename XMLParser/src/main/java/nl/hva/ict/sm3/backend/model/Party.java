@@ -18,7 +18,7 @@ import jakarta.persistence.*;
 @Entity
 @Table(name = "parties")
 @Cacheable
-@org.hibernate.annotations.Cache(usage = org.hibernate.annotations.CacheConcurrencyStrategy.READ_WRITE)
+@org.hibernate.annotations.Cache(usage = org.hibernate.annotations.CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 public class Party {
     @Id
     private String id;
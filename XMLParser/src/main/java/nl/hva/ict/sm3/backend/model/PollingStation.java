@@ -4,7 +4,9 @@ import jakarta.persistence.*;
 import java.util.*;
 
 @Entity
-@Table(name = "polling_stations")
+// The postal code index serves the keyset pages of PollingStationRepository
+@Table(name = "polling_stations",
+       indexes = @Index(name = "idx_polling_stations_postal_code", columnList = "postal_code, id"))
 public class PollingStation {
     @Id
     private String id;
@@ -19,12 +21,14 @@ public class PollingStation {
     private int validVotes;
     
     @ElementCollection
+    @org.hibernate.annotations.Cache(usage = org.hibernate.annotations.CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
     @CollectionTable(name = "polling_station_party_votes", joinColumns = @JoinColumn(name = "station_id"))
     @MapKeyColumn(name = "party_id")
     @Column(name = "votes")
     private Map<String, Integer> partyVotes = new HashMap<>();
     
     @ElementCollection
+    @org.hibernate.annotations.Cache(usage = org.hibernate.annotations.CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
     @CollectionTable(name = "polling_station_party_names", joinColumns = @JoinColumn(name = "station_id"))
     @MapKeyColumn(name = "party_id")
     @Column(name = "party_name")
@@ -56,6 +60,11 @@ public class PollingStation {
     public String getName() { return name; }
     public String getPostalCode() { return postalCode; }
     public int getValidVotes() { return validVotes; }
+
+    /** @return the votes per party, for building the {@link VoteMatrix} */
+    Map<String, Integer> partyVotes() { return partyVotes; }
+    /** @return the names per party, for building the {@link VoteMatrix} */
+    Map<String, String> partyNames() { return partyNames; }
 }
 
 
@@ -0,0 +1,291 @@
+package nl.hva.ict.sm3.backend.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column store with the votes per party of every reporting unit (municipality and polling station) of an
+ * {@link Election}.<br/>
+ * <br/>
+ * The parties of all reporting units share one dictionary, every party id gets an index and its name is stored only
+ * once. The votes are kept in one dense <code>int[]</code> with a row per reporting unit and a column per party, so
+ * adding up the votes of a constituency or of the whole country is a loop over an array instead of creating and
+ * sorting {@link Party} objects for each municipality.<br/>
+ * <br/>
+ * The rows of the municipalities come first, in the order of the constituencies, so the municipalities of a
+ * constituency are a consecutive range of rows. The rows of the polling stations follow.<br/>
+ * <br/>
+ * A matrix is a read-only copy of the votes at the moment it was built, {@link Election#getVoteMatrix()} builds a new
+ * one when municipalities or polling stations have been added.
+ */
+public final class VoteMatrix {
+    private final String[] partyIds;
+    private final String[] partyNames;
+    private final Map<String, Integer> partyIndexes;
+
+    private final String[] unitIds;
+    private final Map<String, Integer> unitIndexes;
+    private final int municipalityCount;
+    private final Map<String, int[]> constituencyRanges;
+
+    private final int[] votes;
+    // Whether a reporting unit has a result for a party at all, a party can also have received 0 votes
+    private final boolean[] present;
+
+    private VoteMatrix(String[] partyIds, String[] partyNames, Map<String, Integer> partyIndexes, String[] unitIds,
+                       Map<String, Integer> unitIndexes, int municipalityCount, Map<String, int[]> constituencyRanges,
+                       int[] votes, boolean[] present) {
+        this.partyIds = partyIds;
+        this.partyNames = partyNames;
+        this.partyIndexes = partyIndexes;
+        this.unitIds = unitIds;
+        this.unitIndexes = unitIndexes;
+        this.municipalityCount = municipalityCount;
+        this.constituencyRanges = constituencyRanges;
+        this.votes = votes;
+        this.present = present;
+    }
+
+    /**
+     * The sum of the votes per party of a number of reporting units.
+     */
+    public final class Totals {
+        private final int[] votes = new int[partyIds.length];
+        private final boolean[] present = new boolean[partyIds.length];
+
+        private Totals add(int fromUnit, int toUnit) {
+            int parties = partyIds.length;
+            for (int unit = fromUnit; unit < toUnit; unit++) {
+                int offset = unit * parties;
+                for (int party = 0; party < parties; party++) {
+                    votes[party] += VoteMatrix.this.votes[offset + party];
+                    present[party] |= VoteMatrix.this.present[offset + party];
+                }
+            }
+            return this;
+        }
+
+        /**
+         * @param party the index of the party.
+         * @return the total number of votes of the party.
+         */
+        public int getVotes(int party) {
+            return votes[party];
+        }
+
+        /**
+         * @param party the index of the party.
+         * @return whether at least one of the reporting units has a result for the party.
+         */
+        public boolean contains(int party) {
+            return present[party];
+        }
+
+        /**
+         * @return the total per party, indexed by the party index of the matrix.
+         */
+        public int[] toArray() {
+            return votes.clone();
+        }
+
+        /**
+         * @return the total number of votes of all parties.
+         */
+        public long sum() {
+            long sum = 0;
+            for (int vote : votes) {
+                sum += vote;
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * Builds the matrix from the votes that are stored in the municipalities and polling stations of the election.
+     *
+     * @param election the election.
+     * @return the new matrix.
+     */
+    static VoteMatrix of(Election election) {
+        List<String> partyIds = new ArrayList<>();
+        List<String> partyNames = new ArrayList<>();
+        Map<String, Integer> partyIndexes = new HashMap<>();
+        List<Municipality> municipalities = new ArrayList<>();
+        List<PollingStation> stations = new ArrayList<>();
+        Map<String, int[]> constituencyRanges = new HashMap<>();
+
+        // First pass, build the dictionary of the parties and collect the reporting units
+        for (Constituency constituency : election.getConstituencies()) {
+            int from = municipalities.size();
+            for (Municipality municipality : constituency.getMunicipalities()) {
+                municipalities.add(municipality);
+                register(municipality.partyVotes(), municipality.partyNames(), partyIds, partyNames, partyIndexes);
+                for (PollingStation station : municipality.getPollingStations()) {
+                    stations.add(station);
+                    register(station.partyVotes(), station.partyNames(), partyIds, partyNames, partyIndexes);
+                }
+            }
+            constituencyRanges.putIfAbsent(constituency.getId(), new int[]{from, municipalities.size()});
+        }
+
+        // Second pass, fill the rows
+        int parties = partyIds.size();
+        int units = municipalities.size() + stations.size();
+        String[] unitIds = new String[units];
+        Map<String, Integer> unitIndexes = new HashMap<>(Math.max(16, units * 4 / 3 + 1));
+        int[] votes = new int[units * parties];
+        boolean[] present = new boolean[units * parties];
+        int unit = 0;
+        for (Municipality municipality : municipalities) {
+            fill(unit, municipality.getId(), municipality.partyVotes(), partyIndexes, parties, unitIds, unitIndexes, votes, present);
+            unit++;
+        }
+        for (PollingStation station : stations) {
+            fill(unit, station.getId(), station.partyVotes(), partyIndexes, parties, unitIds, unitIndexes, votes, present);
+            unit++;
+        }
+
+        return new VoteMatrix(partyIds.toArray(new String[0]), partyNames.toArray(new String[0]), partyIndexes,
+                unitIds, unitIndexes, municipalities.size(), constituencyRanges, votes, present);
+    }
+
+    private static void register(Map<String, Integer> unitVotes, Map<String, String> unitNames, List<String> partyIds,
+                                 List<String> partyNames, Map<String, Integer> partyIndexes) {
+        for (String partyId : unitVotes.keySet()) {
+            if (!partyIndexes.containsKey(partyId)) {
+                partyIndexes.put(partyId, partyIds.size());
+                partyIds.add(partyId);
+                partyNames.add(unitNames.get(partyId));
+            }
+        }
+    }
+
+    private static void fill(int unit, String unitId, Map<String, Integer> unitVotes, Map<String, Integer> partyIndexes,
+                             int parties, String[] unitIds, Map<String, Integer> unitIndexes, int[] votes,
+                             boolean[] present) {
+        unitIds[unit] = unitId;
+        unitIndexes.putIfAbsent(unitId, unit);
+        int offset = unit * parties;
+        for (Map.Entry<String, Integer> entry : unitVotes.entrySet()) {
+            int party = partyIndexes.get(entry.getKey());
+            votes[offset + party] = entry.getValue() == null ? 0 : entry.getValue();
+            present[offset + party] = true;
+        }
+    }
+
+    /**
+     * @return the number of parties in the dictionary.
+     */
+    public int getPartyCount() {
+        return partyIds.length;
+    }
+
+    /**
+     * @param party the index of the party.
+     * @return the id of the party, as used by the municipalities and polling stations.
+     */
+    public String getPartyId(int party) {
+        return partyIds[party];
+    }
+
+    /**
+     * @param party the index of the party.
+     * @return the name of the party.
+     */
+    public String getPartyName(int party) {
+        return partyNames[party];
+    }
+
+    /**
+     * @param partyId the id of the party.
+     * @return the index of the party or <code>-1</code> when no reporting unit has a result for it.
+     */
+    public int getPartyIndex(String partyId) {
+        Integer index = partyIndexes.get(partyId);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @return the number of reporting units, municipalities and polling stations together.
+     */
+    public int getUnitCount() {
+        return unitIds.length;
+    }
+
+    /**
+     * @param unitId the id of a municipality or polling station.
+     * @return the row of the reporting unit or <code>-1</code> when it is unknown.
+     */
+    public int getUnitIndex(String unitId) {
+        Integer index = unitIndexes.get(unitId);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @param unit the row of the reporting unit.
+     * @param party the index of the party.
+     * @return the number of votes of the party in the reporting unit.
+     */
+    public int getVotes(int unit, int party) {
+        return votes[unit * partyIds.length + party];
+    }
+
+    /**
+     * @return the votes per party of all municipalities, which together make up the national result.
+     */
+    public Totals getNationalTotals() {
+        return new Totals().add(0, municipalityCount);
+    }
+
+    /**
+     * @param constituencyId the id of the constituency.
+     * @return the votes per party of the municipalities of the constituency, empty when it is unknown.
+     */
+    public Totals getConstituencyTotals(String constituencyId) {
+        int[] range = constituencyRanges.get(constituencyId);
+        return range == null ? new Totals() : new Totals().add(range[0], range[1]);
+    }
+
+    /**
+     * @param unitId the id of a municipality or polling station.
+     * @return the parties with a result in the reporting unit, sorted by number of votes in descending order.
+     */
+    public List<Party> getParties(String unitId) {
+        int unit = getUnitIndex(unitId);
+        if (unit < 0) {
+            return List.of();
+        }
+        List<Party> parties = new ArrayList<>();
+        int offset = unit * partyIds.length;
+        for (int party = 0; party < partyIds.length; party++) {
+            if (present[offset + party]) {
+                parties.add(new Party(partyIds[party], partyNames[party], votes[offset + party]));
+            }
+        }
+        parties.sort((a, b) -> Integer.compare(b.getVotes(), a.getVotes()));
+        return parties;
+    }
+
+    /**
+     * @return whether the matrix still has a row for every municipality and polling station of the election.
+     */
+    boolean matches(Election election) {
+        int municipalities = 0;
+        int stations = 0;
+        for (Constituency constituency : election.getConstituencies()) {
+            for (Municipality municipality : constituency.getMunicipalities()) {
+                municipalities++;
+                stations += municipality.getPollingStations().size();
+            }
+        }
+        return municipalities == municipalityCount && municipalities + stations == unitIds.length;
+    }
+
+    @Override
+    public String toString() {
+        return "VoteMatrix{parties=%d, units=%d, municipalities=%d}"
+                .formatted(partyIds.length, unitIds.length, municipalityCount);
+    }
+}
@@ -1,8 +1,12 @@
 package nl.hva.ict.sm3.backend.repository;
 
+import jakarta.persistence.QueryHint;
 import nl.hva.ict.sm3.backend.model.Candidate;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -11,19 +15,39 @@ import java.util.Optional;
 
 @Repository
 public interface CandidateRepository extends JpaRepository<Candidate, String> {
-    
+    // Region of the query cache for the finders below, its size is limited in ehcache.xml
+    String QUERY_REGION = "candidate-queries";
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+                 @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_REGION)})
     @Query("SELECT c FROM Candidate c WHERE c.id IN " +
            "(SELECT DISTINCT c2.id FROM Election e JOIN e.candidates c2 WHERE e.id = :electionId)")
     List<Candidate> findByElectionId(@Param("electionId") String electionId);
     
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+                 @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_REGION)})
     @Query("SELECT c FROM Candidate c WHERE c.id IN " +
            "(SELECT DISTINCT c2.id FROM Election e JOIN e.candidates c2 WHERE e.id = :electionId) " +
            "AND c.partyId = :partyId")
     List<Candidate> findByElectionIdAndPartyId(@Param("electionId") String electionId, 
                                                @Param("partyId") String partyId);
     
+    // A page of at most limit candidates after the given key, most votes first. It walks the index on the votes, so
+    // a deep page costs as much as the first one. Not cached, every page would be a query of its own
+    @Query("SELECT c FROM Election e JOIN e.candidates c WHERE e.id = :electionId " +
+           "AND (c.votes < :afterVotes OR (c.votes = :afterVotes AND c.id < :afterId)) " +
+           "ORDER BY c.votes DESC, c.id DESC")
+    List<Candidate> findPageByElectionId(@Param("electionId") String electionId,
+                                         @Param("afterVotes") int afterVotes,
+                                         @Param("afterId") String afterId,
+                                         Limit limit);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+                 @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_REGION)})
     Optional<Candidate> findByIdAndPartyId(String id, String partyId);
     
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+                 @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_REGION)})
     @Query("SELECT c FROM Candidate c WHERE c.lastName = :lastName AND c.initials = :initials")
     Optional<Candidate> findByLastNameAndInitials(@Param("lastName") String lastName, 
                                                   @Param("initials") String initials);
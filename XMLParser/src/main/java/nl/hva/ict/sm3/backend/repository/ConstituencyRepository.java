@@ -2,10 +2,12 @@ package nl.hva.ict.sm3.backend.repository;
 
 import nl.hva.ict.sm3.backend.model.Constituency;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,4 +23,18 @@ public interface ConstituencyRepository extends JpaRepository<Constituency, Stri
     
     @Query("SELECT COUNT(c) FROM Constituency c WHERE c.id LIKE :electionIdPrefix%")
     long countByElectionIdPrefix(@Param("electionIdPrefix") String electionIdPrefix);
+
+    /**
+     * Links constituencies to an election. Needed when the constituencies have been persisted on their own instead of
+     * through the collection of the election.
+     *
+     * @param electionId the id of the election.
+     * @param constituencyIds the ids of the persisted constituencies of the election.
+     * @return the number of constituencies that have been linked.
+     */
+    @Modifying
+    @Query(value = "UPDATE constituencies SET election_id = :electionId WHERE id IN (:constituencyIds)",
+           nativeQuery = true)
+    int assignToElection(@Param("electionId") String electionId,
+                         @Param("constituencyIds") Collection<String> constituencyIds);
 }
\ No newline at end of file
@@ -0,0 +1,315 @@
+package nl.hva.ict.sm3.backend.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import nl.hva.ict.sm3.backend.model.*;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Writes a parsed {@link Election} to the database with batched JDBC statements instead of letting Hibernate cascade
+ * the save through the entity graph one row at a time.<br/>
+ * <br/>
+ * Every row is written with an H2 <code>MERGE INTO ... KEY (...)</code> statement, so writing the same election
+ * twice updates the existing rows instead of failing on the primary keys. The tables are the ones Hibernate creates
+ * for the entities, the writer only fills them. All statements run in the transaction of the caller, or in a new one
+ * when there is none, so a failing load doesn't leave half an election behind.<br/>
+ * <br/>
+ * The entities that are written are <b>not</b> managed by the persistence context afterward, the election that was
+ * passed in can be used as a detached, fully initialized copy. Because the rows bypass Hibernate, the second-level
+ * and query cache regions of the election entities are evicted after every write.
+ */
+@Repository
+public class ElectionBulkWriter {
+    private static final String ELECTION = "MERGE INTO elections (id) KEY (id) VALUES (?)";
+    private static final String PARTY =
+            "MERGE INTO parties (id, name, votes, election_id) KEY (id) VALUES (?, ?, ?, ?)";
+    private static final String CANDIDATE =
+            "MERGE INTO candidates (id, first_name, last_name, initials, residence, party_id, party_name, " +
+            "candidate_identifier, short_code, votes, election_id) KEY (id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String NATIONAL =
+            "MERGE INTO national_results (id, election_id, election_name, party_id, party_name, short_code, " +
+            "valid_votes, rejected_votes, total_counted, number_of_seats, type) KEY (id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SEATS =
+            "MERGE INTO seat_allocations (election_id, party_id, seats) KEY (election_id, party_id) VALUES (?, ?, ?)";
+    private static final String CONSTITUENCY =
+            "MERGE INTO constituencies (id, name, total_votes, election_id) KEY (id) VALUES (?, ?, ?, ?)";
+    private static final String MUNICIPALITY =
+            "MERGE INTO municipalities (id, name, valid_votes, constituency_id) KEY (id) VALUES (?, ?, ?, ?)";
+    private static final String MUNICIPALITY_VOTES =
+            "MERGE INTO municipality_party_votes (municipality_id, party_id, votes) " +
+            "KEY (municipality_id, party_id) VALUES (?, ?, ?)";
+    private static final String MUNICIPALITY_NAMES =
+            "MERGE INTO municipality_party_names (municipality_id, party_id, party_name) " +
+            "KEY (municipality_id, party_id) VALUES (?, ?, ?)";
+    private static final String POLLING_STATION =
+            "MERGE INTO polling_stations (id, name, postal_code, valid_votes, municipality_id) KEY (id) " +
+            "VALUES (?, ?, ?, ?, ?)";
+    private static final String POLLING_STATION_VOTES =
+            "MERGE INTO polling_station_party_votes (station_id, party_id, votes) " +
+            "KEY (station_id, party_id) VALUES (?, ?, ?)";
+    private static final String POLLING_STATION_NAMES =
+            "MERGE INTO polling_station_party_names (station_id, party_id, party_name) " +
+            "KEY (station_id, party_id) VALUES (?, ?, ?)";
+    // Removes the rows below a municipality before a newer version of it is written
+    private static final String[] DELETE_MUNICIPALITY_CHILDREN = {
+            "DELETE FROM polling_station_party_votes WHERE station_id IN " +
+            "(SELECT id FROM polling_stations WHERE municipality_id = ?)",
+            "DELETE FROM polling_station_party_names WHERE station_id IN " +
+            "(SELECT id FROM polling_stations WHERE municipality_id = ?)",
+            "DELETE FROM polling_stations WHERE municipality_id = ?",
+            "DELETE FROM municipality_party_votes WHERE municipality_id = ?",
+            "DELETE FROM municipality_party_names WHERE municipality_id = ?"
+    };
+
+    // The cached element collections that are written by this writer
+    private static final String[] COLLECTION_REGIONS = {
+            Municipality.class.getName() + ".partyVotes",
+            Municipality.class.getName() + ".partyNames",
+            PollingStation.class.getName() + ".partyVotes",
+            PollingStation.class.getName() + ".partyNames"
+    };
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Number of rows that are sent to the database in one JDBC batch
+    @Value("${election.persistence.batch-size:1000}")
+    private int batchSize = 1000;
+
+    @Autowired
+    public ElectionBulkWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Collects the parameters of one statement and sends them to the database each time a full batch is available.
+     * The rows of the parent batch are always sent first, so the foreign keys of these rows point to existing rows.
+     */
+    private class Batch {
+        private final String sql;
+        private final Batch parent;
+        private final List<Object[]> rows;
+        private long written;
+
+        private Batch(String sql) {
+            this(sql, null);
+        }
+
+        private Batch(String sql, Batch parent) {
+            this.sql = sql;
+            this.parent = parent;
+            this.rows = new ArrayList<>(batchSize);
+        }
+
+        private void add(Object... row) {
+            rows.add(row);
+            if (rows.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        private long flush() {
+            if (parent != null) {
+                parent.flush();
+            }
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(sql, rows);
+                written += rows.size();
+                rows.clear();
+            }
+            return written;
+        }
+    }
+
+    /**
+     * Writes the complete election: the national data and all constituencies, municipalities and polling stations
+     * including their votes per party.
+     *
+     * @param election the election that has been parsed.
+     * @return the number of rows that have been written.
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public long write(Election election) {
+        long start = System.nanoTime();
+        long rows = writeNational(election) + writeRegions(election, municipality -> true);
+        evictCachedElections();
+        report(election.getId(), rows, start);
+        return rows;
+    }
+
+    /**
+     * Writes the parts of an election that are not tied to a region: the election itself, its parties, candidates,
+     * national results and seat allocations. This is what changes when the candidate lists are loaded.
+     *
+     * @param election the election that has been parsed.
+     * @return the number of rows that have been written.
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public long writeNationalData(Election election) {
+        long start = System.nanoTime();
+        long rows = writeNational(election);
+        evictCachedElections();
+        report(election.getId(), rows, start);
+        return rows;
+    }
+
+    /**
+     * Writes only the given municipalities of an election, including their polling stations and votes per party,
+     * replacing what was stored for them before. The constituencies and parties are written as well, because their
+     * totals and the list of parties can change with the municipalities. The number of rows is proportional to the
+     * municipalities, not to the election.
+     *
+     * @param election the election the municipalities belong to.
+     * @param municipalityIds the ids of the municipalities that have changed.
+     * @return the number of rows that have been written.
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public long writeMunicipalities(Election election, Collection<String> municipalityIds) {
+        long start = System.nanoTime();
+        Set<String> changed = new HashSet<>(municipalityIds);
+        List<Object[]> ids = changed.stream().map(id -> new Object[]{id}).toList();
+        for (String delete : DELETE_MUNICIPALITY_CHILDREN) {
+            jdbcTemplate.batchUpdate(delete, ids);
+        }
+
+        Batch parties = new Batch(PARTY);
+        for (Party party : election.getParties()) {
+            parties.add(party.getId(), party.getName(), party.getVotes(), election.getId());
+        }
+        long rows = parties.flush() + writeRegions(election, municipality -> changed.contains(municipality.getId()));
+        evictCachedElections();
+        report(election.getId(), rows, start);
+        return rows;
+    }
+
+    private long writeNational(Election election) {
+        String electionId = election.getId();
+        jdbcTemplate.update(ELECTION, electionId);
+
+        Batch parties = new Batch(PARTY);
+        for (Party party : election.getParties()) {
+            parties.add(party.getId(), party.getName(), party.getVotes(), electionId);
+        }
+
+        Batch candidates = new Batch(CANDIDATE);
+        for (Candidate candidate : election.getCandidates()) {
+            candidates.add(candidate.getId(), candidate.getFirstName(), candidate.getLastName(),
+                    candidate.getInitials(), candidate.getResidence(), candidate.getPartyId(),
+                    candidate.getPartyName(), candidate.getCandidateIdentifier(), candidate.getShortCode(),
+                    candidate.getVotes(), electionId);
+        }
+
+        Batch nationals = new Batch(NATIONAL);
+        for (National national : election.getNationalVotes()) {
+            if (national == null || national.getType() == null) {
+                continue; // Can't be stored, the type column is mandatory
+            }
+            nationals.add(national.getId(), electionId, national.getElectionName(), national.getPartyId(),
+                    national.getPartyName(), national.getShortCode(), national.getValidVotes(),
+                    national.getRejectedVotes(), national.getTotalCounted(), national.getNumberOfSeats(),
+                    national.getType().name());
+        }
+
+        Batch seats = new Batch(SEATS);
+        for (Map.Entry<String, Integer> allocation : election.getSeatAllocations().entrySet()) {
+            seats.add(electionId, allocation.getKey(), allocation.getValue());
+        }
+
+        return 1 + parties.flush() + candidates.flush() + nationals.flush() + seats.flush();
+    }
+
+    private long writeRegions(Election election, Predicate<Municipality> include) {
+        Batch constituencies = new Batch(CONSTITUENCY);
+        Batch municipalities = new Batch(MUNICIPALITY, constituencies);
+        Batch municipalityVotes = new Batch(MUNICIPALITY_VOTES, municipalities);
+        Batch municipalityNames = new Batch(MUNICIPALITY_NAMES, municipalities);
+        Batch stations = new Batch(POLLING_STATION, municipalities);
+        Batch stationVotes = new Batch(POLLING_STATION_VOTES, stations);
+        Batch stationNames = new Batch(POLLING_STATION_NAMES, stations);
+
+        for (Constituency constituency : election.getConstituencies()) {
+            constituencies.add(constituency.getId(), constituency.getName(), constituency.getTotalVotes(),
+                    election.getId());
+            for (Municipality municipality : constituency.getMunicipalities()) {
+                if (!include.test(municipality)) {
+                    continue;
+                }
+                municipalities.add(municipality.getId(), municipality.getName(), municipality.getValidVotes(),
+                        constituency.getId());
+                for (Party party : municipality.getAllParties()) {
+                    municipalityVotes.add(municipality.getId(), party.getId(), party.getVotes());
+                    municipalityNames.add(municipality.getId(), party.getId(), party.getName());
+                }
+                for (PollingStation station : municipality.getPollingStations()) {
+                    stations.add(station.getId(), station.getName(), station.getPostalCode(),
+                            station.getValidVotes(), municipality.getId());
+                    for (Party party : station.getAllParties()) {
+                        stationVotes.add(station.getId(), party.getId(), party.getVotes());
+                        stationNames.add(station.getId(), party.getId(), party.getName());
+                    }
+                }
+            }
+        }
+
+        return constituencies.flush() + municipalities.flush() + municipalityVotes.flush()
+                + municipalityNames.flush() + stations.flush() + stationVotes.flush() + stationNames.flush();
+    }
+
+    /**
+     * Evicts the cached election data, right away and again when the transaction completes. After a commit no other
+     * transaction can have put the rows that were there before this write back into the cache, and after a rollback
+     * no entity that was read from the uncommitted rows of this write stays in the cache, which is shared by all
+     * sessions.
+     */
+    private void evictCachedElections() {
+        evict();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict();
+                }
+            });
+        }
+    }
+
+    private void evict() {
+        Cache cache = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getCache();
+        cache.evictEntityData(Election.class);
+        cache.evictEntityData(Party.class);
+        cache.evictEntityData(Candidate.class);
+        cache.evictEntityData(National.class);
+        for (String role : COLLECTION_REGIONS) {
+            cache.evictCollectionData(role);
+        }
+        cache.evictQueryRegions();
+        cache.evictDefaultQueryRegion();
+    }
+
+    private static void report(String electionId, long rows, long start) {
+        double seconds = Math.max(System.nanoTime() - start, 1) / 1_000_000_000.0;
+        // TODO replace with proper usage of a logging framework
+        System.out.printf("Bulk wrote %d rows for %s in %.2f s (%.0f rows/s)%n",
+                rows, electionId, seconds, rows / seconds);
+    }
+}
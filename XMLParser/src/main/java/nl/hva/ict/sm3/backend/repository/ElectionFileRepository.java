@@ -0,0 +1,20 @@
+package nl.hva.ict.sm3.backend.repository;
+
+import nl.hva.ict.sm3.backend.model.ElectionFile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ElectionFileRepository extends JpaRepository<ElectionFile, String> {
+
+    List<ElectionFile> findByElectionId(String electionId);
+
+    @Modifying
+    @Query("DELETE FROM ElectionFile f WHERE f.electionId = :electionId")
+    void deleteByElectionId(@Param("electionId") String electionId);
+}
@@ -0,0 +1,185 @@
+package nl.hva.ict.sm3.backend.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import nl.hva.ict.sm3.backend.model.Constituency;
+import nl.hva.ict.sm3.backend.model.Election;
+import nl.hva.ict.sm3.backend.model.Municipality;
+import nl.hva.ict.sm3.backend.model.Party;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Saves a newly parsed {@link Election} through JPA without keeping the whole entity graph in the persistence
+ * context.<br/>
+ * <br/>
+ * <code>ElectionRepository.save</code> merges the election because its id is assigned, which means every entity of the
+ * graph is first looked up and then kept managed until the transaction ends. This writer removes an earlier version of
+ * the election in the same transaction, so only new rows are persisted, and then persists the election and
+ * then its constituencies one by one, flushing and clearing the persistence context each time
+ * <code>election.persistence.clear-interval</code> entities have been persisted. Together with the JDBC batching
+ * settings of the <code>bulk-load</code> profile the inserts are sent to the database in batches.<br/>
+ * <br/>
+ * Afterward the election is detached, it can still be used as a fully initialized copy.<br/>
+ * <br/>
+ * Municipalities that have been published again are written with {@link #writeMunicipalities(Election, Collection)},
+ * which only touches the rows of these municipalities, their constituencies and the parties.
+ */
+@Repository
+public class ElectionJpaWriter {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ConstituencyRepository constituencyRepository;
+    private final MunicipalityRepository municipalityRepository;
+
+    // Number of persisted entities after which the persistence context is flushed and cleared
+    @Value("${election.persistence.clear-interval:1000}")
+    private int clearInterval = 1000;
+
+    @Autowired
+    public ElectionJpaWriter(ConstituencyRepository constituencyRepository,
+                             MunicipalityRepository municipalityRepository) {
+        this.constituencyRepository = constituencyRepository;
+        this.municipalityRepository = municipalityRepository;
+    }
+
+    /**
+     * Persists an election, an earlier version of the election in the database is replaced.
+     *
+     * @param election the election that has been parsed.
+     * @return the number of entities that have been persisted, the element collections are not counted.
+     */
+    @Transactional
+    public long write(Election election) {
+        long start = System.nanoTime();
+
+        // The constituencies are persisted separately, so they can be cleared from the persistence context
+        List<Constituency> constituencies = new ArrayList<>(election.getConstituencies());
+        election.getConstituencies().clear();
+        long entities;
+        try {
+            removeExisting(election.getId());
+            entityManager.persist(election);
+            entities = 1 + election.getParties().size() + election.getCandidates().size()
+                    + election.getNationalVotes().size();
+            flushAndClear();
+
+            int pending = 0;
+            for (Constituency constituency : constituencies) {
+                entityManager.persist(constituency);
+                int size = countEntities(constituency);
+                entities += size;
+                pending += size;
+                if (pending >= clearInterval) {
+                    flushAndClear();
+                    pending = 0;
+                }
+            }
+            flushAndClear();
+        } finally {
+            election.getConstituencies().addAll(constituencies);
+        }
+        if (!constituencies.isEmpty()) {
+            constituencyRepository.assignToElection(election.getId(),
+                    constituencies.stream().map(Constituency::getId).toList());
+        }
+
+        double seconds = Math.max(System.nanoTime() - start, 1) / 1_000_000_000.0;
+        // TODO replace with proper usage of a logging framework
+        System.out.printf("Persisted %d entities for %s in %.2f s (%.0f entities/s)%n",
+                entities, election.getId(), seconds, entities / seconds);
+        return entities;
+    }
+
+    /**
+     * Writes only the given municipalities of an election, including their polling stations, replacing what was stored
+     * for them before. The totals of their constituencies and the parties are written as well, because they change
+     * with the municipalities.
+     *
+     * @param election the stored election the municipalities belong to.
+     * @param municipalityIds the ids of the municipalities that have changed.
+     * @return the number of entities that have been written, the element collections are not counted.
+     */
+    @Transactional
+    public long writeMunicipalities(Election election, Collection<String> municipalityIds) {
+        long start = System.nanoTime();
+        Set<String> changed = new HashSet<>(municipalityIds);
+        // The stored versions are deleted first, the new versions have the same ids
+        for (String municipalityId : changed) {
+            Municipality stored = entityManager.find(Municipality.class, municipalityId);
+            if (stored != null) {
+                entityManager.remove(stored);
+            }
+        }
+        flushAndClear();
+
+        long entities = 0;
+        for (Constituency constituency : election.getConstituencies()) {
+            List<String> persisted = new ArrayList<>();
+            for (Municipality municipality : constituency.getMunicipalities()) {
+                if (changed.contains(municipality.getId())) {
+                    entityManager.persist(municipality);
+                    persisted.add(municipality.getId());
+                    entities += 1 + municipality.getPollingStations().size();
+                }
+            }
+            if (persisted.isEmpty()) {
+                continue;
+            }
+            entityManager.flush();
+            municipalityRepository.assignToConstituency(constituency.getId(), persisted);
+            Constituency stored = entityManager.find(Constituency.class, constituency.getId());
+            stored.addToTotalVotes(constituency.getTotalVotes() - stored.getTotalVotes());
+            entities++;
+        }
+
+        Election stored = entityManager.find(Election.class, election.getId());
+        for (Party party : election.getParties()) {
+            if (stored.getPartyById(party.getId()) == null) {
+                stored.addParty(entityManager.merge(party));
+            } else {
+                entityManager.merge(party);
+            }
+            entities++;
+        }
+        flushAndClear();
+
+        double seconds = Math.max(System.nanoTime() - start, 1) / 1_000_000_000.0;
+        // TODO replace with proper usage of a logging framework
+        System.out.printf("Persisted %d entities of %d municipalities for %s in %.2f s%n",
+                entities, changed.size(), election.getId(), seconds);
+        return entities;
+    }
+
+    // Looked up in the database, a cached copy may be outdated
+    private void removeExisting(String electionId) {
+        entityManager.getEntityManagerFactory().getCache().evict(Election.class, electionId);
+        Election existing = entityManager.find(Election.class, electionId);
+        if (existing != null) {
+            entityManager.remove(existing);
+            flushAndClear();
+        }
+    }
+
+    private void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private static int countEntities(Constituency constituency) {
+        int entities = 1;
+        for (Municipality municipality : constituency.getMunicipalities()) {
+            entities += 1 + municipality.getPollingStations().size();
+        }
+        return entities;
+    }
+}
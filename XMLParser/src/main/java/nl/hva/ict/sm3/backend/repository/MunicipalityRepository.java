@@ -1,11 +1,14 @@
 package nl.hva.ict.sm3.backend.repository;
 
 import nl.hva.ict.sm3.backend.model.Municipality;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,12 +18,32 @@ public interface MunicipalityRepository extends JpaRepository<Municipality, Stri
     @Query("SELECT m FROM Municipality m LEFT JOIN FETCH m.pollingStations WHERE m.id = :id")
     Optional<Municipality> findByIdWithPollingStations(@Param("id") String id);
     
-    @Query("SELECT m FROM Municipality m WHERE m.id IN " +
-           "(SELECT DISTINCT m2.id FROM Constituency c JOIN c.municipalities m2 WHERE c.id IN " +
-           "(SELECT DISTINCT c3.id FROM Election e JOIN e.constituencies c3 WHERE e.id = :electionId))")
+    @Query("SELECT m FROM Election e JOIN e.constituencies c JOIN c.municipalities m WHERE e.id = :electionId")
     List<Municipality> findByElectionId(@Param("electionId") String electionId);
+
+    // A page of at most limit municipalities after the given id, it walks the primary key so a deep page costs as
+    // much as the first one
+    @Query("SELECT m FROM Election e JOIN e.constituencies c JOIN c.municipalities m " +
+           "WHERE e.id = :electionId AND m.id > :afterId ORDER BY m.id")
+    List<Municipality> findPageByElectionId(@Param("electionId") String electionId,
+                                            @Param("afterId") String afterId,
+                                            Limit limit);
     
     @Query("SELECT m FROM Municipality m WHERE m.id IN " +
            "(SELECT DISTINCT m2.id FROM Constituency c JOIN c.municipalities m2 WHERE c.id = :constituencyId)")
     List<Municipality> findByConstituencyId(@Param("constituencyId") String constituencyId);
-}
\ No newline at end of file
+
+    /**
+     * Links municipalities to a constituency. Needed when the municipalities have been persisted on their own instead
+     * of through the collection of the constituency.
+     *
+     * @param constituencyId the id of the constituency.
+     * @param municipalityIds the ids of the persisted municipalities of the constituency.
+     * @return the number of municipalities that have been linked.
+     */
+    @Modifying
+    @Query(value = "UPDATE municipalities SET constituency_id = :constituencyId WHERE id IN (:municipalityIds)",
+           nativeQuery = true)
+    int assignToConstituency(@Param("constituencyId") String constituencyId,
+                             @Param("municipalityIds") Collection<String> municipalityIds);
+}
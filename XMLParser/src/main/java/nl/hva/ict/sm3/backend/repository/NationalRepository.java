@@ -1,9 +1,12 @@
 package nl.hva.ict.sm3.backend.repository;
 
+import jakarta.persistence.QueryHint;
 import nl.hva.ict.sm3.backend.model.National;
 import nl.hva.ict.sm3.backend.model.NationalResult;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -11,14 +14,22 @@ import java.util.List;
 
 @Repository
 public interface NationalRepository extends JpaRepository<National, String> {
-    
+    // Region of the query cache for the finders below, its size is limited in ehcache.xml
+    String QUERY_REGION = "national-queries";
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+                 @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_REGION)})
     @Query("SELECT n FROM National n WHERE n.electionId = :electionId")
     List<National> findByElectionId(@Param("electionId") String electionId);
     
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+                 @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_REGION)})
     @Query("SELECT n FROM National n WHERE n.electionId = :electionId AND n.type = :type")
     List<National> findByElectionIdAndType(@Param("electionId") String electionId, 
                                            @Param("type") NationalResult type);
     
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+                 @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_REGION)})
     @Query("SELECT n FROM National n WHERE n.electionId = :electionId AND n.partyId = :partyId")
     List<National> findByElectionIdAndPartyId(@Param("electionId") String electionId, 
                                               @Param("partyId") String partyId);
@@ -1,8 +1,11 @@
 package nl.hva.ict.sm3.backend.repository;
 
+import jakarta.persistence.QueryHint;
 import nl.hva.ict.sm3.backend.model.Party;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -10,12 +13,18 @@ import java.util.List;
 
 @Repository
 public interface PartyRepository extends JpaRepository<Party, String> {
-    
+    // Region of the query cache for the finders below, its size is limited in ehcache.xml
+    String QUERY_REGION = "party-queries";
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+                 @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_REGION)})
     @Query("SELECT p FROM Party p WHERE p.id IN " +
            "(SELECT DISTINCT p2.id FROM Election e JOIN e.parties p2 WHERE e.id = :electionId) " +
            "ORDER BY p.votes DESC")
     List<Party> findByElectionId(@Param("electionId") String electionId);
     
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+                 @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_REGION)})
     @Query("SELECT p FROM Party p WHERE p.id IN " +
            "(SELECT DISTINCT p2.id FROM Election e JOIN e.parties p2 WHERE e.id = :electionId) " +
            "ORDER BY p.votes DESC")
@@ -1,6 +1,7 @@
 package nl.hva.ict.sm3.backend.repository;
 
 import nl.hva.ict.sm3.backend.model.PollingStation;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -11,20 +12,39 @@ import java.util.List;
 @Repository
 public interface PollingStationRepository extends JpaRepository<PollingStation, String> {
     
-    @Query("SELECT ps FROM PollingStation ps WHERE ps.id IN " +
-           "(SELECT DISTINCT ps2.id FROM Municipality m JOIN m.pollingStations ps2 WHERE m.id = :municipalityId)")
+    @Query("SELECT ps FROM Municipality m JOIN m.pollingStations ps WHERE m.id = :municipalityId")
     List<PollingStation> findByMunicipalityId(@Param("municipalityId") String municipalityId);
     
     @Query("SELECT ps FROM PollingStation ps WHERE ps.postalCode BETWEEN :startPostalCode AND :endPostalCode")
     List<PollingStation> findByPostalCodeRange(@Param("startPostalCode") String startPostalCode,
                                                @Param("endPostalCode") String endPostalCode);
     
-    @Query("SELECT ps FROM PollingStation ps WHERE ps.id IN " +
-           "(SELECT DISTINCT ps2.id FROM Municipality m JOIN m.pollingStations ps2 WHERE m.id IN " +
-           "(SELECT DISTINCT m3.id FROM Constituency c JOIN c.municipalities m3 WHERE c.id IN " +
-           "(SELECT DISTINCT c4.id FROM Election e JOIN e.constituencies c4 WHERE e.id = :electionId))) " +
-           "AND ps.postalCode BETWEEN :startPostalCode AND :endPostalCode")
+    @Query("SELECT ps FROM Election e JOIN e.constituencies c JOIN c.municipalities m JOIN m.pollingStations ps " +
+           "WHERE e.id = :electionId AND ps.postalCode BETWEEN :startPostalCode AND :endPostalCode")
     List<PollingStation> findByElectionIdAndPostalCodeRange(@Param("electionId") String electionId,
                                                            @Param("startPostalCode") String startPostalCode,
                                                            @Param("endPostalCode") String endPostalCode);
+
+    // The keyset finders below return a page of at most limit rows after the given key, together with the id of the
+    // municipality of each station. They walk the primary key or the postal code index, so a deep page costs as much
+    // as the first one. Their results are not cached, every page would be a query of its own.
+
+    @Query("SELECT ps, m.id FROM Election e " +
+           "JOIN e.constituencies c JOIN c.municipalities m JOIN m.pollingStations ps " +
+           "WHERE e.id = :electionId AND ps.id > :afterId ORDER BY ps.id")
+    List<Object[]> findPageByElectionId(@Param("electionId") String electionId,
+                                        @Param("afterId") String afterId,
+                                        Limit limit);
+
+    @Query("SELECT ps, m.id FROM Election e " +
+           "JOIN e.constituencies c JOIN c.municipalities m JOIN m.pollingStations ps " +
+           "WHERE e.id = :electionId AND ps.postalCode BETWEEN :startPostalCode AND :endPostalCode " +
+           "AND (ps.postalCode > :afterPostalCode OR (ps.postalCode = :afterPostalCode AND ps.id > :afterId)) " +
+           "ORDER BY ps.postalCode, ps.id")
+    List<Object[]> findPageByElectionIdAndPostalCodeRange(@Param("electionId") String electionId,
+                                                          @Param("startPostalCode") String startPostalCode,
+                                                          @Param("endPostalCode") String endPostalCode,
+                                                          @Param("afterPostalCode") String afterPostalCode,
+                                                          @Param("afterId") String afterId,
+                                                          Limit limit);
 }
\ No newline at end of file
@@ -1,13 +1,18 @@
 package nl.hva.ict.sm3.backend.service;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import nl.hva.ict.sm3.backend.model.*;
 import nl.hva.ict.sm3.backend.repository.*;
 import nl.hva.ict.sm3.backend.utils.PathUtils;
 import nl.hva.ict.sm3.backend.utils.xml.*;
 import nl.hva.ict.sm3.backend.utils.xml.transformers.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.xml.sax.SAXException;
 
 import javax.xml.parsers.ParserConfigurationException;
@@ -15,10 +20,13 @@ import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
-import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -26,26 +34,43 @@ import java.util.stream.Collectors;
  */
 @Service
 public class DutchElectionService {
-    private static class CacheEntry {
-        private final Election election;
-        private final Instant cachedAt;
+    // Fully initialized elections, loaded once per election at a time
+    private final ElectionCache electionCache;
+    // Loads the elections for the cache, also on its background thread
+    private final TransactionTemplate readOnlyTransaction;
 
-        public CacheEntry(Election election, Instant cachedAt) {
-            this.election = election;
-            this.cachedAt = cachedAt;
-        }
+    // Number of XML files parsed concurrently, 0 means one per available processor
+    @Value("${election.parser.parallelism:0}")
+    private int parserParallelism;
 
-        public Election getElection() {
-            return election;
-        }
+    // Use the streaming (StAX) reader instead of SAX, it allocates far less for the large votes files
+    @Value("${election.parser.streaming:true}")
+    private boolean parserStreaming;
 
-        public boolean isExpired(long hours) {
-            return Instant.now().isAfter(cachedAt.plusSeconds(hours * 3600));
-        }
-    }
+    // Pass the votes of files that are parsed in parallel through bounded ring buffers to the model
+    @Value("${election.parser.pipeline:true}")
+    private boolean parserPipeline;
 
-    private final Map<String, CacheEntry> electionCache = new HashMap<>();
-    private static final long CACHE_EXPIRATION_HOURS = 24; // Cache for 24 hours
+    // Skip the validation of the attributes, the files are the official ones published by the Kiesraad
+    @Value("${election.parser.trusted-input:false}")
+    private boolean parserTrustedInput;
+
+    // Write parsed elections with batched JDBC statements instead of a cascading JPA save
+    @Value("${election.persistence.bulk:true}")
+    private boolean bulkPersistence;
+
+    // Skip the polling stations while loading, they are parsed when they are needed, see PollingStationService
+    @Value("${election.polling-stations.lazy:false}")
+    private boolean lazyPollingStations;
+
+    // Folder for the snapshots, the index of the polling stations is stored next to them
+    @Value("${election.snapshot.directory:}")
+    private String snapshotDirectory;
+
+    // Where the polling stations of each municipality are found in the files, per election
+    private final Map<String, ReportingUnitIndex> reportingUnitIndexes = new ConcurrentHashMap<>();
+    // The indexes that are being read or scanned, at most one per election
+    private final Map<String, CompletableFuture<ReportingUnitIndex>> reportingUnitIndexLoads = new ConcurrentHashMap<>();
     
     private final ElectionRepository electionRepository;
     private final PartyRepository partyRepository;
@@ -54,6 +79,13 @@ public class DutchElectionService {
     private final ConstituencyRepository constituencyRepository;
     private final MunicipalityRepository municipalityRepository;
     private final PollingStationRepository pollingStationRepository;
+    private final ElectionBulkWriter bulkWriter;
+    private final ElectionJpaWriter jpaWriter;
+    private final ElectionFileRepository electionFileRepository;
+    private final NationalService nationalService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
     
     @Autowired
     public DutchElectionService(ElectionRepository electionRepository,
@@ -62,7 +94,13 @@ public class DutchElectionService {
                                NationalRepository nationalRepository,
                                ConstituencyRepository constituencyRepository,
                                MunicipalityRepository municipalityRepository,
-                               PollingStationRepository pollingStationRepository) {
+                               PollingStationRepository pollingStationRepository,
+                               ElectionBulkWriter bulkWriter,
+                               ElectionJpaWriter jpaWriter,
+                               ElectionFileRepository electionFileRepository,
+                               ElectionCache electionCache,
+                               NationalService nationalService,
+                               PlatformTransactionManager transactionManager) {
         this.electionRepository = electionRepository;
         this.partyRepository = partyRepository;
         this.candidateRepository = candidateRepository;
@@ -70,6 +108,13 @@ public class DutchElectionService {
         this.constituencyRepository = constituencyRepository;
         this.municipalityRepository = municipalityRepository;
         this.pollingStationRepository = pollingStationRepository;
+        this.bulkWriter = bulkWriter;
+        this.jpaWriter = jpaWriter;
+        this.electionFileRepository = electionFileRepository;
+        this.electionCache = electionCache;
+        this.nationalService = nationalService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
     }
 
     /**
@@ -88,11 +133,17 @@ public class DutchElectionService {
         if (electionRepository.existsById(electionId)) {
             long constituencyCount = constituencyRepository.countByElectionIdPrefix(electionId + "-");
             if (constituencyCount > 0) {
-                System.out.println("Election " + electionId + " already exists with " + constituencyCount + " constituencies. Loading from DB...");
-                return getElectionById(electionId);
+                System.out.println("Election " + electionId + " already exists with " + constituencyCount + " constituencies. Checking for changed files...");
+                Election existing = reloadChangedFiles(electionId, folderName);
+                if (existing != null) {
+                    return existing;
+                }
+                // Files other than municipality votes have changed, they affect the whole election
+                System.out.println("Election " + electionId + " has changed files that require a full reload. Reloading...");
+            } else {
+                // Election exists but is incomplete - delete and reload
+                System.out.println("Election " + electionId + " exists but has 0 constituencies. Reloading...");
             }
-            // Election exists but is incomplete - delete and reload
-            System.out.println("Election " + electionId + " exists but has 0 constituencies. Reloading...");
             electionRepository.deleteById(electionId);
             electionRepository.flush();
         }
@@ -100,15 +151,11 @@ public class DutchElectionService {
         System.out.println("Election not in database, parsing XML files...");
         Election election = new Election(electionId);
         
-        DutchElectionParser electionParser = new DutchElectionParser(
-                new DutchDefinitionTransformer(election),
-                new DutchCandidateTransformer(election),
-                new DutchResultTransformer(election),
-                new DutchNationalVotesTransformer(election),
-                new DutchConstituencyVotesTransformer(election),
-                new DutchMunicipalityVotesTransformer(election),
-                new DutchPollingStationVotesTransformer(election)
-        );
+        ReportingUnitIndex reportingUnitIndex = new ReportingUnitIndex();
+        DutchElectionParser electionParser = createParser(election, reportingUnitIndex);
+        electionParser.setParallelism(getParserParallelism());
+        FileManifest manifest = new FileManifest();
+        electionParser.setManifest(manifest);
 
         try {
             // Clean and encode the folder name to prevent URI errors
@@ -128,14 +175,10 @@ public class DutchElectionService {
             // Extract parties from municipalities - prefix IDs with election ID
             for (Constituency constituency : election.getConstituencies()) {
                 for (Municipality municipality : constituency.getMunicipalities()) {
-                    for (Party party : municipality.getAllParties()) {
-                        String uniquePartyId = electionId + "-" + party.getId();
-                        if (election.getPartyById(uniquePartyId) == null) {
-                            election.addParty(new Party(uniquePartyId, party.getName()));
-                        }
-                    }
+                    addParties(election, municipality);
                 }
             }
+            updatePartyVotes(election);
             
             // Filter out any National objects with null type before saving
             List<National> validNationals = election.getNationalVotes().stream()
@@ -153,8 +196,17 @@ public class DutchElectionService {
             
             // Save to database - DIRECT save, no separate method call
             System.out.println("Saving election to database...");
-            Election savedElection = electionRepository.save(election);
-            electionRepository.flush(); // Force immediate write
+            // The parsed election is written as is and stays usable as a detached copy
+            if (bulkPersistence) {
+                bulkWriter.write(election);
+            } else {
+                jpaWriter.write(election);
+            }
+            Election savedElection = election;
+            saveManifest(electionId, manifest, true);
+            if (lazyPollingStations) {
+                saveReportingUnitIndex(electionId, reportingUnitIndex);
+            }
             
             System.out.println("✓ Election " + savedElection.getId() + " saved to database");
             System.out.println("  - Constituencies: " + savedElection.getConstituencies().size());
@@ -163,7 +215,7 @@ public class DutchElectionService {
             System.out.println("  - National votes: " + savedElection.getNationalVotes().size());
 
             // Add to cache
-            electionCache.put(electionId, new CacheEntry(savedElection, Instant.now()));
+            electionCache.put(electionId, savedElection);
 
             return savedElection;
             
@@ -175,6 +227,346 @@ public class DutchElectionService {
         }
     }
 
+    /**
+     * Applies a single municipality votes file (<code>Telling_xxx_gemeente</code>) to an election that has already
+     * been loaded, for example a file that has been published during election night. Only this file is parsed: the
+     * municipalities it contains replace the versions in the election, and only their rows are written to the
+     * database. Publishing the same file again therefore doesn't count its votes twice.<br/>
+     * <br/>
+     * The votes of the parties are the totals of all municipalities, so they are recalculated as well. When the seats
+     * have been calculated before, they are calculated again with the new votes.<br/>
+     * <br/>
+     * The changes are applied to the election that is passed in, which is normally the cached copy.
+     *
+     * @param election the election to update.
+     * @param file the file with the votes of one or more municipalities.
+     * @return the ids of the municipalities that have been replaced or added, empty when the file isn't a
+     *         municipality votes file of this election or could not be parsed.
+     */
+    public List<String> applyMunicipalityFile(Election election, Path file) {
+        String electionId = election.getId();
+
+        // Parse into an election with only the constituencies, so the file can't change anything else
+        Election changes = new Election(electionId);
+        for (Constituency constituency : election.getConstituencies()) {
+            changes.addConstituency(new Constituency(constituency.getId(), constituency.getName()));
+        }
+        ReportingUnitIndex reportingUnitIndex = new ReportingUnitIndex();
+        DutchElectionParser electionParser = createParser(changes, reportingUnitIndex);
+        FileManifest manifest = new FileManifest();
+        electionParser.setManifest(manifest);
+
+        try {
+            if (!electionParser.parseMunicipalityFile(electionId, file)) {
+                return List.of();
+            }
+        } catch (IOException | XMLStreamException | ParserConfigurationException | SAXException e) {
+            System.err.println("ERROR: Failed to process " + file + " for " + electionId);
+            e.printStackTrace();
+            return List.of();
+        }
+
+        List<String> municipalityIds = new ArrayList<>();
+        synchronized (election) {
+            for (Constituency constituency : changes.getConstituencies()) {
+                for (Municipality municipality : constituency.getMunicipalities()) {
+                    election.replaceMunicipality(constituency.getId(), municipality);
+                    addParties(election, municipality);
+                    municipalityIds.add(municipality.getId());
+                }
+            }
+            if (!municipalityIds.isEmpty()) {
+                updatePartyVotes(election);
+                if (!election.getSeatAllocations().isEmpty()) {
+                    nationalService.updateNationalRecordsWithSeats(election, nationalService.calculateSeatsDHondt(election));
+                }
+                if (bulkPersistence) {
+                    bulkWriter.writeMunicipalities(election, municipalityIds);
+                } else {
+                    jpaWriter.writeMunicipalities(election, municipalityIds);
+                }
+            }
+            saveManifest(electionId, manifest, false);
+            if (lazyPollingStations && !reportingUnitIndex.isEmpty()) {
+                ReportingUnitIndex index = getReportingUnitIndex(electionId);
+                index.putAll(reportingUnitIndex);
+                saveReportingUnitIndex(electionId, index);
+            }
+        }
+        // TODO replace with proper usage of a logging framework
+        System.out.printf("Applied %s to %s: %s%n", file.getFileName(), electionId, municipalityIds);
+        return municipalityIds;
+    }
+
+    /**
+     * Brings an election that is already in the database up to date with its files. Only the files that are not in
+     * the manifest of the election or whose SHA-256 hash has changed are parsed. When these are all municipality votes
+     * files, only those municipalities are replaced, see {@link #applyMunicipalityFile(Election, Path)}.
+     *
+     * @return the up-to-date election, or <code>null</code> when other files have changed and the election has to be
+     *         parsed again completely.
+     */
+    private Election reloadChangedFiles(String electionId, String folderName) {
+        String resourcePath = getResourcePath(folderName);
+        if (resourcePath == null) {
+            return getElectionById(electionId);
+        }
+
+        try {
+            FileManifest manifest = loadManifest(electionId);
+            if (manifest.isEmpty()) {
+                // Loaded before files were tracked, assume the database matches the files and start tracking them now
+                for (Path file : DutchElectionParser.findChangedFiles(electionId, resourcePath, manifest)) {
+                    manifest.add(FileManifest.describe(file));
+                }
+                saveManifest(electionId, manifest, true);
+                return getElectionById(electionId);
+            }
+
+            List<Path> changedFiles = DutchElectionParser.findChangedFiles(electionId, resourcePath, manifest);
+            if (changedFiles.isEmpty()) {
+                System.out.println("No changed files for " + electionId + ". Loading from DB...");
+                return getElectionById(electionId);
+            }
+            if (!changedFiles.stream().allMatch(file -> DutchElectionParser.isMunicipalityFile(electionId, file))) {
+                return null;
+            }
+
+            System.out.println("Re-parsing " + changedFiles.size() + " changed municipality files for " + electionId);
+            Election election = getElectionById(electionId);
+            // The replaced municipalities are written by the writers, Hibernate must not flush them as well
+            entityManager.clear();
+            for (Path file : changedFiles) {
+                applyMunicipalityFile(election, file);
+            }
+            return election;
+        } catch (IOException e) {
+            System.err.println("ERROR: Could not check the files of " + electionId + ": " + e.getMessage());
+            return getElectionById(electionId);
+        }
+    }
+
+    /**
+     * Tells whether files of an election have been added or changed since it has been parsed. Elections that have
+     * been parsed before files were tracked are assumed to be up to date.
+     *
+     * @param electionId the id of the election.
+     * @param folderName the folder with the files of the election.
+     * @return <code>true</code> when the election has to be loaded with {@link #readResults(String, String)} to be
+     *         up to date.
+     */
+    @Transactional(readOnly = true)
+    public boolean hasChangedFiles(String electionId, String folderName) {
+        String resourcePath = getResourcePath(folderName.trim());
+        FileManifest manifest = loadManifest(electionId.trim());
+        if (resourcePath == null || manifest.isEmpty()) {
+            return false;
+        }
+        try {
+            return !DutchElectionParser.findChangedFiles(electionId.trim(), resourcePath, manifest).isEmpty();
+        } catch (IOException e) {
+            System.err.println("ERROR: Could not check the files of " + electionId + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private FileManifest loadManifest(String electionId) {
+        return new FileManifest(electionFileRepository.findByElectionId(electionId).stream()
+                .map(file -> new FileManifest.Entry(file.getFileName(), file.getSize(), file.getLastModified(),
+                        file.getSha256()))
+                .toList());
+    }
+
+    /**
+     * Stores the entries of a manifest.
+     *
+     * @param replace <code>true</code> when the manifest replaces the stored one, <code>false</code> when its entries
+     *                are added to it.
+     */
+    private void saveManifest(String electionId, FileManifest manifest, boolean replace) {
+        if (replace) {
+            electionFileRepository.deleteByElectionId(electionId);
+        }
+        electionFileRepository.saveAll(manifest.getEntries().stream()
+                .map(entry -> new ElectionFile(electionId, entry.fileName(), entry.size(), entry.lastModified(),
+                        entry.sha256()))
+                .toList());
+    }
+
+    /**
+     * Creates a parser that adds everything it parses to the election. When the polling stations are loaded lazily
+     * they are skipped, and where they are found in the files is recorded in the index instead.
+     */
+    private DutchElectionParser createParser(Election election, ReportingUnitIndex reportingUnitIndex) {
+        DutchMunicipalityVotesTransformer municipalityVotesTransformer = new DutchMunicipalityVotesTransformer(election);
+        DutchElectionParser electionParser = new DutchElectionParser(
+                new DutchDefinitionTransformer(election),
+                new DutchCandidateTransformer(election),
+                new DutchResultTransformer(election),
+                new DutchNationalVotesTransformer(election),
+                new DutchConstituencyVotesTransformer(election),
+                municipalityVotesTransformer,
+                new DutchPollingStationVotesTransformer(election)
+        );
+        electionParser.setStreaming(parserStreaming);
+        electionParser.setPipelined(parserPipeline);
+        electionParser.setTrustedInput(parserTrustedInput);
+        if (lazyPollingStations) {
+            municipalityVotesTransformer.setPollingStations(false);
+            electionParser.setReportingUnitIndex(reportingUnitIndex);
+        }
+        return electionParser;
+    }
+
+    /**
+     * @return whether the polling stations are left out when an election is loaded, see
+     *         {@link PollingStationService}.
+     */
+    public boolean isLazyPollingStations() {
+        return lazyPollingStations;
+    }
+
+    /**
+     * Gets the index with the location of the polling stations of each municipality in the files of an election.
+     * It is recorded while the election is parsed and stored next to the snapshots. When it is missing, for example
+     * because the election was loaded from the database, or when the manifest of the election shows that municipality
+     * files have changed since, the municipality files are scanned (not parsed) again and the stored index is
+     * rewritten.<br/>
+     * <br/>
+     * The index is read or scanned once per election, outside any lock of the map. Requests that arrive meanwhile wait
+     * for it.
+     *
+     * @param electionId the id of the election.
+     * @return the index, empty when the files of the election can't be found.
+     */
+    public ReportingUnitIndex getReportingUnitIndex(String electionId) {
+        ReportingUnitIndex index = reportingUnitIndexes.get(electionId);
+        if (index != null) {
+            return index;
+        }
+        CompletableFuture<ReportingUnitIndex> load = new CompletableFuture<>();
+        CompletableFuture<ReportingUnitIndex> running = reportingUnitIndexLoads.putIfAbsent(electionId, load);
+        if (running != null) {
+            return running.join();
+        }
+        try {
+            // Another thread may have stored the index between the lookup and the registration of this load
+            index = reportingUnitIndexes.get(electionId);
+            if (index == null) {
+                ReportingUnitIndex loaded = loadReportingUnitIndex(electionId);
+                ReportingUnitIndex stored = reportingUnitIndexes.putIfAbsent(electionId, loaded);
+                index = stored != null ? stored : loaded;
+            }
+            load.complete(index);
+            return index;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            reportingUnitIndexLoads.remove(electionId, load);
+        }
+    }
+
+    private ReportingUnitIndex loadReportingUnitIndex(String electionId) {
+        try {
+            Path sidecar = getReportingUnitIndexFile(electionId);
+            String resourcePath = getResourcePath(electionId);
+            if (resourcePath == null) {
+                ReportingUnitIndex index = sidecar != null ? ReportingUnitIndex.read(sidecar) : null;
+                return index != null ? index : new ReportingUnitIndex();
+            }
+            if (sidecar != null && hasUnchangedMunicipalityFiles(electionId, resourcePath)) {
+                ReportingUnitIndex index = ReportingUnitIndex.read(sidecar);
+                if (index != null) {
+                    return index;
+                }
+            }
+            ReportingUnitIndex index = ReportingUnitIndex.scan(
+                    PathUtils.findFilesToScan(resourcePath, "Telling_%s_gemeente".formatted(electionId)));
+            if (sidecar != null) {
+                index.write(sidecar);
+            }
+            return index;
+        } catch (IOException e) {
+            System.err.println("ERROR: Could not index the polling stations of " + electionId + ": " + e.getMessage());
+            return new ReportingUnitIndex();
+        }
+    }
+
+    /**
+     * Checks the municipality files against the manifest of the election, the stored index was written together with
+     * the manifest. Elections that have been parsed before files were tracked are assumed to be up to date.
+     */
+    private boolean hasUnchangedMunicipalityFiles(String electionId, String resourcePath) throws IOException {
+        FileManifest manifest = loadManifest(electionId);
+        if (manifest.isEmpty()) {
+            return true;
+        }
+        for (Path file : DutchElectionParser.findChangedFiles(electionId, resourcePath, manifest)) {
+            if (DutchElectionParser.isMunicipalityFile(electionId, file)) {
+                // TODO replace with proper usage of a logging framework
+                System.out.printf("Polling station index of %s is outdated, %s has changed%n", electionId,
+                        file.getFileName());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void saveReportingUnitIndex(String electionId, ReportingUnitIndex index) {
+        reportingUnitIndexes.put(electionId, index);
+        Path sidecar = getReportingUnitIndexFile(electionId);
+        if (sidecar == null) {
+            return;
+        }
+        try {
+            index.write(sidecar);
+        } catch (IOException e) {
+            System.err.println("ERROR: Could not write the polling station index of " + electionId + ": " + e.getMessage());
+        }
+    }
+
+    private Path getReportingUnitIndexFile(String electionId) {
+        if (snapshotDirectory == null || snapshotDirectory.isBlank()) {
+            return null;
+        }
+        return Path.of(snapshotDirectory, electionId + ".stations");
+    }
+
+    private static String getResourcePath(String folderName) {
+        // Clean and encode the folder name to prevent URI errors
+        return PathUtils.getResourcePath("/" + URLEncoder.encode(folderName, StandardCharsets.UTF_8));
+    }
+
+    private static void addParties(Election election, Municipality municipality) {
+        for (Party party : municipality.getAllParties()) {
+            String uniquePartyId = election.getId() + "-" + party.getId();
+            if (election.getPartyById(uniquePartyId) == null) {
+                election.addParty(new Party(uniquePartyId, party.getName()));
+            }
+        }
+    }
+
+    /**
+     * Sets the votes of each party of the election to its total of all municipalities.
+     */
+    private static void updatePartyVotes(Election election) {
+        VoteMatrix matrix = election.getVoteMatrix();
+        VoteMatrix.Totals totals = matrix.getNationalTotals();
+        String prefix = election.getId() + "-";
+        for (Party party : election.getParties()) {
+            // The parties of the municipalities have the ids from the files, see addParties
+            String partyId = party.getId().startsWith(prefix) ? party.getId().substring(prefix.length()) : party.getId();
+            int index = matrix.getPartyIndex(partyId);
+            int votes = index >= 0 && totals.contains(index) ? totals.getVotes(index) : 0;
+            party.addVotes(votes - party.getVotes());
+        }
+    }
+
+    private int getParserParallelism() {
+        return parserParallelism > 0 ? parserParallelism : Runtime.getRuntime().availableProcessors();
+    }
+
     /**
      * Gets an election by ID. First checks cache, then database.
      */
@@ -187,16 +579,15 @@ public class DutchElectionService {
 
     @Transactional(readOnly = true)
     public Election getElectionById(String electionId) {
-        // First check cache
-        CacheEntry entry = electionCache.get(electionId);
-        if (entry != null && !entry.isExpired(CACHE_EXPIRATION_HOURS)) {
-            System.out.println("Returning election " + electionId + " from cache");
-            return entry.getElection();
-        }
-        
-        // Load from database
+        return electionCache.get(electionId, this::loadElection);
+    }
+
+    /**
+     * Loads an election with all its lazy collections initialized, so it can be used outside a transaction.
+     */
+    private Election loadElection(String electionId) {
         System.out.println("Loading election " + electionId + " from database...");
-        return electionRepository.findByIdWithDetails(electionId)
+        return readOnlyTransaction.execute(status -> electionRepository.findByIdWithDetails(electionId)
             .map(election -> {
                 // Initialize all lazy collections to prevent LazyInitializationException
                 election.getConstituencies().size();
@@ -219,19 +610,24 @@ public class DutchElectionService {
                     }
                 }
                 
-                // Cache it
-                electionCache.put(electionId, new CacheEntry(election, Instant.now()));
                 System.out.println("Election " + electionId + " loaded and cached");
                 return election;
             })
-            .orElse(null);
+            .orElse(null));
+    }
+
+    /**
+     * @return the hit, miss and load counters of the election cache.
+     */
+    public ElectionCache.Stats getCacheStats() {
+        return electionCache.getStats();
     }
 
     /**
      * Caches an election in the service cache.
      */
     public void cacheElection(String electionId, Election election) {
-        electionCache.put(electionId, new CacheEntry(election, Instant.now()));
+        electionCache.put(electionId, election);
     }
 
     /**
@@ -243,13 +639,10 @@ public class DutchElectionService {
         folderName = folderName.trim();
 
         // Check if candidates already exist
-        CacheEntry cachedEntry = electionCache.get(electionId);
-        if (cachedEntry != null && !cachedEntry.isExpired(CACHE_EXPIRATION_HOURS)) {
-            Election cachedElection = cachedEntry.getElection();
-            if (cachedElection != null && !cachedElection.getCandidates().isEmpty()) {
-                System.out.println("Candidates already cached for: " + electionId);
-                return;
-            }
+        Election cachedElection = electionCache.getIfPresent(electionId);
+        if (cachedElection != null && !cachedElection.getCandidates().isEmpty()) {
+            System.out.println("Candidates already cached for: " + electionId);
+            return;
         }
         
         // Check database
@@ -285,11 +678,15 @@ public class DutchElectionService {
             
             System.out.println("Loaded " + election.getCandidates().size() + " candidates");
             
-            // Save updated election
-            electionRepository.save(election);
-            electionRepository.flush();
+            // Save updated election, only the national data changes when the candidate lists are loaded
+            if (bulkPersistence) {
+                bulkWriter.writeNationalData(election);
+            } else {
+                electionRepository.save(election);
+                electionRepository.flush();
+            }
 
-            electionCache.put(electionId, new CacheEntry(election, Instant.now()));
+            electionCache.put(electionId, election);
             System.out.println("✓ Candidates saved for: " + electionId);
 
         } catch (IOException | XMLStreamException | ParserConfigurationException |
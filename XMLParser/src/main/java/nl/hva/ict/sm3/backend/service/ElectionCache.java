@@ -0,0 +1,351 @@
+package nl.hva.ict.sm3.backend.service;
+
+import nl.hva.ict.sm3.backend.model.Constituency;
+import nl.hva.ict.sm3.backend.model.Election;
+import nl.hva.ict.sm3.backend.model.Municipality;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Keeps the fully initialized elections of {@link DutchElectionService} in memory.<br/>
+ * <br/>
+ * Loading an election walks every lazy collection of its entity graph, so it is only done once per election at a
+ * time: the first request that misses the cache loads it, the requests that arrive in the meantime wait for that
+ * load instead of starting their own. The cache is bounded by the estimated heap size of the elections, when it
+ * grows beyond <code>election.cache.max-weight-mb</code> the elections that haven't been used for the longest time
+ * are dropped. An election that is heavier than the maximum on its own isn't cached at all.<br/>
+ * <br/>
+ * Elections don't expire. Once an election is older than <code>election.cache.refresh-after-minutes</code> the next
+ * request still gets the cached election, while it is reloaded in the background.<br/>
+ * <br/>
+ * Caches of data derived from an election can register a removal listener, so they drop that data together with the
+ * election, see {@link #addRemovalListener(Consumer)}.
+ */
+@Component
+public class ElectionCache {
+    // Rough number of bytes per entity, including the map entries of its votes, see estimateWeight(Election)
+    private static final long ELECTION_BYTES = 4096;
+    private static final long ENTITY_BYTES = 256;
+    private static final long VOTE_BYTES = 96;
+
+    /**
+     * The counters of the cache, since the application started.
+     *
+     * @param hits the number of requests that were served from the cache.
+     * @param misses the number of requests that had to load the election or wait for it to be loaded.
+     * @param loads the number of times an election was loaded, including the refreshes.
+     * @param loadFailures the number of loads that failed.
+     * @param refreshes the number of background refreshes that were started.
+     * @param evictions the number of elections that were dropped to stay within the maximum weight.
+     * @param totalLoadMillis the time spent loading, in milliseconds.
+     * @param size the number of cached elections.
+     * @param weight the estimated heap size of the cached elections, in bytes.
+     */
+    public record Stats(long hits, long misses, long loads, long loadFailures, long refreshes, long evictions,
+                        long totalLoadMillis, int size, long weight) {
+        /**
+         * @return the fraction of the requests that were served from the cache, 1 when there were no requests.
+         */
+        public double getHitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 1.0 : (double) hits / requests;
+        }
+
+        /**
+         * @return the average time a load took, in milliseconds.
+         */
+        public double getAverageLoadMillis() {
+            return loads == 0 ? 0.0 : (double) totalLoadMillis / loads;
+        }
+    }
+
+    private static final class Entry {
+        final Election election;
+        final long weight;
+        final long loadedAt;
+        // Value of the access counter when the election was last requested, the lowest is evicted first
+        volatile long lastAccess;
+
+        Entry(Election election, long weight, long loadedAt, long lastAccess) {
+            this.election = election;
+            this.weight = weight;
+            this.loadedAt = loadedAt;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // The loads that are running, at most one per election
+    private final Map<String, CompletableFuture<Election>> loading = new ConcurrentHashMap<>();
+    private final AtomicLong accessCounter = new AtomicLong();
+    private final long maxWeight;
+    private final long refreshAfterNanos;
+    private final ToLongFunction<Election> weigher;
+    private final Executor refreshExecutor;
+    private final List<Consumer<String>> removalListeners = new CopyOnWriteArrayList<>();
+    // Guarded by this
+    private long totalWeight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+
+    @Autowired
+    public ElectionCache(@Value("${election.cache.max-weight-mb:1024}") long maxWeightMb,
+                         @Value("${election.cache.refresh-after-minutes:60}") long refreshAfterMinutes) {
+        this(maxWeightMb * 1024 * 1024, TimeUnit.MINUTES.toNanos(refreshAfterMinutes), ElectionCache::estimateWeight,
+                Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "election-cache-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    /**
+     * @param maxWeight the maximum estimated heap size of the cached elections, in bytes.
+     * @param refreshAfterNanos the age after which an election is reloaded in the background.
+     * @param weigher estimates the heap size of an election.
+     * @param refreshExecutor runs the background refreshes.
+     */
+    ElectionCache(long maxWeight, long refreshAfterNanos, ToLongFunction<Election> weigher, Executor refreshExecutor) {
+        this.maxWeight = maxWeight;
+        this.refreshAfterNanos = refreshAfterNanos;
+        this.weigher = weigher;
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    /**
+     * Returns the cached election, or loads it. When another thread is already loading the election this waits for
+     * that load.
+     *
+     * @param electionId the id of the election.
+     * @param loader loads a fully initialized election, or returns <code>null</code> when it doesn't exist.
+     * @return the election, <code>null</code> when the loader didn't find it.
+     */
+    public Election get(String electionId, Function<String, Election> loader) {
+        Entry entry = entries.get(electionId);
+        if (entry != null) {
+            hits.increment();
+            entry.lastAccess = accessCounter.incrementAndGet();
+            if (System.nanoTime() - entry.loadedAt >= refreshAfterNanos) {
+                refresh(electionId, loader);
+            }
+            return entry.election;
+        }
+        misses.increment();
+
+        CompletableFuture<Election> load = new CompletableFuture<>();
+        CompletableFuture<Election> running = loading.putIfAbsent(electionId, load);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            // Another thread may have stored the election between the lookup and the registration of this load
+            entry = entries.get(electionId);
+            Election election = entry != null ? entry.election : load(electionId, loader);
+            load.complete(election);
+            return election;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(electionId, load);
+        }
+    }
+
+    /**
+     * Returns the cached election without loading it and without counting a hit or miss.
+     *
+     * @return the election, <code>null</code> when it isn't cached.
+     */
+    public Election getIfPresent(String electionId) {
+        Entry entry = entries.get(electionId);
+        return entry != null ? entry.election : null;
+    }
+
+    /**
+     * Stores an election that has just been parsed or updated, replacing the cached one.
+     */
+    public void put(String electionId, Election election) {
+        store(electionId, election);
+    }
+
+    /**
+     * Drops an election, it is loaded again on the next request.
+     */
+    public void invalidate(String electionId) {
+        Entry removed;
+        synchronized (this) {
+            removed = entries.remove(electionId);
+            if (removed != null) {
+                totalWeight -= removed.weight;
+            }
+        }
+        if (removed != null) {
+            notifyRemoval(List.of(electionId));
+        }
+    }
+
+    /**
+     * Registers a listener that is called with the id of an election after the election has been dropped from the
+     * cache or replaced by another instance. It is called outside the lock of the cache.
+     */
+    public void addRemovalListener(Consumer<String> listener) {
+        removalListeners.add(listener);
+    }
+
+    public Stats getStats() {
+        synchronized (this) {
+            return new Stats(hits.sum(), misses.sum(), loads.sum(), loadFailures.sum(), refreshes.sum(),
+                    evictions.sum(), TimeUnit.NANOSECONDS.toMillis(loadNanos.sum()), entries.size(), totalWeight);
+        }
+    }
+
+    /**
+     * Reloads the election in the background, unless it is already being loaded. The cached election is served
+     * until the new one is stored, also when the reload fails.
+     */
+    private void refresh(String electionId, Function<String, Election> loader) {
+        CompletableFuture<Election> load = new CompletableFuture<>();
+        if (loading.putIfAbsent(electionId, load) != null) {
+            return;
+        }
+        refreshes.increment();
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    load.complete(load(electionId, loader));
+                } catch (RuntimeException e) {
+                    // TODO replace with proper usage of a logging framework
+                    System.err.println("ERROR: Failed to refresh election " + electionId + ": " + e.getMessage());
+                    load.completeExceptionally(e);
+                } finally {
+                    loading.remove(electionId, load);
+                }
+            });
+        } catch (RuntimeException e) {
+            // The executor has been shut down, the election is refreshed by a later request
+            loading.remove(electionId, load);
+            load.complete(getIfPresent(electionId));
+        }
+    }
+
+    private Election load(String electionId, Function<String, Election> loader) {
+        long start = System.nanoTime();
+        try {
+            Election election = loader.apply(electionId);
+            loads.increment();
+            if (election != null) {
+                store(electionId, election);
+            }
+            return election;
+        } catch (RuntimeException e) {
+            loadFailures.increment();
+            throw e;
+        } finally {
+            loadNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private static Election await(CompletableFuture<Election> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void store(String electionId, Election election) {
+        List<String> removed = new ArrayList<>();
+        synchronized (this) {
+            Entry entry = new Entry(election, weigher.applyAsLong(election), System.nanoTime(),
+                    accessCounter.incrementAndGet());
+            if (entry.weight > maxWeight) {
+                // It would evict every other election and then itself, an older version isn't kept either
+                Entry replaced = entries.remove(electionId);
+                if (replaced != null) {
+                    totalWeight -= replaced.weight;
+                    removed.add(electionId);
+                }
+                // TODO replace with proper usage of a logging framework
+                System.out.printf("Not caching election %s, %d MB is more than the maximum of %d MB%n", electionId,
+                        entry.weight / (1024 * 1024), maxWeight / (1024 * 1024));
+            } else {
+                Entry replaced = entries.put(electionId, entry);
+                totalWeight += entry.weight - (replaced != null ? replaced.weight : 0);
+                if (replaced != null && replaced.election != election) {
+                    removed.add(electionId);
+                }
+
+                // Only a few elections are cached, so looking for the least recently used one is cheap enough
+                while (totalWeight > maxWeight && !entries.isEmpty()) {
+                    Map.Entry<String, Entry> eldest = null;
+                    for (Map.Entry<String, Entry> candidate : entries.entrySet()) {
+                        if (eldest == null || candidate.getValue().lastAccess < eldest.getValue().lastAccess) {
+                            eldest = candidate;
+                        }
+                    }
+                    entries.remove(eldest.getKey());
+                    totalWeight -= eldest.getValue().weight;
+                    evictions.increment();
+                    removed.add(eldest.getKey());
+                    System.out.printf("Evicted election %s from the cache (%d MB)%n", eldest.getKey(),
+                            eldest.getValue().weight / (1024 * 1024));
+                }
+            }
+        }
+        notifyRemoval(removed);
+    }
+
+    private void notifyRemoval(List<String> electionIds) {
+        for (String electionId : electionIds) {
+            for (Consumer<String> listener : removalListeners) {
+                listener.accept(electionId);
+            }
+        }
+    }
+
+    /**
+     * Estimates the heap size of an election from the number of entities in it. Every municipality and polling station
+     * is assumed to have votes for every party of the election.
+     *
+     * @return the estimated size in bytes.
+     */
+    static long estimateWeight(Election election) {
+        long parties = election.getParties().size();
+        long units = 0;
+        for (Constituency constituency : election.getConstituencies()) {
+            units++;
+            for (Municipality municipality : constituency.getMunicipalities()) {
+                units += 1 + municipality.getPollingStations().size();
+            }
+        }
+        return ELECTION_BYTES
+                + (parties + election.getCandidates().size() + election.getNationalVotes().size()) * ENTITY_BYTES
+                + units * (ENTITY_BYTES + parties * VOTE_BYTES);
+    }
+}
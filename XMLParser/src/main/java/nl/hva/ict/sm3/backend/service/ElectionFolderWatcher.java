@@ -0,0 +1,235 @@
+package nl.hva.ict.sm3.backend.service;
+
+import jakarta.annotation.PreDestroy;
+import nl.hva.ict.sm3.backend.model.Election;
+import nl.hva.ict.sm3.backend.utils.PathUtils;
+import nl.hva.ict.sm3.backend.utils.snapshot.ElectionSnapshot;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watches the folders of the elections for municipality votes files (<code>Telling_xxx_gemeente</code>) that are
+ * added or changed while the application is running, as happens during election night. Each file is applied on its
+ * own with {@link DutchElectionService#applyMunicipalityFile(Election, Path)}, so the cost of a refresh depends on the
+ * size of the new file and not on the size of the election.<br/>
+ * <br/>
+ * A file is only picked up once no events have been seen for it during the quiet period, so a file that is still
+ * being copied isn't parsed halfway. After a round of changes the snapshot of the election is written again, so a
+ * restart doesn't bring back the old results.<br/>
+ * <br/>
+ * The watcher is disabled by default, enable it with <code>election.watch.enabled=true</code>.
+ */
+@Component
+@Profile("!test")
+public class ElectionFolderWatcher {
+
+    private final DutchElectionService electionService;
+    private final ElectionReadinessService readinessService;
+
+    @Value("${election.watch.enabled:false}")
+    private boolean enabled;
+
+    // The elections whose folders are watched
+    @Value("${election.watch.elections:TK2025}")
+    private List<String> electionIds;
+
+    // How long a file must be left alone before it is parsed
+    @Value("${election.watch.quiet-period-ms:2000}")
+    private long quietPeriodMillis;
+
+    // Folder with the binary snapshots of the parsed elections, empty to disable snapshots
+    @Value("${election.snapshot.directory:}")
+    private String snapshotDirectory;
+
+    private WatchService watchService;
+    private Thread thread;
+
+    @Autowired
+    public ElectionFolderWatcher(DutchElectionService electionService, ElectionReadinessService readinessService) {
+        this.electionService = electionService;
+        this.readinessService = readinessService;
+    }
+
+    /**
+     * Starts watching once the application, including the {@link nl.hva.ict.sm3.backend.config.DataInitializer},
+     * has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws IOException {
+        if (!enabled || thread != null) {
+            return;
+        }
+
+        watchService = FileSystems.getDefault().newWatchService();
+        Map<WatchKey, String> elections = new HashMap<>();
+        for (String electionId : electionIds) {
+            String folder = PathUtils.getResourcePath("/" + URLEncoder.encode(electionId.trim(), StandardCharsets.UTF_8));
+            if (folder == null) {
+                System.err.println("Not watching " + electionId + ", its folder could not be found");
+                continue;
+            }
+            Path path = PathUtils.toPath(folder);
+            if (path.getFileSystem() != FileSystems.getDefault()) {
+                // Files inside a ZIP archive or JAR can't change while the application is running
+                System.err.println("Not watching " + electionId + ", it is read from an archive");
+                continue;
+            }
+            register(path, electionId.trim(), elections);
+            // TODO replace with proper usage of a logging framework
+            System.out.printf("Watching %s for new results of %s%n", folder, electionId);
+        }
+
+        thread = new Thread(() -> watch(elections), "election-folder-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private void register(Path folder, String electionId, Map<WatchKey, String> elections) throws IOException {
+        // A WatchService only reports the changes directly inside a folder, so every sub folder is registered too
+        Files.walkFileTree(folder, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                elections.put(dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY), electionId);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void watch(Map<WatchKey, String> elections) {
+        // Changed files per election, with the moment of the last event of each file
+        Map<String, Map<Path, Long>> pending = new HashMap<>();
+        try {
+            while (true) {
+                WatchKey key = watchService.poll(quietPeriodMillis, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    collect(key, elections, pending);
+                }
+                applyQuietFiles(pending);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // The application is shutting down
+        }
+    }
+
+    private void collect(WatchKey key, Map<WatchKey, String> elections, Map<String, Map<Path, Long>> pending) {
+        String electionId = elections.get(key);
+        Path folder = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                // Events have been lost, so every file of the folder may have changed
+                try (var files = Files.list(folder)) {
+                    files.forEach(file -> pending.computeIfAbsent(electionId, id -> new LinkedHashMap<>())
+                            .put(file, System.nanoTime()));
+                } catch (IOException e) {
+                    System.err.println("Could not list " + folder + ": " + e.getMessage());
+                }
+                continue;
+            }
+
+            Path file = folder.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(file)) {
+                try {
+                    register(file, electionId, elections);
+                } catch (IOException e) {
+                    System.err.println("Could not watch " + file + ": " + e.getMessage());
+                }
+                continue;
+            }
+            if (file.getFileName().toString().startsWith("Telling_%s_gemeente".formatted(electionId))) {
+                pending.computeIfAbsent(electionId, id -> new LinkedHashMap<>()).put(file, System.nanoTime());
+            }
+        }
+        if (!key.reset()) {
+            elections.remove(key);
+        }
+    }
+
+    private void applyQuietFiles(Map<String, Map<Path, Long>> pending) {
+        long quietSince = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(quietPeriodMillis);
+        for (Map.Entry<String, Map<Path, Long>> entry : pending.entrySet()) {
+            String electionId = entry.getKey();
+            if (readinessService.isLoading(electionId)) {
+                // The files are applied once the election has been loaded, if they aren't part of it already
+                continue;
+            }
+            Election election = null;
+            boolean changed = false;
+            for (Iterator<Map.Entry<Path, Long>> files = entry.getValue().entrySet().iterator(); files.hasNext(); ) {
+                Map.Entry<Path, Long> file = files.next();
+                if (file.getValue() > quietSince) {
+                    continue;
+                }
+                files.remove();
+                if (!Files.isRegularFile(file.getKey())) {
+                    continue;
+                }
+                try {
+                    if (election == null) {
+                        election = electionService.getElectionById(electionId);
+                    }
+                    if (election != null) {
+                        changed |= !electionService.applyMunicipalityFile(election, file.getKey()).isEmpty();
+                    }
+                } catch (RuntimeException e) {
+                    // Keep watching, the next version of the file may be fine
+                    System.err.println("Could not apply " + file.getKey() + ": " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }
+            if (changed) {
+                writeSnapshot(election);
+            }
+        }
+    }
+
+    private void writeSnapshot(Election election) {
+        if (snapshotDirectory == null || snapshotDirectory.isBlank()) {
+            return;
+        }
+        Path snapshot = Path.of(snapshotDirectory, election.getId() + ".snapshot");
+        try {
+            synchronized (election) {
+                ElectionSnapshot.write(election, snapshot);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not write snapshot of " + election.getId() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package nl.hva.ict.sm3.backend.service;
+
+import nl.hva.ict.sm3.backend.dto.CandidateDto;
+import nl.hva.ict.sm3.backend.dto.KeysetPage;
+import nl.hva.ict.sm3.backend.dto.MunicipalityDto;
+import nl.hva.ict.sm3.backend.dto.PollingStationDto;
+import nl.hva.ict.sm3.backend.mapper.ElectionMapper;
+import nl.hva.ict.sm3.backend.model.Candidate;
+import nl.hva.ict.sm3.backend.model.Municipality;
+import nl.hva.ict.sm3.backend.model.PollingStation;
+import nl.hva.ict.sm3.backend.repository.CandidateRepository;
+import nl.hva.ict.sm3.backend.repository.ElectionRepository;
+import nl.hva.ict.sm3.backend.repository.MunicipalityRepository;
+import nl.hva.ict.sm3.backend.repository.PollingStationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Pages through the municipalities, polling stations and candidates of an election in the database with keyset
+ * pagination. Each page continues after the sort key of the last row of the previous page, which the client gets back
+ * as an opaque token, instead of skipping an offset. So a deep page costs as much as the first one.<br/>
+ * <br/>
+ * The sort keys are:
+ * <ul>
+ *     <li>municipalities: the id.</li>
+ *     <li>polling stations: the id, or the postal code and the id when a range of postal codes is requested.</li>
+ *     <li>candidates: the votes, most first, and the id.</li>
+ * </ul>
+ * Polling stations that are loaded lazily are not in the database, see {@link PollingStationService}.
+ */
+@Service
+public class ElectionPageService {
+    /**
+     * The largest number of rows of a page.
+     */
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private static final String MUNICIPALITIES = "municipalities";
+    private static final String POLLING_STATIONS = "pollingstations";
+    private static final String POLLING_STATIONS_BY_POSTAL_CODE = "pollingstations-postalcode";
+    private static final String CANDIDATES = "candidates";
+    // Smaller than every id, so the first page starts at the first row
+    private static final String FIRST_ID = "";
+
+    private final ElectionRepository electionRepository;
+    private final MunicipalityRepository municipalityRepository;
+    private final PollingStationRepository pollingStationRepository;
+    private final CandidateRepository candidateRepository;
+    private final ElectionMapper electionMapper;
+
+    @Autowired
+    public ElectionPageService(ElectionRepository electionRepository,
+                               MunicipalityRepository municipalityRepository,
+                               PollingStationRepository pollingStationRepository,
+                               CandidateRepository candidateRepository,
+                               ElectionMapper electionMapper) {
+        this.electionRepository = electionRepository;
+        this.municipalityRepository = municipalityRepository;
+        this.pollingStationRepository = pollingStationRepository;
+        this.candidateRepository = candidateRepository;
+        this.electionMapper = electionMapper;
+    }
+
+    /**
+     * Gets a page of the municipalities of an election, ordered by id.
+     *
+     * @param electionId the id of the election.
+     * @param size the maximum number of municipalities, from 1 to {@link #MAX_PAGE_SIZE}.
+     * @param cursor the token of the previous page, <code>null</code> for the first page.
+     * @return the page, or <code>null</code> when the election doesn't exist.
+     * @throws IllegalArgumentException when the size or the cursor is invalid.
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<MunicipalityDto> getMunicipalities(String electionId, int size, String cursor) {
+        validateSize(size);
+        String afterId = cursor == null ? FIRST_ID : KeysetCursor.decode(MUNICIPALITIES, cursor, 1)[0];
+        if (!electionRepository.existsById(electionId)) {
+            return null;
+        }
+
+        List<Municipality> rows = municipalityRepository.findPageByElectionId(electionId, afterId, Limit.of(size + 1));
+        return toPage(rows, size, municipality -> electionMapper.toMunicipalityDto(municipality, 0),
+                last -> KeysetCursor.encode(MUNICIPALITIES, last.getId()));
+    }
+
+    /**
+     * Gets a page of the polling stations of an election, ordered by id, or by postal code when a range of postal
+     * codes is given. Every station has the id of its municipality.
+     *
+     * @param electionId the id of the election.
+     * @param startPostalCode the first postal code of the range, <code>null</code> for all polling stations.
+     * @param endPostalCode the last postal code of the range, <code>null</code> for all polling stations.
+     * @param size the maximum number of polling stations, from 1 to {@link #MAX_PAGE_SIZE}.
+     * @param cursor the token of the previous page, <code>null</code> for the first page.
+     * @return the page, or <code>null</code> when the election doesn't exist.
+     * @throws IllegalArgumentException when the range, the size or the cursor is invalid.
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<PollingStationDto> getPollingStations(String electionId, String startPostalCode,
+                                                            String endPostalCode, int size, String cursor) {
+        validateSize(size);
+        if ((startPostalCode == null) != (endPostalCode == null)) {
+            throw new IllegalArgumentException("Both ends of the postal code range are required");
+        }
+        boolean byPostalCode = startPostalCode != null;
+        String[] after = cursor != null
+                ? KeysetCursor.decode(byPostalCode ? POLLING_STATIONS_BY_POSTAL_CODE : POLLING_STATIONS, cursor,
+                        byPostalCode ? 2 : 1)
+                : null;
+        if (!electionRepository.existsById(electionId)) {
+            return null;
+        }
+
+        List<Object[]> rows;
+        if (byPostalCode) {
+            rows = pollingStationRepository.findPageByElectionIdAndPostalCodeRange(electionId,
+                    startPostalCode, endPostalCode,
+                    after != null ? after[0] : startPostalCode, after != null ? after[1] : FIRST_ID,
+                    Limit.of(size + 1));
+        } else {
+            rows = pollingStationRepository.findPageByElectionId(electionId, after != null ? after[0] : FIRST_ID,
+                    Limit.of(size + 1));
+        }
+        return toPage(rows, size,
+                row -> {
+                    PollingStationDto dto = electionMapper.toPollingStationDto((PollingStation) row[0]);
+                    dto.setMunicipalityId((String) row[1]);
+                    return dto;
+                },
+                last -> {
+                    PollingStation station = (PollingStation) last[0];
+                    return byPostalCode
+                            ? KeysetCursor.encode(POLLING_STATIONS_BY_POSTAL_CODE, station.getPostalCode(),
+                                    station.getId())
+                            : KeysetCursor.encode(POLLING_STATIONS, station.getId());
+                });
+    }
+
+    /**
+     * Gets a page of the candidates of an election, the candidates with the most votes first.
+     *
+     * @param electionId the id of the election.
+     * @param size the maximum number of candidates, from 1 to {@link #MAX_PAGE_SIZE}.
+     * @param cursor the token of the previous page, <code>null</code> for the first page.
+     * @return the page, or <code>null</code> when the election doesn't exist.
+     * @throws IllegalArgumentException when the size or the cursor is invalid.
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<CandidateDto> getCandidates(String electionId, int size, String cursor) {
+        validateSize(size);
+        int afterVotes = Integer.MAX_VALUE;
+        // Larger than every id, the ids are walked downwards
+        String afterId = "\uffff";
+        if (cursor != null) {
+            String[] after = KeysetCursor.decode(CANDIDATES, cursor, 2);
+            try {
+                afterVotes = Integer.parseInt(after[0]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            afterId = after[1];
+        }
+        if (!electionRepository.existsById(electionId)) {
+            return null;
+        }
+
+        List<Candidate> rows = candidateRepository.findPageByElectionId(electionId, afterVotes, afterId,
+                Limit.of(size + 1));
+        return toPage(rows, size, electionMapper::toCandidateDto,
+                last -> KeysetCursor.encode(CANDIDATES, Integer.toString(last.getVotes()), last.getId()));
+    }
+
+    private static void validateSize(int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+
+    // One row more than the size is queried, it tells whether there is a next page
+    private static <R, T> KeysetPage<T> toPage(List<R> rows, int size, Function<R, T> mapper,
+                                               Function<R, String> cursor) {
+        boolean more = rows.size() > size;
+        List<R> page = more ? rows.subList(0, size) : rows;
+        List<T> items = new ArrayList<>(page.size());
+        for (R row : page) {
+            items.add(mapper.apply(row));
+        }
+        return new KeysetPage<>(items, more ? cursor.apply(page.get(page.size() - 1)) : null);
+    }
+}
@@ -0,0 +1,141 @@
+package nl.hva.ict.sm3.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of the elections that are being loaded in the background when the application starts, see
+ * {@link nl.hva.ict.sm3.backend.config.DataInitializer}. Until an election is ready its endpoints answer with
+ * <code>503 Service Unavailable</code> and a <code>Retry-After</code> header.<br/>
+ * <br/>
+ * Elections that are not loaded in the background, e.g. because they are loaded on request, are not tracked and
+ * always considered ready.
+ */
+@Service
+public class ElectionReadinessService {
+
+    public enum State {
+        /** Waiting for a thread of the initializer. */
+        QUEUED,
+        /** Being read from a snapshot, parsed or saved. */
+        LOADING,
+        /** Loaded, its endpoints can be used. */
+        READY,
+        /** Loading failed, its endpoints load it on request just like an election that isn't tracked. */
+        FAILED
+    }
+
+    /**
+     * The progress of one election.
+     *
+     * @param electionId the id of the election.
+     * @param state the state of the election.
+     * @param phase what is currently being done, e.g. <i>parsing</i>, or the reason it failed.
+     * @param queuedAt when the election was queued.
+     * @param startedAt when loading started, <code>null</code> while queued.
+     * @param finishedAt when the election became ready or failed, <code>null</code> until then.
+     */
+    public record Status(String electionId, State state, String phase, Instant queuedAt, Instant startedAt,
+                         Instant finishedAt) {
+        /**
+         * @return the number of milliseconds spent loading so far, or in total when finished.
+         */
+        public long getElapsedMillis() {
+            if (startedAt == null) {
+                return 0;
+            }
+            return Duration.between(startedAt, finishedAt != null ? finishedAt : Instant.now()).toMillis();
+        }
+    }
+
+    // Insertion order is the order in which the elections are loaded
+    private final Map<String, Status> statuses = new ConcurrentHashMap<>();
+    private final List<String> order = new ArrayList<>();
+
+    // Seconds a client is asked to wait before it tries an election that isn't ready again
+    @Value("${election.initializer.retry-after:10}")
+    private long retryAfterSeconds;
+
+    /**
+     * Registers an election that is going to be loaded, its endpoints are unavailable from now on.
+     */
+    public void queued(String electionId) {
+        synchronized (order) {
+            if (!order.contains(electionId)) {
+                order.add(electionId);
+            }
+        }
+        statuses.put(electionId, new Status(electionId, State.QUEUED, "queued", Instant.now(), null, null));
+    }
+
+    /**
+     * @param phase what is being done now, e.g. <i>parsing</i>.
+     */
+    public void loading(String electionId, String phase) {
+        statuses.compute(electionId, (id, status) -> new Status(id, State.LOADING, phase,
+                status != null ? status.queuedAt() : Instant.now(),
+                status != null && status.startedAt() != null ? status.startedAt() : Instant.now(), null));
+    }
+
+    public void ready(String electionId) {
+        finish(electionId, State.READY, "ready");
+    }
+
+    /**
+     * @param reason why loading failed.
+     */
+    public void failed(String electionId, String reason) {
+        finish(electionId, State.FAILED, reason);
+    }
+
+    private void finish(String electionId, State state, String phase) {
+        statuses.computeIfPresent(electionId, (id, status) -> new Status(id, state, phase, status.queuedAt(),
+                status.startedAt() != null ? status.startedAt() : Instant.now(), Instant.now()));
+    }
+
+    /**
+     * @return <code>true</code> when the election is queued or being loaded, so its data can't be served yet.
+     */
+    public boolean isLoading(String electionId) {
+        Status status = statuses.get(electionId);
+        return status != null && (status.state() == State.QUEUED || status.state() == State.LOADING);
+    }
+
+    /**
+     * @return the status of the election, empty when it isn't loaded in the background.
+     */
+    public Optional<Status> getStatus(String electionId) {
+        return Optional.ofNullable(statuses.get(electionId));
+    }
+
+    /**
+     * @return the status of every tracked election, in the order in which they are loaded.
+     */
+    public List<Status> getStatuses() {
+        synchronized (order) {
+            return order.stream().map(statuses::get).toList();
+        }
+    }
+
+    /**
+     * @return <code>true</code> when none of the tracked elections is still queued or being loaded.
+     */
+    public boolean isReady() {
+        return statuses.values().stream().noneMatch(status -> isLoading(status.electionId()));
+    }
+
+    /**
+     * @return the number of seconds for the <code>Retry-After</code> header of an election that isn't ready.
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
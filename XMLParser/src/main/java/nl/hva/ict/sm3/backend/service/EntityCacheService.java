@@ -0,0 +1,71 @@
+package nl.hva.ict.sm3.backend.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reports on the regions of the Hibernate second-level and query cache, which are configured in
+ * <code>ehcache.xml</code>. The counts are only collected when <code>hibernate.generate_statistics</code> is
+ * enabled.
+ */
+@Service
+public class EntityCacheService {
+
+    /**
+     * The counters of one region, since the application started.
+     *
+     * @param region the name of the region, the entity, the collection role or the query region.
+     * @param hits the number of lookups that were found in the region.
+     * @param misses the number of lookups that had to go to the database.
+     * @param puts the number of entries that were put in the region.
+     * @param elements the number of entries in the region now, -1 when the cache doesn't tell.
+     */
+    public record RegionStatistics(String region, long hits, long misses, long puts, long elements) {
+        /**
+         * @return the fraction of the lookups that were found in the region, 0 when there were none.
+         */
+        public double getHitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * @return the counters of every region, sorted by name, empty when statistics are not collected.
+     */
+    public List<RegionStatistics> getRegionStatistics() {
+        Statistics statistics = getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            return List.of();
+        }
+
+        String[] regions = statistics.getSecondLevelCacheRegionNames();
+        Arrays.sort(regions);
+        List<RegionStatistics> result = new ArrayList<>(regions.length);
+        for (String region : regions) {
+            CacheRegionStatistics counts = statistics.getCacheRegionStatistics(region);
+            if (counts == null) {
+                continue;
+            }
+            long elements = counts.getElementCountInMemory();
+            result.add(new RegionStatistics(region, counts.getHitCount(), counts.getMissCount(),
+                    counts.getPutCount(), elements < 0 ? -1 : elements));
+        }
+        return result;
+    }
+
+    private Statistics getStatistics() {
+        return entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+}
@@ -0,0 +1,52 @@
+package nl.hva.ict.sm3.backend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes the sort key of the last row of a page as an opaque continuation token, and decodes it again when the next
+ * page is requested. The token names the listing it belongs to, so a token of one listing is rejected by another.
+ */
+final class KeysetCursor {
+    // Unit separator, it doesn't occur in ids or postal codes
+    private static final char SEPARATOR = '\u001f';
+
+    private KeysetCursor() {
+    }
+
+    /**
+     * @param listing the name of the listing, e.g. <i>municipalities</i>.
+     * @param keys the sort key of the last row of the page.
+     * @return the token, URL safe.
+     */
+    static String encode(String listing, String... keys) {
+        StringBuilder text = new StringBuilder(listing);
+        for (String key : keys) {
+            text.append(SEPARATOR).append(key);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param listing the name of the listing the token has to belong to.
+     * @param token a token of {@link #encode}.
+     * @param keyCount the number of parts of the sort key of the listing.
+     * @return the sort key.
+     * @throws IllegalArgumentException when the token is not a token of this listing.
+     */
+    static String[] decode(String listing, String token, int keyCount) {
+        String text;
+        try {
+            text = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        String[] parts = text.split(String.valueOf(SEPARATOR), -1);
+        if (parts.length != keyCount + 1 || !parts[0].equals(listing)) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        String[] keys = new String[keyCount];
+        System.arraycopy(parts, 1, keys, 0, keyCount);
+        return keys;
+    }
+}
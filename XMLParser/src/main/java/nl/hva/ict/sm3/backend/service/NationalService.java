@@ -3,6 +3,9 @@ package nl.hva.ict.sm3.backend.service;
 import nl.hva.ict.sm3.backend.model.Election;
 import nl.hva.ict.sm3.backend.model.National;
 import nl.hva.ict.sm3.backend.model.NationalResult;
+import nl.hva.ict.sm3.backend.model.VoteMatrix;
+import nl.hva.ict.sm3.backend.utils.seats.SeatAllocationMethod;
+import nl.hva.ict.sm3.backend.utils.seats.SeatAllocator;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -15,93 +18,62 @@ public class NationalService {
     
     private static final int TOTAL_SEATS = 150;
     
+    // One allocator per thread, it reuses its arrays for every calculation
+    private static final ThreadLocal<SeatAllocator> SEAT_ALLOCATORS =
+            ThreadLocal.withInitial(() -> new SeatAllocator(32));
+    
     // Calculates seat allocations
     public Map<String, Integer> calculateSeatsDHondt(Election election) {
-        // Collect vote totals per party by aggregating from ALL municipalities
-        // This ensures we get the complete vote count, not just from National records
-        Map<String, Integer> votesPerParty = new HashMap<>();
-        Map<String, String> partyNames = new HashMap<>(); // Store party names for reference
-        
-        // Aggregate votes from all municipalities across all constituencies
-        for (nl.hva.ict.sm3.backend.model.Constituency constituency : election.getConstituencies()) {
-            for (nl.hva.ict.sm3.backend.model.Municipality municipality : constituency.getMunicipalities()) {
-                for (nl.hva.ict.sm3.backend.model.Party party : municipality.getAllParties()) {
-                    String partyId = party.getId();
-                    int votes = party.getVotes();
-                    votesPerParty.merge(partyId, votes, Integer::sum);
-                    // Store party name if not already stored
-                    if (!partyNames.containsKey(partyId)) {
-                        partyNames.put(partyId, party.getName());
-                    }
-                }
-            }
+        // The Kieswet: kiesdeler threshold, full seats and remainder seats by D'Hondt (highest averages)
+        return calculateSeats(election, SeatAllocationMethod.KIESWET, TOTAL_SEATS);
+    }
+
+    /**
+     * Calculates a seat allocation without storing it, so it can also be used for "what if" scenarios.
+     * The votes per party are the totals of all municipalities, taken from the vote matrix of the election.
+     *
+     * @param election The election
+     * @param method The allocation method
+     * @param totalSeats The number of seats to divide
+     * @return Map of partyId -> number of seats, only parties with at least one seat
+     */
+    public Map<String, Integer> calculateSeats(Election election, SeatAllocationMethod method, int totalSeats) {
+        VoteMatrix matrix = election.getVoteMatrix();
+        int parties = matrix.getPartyCount();
+        int[] votes = matrix.getNationalTotals().toArray();
+        long totalValidVotes = 0;
+        for (int vote : votes) {
+            totalValidVotes += vote;
         }
         
-        if (votesPerParty.isEmpty()) {
+        if (totalValidVotes == 0) {
             System.out.println("Warning: No valid votes found for seat calculation");
             return new HashMap<>();
         }
         
-        // Calculate total valid votes
-        long totalValidVotes = votesPerParty.values().stream()
-                .mapToLong(Integer::longValue)
-                .sum();
-        
-        //  Calculate electoral threshold
-        long threshold = totalValidVotes / TOTAL_SEATS;
-        
         System.out.println("Total valid votes: " + totalValidVotes);
-        System.out.println("Electoral threshold: " + threshold);
-        System.out.println("Parties participating: " + votesPerParty.size());
-        
-        // Filter parties
-        Map<String, Integer> eligibleParties = votesPerParty.entrySet().stream()
-                .filter(entry -> entry.getValue() >= threshold)
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        Map.Entry::getValue
-                ));
-        
-        if (eligibleParties.isEmpty()) {
-            System.out.println("Warning: No parties meet the electoral threshold");
-            return new HashMap<>();
-        }
+        System.out.println("Parties participating: " + parties);
         
-        System.out.println("Eligible parties (meet threshold): " + eligibleParties.size());
+        int[] seats = SEAT_ALLOCATORS.get().allocate(method, votes, parties, totalSeats, new int[parties]);
         
-        // Step 5: Generate quotients
-        List<Quotient> allQuotients = new ArrayList<>();
-        
-        for (Map.Entry<String, Integer> entry : eligibleParties.entrySet()) {
-            String partyId = entry.getKey();
-            int votes = entry.getValue();
-
-            for (int divisor = 1; divisor <= TOTAL_SEATS; divisor++) {
-                double quotient = (double) votes / divisor;
-                allQuotients.add(new Quotient(partyId, quotient));
+        Map<String, Integer> seatAllocations = new HashMap<>();
+        for (int party = 0; party < parties; party++) {
+            if (seats[party] > 0) {
+                seatAllocations.put(matrix.getPartyId(party), seats[party]);
             }
         }
         
-        // Sort quotients in descending order (highest first)
-        allQuotients.sort((a, b) -> Double.compare(b.value, a.value));
-        
-        // Allocate seats to the top 150 quotients
-        Map<String, Integer> seatAllocations = new HashMap<>();
-        
-        for (int i = 0; i < TOTAL_SEATS && i < allQuotients.size(); i++) {
-            String partyId = allQuotients.get(i).partyId;
-            seatAllocations.merge(partyId, 1, Integer::sum);
+        if (seatAllocations.isEmpty()) {
+            System.out.println("Warning: No parties meet the electoral threshold");
+            return seatAllocations;
         }
         
         // Log results
-        System.out.println("\n=== Seat Allocation Results ===");
+        System.out.println("\n=== Seat Allocation Results (" + method + ") ===");
         seatAllocations.entrySet().stream()
                 .sorted((a, b) -> Integer.compare(b.getValue(), a.getValue()))
-                .forEach(entry -> {
-                    int votes = eligibleParties.get(entry.getKey());
-                    System.out.printf("Party %s: %d seats (from %d votes)%n", 
-                            entry.getKey(), entry.getValue(), votes);
-                });
+                .forEach(entry -> System.out.printf("Party %s: %d seats (from %d votes)%n",
+                        entry.getKey(), entry.getValue(), votes[matrix.getPartyIndex(entry.getKey())]));
         
         int totalAllocated = seatAllocations.values().stream()
                 .mapToInt(Integer::intValue)
@@ -125,17 +97,7 @@ public class NationalService {
         Map<String, String> partyNames = new HashMap<>();
         
         // Aggregate votes from all municipalities
-        for (nl.hva.ict.sm3.backend.model.Constituency constituency : election.getConstituencies()) {
-            for (nl.hva.ict.sm3.backend.model.Municipality municipality : constituency.getMunicipalities()) {
-                for (nl.hva.ict.sm3.backend.model.Party party : municipality.getAllParties()) {
-                    String partyId = party.getId();
-                    recalculatedVotes.merge(partyId, party.getVotes(), Integer::sum);
-                    if (!partyNames.containsKey(partyId)) {
-                        partyNames.put(partyId, party.getName());
-                    }
-                }
-            }
-        }
+        aggregateMunicipalityVotes(election, recalculatedVotes, partyNames);
 
         election.setSeatAllocations(seatAllocations);
 
@@ -220,15 +182,22 @@ public class NationalService {
         return seatAllocations;
     }
     
-    // Helper class
-
-    private static class Quotient {
-        final String partyId;
-        final double value;
-        
-        Quotient(String partyId, double value) {
-            this.partyId = partyId;
-            this.value = value;
+    /**
+     * Adds up the votes per party of all municipalities, using the vote matrix of the election.
+     *
+     * @param election the election
+     * @param votesPerParty receives partyId -> total votes
+     * @param partyNames receives partyId -> party name
+     */
+    private void aggregateMunicipalityVotes(Election election, Map<String, Integer> votesPerParty,
+                                            Map<String, String> partyNames) {
+        VoteMatrix matrix = election.getVoteMatrix();
+        VoteMatrix.Totals totals = matrix.getNationalTotals();
+        for (int party = 0; party < matrix.getPartyCount(); party++) {
+            if (totals.contains(party)) {
+                votesPerParty.put(matrix.getPartyId(party), totals.getVotes(party));
+                partyNames.put(matrix.getPartyId(party), matrix.getPartyName(party));
+            }
         }
     }
 }
@@ -240,12 +209,11 @@ Here's what the code actually does step‑by‑step and important caveats:
 
 What calculateSeatsDHondt does
 
-    Aggregates votes from every municipality in every constituency: it builds votesPerParty (partyId -> total votes). It also collects party names for reference.
+    Takes the votes per party of all municipalities from the vote matrix of the election (one int per party).
     Computes totalValidVotes = sum of all parties' votes.
-    Computes an electoral threshold as threshold = totalValidVotes / TOTAL_SEATS (TOTAL_SEATS is 150). This is the common threshold used to require at least one theoretical seat worth of votes.
-    Filters out parties with votes < threshold (only parties with votes >= threshold are eligible).
-    For each eligible party it generates quotients votes/divisor for divisor = 1..TOTAL_SEATS and stores them as Quotient(partyId, value).
-    Sorts all quotients descending and takes the top TOTAL_SEATS quotients. Each time a quotient for a given party appears in the top 150, that party receives +1 seat.
+    Computes the kiesdeler = totalValidVotes / TOTAL_SEATS (TOTAL_SEATS is 150). Only parties with at least the kiesdeler take part.
+    Every eligible party first gets one full seat per kiesdeler it has.
+    The remaining seats are assigned one by one to the party with the highest average votes / (seats + 1), see SeatAllocator. The parties are kept in a heap, so no quotients are created or sorted.
     Returns a Map<String,Integer> mapping party IDs to assigned seat counts. It prints details to stdout.
 
 
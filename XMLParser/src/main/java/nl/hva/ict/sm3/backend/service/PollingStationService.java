@@ -0,0 +1,160 @@
+package nl.hva.ict.sm3.backend.service;
+
+import nl.hva.ict.sm3.backend.model.Constituency;
+import nl.hva.ict.sm3.backend.model.Election;
+import nl.hva.ict.sm3.backend.model.Municipality;
+import nl.hva.ict.sm3.backend.model.Party;
+import nl.hva.ict.sm3.backend.model.PollingStation;
+import nl.hva.ict.sm3.backend.utils.xml.DutchElectionParser;
+import nl.hva.ict.sm3.backend.utils.xml.ReportingUnitIndex;
+import nl.hva.ict.sm3.backend.utils.xml.transformers.DutchMunicipalityVotesTransformer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Provides the polling stations of a municipality. Normally they are part of the election, but with
+ * <code>election.polling-stations.lazy=true</code> the election is loaded without them. They are then parsed from the
+ * municipality file the first time they are needed, using the offsets in the {@link ReportingUnitIndex} of the
+ * election, and kept in a cache of a bounded number of municipalities. The municipalities that haven't been used for
+ * the longest time are dropped first.
+ */
+@Service
+public class PollingStationService {
+
+    /**
+     * The polling stations of a municipality, with the blocks of the index they have been parsed from. When a new
+     * version of the file has been applied the index has a new entry, and the stations are parsed again.
+     */
+    private record CacheEntry(ReportingUnitIndex.Entry source, List<PollingStation> pollingStations) {}
+
+    private final DutchElectionService electionService;
+    private final Map<String, CacheEntry> cache;
+
+    @Autowired
+    public PollingStationService(DutchElectionService electionService,
+                                 @Value("${election.polling-stations.cache-size:100}") int cacheSize) {
+        this.electionService = electionService;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Gets the polling stations of a municipality, parsing them when they aren't part of the election.
+     *
+     * @param election the election.
+     * @param municipality a municipality of the election.
+     * @return the polling stations, empty when there are none.
+     */
+    public List<PollingStation> getPollingStations(Election election, Municipality municipality) {
+        if (!municipality.getPollingStations().isEmpty() || !electionService.isLazyPollingStations()) {
+            return municipality.getPollingStations();
+        }
+
+        ReportingUnitIndex.Entry source = electionService.getReportingUnitIndex(election.getId())
+                .get(rawId(election, municipality.getId()));
+        if (source == null) {
+            return List.of();
+        }
+        synchronized (cache) {
+            CacheEntry cached = cache.get(municipality.getId());
+            if (cached != null && cached.source() == source) {
+                return cached.pollingStations();
+            }
+        }
+
+        // Parsed outside the lock, at worst two requests for the same municipality both parse it
+        List<PollingStation> pollingStations = parse(election, municipality, source);
+        synchronized (cache) {
+            cache.put(municipality.getId(), new CacheEntry(source, pollingStations));
+        }
+        return pollingStations;
+    }
+
+    /**
+     * Gets a municipality of an election including its polling stations. When the polling stations aren't part of
+     * the election a copy of the municipality is returned, so the election itself keeps no reference to them.
+     *
+     * @param election the election.
+     * @param municipalityId the id of the municipality.
+     * @return the municipality, or <code>null</code> when the election doesn't have it.
+     */
+    public Municipality getMunicipalityWithPollingStations(Election election, String municipalityId) {
+        Municipality municipality = election.getMunicipalityById(municipalityId);
+        if (municipality == null || !municipality.getPollingStations().isEmpty()
+                || !electionService.isLazyPollingStations()) {
+            return municipality;
+        }
+
+        Municipality copy = new Municipality(municipality.getId(), municipality.getName(), 0);
+        for (Party party : municipality.getAllParties()) {
+            copy.addVotesForParty(party.getId(), party.getName(), party.getVotes());
+        }
+        getPollingStations(election, municipality).forEach(copy::addPollingStation);
+        return copy;
+    }
+
+    /**
+     * Finds a polling station by its postal code, spaces and case are ignored. When the polling stations are loaded
+     * lazily, the index tells which municipality has to be parsed.
+     *
+     * @param election the election.
+     * @param postalCode the postal code.
+     * @return the polling station, or <code>null</code> when there is none with this postal code.
+     */
+    public PollingStation findPollingStationByPostalCode(Election election, String postalCode) {
+        PollingStation station = new MunicipalityService(election).findPollingStationByPostalCode(postalCode);
+        if (station != null || !electionService.isLazyPollingStations()) {
+            return station;
+        }
+
+        String municipalityId = electionService.getReportingUnitIndex(election.getId())
+                .findMunicipalityByPostalCode(postalCode);
+        Municipality municipality = municipalityId != null
+                ? election.getMunicipalityById(election.getId() + "-" + municipalityId) : null;
+        if (municipality == null) {
+            return null;
+        }
+        String normalized = postalCode.replace(" ", "").toUpperCase();
+        return getPollingStations(election, municipality).stream()
+                .filter(candidate -> normalized.equals(candidate.getPostalCode()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private List<PollingStation> parse(Election election, Municipality municipality, ReportingUnitIndex.Entry source) {
+        // Parse into an election with an empty copy of the municipality, so its totals aren't touched
+        Election scratch = new Election(election.getId());
+        Constituency constituency = new Constituency(election.getId() + "-lazy", "");
+        constituency.addMunicipality(new Municipality(municipality.getId(), municipality.getName(), 0));
+        scratch.addConstituency(constituency);
+
+        DutchElectionParser electionParser = new DutchElectionParser(null, null, null, null, null,
+                new DutchMunicipalityVotesTransformer(scratch), null);
+        try {
+            electionParser.parseReportingUnits(source);
+        } catch (IOException | XMLStreamException e) {
+            System.err.println("ERROR: Could not parse the polling stations of " + municipality.getId() + ": " + e.getMessage());
+            return List.of();
+        }
+        List<PollingStation> pollingStations = List.copyOf(scratch.getMunicipalityById(municipality.getId()).getPollingStations());
+        // TODO replace with proper usage of a logging framework
+        System.out.printf("Parsed %d polling stations of %s%n", pollingStations.size(), municipality.getId());
+        return pollingStations;
+    }
+
+    private static String rawId(Election election, String municipalityId) {
+        // TK2023-0363 -> 0363
+        return municipalityId.substring(election.getId().length() + 1);
+    }
+}
@@ -147,6 +147,9 @@ public class ProvincieService {
         logger.debug("Aggregating votes from {} constituencies for province: {} in election: {}", 
                 kieskringNamen.size(), province.getName(), electionId);
 
+        // The votes are added up from the vote matrix instead of the party lists of every municipality
+        VoteMatrix matrix = election.getVoteMatrix();
+
         // For each constituency that belongs to this province
         for (String kieskringNaam : kieskringNamen) {
             // Find the constituency in the Election data (match on ID or name, case-insensitive)
@@ -172,9 +175,12 @@ public class ProvincieService {
             }
 
             // Aggregate all parties from all municipalities in this constituency
-            constituency.getMunicipalities().stream()
-                    .flatMap(municipality -> municipality.getAllParties().stream())
-                    .forEach(party -> province.addPartyVotes(party.getId(), party.getName(), party.getVotes()));
+            VoteMatrix.Totals totals = matrix.getConstituencyTotals(constituency.getId());
+            for (int party = 0; party < matrix.getPartyCount(); party++) {
+                if (totals.contains(party)) {
+                    province.addPartyVotes(matrix.getPartyId(party), matrix.getPartyName(party), totals.getVotes(party));
+                }
+            }
         }
 
         province.calculateTotalVotes();
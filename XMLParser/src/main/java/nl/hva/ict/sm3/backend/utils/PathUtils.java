@@ -6,6 +6,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.file.FileSystem;
+import java.nio.file.FileSystemNotFoundException;
 import java.nio.file.FileSystems;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
@@ -17,7 +18,11 @@ import java.util.Collections;
 import java.util.List;
 
 /**
- * A helper-class used for traversing a directory structure which contains the Dutch election data.
+ * A helper-class used for traversing a directory structure which contains the Dutch election data.<br/>
+ * <br/>
+ * The data doesn't have to be a folder on the disk. A location can also be a ZIP archive as published by the Kiesraad,
+ * or a <code>jar:</code> URI of a folder inside a JAR (when the application runs from its JAR). Their files are read
+ * straight from the archive, see {@link #toPath(String)}, nothing is extracted to a temporary folder.
  */
 public class PathUtils {
 
@@ -32,7 +37,7 @@ public class PathUtils {
      */
     public static List<Path> findFilesToScan(String sourceLocation, String prefix) throws IOException {
         List<Path> filesToScan = new ArrayList<>();
-        Files.walkFileTree(Path.of(sourceLocation), new SimpleFileVisitor<>() {
+        Files.walkFileTree(toPath(sourceLocation), new SimpleFileVisitor<>() {
             @Override
             public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
                 String fileName = file.getFileName().toString();
@@ -44,12 +49,61 @@ public class PathUtils {
         return filesToScan;
     }
 
+    /**
+     * Transforms a location as returned by {@link #getResourcePath(String)} into a {@link Path}. For a ZIP archive
+     * or a <code>jar:</code> URI this is a path in a zip {@link FileSystem}, the files it contains are decompressed
+     * while they are read. The file system stays open, so the archive is only opened once.
+     *
+     * @param location a folder, a ZIP archive or a <code>jar:</code> URI.
+     * @return the path to the folder or to the root of the archive.
+     * @throws IOException in case the archive can't be opened.
+     */
+    public static synchronized Path toPath(String location) throws IOException {
+        if (location.startsWith("jar:")) {
+            URI uri = URI.create(location);
+            try {
+                return Path.of(uri);
+            } catch (FileSystemNotFoundException e) {
+                FileSystems.newFileSystem(uri, Collections.emptyMap());
+                return Path.of(uri);
+            }
+        }
+
+        Path path = Path.of(location);
+        if (isArchive(path)) {
+            URI uri = URI.create("jar:" + path.toAbsolutePath().toUri());
+            try {
+                return FileSystems.getFileSystem(uri).getPath("/");
+            } catch (FileSystemNotFoundException e) {
+                return FileSystems.newFileSystem(uri, Collections.emptyMap()).getPath("/");
+            }
+        }
+        return path;
+    }
+
+    private static boolean isArchive(Path path) {
+        String fileName = path.getFileName() == null ? "" : path.getFileName().toString().toLowerCase();
+        return (fileName.endsWith(".zip") || fileName.endsWith(".jar")) && Files.isRegularFile(path);
+    }
+
+    /**
+     * @return the folder, or the ZIP archive with the same name, when one of them exists.
+     */
+    private static String findFolderOrArchive(String location) {
+        if (Files.isDirectory(Path.of(location))) {
+            return location;
+        }
+        String archive = location.endsWith("/") ? location.substring(0, location.length() - 1) + ".zip" : location + ".zip";
+        return isArchive(Path.of(archive)) ? archive : null;
+    }
+
     /**
      * Transforms a {@code resourceName} into an absolute path of that resource. If it does not exist at the expected
      * location it tries to fall back to a folder called {@code data-files} or {@code Downloads}.
-     * Also supports filesystem paths when resources are mounted as volumes.
+     * Also supports filesystem paths when resources are mounted as volumes, and ZIP archives named after the
+     * resource (e.g. <code>TK2023.zip</code>). Use {@link #toPath(String)} to access the location.
      * @param resourceName the resource to locate.
-     * @return a fully qualified absolute path to the resource.
+     * @return a fully qualified absolute path to the resource, or a <code>jar:</code> URI when it is inside a JAR.
      */
     public static String getResourcePath(String resourceName) {
         // Clean the resource name
@@ -59,9 +113,8 @@ public class PathUtils {
         }
         
         // If it is an absolute directory name, we're done
-        Path testPath = Path.of(resourceName);
-        if (Files.exists(testPath) && Files.isDirectory(testPath)) {
-            return resourceName;
+        if (findFolderOrArchive(resourceName) != null) {
+            return findFolderOrArchive(resourceName);
         }
         
         // Try filesystem path first (for Docker volume mounts)
@@ -72,9 +125,9 @@ public class PathUtils {
         };
         
         for (String fsPath : filesystemPaths) {
-            Path path = Path.of(fsPath);
-            if (Files.exists(path) && Files.isDirectory(path)) {
-                return fsPath;
+            String found = findFolderOrArchive(fsPath);
+            if (found != null) {
+                return found;
             }
         }
         
@@ -85,10 +138,10 @@ public class PathUtils {
                 try {
                     return new File(url.toURI()).getPath();
                 } catch (IllegalArgumentException e) {
-                    // Handle jar: URLs - extract to temp directory
+                    // Handle jar: URLs - read the files from the JAR
                     String urlString = url.toString();
                     if (urlString.startsWith("jar:")) {
-                        return extractJarResource(resourceName);
+                        return locateJarResource(resourceName);
                     } else {
                         throw e;
                     }
@@ -98,17 +151,17 @@ public class PathUtils {
             // Try to find via classpath root
             URL rootUrl = PathUtils.class.getResource("/");
             if (rootUrl != null) {
-                // If running from JAR, extract resources
+                // If running from JAR, read the resources from it
                 if ("jar".equals(rootUrl.getProtocol())) {
-                    return extractJarResource("/" + cleanResourceName);
+                    return locateJarResource("/" + cleanResourceName);
                 }
                 try {
                     URI projectRootURI = rootUrl.toURI();
                     String rootPath = projectRootURI.getPath();
                     
                     if (rootPath != null) {
-                        String resourceFilePath = new File(rootPath, cleanResourceName).getPath();
-                        if (Files.exists(Path.of(resourceFilePath)) && Files.isDirectory(Path.of(resourceFilePath))) {
+                        String resourceFilePath = findFolderOrArchive(new File(rootPath, cleanResourceName).getPath());
+                        if (resourceFilePath != null) {
                             return resourceFilePath;
                         }
                     }
@@ -145,17 +198,17 @@ public class PathUtils {
         }
         
         // Last attempt: try direct filesystem path relative to current working directory
-        Path directPath = Path.of(cleanResourceName);
-        if (Files.exists(directPath) && Files.isDirectory(directPath)) {
-            return directPath.toAbsolutePath().toString();
+        String directPath = findFolderOrArchive(cleanResourceName);
+        if (directPath != null) {
+            return Path.of(directPath).toAbsolutePath().toString();
         }
 
         return null;
     }
     
-    private static String extractJarResource(String resourceName) {
-        System.err.println("DEBUG: ===== extractJarResource START =====");
-        System.err.println("DEBUG: extractJarResource called with: " + resourceName);
+    private static String locateJarResource(String resourceName) {
+        System.err.println("DEBUG: ===== locateJarResource START =====");
+        System.err.println("DEBUG: locateJarResource called with: " + resourceName);
         System.err.flush();
         
         try {
@@ -373,70 +426,24 @@ public class PathUtils {
                     throw new IOException("Resource not found in JAR: " + trimmedName + " (searched at: " + resourcePath + ")");
                 }
                 
-                Path tempDir = Files.createTempDirectory("election-resources");
-                tempDir.toFile().deleteOnExit();
-                Path targetDir = tempDir.resolve(trimmedName);
-                Files.createDirectories(targetDir);
-                
-                System.err.println("DEBUG: Created temp directory: " + targetDir);
-                System.err.flush();
-                
-                if (Files.isDirectory(resourcePath)) {
-                    // Check if directory is empty
-                    boolean hasFiles = false;
-                    long fileCount = 0;
-                    try {
-                        fileCount = Files.list(resourcePath).count();
-                        hasFiles = fileCount > 0;
-                        System.err.println("DEBUG: Directory has " + fileCount + " items (hasFiles: " + hasFiles + ")");
-                    } catch (IOException e) {
-                        System.err.println("DEBUG: Error checking directory: " + e.getMessage());
-                    }
-                    
-                    if (!hasFiles) {
-                        System.err.println("WARNING: Directory " + trimmedName + " exists in JAR but is empty!");
-                        return targetDir.toString();
-                    }
-                    
-                    // Copy entire directory recursively
-                    System.err.println("DEBUG: Starting recursive copy from " + resourcePath + " to " + targetDir);
-                    System.err.flush();
-                    final Path finalResourcePath = resourcePath;
-                    final Path finalTargetDir = targetDir;
-                    Files.walkFileTree(resourcePath, new SimpleFileVisitor<Path>() {
-                        @Override
-                        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                            Path relativePath = finalResourcePath.relativize(file);
-                            Path targetFile = finalTargetDir.resolve(relativePath.toString());
-                            Files.createDirectories(targetFile.getParent());
-                            Files.copy(file, targetFile);
-                            System.err.println("DEBUG: Extracted file: " + relativePath);
-                            return FileVisitResult.CONTINUE;
-                        }
-                    });
-                    System.err.println("DEBUG: Finished copying files");
-                } else {
-                    // Single file
-                    Files.copy(resourcePath, targetDir.resolve(resourcePath.getFileName().toString()));
-                    System.err.println("DEBUG: Extracted single file: " + resourcePath.getFileName());
-                }
-                
-                System.err.println("DEBUG: ✓ Successfully extracted resource to: " + targetDir);
-                System.err.println("DEBUG: ===== extractJarResource SUCCESS =====");
+                // The files are read from the JAR itself, nothing is copied to the disk
+                String location = resourcePath.toUri().toString();
+                System.err.println("DEBUG: ✓ Reading resource from the JAR at: " + location);
+                System.err.println("DEBUG: ===== locateJarResource SUCCESS =====");
                 System.err.flush();
-                return targetDir.toString();
+                return location;
             } finally {
                 // Don't close the FileSystem - it might be reused by other threads
                 // The JVM will close it when the application shuts down
             }
         } catch (Exception e) {
-            System.err.println("ERROR: ===== extractJarResource FAILED =====");
+            System.err.println("ERROR: ===== locateJarResource FAILED =====");
             System.err.println("ERROR: Exception type: " + e.getClass().getName());
             System.err.println("ERROR: Exception message: " + e.getMessage());
             System.err.println("ERROR: Stack trace:");
             e.printStackTrace();
             System.err.flush();
-            throw new RuntimeException("Failed to extract JAR resource: " + resourceName + " - " + e.getMessage(), e);
+            throw new RuntimeException("Failed to locate JAR resource: " + resourceName + " - " + e.getMessage(), e);
         }
     }
 
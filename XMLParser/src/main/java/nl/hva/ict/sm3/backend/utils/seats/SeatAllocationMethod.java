@@ -0,0 +1,19 @@
+package nl.hva.ict.sm3.backend.utils.seats;
+
+/**
+ * The methods the {@link SeatAllocator} can use to divide the seats over the parties.
+ */
+public enum SeatAllocationMethod {
+    /** Highest averages with the divisors 1, 2, 3, ... */
+    D_HONDT,
+    /** Highest averages with the divisors 1, 3, 5, ... */
+    SAINTE_LAGUE,
+    /** Full quotas (Hare) first, the seats that are left go to the largest remainders. */
+    LARGEST_REMAINDER,
+    /**
+     * The rules of the Kieswet for the Tweede Kamer: only lists that reached the kiesdeler take part, full seats are
+     * assigned per kiesdeler and the remainder seats by highest averages. Lists in a lijstverbinding are treated as one
+     * list, the seats of the combination are divided over its lists by largest remainders.
+     */
+    KIESWET
+}
@@ -0,0 +1,276 @@
+package nl.hva.ict.sm3.backend.utils.seats;
+
+import java.util.Arrays;
+
+/**
+ * Divides a number of seats over lists (parties) based on their votes.<br/>
+ * <br/>
+ * The votes and the result are plain <code>int</code> arrays indexed by list, for example the party index of a
+ * {@link nl.hva.ict.sm3.backend.model.VoteMatrix}. The highest averages methods keep the lists in a binary heap
+ * ordered by their current average, so every seat costs <code>O(log lists)</code> instead of creating and sorting a
+ * quotient for every list and seat. The quotients are compared by cross multiplying, no floating point is involved.
+ * <br/>
+ * <br/>
+ * All working arrays are kept between calls and only grow when a call has more lists than before, so once warmed up
+ * an allocation doesn't create any objects. That makes it cheap enough to calculate "what if" scenarios per request.
+ * For the same reason an instance is <b>not</b> thread-safe, use one per thread.<br/>
+ * <br/>
+ * Ties are broken by the most votes and then by the lowest list index. The Kieswet draws lots instead, which can't be
+ * reproduced.
+ */
+public final class SeatAllocator {
+    // What the heap is ordered by
+    private static final int AVERAGES = 0;
+    private static final int REMAINDERS = 1;
+
+    private long[] listVotes;
+    private int[] members;
+    private long[] remainders;
+    private int[] heap;
+    private int heapSize;
+
+    // The units of the Kieswet, a list or a lijstverbinding
+    private int[] unitOf;
+    private long[] unitVotes;
+    private int[] unitSeats;
+    private int[] unitMembers;
+
+    // The arrays and settings the heap currently compares with
+    private long[] keyVotes;
+    private int[] keySeats;
+    private int order;
+    private int divisorStep;
+
+    /**
+     * @param capacity the expected number of lists, the arrays grow when more are passed.
+     */
+    public SeatAllocator(int capacity) {
+        ensureCapacity(Math.max(1, capacity));
+    }
+
+    /**
+     * Divides the seats over the lists.
+     *
+     * @param method the method to use.
+     * @param votes the votes per list.
+     * @param lists the number of lists, only the first <code>lists</code> elements of the arrays are used.
+     * @param seats the number of seats to divide.
+     * @param result receives the seats per list.
+     * @return <code>result</code>.
+     */
+    public int[] allocate(SeatAllocationMethod method, int[] votes, int lists, int seats, int[] result) {
+        return allocate(method, votes, null, lists, seats, result);
+    }
+
+    /**
+     * Divides the seats over the lists, taking lijstverbindingen into account. These only matter for
+     * {@link SeatAllocationMethod#KIESWET}.
+     *
+     * @param method the method to use.
+     * @param votes the votes per list.
+     * @param alliances the lijstverbinding of every list, lists with the same value form one combination. A negative
+     *                  value (or <code>null</code> for the whole array) means the list is not part of a combination.
+     * @param lists the number of lists, only the first <code>lists</code> elements of the arrays are used.
+     * @param seats the number of seats to divide.
+     * @param result receives the seats per list.
+     * @return <code>result</code>.
+     */
+    public int[] allocate(SeatAllocationMethod method, int[] votes, int[] alliances, int lists, int seats, int[] result) {
+        if (lists > votes.length || lists > result.length || (alliances != null && lists > alliances.length)) {
+            throw new IllegalArgumentException("The arrays have less than " + lists + " elements");
+        }
+        if (seats < 0) {
+            throw new IllegalArgumentException("The number of seats can't be negative: " + seats);
+        }
+        ensureCapacity(lists);
+        Arrays.fill(result, 0, lists, 0);
+
+        int count = 0;
+        for (int list = 0; list < lists; list++) {
+            listVotes[list] = Math.max(0, votes[list]);
+            if (listVotes[list] > 0) {
+                members[count++] = list;
+            }
+        }
+
+        switch (method) {
+            case D_HONDT -> highestAverages(listVotes, result, members, count, seats, 1);
+            case SAINTE_LAGUE -> highestAverages(listVotes, result, members, count, seats, 2);
+            case LARGEST_REMAINDER -> largestRemainders(listVotes, result, members, count, seats);
+            case KIESWET -> kieswet(alliances, lists, seats, result);
+        }
+        return result;
+    }
+
+    private void kieswet(int[] alliances, int lists, int seats, int[] result) {
+        long total = 0;
+        for (int list = 0; list < lists; list++) {
+            total += listVotes[list];
+        }
+        if (total == 0 || seats == 0) {
+            return;
+        }
+
+        // Only lists with at least the kiesdeler (total / seats) take part, lists in a lijstverbinding form one unit
+        int units = 0;
+        for (int list = 0; list < lists; list++) {
+            unitOf[list] = -1;
+            if (listVotes[list] == 0 || listVotes[list] * seats < total) {
+                continue;
+            }
+            int alliance = alliances == null ? -1 : alliances[list];
+            if (alliance >= 0) {
+                for (int other = 0; other < list; other++) {
+                    if (unitOf[other] >= 0 && alliances[other] == alliance) {
+                        unitOf[list] = unitOf[other];
+                        break;
+                    }
+                }
+            }
+            if (unitOf[list] < 0) {
+                unitOf[list] = units;
+                unitVotes[units] = 0;
+                unitSeats[units] = 0;
+                unitMembers[units] = units;
+                units++;
+            }
+            unitVotes[unitOf[list]] += listVotes[list];
+        }
+
+        // Full seats, one per kiesdeler
+        int assigned = 0;
+        for (int unit = 0; unit < units; unit++) {
+            unitSeats[unit] = (int) (unitVotes[unit] * seats / total);
+            assigned += unitSeats[unit];
+        }
+        // Remainder seats by highest averages, the average counts the full seats already assigned
+        highestAverages(unitVotes, unitSeats, unitMembers, units, seats - assigned, 1);
+
+        // Seats of a unit go to its list, or are divided over the lists of the combination
+        for (int unit = 0; unit < units; unit++) {
+            int count = 0;
+            for (int list = 0; list < lists; list++) {
+                if (unitOf[list] == unit) {
+                    members[count++] = list;
+                }
+            }
+            if (count == 1) {
+                result[members[0]] = unitSeats[unit];
+            } else {
+                largestRemainders(listVotes, result, members, count, unitSeats[unit]);
+            }
+        }
+    }
+
+    /**
+     * Assigns the seats one by one to the member with the highest average <code>votes / (step * seats + 1)</code>.
+     */
+    private void highestAverages(long[] votes, int[] seats, int[] candidates, int count, int toAssign, int step) {
+        if (count == 0 || toAssign <= 0) {
+            return;
+        }
+        keyVotes = votes;
+        keySeats = seats;
+        order = AVERAGES;
+        divisorStep = step;
+        buildHeap(candidates, count);
+        for (int seat = 0; seat < toAssign; seat++) {
+            seats[heap[0]]++;
+            // The average of the top only went down, move it to its new place
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Assigns full quotas (Hare) first and the seats that are left to the members with the largest remainders.
+     */
+    private void largestRemainders(long[] votes, int[] seats, int[] candidates, int count, int toAssign) {
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += votes[candidates[i]];
+        }
+        if (total == 0 || toAssign <= 0) {
+            return;
+        }
+
+        int assigned = 0;
+        for (int i = 0; i < count; i++) {
+            int member = candidates[i];
+            long quotas = votes[member] * toAssign;
+            seats[member] += (int) (quotas / total);
+            remainders[member] = quotas % total;
+            assigned += (int) (quotas / total);
+        }
+
+        keyVotes = votes;
+        order = REMAINDERS;
+        buildHeap(candidates, count);
+        for (int seat = assigned; seat < toAssign && heapSize > 0; seat++) {
+            seats[heap[0]]++;
+            // Every member gets at most one remainder seat
+            heap[0] = heap[--heapSize];
+            siftDown(0);
+        }
+    }
+
+    private void buildHeap(int[] candidates, int count) {
+        System.arraycopy(candidates, 0, heap, 0, count);
+        heapSize = count;
+        for (int i = count / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    private void siftDown(int index) {
+        int element = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && before(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(heap[child], element)) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = element;
+    }
+
+    /**
+     * @return whether <code>a</code> should get the next seat before <code>b</code>.
+     */
+    private boolean before(int a, int b) {
+        if (order == AVERAGES) {
+            // votes[a] / divisor(a) > votes[b] / divisor(b), without dividing
+            long left = keyVotes[a] * (divisorStep * (long) keySeats[b] + 1);
+            long right = keyVotes[b] * (divisorStep * (long) keySeats[a] + 1);
+            if (left != right) {
+                return left > right;
+            }
+        } else if (remainders[a] != remainders[b]) {
+            return remainders[a] > remainders[b];
+        }
+        if (keyVotes[a] != keyVotes[b]) {
+            return keyVotes[a] > keyVotes[b];
+        }
+        return a < b;
+    }
+
+    private void ensureCapacity(int lists) {
+        if (listVotes != null && listVotes.length >= lists) {
+            return;
+        }
+        listVotes = new long[lists];
+        members = new int[lists];
+        remainders = new long[lists];
+        heap = new int[lists];
+        unitOf = new int[lists];
+        unitVotes = new long[lists];
+        unitSeats = new int[lists];
+        unitMembers = new int[lists];
+    }
+}
@@ -0,0 +1,345 @@
+package nl.hva.ict.sm3.backend.utils.snapshot;
+
+import nl.hva.ict.sm3.backend.model.*;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Reads and writes a compact binary copy of a parsed {@link Election}, so it can be brought online again without
+ * parsing the XML files or loading the entity graph from the database.<br/>
+ * <br/>
+ * The layout of a snapshot (all numbers are big-endian ints):
+ * <ol>
+ *     <li>The magic number <code>ELSN</code> and the {@link #VERSION} of the format.</li>
+ *     <li>The string table: the number of strings followed by each string as its length in UTF-8 bytes and the bytes
+ *     themselves. Every string (id, name, ...) is stored only once, the rest of the file refers to it by its index in
+ *     this table, <code>-1</code> means <code>null</code>.</li>
+ *     <li>The election: its id, the parties, candidates, national results and seat allocations.</li>
+ *     <li>The constituencies with their municipalities and polling stations. The votes of each municipality and
+ *     polling station are stored as three arrays of equal length: the party ids, the party names and the votes.</li>
+ * </ol>
+ * A snapshot is read through a memory-mapped file. When its version doesn't match {@link #VERSION} it is refused,
+ * the caller is expected to parse the election again and write a new snapshot.
+ */
+public final class ElectionSnapshot {
+    /** The magic number at the start of every snapshot, "ELSN" in ASCII. */
+    private static final int MAGIC = 0x454C534E;
+    /** Version of the format, increase it whenever the layout changes. */
+    public static final int VERSION = 1;
+
+    private ElectionSnapshot() {
+    }
+
+    /**
+     * Writes the snapshot of an election. The file is first written next to the target and then moved, so a reader
+     * never sees a half written snapshot.
+     *
+     * @param election the election to write.
+     * @param file the file to write the snapshot to.
+     * @throws IOException when the file can't be written.
+     */
+    public static void write(Election election, Path file) throws IOException {
+        Writer writer = new Writer();
+        writer.writeElection(election);
+
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temporary = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(writer.strings.size());
+                for (String string : writer.strings) {
+                    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+                writer.body.writeTo(out);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Reads a snapshot that has been written by {@link #write(Election, Path)}.
+     *
+     * @param file the snapshot.
+     * @return the election, all its collections are filled.
+     * @throws IOException when the file can't be read, is not a snapshot or has another version.
+     */
+    public static Election read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try {
+                if (buffer.getInt() != MAGIC) {
+                    throw new IOException("Not an election snapshot: " + file);
+                }
+                int version = buffer.getInt();
+                if (version != VERSION) {
+                    throw new IOException("Unsupported snapshot version " + version + " in " + file);
+                }
+                return new Reader(buffer).readElection();
+            } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+                throw new IOException("Corrupt election snapshot: " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Collects the string table while the body is written to memory.
+     */
+    private static class Writer {
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(1 << 16);
+        private final DataOutputStream out = new DataOutputStream(body);
+
+        private void string(String value) throws IOException {
+            if (value == null) {
+                out.writeInt(-1);
+                return;
+            }
+            Integer index = indexes.get(value);
+            if (index == null) {
+                index = strings.size();
+                strings.add(value);
+                indexes.put(value, index);
+            }
+            out.writeInt(index);
+        }
+
+        private void writeElection(Election election) throws IOException {
+            string(election.getId());
+
+            List<Party> parties = election.getParties();
+            out.writeInt(parties.size());
+            for (Party party : parties) {
+                string(party.getId());
+                string(party.getName());
+                out.writeInt(party.getVotes());
+            }
+
+            List<Candidate> candidates = election.getCandidates();
+            out.writeInt(candidates.size());
+            for (Candidate candidate : candidates) {
+                string(candidate.getId());
+                string(candidate.getFirstName());
+                string(candidate.getLastName());
+                string(candidate.getInitials());
+                string(candidate.getResidence());
+                string(candidate.getPartyId());
+                string(candidate.getPartyName());
+                out.writeInt(candidate.getCandidateIdentifier());
+                string(candidate.getShortCode());
+                out.writeInt(candidate.getVotes());
+            }
+
+            List<National> nationals = election.getNationalVotes();
+            out.writeInt(nationals.size());
+            for (National national : nationals) {
+                string(national.getId());
+                string(national.getElectionId());
+                string(national.getElectionName());
+                string(national.getPartyId());
+                string(national.getPartyName());
+                string(national.getShortCode());
+                out.writeInt(national.getValidVotes());
+                out.writeInt(national.getRejectedVotes());
+                out.writeInt(national.getTotalCounted());
+                out.writeInt(national.getNumberOfSeats());
+                string(national.getType() != null ? national.getType().name() : null);
+            }
+
+            Map<String, Integer> seats = election.getSeatAllocations();
+            out.writeInt(seats.size());
+            for (Map.Entry<String, Integer> allocation : seats.entrySet()) {
+                string(allocation.getKey());
+                out.writeInt(allocation.getValue());
+            }
+
+            List<Constituency> constituencies = election.getConstituencies();
+            out.writeInt(constituencies.size());
+            for (Constituency constituency : constituencies) {
+                string(constituency.getId());
+                string(constituency.getName());
+                out.writeInt(constituency.getTotalVotes());
+                out.writeInt(constituency.getMunicipalities().size());
+                for (Municipality municipality : constituency.getMunicipalities()) {
+                    string(municipality.getId());
+                    string(municipality.getName());
+                    out.writeInt(municipality.getValidVotes());
+                    votes(municipality.getAllParties());
+                    out.writeInt(municipality.getPollingStations().size());
+                    for (PollingStation station : municipality.getPollingStations()) {
+                        string(station.getId());
+                        string(station.getName());
+                        string(station.getPostalCode());
+                        out.writeInt(station.getValidVotes());
+                        votes(station.getAllParties());
+                    }
+                }
+            }
+        }
+
+        private void votes(List<Party> parties) throws IOException {
+            out.writeInt(parties.size());
+            for (Party party : parties) {
+                string(party.getId());
+            }
+            for (Party party : parties) {
+                string(party.getName());
+            }
+            for (Party party : parties) {
+                out.writeInt(party.getVotes());
+            }
+        }
+    }
+
+    /**
+     * Turns the mapped bytes back into the election.
+     */
+    private static class Reader {
+        private final ByteBuffer buffer;
+        private final String[] strings;
+        // Reused for the vote arrays of every reporting unit
+        private int[] partyIds = new int[64];
+        private int[] partyNames = new int[64];
+        private int[] votes = new int[64];
+
+        private Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.strings = new String[buffer.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                int length = buffer.getInt();
+                strings[i] = StandardCharsets.UTF_8.decode(buffer.slice(buffer.position(), length)).toString();
+                buffer.position(buffer.position() + length);
+            }
+        }
+
+        private String string() {
+            int index = buffer.getInt();
+            return index < 0 ? null : strings[index];
+        }
+
+        private Election readElection() {
+            Election election = new Election(string());
+
+            for (int i = buffer.getInt(); i > 0; i--) {
+                election.addParty(new Party(string(), string(), buffer.getInt()));
+            }
+
+            for (int i = buffer.getInt(); i > 0; i--) {
+                election.addCandidate(new Candidate(string(), string(), string(), string(), string(), string(),
+                        string(), buffer.getInt(), string(), buffer.getInt()));
+            }
+
+            for (int i = buffer.getInt(); i > 0; i--) {
+                String id = string();
+                String electionId = string();
+                String electionName = string();
+                String partyId = string();
+                String partyName = string();
+                String shortCode = string();
+                int validVotes = buffer.getInt();
+                int rejectedVotes = buffer.getInt();
+                int totalCounted = buffer.getInt();
+                int numberOfSeats = buffer.getInt();
+                String type = string();
+                election.addNationalVotes(new National(id, electionId, electionName, partyId, partyName, shortCode,
+                        validVotes, rejectedVotes, totalCounted, numberOfSeats,
+                        type != null ? NationalResult.valueOf(type) : null));
+            }
+
+            Map<String, Integer> seats = new HashMap<>();
+            for (int i = buffer.getInt(); i > 0; i--) {
+                seats.put(string(), buffer.getInt());
+            }
+            election.setSeatAllocations(seats);
+
+            for (int i = buffer.getInt(); i > 0; i--) {
+                Constituency constituency = new Constituency(string(), string());
+                int totalVotes = buffer.getInt();
+                for (int j = buffer.getInt(); j > 0; j--) {
+                    String id = string();
+                    String name = string();
+                    int validVotes = buffer.getInt();
+                    int parties = readVotes();
+                    // The votes per party are added to the valid votes again, start with whatever is left over
+                    Municipality municipality = new Municipality(id, name, validVotes - sum(parties));
+                    for (int p = 0; p < parties; p++) {
+                        municipality.addVotesForParty(partyId(p), partyName(p), votes[p]);
+                    }
+                    for (int k = buffer.getInt(); k > 0; k--) {
+                        municipality.addPollingStation(readPollingStation());
+                    }
+                    constituency.addMunicipality(municipality);
+                }
+                // Adding the municipalities changed the total, restore the one that has been written
+                constituency.addToTotalVotes(totalVotes - constituency.getTotalVotes());
+                election.addConstituency(constituency);
+            }
+            return election;
+        }
+
+        private PollingStation readPollingStation() {
+            PollingStation station = new PollingStation(string(), string(), string());
+            // The valid votes of a polling station are always the sum of its votes per party
+            buffer.getInt();
+            int parties = readVotes();
+            for (int p = 0; p < parties; p++) {
+                station.addVotes(partyId(p), partyName(p), votes[p]);
+            }
+            return station;
+        }
+
+        /**
+         * Reads the vote arrays of one reporting unit into the reused arrays.
+         *
+         * @return the number of parties.
+         */
+        private int readVotes() {
+            int parties = buffer.getInt();
+            if (parties > votes.length) {
+                partyIds = new int[parties];
+                partyNames = new int[parties];
+                votes = new int[parties];
+            }
+            IntBuffer ints = buffer.asIntBuffer();
+            ints.get(partyIds, 0, parties);
+            ints.get(partyNames, 0, parties);
+            ints.get(votes, 0, parties);
+            buffer.position(buffer.position() + 3 * parties * Integer.BYTES);
+            return parties;
+        }
+
+        private String partyId(int party) {
+            return partyIds[party] < 0 ? null : strings[partyIds[party]];
+        }
+
+        private String partyName(int party) {
+            return partyNames[party] < 0 ? null : strings[partyNames[party]];
+        }
+
+        private int sum(int parties) {
+            int sum = 0;
+            for (int p = 0; p < parties; p++) {
+                sum += votes[p];
+            }
+            return sum;
+        }
+    }
+}
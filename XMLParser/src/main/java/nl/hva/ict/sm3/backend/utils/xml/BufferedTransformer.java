@@ -0,0 +1,123 @@
+package nl.hva.ict.sm3.backend.utils.xml;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A <code>BufferedTransformer</code> records every call it receives so it can be replayed later on the actual
+ * transformer. It is used by the {@link DutchElectionParser} when files are parsed in parallel: each file gets its own
+ * {@link EMLHandler} and its own buffer, so parsing happens on the worker threads while the model is only ever
+ * mutated by the thread that replays the buffers, in file order.<br/>
+ * <br/>
+ * The {@link EMLHandler} never touches a map again after it has been handed to a transformer, which means the maps
+ * can be stored without making a copy. The map of an {@link EMLReader} keeps changing, so that one is copied, just
+ * like the {@link VoteRecord} that is reused by both. Use {@link Typed} for a {@link TypedVotesTransformer}, so the
+ * handler fills a record instead of a map.
+ */
+class BufferedTransformer implements DefinitionTransformer, CandidateTransformer, VotesTransformer {
+    private enum Kind { REGION, PARTY, CANDIDATE, PARTY_VOTES, CANDIDATE_VOTES, METADATA }
+
+    // Either electionData or votes is set, depending on the kind of transformer that is being buffered.
+    private record Call(Kind kind, boolean aggregated, Map<String, String> electionData, VoteRecord votes) {}
+
+    private final List<Call> calls = new ArrayList<>();
+
+    @Override
+    public void registerRegion(Map<String, String> electionData) {
+        calls.add(new Call(Kind.REGION, false, retain(electionData), null));
+    }
+
+    @Override
+    public void registerParty(Map<String, String> electionData) {
+        calls.add(new Call(Kind.PARTY, false, retain(electionData), null));
+    }
+
+    @Override
+    public void registerCandidate(Map<String, String> electionData) {
+        calls.add(new Call(Kind.CANDIDATE, false, retain(electionData), null));
+    }
+
+    @Override
+    public void registerPartyVotes(boolean aggregated, Map<String, String> electionData) {
+        calls.add(new Call(Kind.PARTY_VOTES, aggregated, retain(electionData), null));
+    }
+
+    @Override
+    public void registerCandidateVotes(boolean aggregated, Map<String, String> electionData) {
+        calls.add(new Call(Kind.CANDIDATE_VOTES, aggregated, retain(electionData), null));
+    }
+
+    @Override
+    public void registerMetadata(boolean aggregated, Map<String, String> electionData) {
+        calls.add(new Call(Kind.METADATA, aggregated, retain(electionData), null));
+    }
+
+    private static Map<String, String> retain(Map<String, String> electionData) {
+        return electionData instanceof ScopedElectionData scoped ? scoped.snapshot() : electionData;
+    }
+
+    /**
+     * Replays all the recorded calls, in the order in which they were received, on the provided transformer.
+     * Afterward the buffer is empty.
+     *
+     * @param target the transformer that should receive the calls. It must implement the interface(s) matching the
+     *               calls that have been recorded.
+     */
+    void replay(Object target) {
+        for (Call call : calls) {
+            switch (call.kind()) {
+                case REGION -> ((DefinitionTransformer) target).registerRegion(call.electionData());
+                case PARTY -> ((DefinitionTransformer) target).registerParty(call.electionData());
+                case CANDIDATE -> ((CandidateTransformer) target).registerCandidate(call.electionData());
+                case PARTY_VOTES -> {
+                    if (call.votes() != null) {
+                        ((TypedVotesTransformer) target).registerPartyVotes(call.aggregated(), call.votes());
+                    } else {
+                        ((VotesTransformer) target).registerPartyVotes(call.aggregated(), call.electionData());
+                    }
+                }
+                case CANDIDATE_VOTES -> {
+                    if (call.votes() != null) {
+                        ((TypedVotesTransformer) target).registerCandidateVotes(call.aggregated(), call.votes());
+                    } else {
+                        ((VotesTransformer) target).registerCandidateVotes(call.aggregated(), call.electionData());
+                    }
+                }
+                case METADATA -> {
+                    if (call.votes() != null) {
+                        ((TypedVotesTransformer) target).registerMetadata(call.aggregated(), call.votes());
+                    } else {
+                        ((VotesTransformer) target).registerMetadata(call.aggregated(), call.electionData());
+                    }
+                }
+            }
+        }
+        calls.clear();
+    }
+
+    /**
+     * The buffer for a {@link TypedVotesTransformer}. Because it implements that interface the handler fills a
+     * {@link VoteRecord}, which is copied and replayed through the typed methods.
+     */
+    static class Typed extends BufferedTransformer implements TypedVotesTransformer {
+        @Override
+        public void registerPartyVotes(boolean aggregated, VoteRecord votes) {
+            recordVotes(Kind.PARTY_VOTES, aggregated, votes);
+        }
+
+        @Override
+        public void registerCandidateVotes(boolean aggregated, VoteRecord votes) {
+            recordVotes(Kind.CANDIDATE_VOTES, aggregated, votes);
+        }
+
+        @Override
+        public void registerMetadata(boolean aggregated, VoteRecord votes) {
+            recordVotes(Kind.METADATA, aggregated, votes);
+        }
+    }
+
+    void recordVotes(Kind kind, boolean aggregated, VoteRecord votes) {
+        calls.add(new Call(kind, aggregated, null, votes.copy()));
+    }
+}
@@ -12,4 +12,11 @@ public interface CandidateTransformer {
      * @param electionData the tags and values.
      */
     void registerCandidate(Map<String, String> electionData);
+
+    /**
+     * Called once all the candidate lists files have been processed, which makes it the place to build anything
+     * that depends on the complete set of candidates.
+     */
+    default void candidateListsCompleted() {
+    }
 }
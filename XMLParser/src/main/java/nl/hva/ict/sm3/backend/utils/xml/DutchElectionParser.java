@@ -6,14 +6,35 @@ import org.xml.sax.SAXException;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import java.io.BufferedInputStream;
-import java.io.FileInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /**
  * Processes the XML data files for the Dutch elections. It is completely model agnostic. This means that it
@@ -31,6 +52,29 @@ import java.util.Map;
  * <em>It assumes that filenames have NOT been changed and that the content has not been altered!</em><br>
  * <em>Most likely you don't have to alter this class, but if you feel you need to, please feel free :-)</em><br/>
  * <br/>
+ * By default all files are parsed one after the other on the calling thread. When a parallelism larger than one is
+ * set with {@link #setParallelism(int)}, the files of one type (for example all the <code>Telling_xxx_gemeente</code>
+ * files) are parsed concurrently on a bounded pool of threads. Every file gets its own {@link EMLHandler}, and the
+ * calls it makes are buffered and replayed on the calling thread in the same (sorted) order as the sequential mode.
+ * The transformers, and thereby the model, are therefore never called concurrently.<br/>
+ * <br/>
+ * With {@link #setPipelined(boolean)} the votes files are not buffered completely before they are replayed. Every
+ * file in flight gets a bounded {@link VoteEventRing} instead, which the calling thread drains into the transformer
+ * while the file is still being parsed. Parsing and building the model overlap, the memory used is bounded by the
+ * size of the rings, and a worker waits when the model building can't keep up. The order of the calls is the same
+ * as in the other modes, {@link #getPipelineStatistics()} tells where the time went.<br/>
+ * <br/>
+ * With {@link #setStreaming(boolean)} the files are read by an {@link EMLReader} (StAX) instead of an
+ * {@link EMLHandler} (SAX). Both call the transformers with the same data, but the reader doesn't copy the map
+ * for every row and the map it provides is only valid during the call.<br/>
+ * <br/>
+ * The folder can also be a ZIP archive, as published by the Kiesraad, or a folder inside the JAR of the application,
+ * see {@link PathUtils#toPath(String)}. The entries are streamed straight from the archive into the reader, in
+ * parallel when a parallelism has been set, without extracting them to the disk first.<br/>
+ * <br/>
+ * The names and identifiers found in the files of one call to a <code>parseXxx</code> method share a
+ * {@link StringDictionary}, which is dropped once the call returns.<br/>
+ * <br/>
  * <i><b>NOTE: </b>There are some TODO's present that need fixing!</i>
  */
 public class DutchElectionParser {
@@ -41,6 +85,31 @@ public class DutchElectionParser {
     private final VotesTransformer constituencyVotesTransformer;
     private final VotesTransformer municipalityVotesTransformer;
     private final VotesTransformer pollingStationVotesTransformer;
+    // Each thread reuses its own parser, creating a new SAXParserFactory for every file is expensive.
+    private static final ThreadLocal<SAXParser> saxParsers = new ThreadLocal<>();
+    private static final ThreadLocal<XMLInputFactory> xmlInputFactories = ThreadLocal.withInitial(() -> {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    });
+    // The maximum number of files that are parsed at the same time.
+    private int parallelism = 1;
+    // Whether the files are read with the EMLReader (StAX) instead of the EMLHandler (SAX).
+    private boolean streaming;
+    // Whether parallel votes files are passed through ring buffers instead of being buffered completely.
+    private boolean pipelined;
+    // Whether the attributes are not validated, see EMLHandler.setTrustedInput.
+    private boolean trustedInput;
+    // The number of events each ring buffer can hold.
+    private int ringCapacity = 4096;
+    private final PipelineStatistics pipelineStatistics = new PipelineStatistics();
+    // Receives every file that has been parsed, when set.
+    private FileManifest manifest;
+    // Receives the offsets of the polling station blocks in the municipality files, when set.
+    private ReportingUnitIndex reportingUnitIndex;
+    // The canonical names and identifiers of the load that is in progress, if any.
+    private StringDictionary dictionary;
 
     /**
      * Creates a new instance that will use the provided transformers for transforming the data into the
@@ -71,6 +140,143 @@ public class DutchElectionParser {
         this.pollingStationVotesTransformer = pollingStationVotesTransformer;
     }
 
+    /**
+     * Sets the maximum number of files that are parsed at the same time. A value of one, which is the default,
+     * parses the files sequentially on the calling thread.
+     *
+     * @param parallelism the maximum number of worker threads, must be at least one.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism must be at least 1 but was " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Selects how the files are read.
+     *
+     * @param streaming <code>true</code> to use the {@link EMLReader} (StAX), <code>false</code> to use the
+     *                  {@link EMLHandler} (SAX), which is the default.
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * Selects how the results of votes files that are parsed in parallel are passed to the transformer. This only
+     * applies to a {@link TypedVotesTransformer} and a parallelism larger than one.
+     *
+     * @param pipelined <code>true</code> to pass the votes through a bounded ring buffer per file while the file is
+     *                  parsed, <code>false</code> to buffer each file completely before it is replayed, which is the
+     *                  default.
+     */
+    public void setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+    }
+
+    /**
+     * Selects whether the files are trusted to only contain the attributes that are known for each tag, in which case
+     * the handlers don't look for unknown attributes to report them. Either way the unknown attributes are ignored.
+     *
+     * @param trustedInput <code>true</code> to skip the validation of the attributes, <code>false</code> to report
+     *                     unknown attributes, which is the default.
+     */
+    public void setTrustedInput(boolean trustedInput) {
+        this.trustedInput = trustedInput;
+    }
+
+    /**
+     * Sets the number of votes that the ring buffer of a file can hold before its worker has to wait.
+     *
+     * @param ringCapacity the capacity, rounded up to a power of two.
+     */
+    public void setRingCapacity(int ringCapacity) {
+        if (ringCapacity < 2) {
+            throw new IllegalArgumentException("The ring capacity must be at least 2, but is " + ringCapacity);
+        }
+        this.ringCapacity = ringCapacity;
+    }
+
+    /**
+     * @return the counters of the files that have been parsed with {@link #setPipelined(boolean) the pipeline}.
+     */
+    public PipelineStatistics getPipelineStatistics() {
+        return pipelineStatistics;
+    }
+
+    /**
+     * Sets the manifest to which every file that is parsed from now on is added, including its SHA-256 hash.
+     *
+     * @param manifest the manifest, or <code>null</code> to stop recording the files.
+     */
+    public void setManifest(FileManifest manifest) {
+        this.manifest = manifest;
+    }
+
+    /**
+     * Sets the index in which the offsets of the polling station blocks (<code>ReportingUnitVotes</code>) of every
+     * municipality file that is parsed from now on are recorded, so they can be parsed again later with
+     * {@link #parseReportingUnits(ReportingUnitIndex.Entry)}.
+     *
+     * @param reportingUnitIndex the index, or <code>null</code> to stop recording the blocks.
+     */
+    public void setReportingUnitIndex(ReportingUnitIndex reportingUnitIndex) {
+        this.reportingUnitIndex = reportingUnitIndex;
+    }
+
+    /**
+     * Finds the files of an election that are not in the manifest or whose contents have changed since they were
+     * added to it. These are the files that {@link #parseResults(String, String)} would parse, plus the ones that
+     * would be parsed by a new parser with an empty manifest.
+     *
+     * @param electionId the identifier of the election, for example <i>TK2023</i>.
+     * @param folderName the name of the folder that contains the files containing the election data.
+     * @param manifest the files that have been parsed before.
+     * @return the files that are new or have changed, sorted by name.
+     * @throws IOException in case something goes wrong while reading the files.
+     */
+    public static List<Path> findChangedFiles(String electionId, String folderName, FileManifest manifest) throws IOException {
+        List<Path> changed = new ArrayList<>();
+        for (String prefix : filePrefixes(electionId)) {
+            for (Path file : PathUtils.findFilesToScan(folderName, prefix)) {
+                if (!manifest.isUnchanged(file)) {
+                    changed.add(file);
+                }
+            }
+        }
+        changed.sort(Comparator.comparing(Path::getFileName));
+        return changed;
+    }
+
+    /**
+     * @return the prefixes of the names of all the files that are parsed for an election.
+     */
+    private static List<String> filePrefixes(String electionId) {
+        return List.of("Verkiezingsdefinitie_%s".formatted(electionId),
+                "Kandidatenlijsten_%s".formatted(electionId),
+                "Resultaat_%s".formatted(electionId),
+                "Totaaltelling_%s".formatted(electionId),
+                "Telling_%s_kieskring".formatted(electionId),
+                "Telling_%s_gemeente".formatted(electionId),
+                "Telling_%s_stembureau".formatted(electionId));
+    }
+
+    /**
+     * @param electionId the identifier of the election, for example <i>TK2023</i>.
+     * @param file a file of the election.
+     * @return whether the file contains the votes of a municipality, see {@link #parseMunicipalityFile(String, Path)}.
+     */
+    public static boolean isMunicipalityFile(String electionId, Path file) {
+        String fileName = file.getFileName().toString();
+        return fileName.startsWith("Telling_%s_gemeente".formatted(electionId)) && fileName.endsWith(".xml");
+    }
+
+    private static boolean isMunicipalityFile(Path file) {
+        String fileName = file.getFileName().toString();
+        return fileName.startsWith("Telling_") && fileName.contains("_gemeente") && fileName.endsWith(".xml");
+    }
+
     /**
      * Traverses all the folders within the specified folder and calls the appropriate methods of the transformer.
      * While processing the files it will skip any file that has a different election-id than the one specified.
@@ -84,15 +290,22 @@ public class DutchElectionParser {
     public void parseResults(String electionId, String folderName) throws IOException, XMLStreamException, ParserConfigurationException, SAXException {
         // TODO replace with proper usage of a logging framework
         System.out.printf("Loading election data from %s\n", folderName);
-        parseFiles(folderName, "Verkiezingsdefinitie_%s".formatted(electionId), new EMLHandler(definitionTransformer));
+        dictionary = new StringDictionary();
+        try {
+            parseFiles(folderName, "Verkiezingsdefinitie_%s".formatted(electionId), definitionTransformer, EMLHandler::new, EMLReader::new);
 
-        parseFiles(folderName, "Kandidatenlijsten_%s".formatted(electionId), new EMLHandler(candidateTransformer));
+            parseFiles(folderName, "Kandidatenlijsten_%s".formatted(electionId), candidateTransformer, EMLHandler::new, EMLReader::new);
+            candidateTransformer.candidateListsCompleted();
 
-        parseFiles(folderName, "Resultaat_%s".formatted(electionId), new EMLHandler(resultTransformer));
-        parseFiles(folderName, "Totaaltelling_%s".formatted(electionId), new EMLHandler(nationalVotesTransformer));
-        parseFiles(folderName, "Telling_%s_kieskring".formatted(electionId), new EMLHandler(constituencyVotesTransformer));
-        parseFiles(folderName, "Telling_%s_gemeente".formatted(electionId), new EMLHandler(municipalityVotesTransformer));
-        parseFiles(folderName, "Telling_%s_stembureau".formatted(electionId), new EMLHandler(pollingStationVotesTransformer));
+            parseFiles(folderName, "Resultaat_%s".formatted(electionId), resultTransformer, EMLHandler::new, EMLReader::new);
+            parseFiles(folderName, "Totaaltelling_%s".formatted(electionId), nationalVotesTransformer, EMLHandler::new, EMLReader::new);
+            parseFiles(folderName, "Telling_%s_kieskring".formatted(electionId), constituencyVotesTransformer, EMLHandler::new, EMLReader::new);
+            parseFiles(folderName, "Telling_%s_gemeente".formatted(electionId), municipalityVotesTransformer, EMLHandler::new, EMLReader::new);
+            parseFiles(folderName, "Telling_%s_stembureau".formatted(electionId), pollingStationVotesTransformer, EMLHandler::new, EMLReader::new);
+        } finally {
+            // Whatever the model doesn't use can be collected now
+            dictionary = null;
+        }
     }
 
     /**
@@ -108,28 +321,314 @@ public class DutchElectionParser {
         // TODO replace with proper usage of a logging framework
         System.out.printf("Loading candidate lists and total votes from %s\n", folderName);
         
-        // Parse only Kandidatenlijsten files (from Kandidatenlijsten folder)
-        parseFiles(folderName, "Kandidatenlijsten_%s".formatted(electionId), new EMLHandler(candidateTransformer));
-        
-        // Parse only Totaaltelling file
-        parseFiles(folderName, "Totaaltelling_%s".formatted(electionId), new EMLHandler(nationalVotesTransformer));
+        dictionary = new StringDictionary();
+        try {
+            // Parse only Kandidatenlijsten files (from Kandidatenlijsten folder)
+            parseFiles(folderName, "Kandidatenlijsten_%s".formatted(electionId), candidateTransformer, EMLHandler::new, EMLReader::new);
+            candidateTransformer.candidateListsCompleted();
+
+            // Parse only Totaaltelling file
+            parseFiles(folderName, "Totaaltelling_%s".formatted(electionId), nationalVotesTransformer, EMLHandler::new, EMLReader::new);
+        } finally {
+            dictionary = null;
+        }
+    }
+
+    /**
+     * Parses a single file with the votes of one municipality (<code>Telling_xxx_gemeente</code>), for example one
+     * that has just been published. Only the municipality votes transformer is called.
+     *
+     * @param electionId the identifier of the election the file should belong to, for example <i>TK2023</i>.
+     * @param file the file to parse.
+     * @return <code>true</code> when the file has been parsed, <code>false</code> when its name shows that it doesn't
+     *         contain the municipality votes of this election.
+     * @throws IOException in case something goes wrong while reading the file.
+     * @throws XMLStreamException when a file has not the expected format.
+     */
+    public boolean parseMunicipalityFile(String electionId, Path file) throws IOException, XMLStreamException, ParserConfigurationException, SAXException {
+        if (!isMunicipalityFile(electionId, file)) {
+            return false;
+        }
+        if (streaming) {
+            parseFile(file, new EMLReader(municipalityVotesTransformer));
+        } else {
+            parseFile(file, new EMLHandler(municipalityVotesTransformer));
+        }
+        return true;
+    }
+
+    /**
+     * Parses the polling station blocks of one municipality, as recorded in a {@link ReportingUnitIndex}. Only those
+     * bytes are read from the file, and only the municipality votes transformer is called, with the votes of the
+     * polling stations. The municipality itself must already be known to the transformer.
+     *
+     * @param entry the blocks of the municipality.
+     * @throws IOException in case something goes wrong while reading the file.
+     * @throws XMLStreamException when the blocks have not the expected format, e.g. because the file has changed.
+     */
+    public void parseReportingUnits(ReportingUnitIndex.Entry entry) throws IOException, XMLStreamException {
+        Path file = ReportingUnitIndex.resolve(entry.file());
+        byte[] blocks;
+        try (InputStream in = Files.newInputStream(file)) {
+            // A seek for a plain file, an entry of a ZIP archive is decompressed up to the offset
+            in.skipNBytes(entry.start());
+            blocks = in.readNBytes(Math.toIntExact(entry.end() - entry.start()));
+        }
+        // The blocks are wrapped in the root element of the file, which declares the namespaces they use
+        InputStream document = new SequenceInputStream(Collections.enumeration(List.of(
+                new ByteArrayInputStream(entry.rootTag().getBytes(StandardCharsets.UTF_8)),
+                new ByteArrayInputStream(blocks),
+                new ByteArrayInputStream("</%s>".formatted(entry.rootName()).getBytes(StandardCharsets.UTF_8)))));
+        EMLReader emlReader = new EMLReader(municipalityVotesTransformer);
+        emlReader.setDictionary(localDictionary());
+        emlReader.setTrustedInput(trustedInput);
+        emlReader.readReportingUnits(xmlInputFactories.get(), document, file.toString());
     }
 
-    private void parseFiles(String folderName, String fileFilter, EMLHandler emlHandler) throws IOException, ParserConfigurationException, SAXException {
+    private <T> void parseFiles(String folderName, String fileFilter, T transformer,
+                                Function<T, EMLHandler> handlerFactory,
+                                Function<T, EMLReader> readerFactory) throws IOException, XMLStreamException, ParserConfigurationException, SAXException {
         List<Path> files = PathUtils.findFilesToScan(folderName, fileFilter);
         files.sort(Comparator.comparing(Path::getFileName));
-        for (Path electionFile : files) {
-            // TODO replace with proper usage of a logging framework
-            System.out.printf("Processing: %s\n", electionFile);
-            try (BufferedInputStream bis = new BufferedInputStream(new FileInputStream(electionFile.toString()), 64 * 1024)) {
-                SAXParserFactory factory = SAXParserFactory.newInstance();
-                factory.setNamespaceAware(true);
-                SAXParser parser = factory.newSAXParser();
-                emlHandler.setFileName(electionFile.toString());
-                parser.parse(bis, emlHandler);
+        if (parallelism > 1 && files.size() > 1) {
+            parseFilesInParallel(files, transformer, handlerFactory, readerFactory);
+        } else if (streaming) {
+            EMLReader emlReader = readerFactory.apply(transformer);
+            for (Path electionFile : files) {
+                parseFile(electionFile, emlReader);
+            }
+        } else {
+            EMLHandler emlHandler = handlerFactory.apply(transformer);
+            for (Path electionFile : files) {
+                parseFile(electionFile, emlHandler);
+            }
+        }
+    }
+
+    /**
+     * Parses the files on a bounded pool of threads. At most twice the parallelism of files is in flight at any
+     * moment, and the buffered results are replayed strictly in the order of the files. This keeps the memory that
+     * is used for buffering bounded and the outcome identical to the sequential mode.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> void parseFilesInParallel(List<Path> files, T transformer,
+                                          Function<T, EMLHandler> handlerFactory,
+                                          Function<T, EMLReader> readerFactory) throws IOException, XMLStreamException, ParserConfigurationException, SAXException {
+        if (pipelined && transformer instanceof TypedVotesTransformer typedTransformer) {
+            parseFilesPipelined(files, typedTransformer, handlerFactory, readerFactory);
+            return;
+        }
+        int threads = Math.min(parallelism, files.size());
+        ExecutorService executor = newExecutor(threads);
+        try {
+            Deque<Future<BufferedTransformer>> inFlight = new ArrayDeque<>();
+            Iterator<Path> remaining = files.iterator();
+            while (remaining.hasNext() || !inFlight.isEmpty()) {
+                while (remaining.hasNext() && inFlight.size() < threads * 2) {
+                    Path electionFile = remaining.next();
+                    inFlight.add(executor.submit(() -> {
+                        // The buffer implements every transformer interface, so it can stand in for any T.
+                        BufferedTransformer buffer = transformer instanceof TypedVotesTransformer
+                                ? new BufferedTransformer.Typed() : new BufferedTransformer();
+                        if (streaming) {
+                            parseFile(electionFile, readerFactory.apply((T) buffer));
+                        } else {
+                            parseFile(electionFile, handlerFactory.apply((T) buffer));
+                        }
+                        return buffer;
+                    }));
+                }
+                awaitResult(inFlight.poll()).replay(transformer);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Parses the files on a bounded pool of threads, just like {@link #parseFilesInParallel}, but each file in flight
+     * passes its votes through its own {@link VoteEventRing}. The calling thread drains the rings strictly in the
+     * order of the files, so the transformer receives the calls in the same order as in the sequential mode.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> void parseFilesPipelined(List<Path> files, TypedVotesTransformer transformer,
+                                         Function<T, EMLHandler> handlerFactory,
+                                         Function<T, EMLReader> readerFactory) throws IOException, XMLStreamException, ParserConfigurationException, SAXException {
+        record Stage(VoteEventRing ring, Future<Void> result) {}
+
+        int threads = Math.min(parallelism, files.size());
+        ExecutorService executor = newExecutor(threads);
+        Deque<Stage> inFlight = new ArrayDeque<>();
+        // Drained rings are reused for the next files
+        Deque<VoteEventRing> rings = new ArrayDeque<>();
+        try {
+            Iterator<Path> remaining = files.iterator();
+            while (remaining.hasNext() || !inFlight.isEmpty()) {
+                while (remaining.hasNext() && inFlight.size() < threads * 2) {
+                    Path electionFile = remaining.next();
+                    VoteEventRing ring = rings.isEmpty() ? new VoteEventRing(ringCapacity, pipelineStatistics) : rings.pop();
+                    inFlight.add(new Stage(ring, executor.submit(() -> {
+                        long start = System.nanoTime();
+                        try {
+                            if (streaming) {
+                                parseFile(electionFile, readerFactory.apply((T) ring));
+                            } else {
+                                parseFile(electionFile, handlerFactory.apply((T) ring));
+                            }
+                        } finally {
+                            ring.finish();
+                            pipelineStatistics.fileParsed(System.nanoTime() - start);
+                        }
+                        return null;
+                    })));
+                }
+                Stage stage = inFlight.peek();
+                stage.ring().drainTo(transformer);
+                awaitResult(stage.result());
+                inFlight.poll();
+                stage.ring().reset();
+                rings.push(stage.ring());
+            }
+        } finally {
+            inFlight.forEach(stage -> stage.ring().cancel());
+            executor.shutdownNow();
+        }
+        // TODO replace with proper usage of a logging framework
+        System.out.printf("Pipeline: %s%n", pipelineStatistics);
+    }
+
+    private static ExecutorService newExecutor(int threads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "eml-parser-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private <R> R awaitResult(Future<R> result) throws IOException, XMLStreamException, ParserConfigurationException, SAXException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an election file to be parsed");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) throw ioException;
+            if (cause instanceof SAXException saxException) throw saxException;
+            if (cause instanceof XMLStreamException streamException) throw streamException;
+            if (cause instanceof ParserConfigurationException configurationException) throw configurationException;
+            if (cause instanceof RuntimeException runtimeException) throw runtimeException;
+            throw new IllegalStateException("Failed to parse election file", cause);
+        }
+    }
+
+    private void parseFile(Path electionFile, EMLHandler emlHandler) throws IOException, ParserConfigurationException, SAXException {
+        // TODO replace with proper usage of a logging framework
+        System.out.printf("Processing: %s\n", electionFile);
+        try (Source source = open(electionFile)) {
+            SAXParser parser = saxParser();
+            emlHandler.setFileName(electionFile.toString());
+            emlHandler.setDictionary(localDictionary());
+            emlHandler.setTrustedInput(trustedInput);
+            parser.parse(source.buffered(), emlHandler);
+            source.finish();
+        }
+        // TODO replace with proper usage of a logging framework
+        System.out.printf("Processed: %s\n", electionFile);
+    }
+
+    private void parseFile(Path electionFile, EMLReader emlReader) throws IOException, XMLStreamException {
+        // TODO replace with proper usage of a logging framework
+        System.out.printf("Processing: %s\n", electionFile);
+        try (Source source = open(electionFile)) {
+            emlReader.setDictionary(localDictionary());
+            emlReader.setTrustedInput(trustedInput);
+            emlReader.read(xmlInputFactories.get(), source.buffered(), electionFile.toString());
+            source.finish();
+        }
+        // TODO replace with proper usage of a logging framework
+        System.out.printf("Processed: %s\n", electionFile);
+    }
+
+    /**
+     * @return a table for the file that is about to be parsed, backed by the dictionary of the load. A single file
+     *         that is parsed outside a load, like a new municipality file, gets a dictionary of its own.
+     */
+    private StringDictionary.Local localDictionary() {
+        StringDictionary load = dictionary;
+        return (load != null ? load : new StringDictionary()).local();
+    }
+
+    private Source open(Path electionFile) throws IOException {
+        // Also works for an entry of a ZIP archive, it is decompressed while it is read
+        InputStream in = Files.newInputStream(electionFile);
+        DigestInputStream digest = null;
+        if (manifest != null) {
+            in = digest = FileManifest.digesting(in);
+        }
+        ReportingUnitIndex.Scanner scanner = null;
+        if (reportingUnitIndex != null && isMunicipalityFile(electionFile)) {
+            in = scanner = reportingUnitIndex.scanning(electionFile, in);
+        }
+        return new Source(electionFile, in, digest, scanner);
+    }
+
+    /**
+     * A file that is being parsed, together with the manifest and index it is recorded in.
+     */
+    private final class Source implements Closeable {
+        private final Path file;
+        private final InputStream in;
+        private final DigestInputStream digest;
+        private final ReportingUnitIndex.Scanner scanner;
+
+        private Source(Path file, InputStream in, DigestInputStream digest, ReportingUnitIndex.Scanner scanner) {
+            this.file = file;
+            this.in = in;
+            this.digest = digest;
+            this.scanner = scanner;
+        }
+
+        private InputStream buffered() {
+            // The parsers close their input, the file itself is closed by the caller once it has been recorded
+            return new BufferedInputStream(new FilterInputStream(in) {
+                @Override
+                public void close() {
+                }
+            }, 64 * 1024);
+        }
+
+        private void finish() throws IOException {
+            if (digest == null && scanner == null) {
+                return;
+            }
+            // A parser may stop reading after the root element, the hash and index have to cover the whole file
+            in.transferTo(OutputStream.nullOutputStream());
+            if (digest != null) {
+                manifest.add(FileManifest.entryOf(file, digest.getMessageDigest()));
             }
-            // TODO replace with proper usage of a logging framework
-            System.out.printf("Processed: %s\n", electionFile);
+            if (scanner != null) {
+                scanner.finish();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static SAXParser saxParser() throws ParserConfigurationException, SAXException {
+        SAXParser parser = saxParsers.get();
+        if (parser == null) {
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+            parser = factory.newSAXParser();
+            saxParsers.set(parser);
+        } else {
+            parser.reset();
         }
+        return parser;
     }
 }
@@ -6,6 +6,8 @@ import org.xml.sax.helpers.DefaultHandler;
 import java.io.File;
 import java.util.*;
 
+import static nl.hva.ict.sm3.backend.utils.xml.TagTable.*;
+
 /**
  * This <code>EMLHandler</code> is a SAX2 event handler that is being called by a SAX2 parser while it is
  * processing an EML-XML file. It supports three different file types.
@@ -35,9 +37,13 @@ import java.util.*;
  */
 public class EMLHandler extends DefaultHandler implements TagAndAttributeNames{
     // The tag-name is used for the key and the value is just the value of the tag, if any
-    private static final Set<String> tagsWithoutAttributes = new HashSet<>();
+    static final Set<String> tagsWithoutAttributes = new HashSet<>();
     // The attributes will be combined with the tag-name and serve as the key for the map containing all the data.
-    private static final Map<String, Set<String>> tagsWithAttributes = new HashMap<>();
+    static final Map<String, Set<String>> tagsWithAttributes = new HashMap<>();
+    // Tags whose values are numbers, there is no point in keeping a canonical instance of these.
+    static final Set<String> numericTags = Set.of(CAST, TOTAL_COUNTED, VALID_VOTES, REJECTED_VOTES, UNCOUNTED_VOTES);
+    // All of the above compiled into integer ids, which are used for the dispatch of every start and closing tag.
+    static final TagTable tags;
     // Temporary storage of characters like tag values and whitespace between tags.
     private final StringBuilder text = new StringBuilder();
     // Holds the information found throughout the XML files as key-value pairs.
@@ -46,6 +52,10 @@ public class EMLHandler extends DefaultHandler implements TagAndAttributeNames{
     // being made. Once the closing tag is processed the saved 'state' of electionData is popped of the stack in order
     // to be able to start with a clean sleight when the next repeating tag is being processed.
     private final Deque<Map<String, String>> savedElectionData = new LinkedList<>();
+    // The keys for RejectedVotes, UncountedVotes and NameLine depend on the value of an attribute: tag -> value -> key.
+    private final Map<String, Map<String, String>> derivedKeys = new HashMap<>();
+    // Canonical instances of the values, so the model doesn't hold thousands of copies of the same party name.
+    private StringDictionary.Local dictionary = new StringDictionary().local();
     // The files containing the results start with the aggregated data and are followed by their respective parts.
     // When processing the results it is set to true by the constructor and once the closing tag of the
     // aggregated part is processed, it is set to false.
@@ -60,6 +70,15 @@ public class EMLHandler extends DefaultHandler implements TagAndAttributeNames{
     private CandidateTransformer candidateTransformer;
     // The transformer that will be called once for each party-, candidate result and the metadata.
     private VotesTransformer votesTransformer;
+    // Set when the votes transformer accepts a VoteRecord, in which case electionData is not used at all.
+    private TypedVotesTransformer typedVotesTransformer;
+    // The record that is filled and handed to the typedVotesTransformer over and over again.
+    private VoteRecord votes;
+    // Set between the start and closing tag of a count, whose characters go to the count parser instead of text.
+    private boolean counting;
+    private final CountParser count = new CountParser();
+    // When set the attributes are not checked against the known attributes, see setTrustedInput.
+    private boolean trustedInput;
 
     // Register all the known tags and known attributes.
     static {
@@ -134,6 +153,7 @@ public class EMLHandler extends DefaultHandler implements TagAndAttributeNames{
         tagsWithAttributes.put(REJECTED_VOTES, Set.of(REASON_CODE));
         tagsWithAttributes.put(REPORTING_UNIT_IDENTIFIER, Set.of(ID));
         tagsWithAttributes.put(UNCOUNTED_VOTES, Set.of(REASON_CODE));
+        tags = new TagTable(tagsWithoutAttributes, tagsWithAttributes, numericTags);
     }
 
     /**
@@ -168,43 +188,79 @@ public class EMLHandler extends DefaultHandler implements TagAndAttributeNames{
     public EMLHandler(VotesTransformer votesTransformer) {
         aggregated = true;
         this.votesTransformer = votesTransformer;
+        if (votesTransformer instanceof TypedVotesTransformer typed) {
+            typedVotesTransformer = typed;
+            votes = new VoteRecord();
+            votes.setDictionary(dictionary);
+        }
+    }
+
+    /**
+     * Sets the table in which the names and identifiers are looked up, to share them with the other files of a load.
+     *
+     * @param dictionary the table of the file that is going to be parsed.
+     */
+    void setDictionary(StringDictionary.Local dictionary) {
+        this.dictionary = dictionary;
+        if (votes != null) {
+            votes.setDictionary(dictionary);
+        }
+    }
+
+    /**
+     * Selects whether the files are trusted to only contain the known attributes. Unknown attributes are ignored
+     * either way, but in trusted mode they are not looked for and reported, which saves a lookup for every
+     * attribute.
+     *
+     * @param trustedInput <code>true</code> to skip the validation of the attributes.
+     */
+    public void setTrustedInput(boolean trustedInput) {
+        this.trustedInput = trustedInput;
     }
 
     @Override
     public void startElement(String uri, String localName, String qName, Attributes attributes) {
+        int tag = tags.id(localName);
+        if (typedVotesTransformer != null) {
+            startTypedElement(tag, localName, attributes);
+            return;
+        }
         // Pre-processing
-        switch (localName) {
-            case REGION:
-            case COMMITTEE:
+        switch (tag) {
+            case REGION_TAG:
+            case COMMITTEE_TAG:
                 savedElectionData.push(electionData);
                 electionData = new HashMap<>(electionData);
-                registerRegion = REGION.equals(localName);
+                registerRegion = tag == REGION_TAG;
         }
 
         // Tag processing
-        if (tagsWithAttributes.containsKey(localName)) {
+        if (tags.hasAttributes(tag)) {
             // Save all the attributes and their values.
-            Set<String> knownAttributes = tagsWithAttributes.get(localName);
-            validateAttributes(localName, attributes, knownAttributes);
-            knownAttributes.forEach(name -> {
-                String attributeValue = attributes.getValue(name);
+            if (!trustedInput) {
+                validateAttributes(tag, attributes);
+            }
+            String[] names = tags.attributeNames(tag);
+            String[] keys = tags.attributeKeys(tag);
+            for (int slot = 0; slot < names.length; slot++) {
+                String attributeValue = attributes.getValue(names[slot]);
                 if (attributeValue != null) {
-                    electionData.put(String.format("%s-%s", localName, name).intern(), attributeValue.intern());
+                    electionData.put(keys[slot], dictionary.get(attributeValue));
                 }
-            });
-        } else if (!tagsWithoutAttributes.contains(localName)) {
+            }
+        } else if (tag == UNKNOWN) {
             // TODO replace with proper usage of a logging framework or exceptions
             System.err.println("Ignoring unknown start tag: " + localName);
         }
 
         // Post-processing
         // Depending on the exact tag different transformer methods might be called and/or the current state is saved.
-        switch (localName) {
-            case COMMITTEE:
+        switch (tag) {
+            case COMMITTEE_TAG:
                 definitionTransformer.registerRegion(electionData);
                 electionData = savedElectionData.pop();
                 break;
-            case CANDIDATE:
+            case CANDIDATE_TAG:
                 // Ignore this when processing votes
                 if (candidateTransformer != null) {
                     savedElectionData.push(electionData);
@@ -212,13 +268,13 @@ public class EMLHandler extends DefaultHandler implements TagAndAttributeNames{
                 }
                 break;
             // Fall-through is used on purpose!
-            case TOTAL_VOTES:
+            case TOTAL_VOTES_TAG:
                 aggregated = true;
-            case ELECTION_TREE:
-            case REGISTERED_PARTY:
-            case AFFILIATION: // Only appears in candidates lists
-            case SELECTION: // Only appears in vote lists
-            case REPORTING_UNIT_VOTES:
+            case ELECTION_TREE_TAG:
+            case REGISTERED_PARTY_TAG:
+            case AFFILIATION_TAG: // Only appears in candidates lists
+            case SELECTION_TAG: // Only appears in vote lists
+            case REPORTING_UNIT_VOTES_TAG:
                 // Save the current state of the information so far and create a copy that will be used
                 // until it's closing tag is found.
                 savedElectionData.push(electionData);
@@ -229,56 +285,55 @@ public class EMLHandler extends DefaultHandler implements TagAndAttributeNames{
 
     @Override
     public void characters(char[] ch, int start, int length) {
-        text.append(ch, start, length);
+        if (counting) {
+            count.append(ch, start, length);
+        } else {
+            text.append(ch, start, length);
+        }
     }
     @Override
     public void endElement(String uri, String localName, String qName) {
+        int tag = tags.id(localName);
+        if (typedVotesTransformer != null) {
+            endTypedElement(tag, localName);
+            return;
+        }
         // Pre-processing
 
         // Tag processing
-        if (tagsWithoutAttributes.contains(localName)) {
-            // Just register the value and the tag
-            String value = text.toString().trim();
-            if (!value.isBlank()) {
-                electionData.put(localName.intern(), value.intern());
-            }
-        } else if (tagsWithAttributes.containsKey(localName)) {
-            // Some tags need special processing
-            switch (localName) {
-                case REJECTED_VOTES:
-                case UNCOUNTED_VOTES:
-                    // We need the value of the attribute ReasonCode as part of the actual key
-                    String reasonCode = String.format("%s-%s", localName, REASON_CODE);
-                    String reasonCodeKey = electionData.remove(reasonCode);
-                    String count = text.toString().trim();
-                    if (!count.isBlank()) {
-                        electionData.put(String.format("%s-%s", localName, reasonCodeKey).intern(), count.intern());
-                    }
-                    break;
-                case NAME_LINE:
-                    // We need the value of the attribute NameType as part of the actual key
-                    String nameTypeKey = String.format("%s-%s", localName, NAME_TYPE);
-                    String nameTypeValue = electionData.remove(nameTypeKey);
-                    String nameLineValue = text.toString().trim();
-                    if (!nameLineValue.isBlank()) {
-                        if (nameTypeValue != null) {
-                            // Store with NameType as part of the key (e.g., "NameLine-Initials")
-                            electionData.put(String.format("%s-%s", localName, nameTypeValue).intern(), nameLineValue.intern());
-                        }
-                        // Also store as plain NameLine for backwards compatibility
-                        electionData.put(localName.intern(), nameLineValue.intern());
-                    }
-                    break;
-                default:
-                    // Add the value using the tag name
-                    String value = text.toString().trim();
-                    if (!value.isBlank()) {
-                        electionData.put(localName.intern(), value.intern());
+        switch (tag) {
+            case UNKNOWN:
+                // TODO replace with proper usage of a logging framework or exceptions
+                System.err.println("Ignoring unknown closing tag: " + localName);
+                break;
+            case REJECTED_VOTES_TAG:
+            case UNCOUNTED_VOTES_TAG:
+                // We need the value of the attribute ReasonCode as part of the actual key
+                String reasonCodeKey = electionData.remove(tags.attributeKeys(tag)[tags.attributeSlot(tag, REASON_CODE)]);
+                String count = textValue(tag);
+                if (count != null) {
+                    electionData.put(derivedKey(localName, reasonCodeKey), count);
+                }
+                break;
+            case NAME_LINE_TAG:
+                // We need the value of the attribute NameType as part of the actual key
+                String nameTypeValue = electionData.remove(tags.attributeKeys(tag)[tags.attributeSlot(tag, NAME_TYPE)]);
+                String nameLineValue = textValue(tag);
+                if (nameLineValue != null) {
+                    if (nameTypeValue != null) {
+                        // Store with NameType as part of the key (e.g., "NameLine-Initials")
+                        electionData.put(derivedKey(localName, nameTypeValue), nameLineValue);
                     }
-            }
-        } else {
-            // TODO replace with proper usage of a logging framework or exceptions
-            System.err.println("Ignoring unknown closing tag: " + localName);
+                    // Also store as plain NameLine for backwards compatibility
+                    electionData.put(NAME_LINE, nameLineValue);
+                }
+                break;
+            default:
+                // Just register the value using the tag name
+                String value = textValue(tag);
+                if (value != null) {
+                    electionData.put(tags.name(tag), value);
+                }
         }
 
         // Post-processing
@@ -286,26 +341,26 @@ public class EMLHandler extends DefaultHandler implements TagAndAttributeNames{
         text.setLength(0);
         // Depending on the exact tag different transformer methods will be called.and/or the previous state is being
         // restored.
-        switch (localName) {
-            case REGION:
+        switch (tag) {
+            case REGION_TAG:
                 if (registerRegion) {
                     definitionTransformer.registerRegion(electionData);
                     registerRegion = false;
                 }
                 electionData = savedElectionData.pop();
                 break;
-            case REGISTERED_PARTY:
+            case REGISTERED_PARTY_TAG:
                 definitionTransformer.registerParty(electionData);
                 electionData = savedElectionData.pop();
                 break;
-            case CANDIDATE:
+            case CANDIDATE_TAG:
                 // Ignore this when processing votes
                 if (candidateTransformer != null) {
                     candidateTransformer.registerCandidate(electionData);
                     electionData = savedElectionData.pop();
                 }
                 break;
-            case SELECTION:
+            case SELECTION_TAG:
                 // Only appears in votes lists
                 if (electionData.containsKey(CANDIDATE_IDENTIFIER_ID) || electionData.containsKey(CANDIDATE_IDENTIFIER_SHORT_CODE)) {
                     votesTransformer.registerCandidateVotes(aggregated, electionData);
@@ -314,10 +369,10 @@ public class EMLHandler extends DefaultHandler implements TagAndAttributeNames{
                 }
                 electionData = savedElectionData.pop();
                 break;
-            case TOTAL_VOTES:
-            case REPORTING_UNIT_VOTES:
+            case TOTAL_VOTES_TAG:
+            case REPORTING_UNIT_VOTES_TAG:
                 votesTransformer.registerMetadata(aggregated, electionData);
-                if (TOTAL_VOTES.equals(localName)) {
+                if (tag == TOTAL_VOTES_TAG) {
                     aggregated = false;
                 }
                 electionData = savedElectionData.pop();
@@ -325,16 +380,104 @@ public class EMLHandler extends DefaultHandler implements TagAndAttributeNames{
         }
     }
 
-    private void validateAttributes(String localName, Attributes attributes, Set<String> knownAttributes) {
+    // The equivalent of startElement for a TypedVotesTransformer. Instead of saving and copying electionData the
+    // fields of the record that belong to a repeating tag are cleared.
+    private void startTypedElement(int tag, String localName, Attributes attributes) {
+        switch (tag) {
+            case TOTAL_VOTES_TAG:
+                aggregated = true;
+            case REPORTING_UNIT_VOTES_TAG:
+                votes.clearReportingUnit();
+                break;
+            case SELECTION_TAG:
+                votes.clearSelection();
+                break;
+        }
+
+        if (tags.hasAttributes(tag)) {
+            if (!trustedInput) {
+                validateAttributes(tag, attributes);
+            }
+            for (int i = 0; i < attributes.getLength(); i++) {
+                votes.setAttribute(localName, attributes.getLocalName(i), attributes.getValue(i));
+            }
+        } else if (tag == UNKNOWN) {
+            // TODO replace with proper usage of a logging framework or exceptions
+            System.err.println("Ignoring unknown start tag: " + localName);
+        }
+        if (tags.isCount(tag)) {
+            counting = true;
+            count.reset();
+        }
+    }
+
+    // The equivalent of endElement for a TypedVotesTransformer.
+    private void endTypedElement(int tag, String localName) {
+        if (counting) {
+            // Decoded while the characters arrived, see characters(). An empty tag counts as 0, so no value of an
+            // earlier tag is left in the record
+            votes.setCount(localName, count.hasValue() ? count.value() : 0);
+            counting = false;
+        } else if (tag != UNKNOWN) {
+            votes.setValue(localName, text);
+        } else {
+            // TODO replace with proper usage of a logging framework or exceptions
+            System.err.println("Ignoring unknown closing tag: " + localName);
+        }
+
+        text.setLength(0);
+        switch (tag) {
+            case SELECTION_TAG:
+                if (votes.isCandidate()) {
+                    typedVotesTransformer.registerCandidateVotes(aggregated, votes);
+                } else {
+                    typedVotesTransformer.registerPartyVotes(aggregated, votes);
+                }
+                votes.clearSelection();
+                break;
+            case TOTAL_VOTES_TAG:
+            case REPORTING_UNIT_VOTES_TAG:
+                typedVotesTransformer.registerMetadata(aggregated, votes);
+                if (tag == TOTAL_VOTES_TAG) {
+                    aggregated = false;
+                }
+                votes.clearReportingUnit();
+                break;
+        }
+    }
+
+    // The text of the tag without surrounding whitespace, or null if there is none. Only counts are turned into a new
+    // String, all other values are looked up in the dictionary straight from the text buffer.
+    private String textValue(int tag) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && Character.isWhitespace(text.charAt(start))) start++;
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) end--;
+        if (start == end) {
+            return null;
+        }
+        return tags.isNumeric(tag) ? text.substring(start, end) : dictionary.get(text, start, end);
+    }
+
+    private String derivedKey(String localName, String attributeValue) {
+        return derivedKeys.computeIfAbsent(localName, name -> new HashMap<>())
+                .computeIfAbsent(attributeValue, value -> String.format("%s-%s", localName, value));
+    }
+
+    private void validateAttributes(int tag, Attributes attributes) {
         for (int i = 0; i < attributes.getLength(); i++) {
-            if (!knownAttributes.contains(attributes.getLocalName(i))) {
+            if (tags.attributeSlot(tag, attributes.getLocalName(i)) < 0) {
                 // TODO replace with proper usage of a logging framework or exceptions
-                System.err.printf("Tag %s has a unknown attribute: %s\n", localName, attributes.getLocalName(i));
+                System.err.printf("Tag %s has a unknown attribute: %s\n", tags.name(tag), attributes.getLocalName(i));
             }
         }
     }
 
     public void setFileName(String fileName) {
+        if (votes != null) {
+            votes.clear();
+        }
+        counting = false;
         electionData.put("fileName", fileName.substring(fileName.lastIndexOf(File.separatorChar) + 1));
     }
 }
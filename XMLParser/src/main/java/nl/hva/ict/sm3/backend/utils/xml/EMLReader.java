@@ -0,0 +1,374 @@
+package nl.hva.ict.sm3.backend.utils.xml;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import static nl.hva.ict.sm3.backend.utils.xml.TagTable.*;
+
+/**
+ * This <code>EMLReader</code> is a streaming (StAX) alternative for the {@link EMLHandler}. It processes the same
+ * three file types and calls exactly the same methods of the transformers with the same data.
+ * <br/>
+ * The difference is how the data is kept while the file is processed. Instead of copying <code>electionData</code>
+ * each time a repeating tag starts, the data lives in a {@link ScopedElectionData} that only remembers where each
+ * scope starts. The keys, including the ones combining a tag and an attribute, are computed once up front. For the
+ * files containing the votes per polling station this removes one map copy per vote row.
+ * <br/>
+ * The map that is passed to the transformers is only valid for the duration of the call. A transformer that needs the
+ * data afterward must copy it.
+ * <br/>
+ * Incase an unknown tag or attribute is being processed this will be reported through standard error
+ * <a href="https://en.wikipedia.org/wiki/Standard_streams">stream</a>.<br/>
+ */
+public class EMLReader implements TagAndAttributeNames {
+    // The same ids as the EMLHandler dispatches on.
+    private static final TagTable tags = EMLHandler.tags;
+
+    // Temporary storage of characters like tag values and whitespace between tags.
+    private final StringBuilder text = new StringBuilder();
+    // Holds the information found throughout the XML files as key-value pairs.
+    private final ScopedElectionData electionData = new ScopedElectionData();
+    // The keys for RejectedVotes, UncountedVotes and NameLine depend on the value of an attribute: tag -> value -> key.
+    private final Map<String, Map<String, String>> derivedKeys = new HashMap<>();
+    // Canonical instances of the values, so the model doesn't hold thousands of copies of the same party name.
+    private StringDictionary.Local dictionary = new StringDictionary().local();
+    // The ReasonCode or NameType attribute of the tag that is currently being processed.
+    private String keyAttribute;
+    // See EMLHandler, these have exactly the same meaning.
+    private boolean aggregated;
+    private boolean registerRegion;
+    private DefinitionTransformer definitionTransformer;
+    private CandidateTransformer candidateTransformer;
+    private VotesTransformer votesTransformer;
+    // See EMLHandler, when set the record is filled instead of electionData.
+    private TypedVotesTransformer typedVotesTransformer;
+    private VoteRecord votes;
+    // Set between the start and closing tag of a count, whose characters go to the count parser instead of text.
+    private boolean counting;
+    private final CountParser count = new CountParser();
+    // See EMLHandler, when set the attributes are not checked against the known attributes.
+    private boolean trustedInput;
+
+    /**
+     * Creates an EML reader that can process the structure file.
+     *
+     * @param definitionTransformer the <code>DefinitionTransformer</code> that handles the transformation of the
+     *                             provided data into the data model.
+     */
+    public EMLReader(DefinitionTransformer definitionTransformer) {
+        this.definitionTransformer = definitionTransformer;
+    }
+
+    /**
+     * Creates an EML reader that can process candidates list files.
+     *
+     * @param candidateTransformer the <code>CandidateTransformer</code> that handles the transformation of the
+     *                             provided data into the data model.
+     */
+    public EMLReader(CandidateTransformer candidateTransformer) {
+        this.candidateTransformer = candidateTransformer;
+    }
+
+    /**
+     * Creates an EML reader that can process votes files.
+     *
+     * @param votesTransformer the <code>VotesTransformer</code> that handles the transformation of the
+     *                             provided data into the data model.
+     */
+    public EMLReader(VotesTransformer votesTransformer) {
+        aggregated = true;
+        this.votesTransformer = votesTransformer;
+        if (votesTransformer instanceof TypedVotesTransformer typed) {
+            typedVotesTransformer = typed;
+            votes = new VoteRecord();
+            votes.setDictionary(dictionary);
+        }
+    }
+
+    /**
+     * Sets the table in which the names and identifiers are looked up, to share them with the other files of a load.
+     *
+     * @param dictionary the table of the file that is going to be read.
+     */
+    void setDictionary(StringDictionary.Local dictionary) {
+        this.dictionary = dictionary;
+        if (votes != null) {
+            votes.setDictionary(dictionary);
+        }
+    }
+
+    /**
+     * Selects whether the files are trusted to only contain the known attributes, see
+     * {@link EMLHandler#setTrustedInput(boolean)}.
+     *
+     * @param trustedInput <code>true</code> to skip the validation of the attributes.
+     */
+    public void setTrustedInput(boolean trustedInput) {
+        this.trustedInput = trustedInput;
+    }
+
+    /**
+     * Reads a document that only contains <code>ReportingUnitVotes</code> blocks inside the root element, as created
+     * by {@link DutchElectionParser#parseReportingUnits(ReportingUnitIndex.Entry)}. There are no totals in front of
+     * the blocks, so the votes are passed to the transformer as votes of the reporting units right away.
+     */
+    void readReportingUnits(XMLInputFactory factory, InputStream inputStream, String fileName) throws XMLStreamException {
+        aggregated = false;
+        read(factory, inputStream, fileName);
+    }
+
+    /**
+     * Reads a complete EML file and calls the transformer for each region, party, candidate and vote it contains.
+     *
+     * @param factory the factory used for creating the stream reader.
+     * @param inputStream the content of the file.
+     * @param fileName the name of the file, it is made available through the <code>fileName</code> key.
+     * @throws XMLStreamException when the file is not well-formed.
+     */
+    public void read(XMLInputFactory factory, InputStream inputStream, String fileName) throws XMLStreamException {
+        electionData.set("fileName", fileName.substring(fileName.lastIndexOf(File.separatorChar) + 1));
+        if (votes != null) {
+            votes.clear();
+        }
+        counting = false;
+        boolean typed = typedVotesTransformer != null;
+        XMLStreamReader reader = factory.createXMLStreamReader(inputStream);
+        try {
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT -> {
+                        if (typed) startTypedElement(reader); else startElement(reader);
+                    }
+                    case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE -> {
+                        if (counting) {
+                            count.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        } else {
+                            text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        }
+                    }
+                    case XMLStreamConstants.END_ELEMENT -> {
+                        if (typed) endTypedElement(reader.getLocalName()); else endElement(reader.getLocalName());
+                    }
+                    default -> { }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void startElement(XMLStreamReader reader) {
+        String localName = reader.getLocalName();
+        int tag = tags.id(localName);
+        // Pre-processing
+        switch (tag) {
+            case REGION_TAG, COMMITTEE_TAG -> {
+                electionData.pushScope();
+                registerRegion = tag == REGION_TAG;
+            }
+        }
+
+        // Tag processing
+        if (tags.hasAttributes(tag)) {
+            String[] keys = tags.attributeKeys(tag);
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                String attribute = reader.getAttributeLocalName(i);
+                int slot = tags.attributeSlot(tag, attribute);
+                if (slot < 0) {
+                    if (!trustedInput) {
+                        // TODO replace with proper usage of a logging framework or exceptions
+                        System.err.printf("Tag %s has a unknown attribute: %s\n", localName, attribute);
+                    }
+                } else if (isUnprefixed(reader.getAttributePrefix(i))) {
+                    // Just like the EMLHandler only attributes without a prefix are used.
+                    String value = reader.getAttributeValue(i);
+                    if (hasDerivedKey(tag)) {
+                        // The value of ReasonCode or NameType becomes part of the key, see endElement.
+                        keyAttribute = value;
+                    } else {
+                        electionData.set(keys[slot], dictionary.get(value));
+                    }
+                }
+            }
+        } else if (tag == UNKNOWN) {
+            // TODO replace with proper usage of a logging framework or exceptions
+            System.err.println("Ignoring unknown start tag: " + localName);
+        }
+
+        // Post-processing
+        switch (tag) {
+            case COMMITTEE_TAG -> {
+                definitionTransformer.registerRegion(electionData);
+                electionData.popScope();
+            }
+            case CANDIDATE_TAG -> {
+                // Ignore this when processing votes
+                if (candidateTransformer != null) {
+                    electionData.pushScope();
+                }
+            }
+            case TOTAL_VOTES_TAG -> {
+                aggregated = true;
+                electionData.pushScope();
+            }
+            case ELECTION_TREE_TAG, REGISTERED_PARTY_TAG, AFFILIATION_TAG, SELECTION_TAG, REPORTING_UNIT_VOTES_TAG ->
+                    electionData.pushScope();
+        }
+    }
+
+    private void endElement(String localName) {
+        int tag = tags.id(localName);
+        // Tag processing
+        if (tag == UNKNOWN) {
+            // TODO replace with proper usage of a logging framework or exceptions
+            System.err.println("Ignoring unknown closing tag: " + localName);
+        } else {
+            int start = 0;
+            int end = text.length();
+            while (start < end && Character.isWhitespace(text.charAt(start))) start++;
+            while (end > start && Character.isWhitespace(text.charAt(end - 1))) end--;
+            if (start < end) {
+                // Counts bypass the dictionary, each of them is only used once
+                String value = tags.isNumeric(tag) ? text.substring(start, end) : dictionary.get(text, start, end);
+                switch (tag) {
+                    case REJECTED_VOTES_TAG, UNCOUNTED_VOTES_TAG -> electionData.set(derivedKey(localName, keyAttribute), value);
+                    case NAME_LINE_TAG -> {
+                        if (keyAttribute != null) {
+                            electionData.set(derivedKey(localName, keyAttribute), value);
+                        }
+                        electionData.set(tags.name(tag), value);
+                    }
+                    default -> electionData.set(tags.name(tag), value);
+                }
+            }
+            if (hasDerivedKey(tag)) {
+                keyAttribute = null;
+            }
+        }
+
+        // Post-processing
+        text.setLength(0);
+        switch (tag) {
+            case REGION_TAG -> {
+                if (registerRegion) {
+                    definitionTransformer.registerRegion(electionData);
+                    registerRegion = false;
+                }
+                electionData.popScope();
+            }
+            case REGISTERED_PARTY_TAG -> {
+                definitionTransformer.registerParty(electionData);
+                electionData.popScope();
+            }
+            case CANDIDATE_TAG -> {
+                // Ignore this when processing votes
+                if (candidateTransformer != null) {
+                    candidateTransformer.registerCandidate(electionData);
+                    electionData.popScope();
+                }
+            }
+            case SELECTION_TAG -> {
+                if (electionData.containsKey(CANDIDATE_IDENTIFIER_ID) || electionData.containsKey(CANDIDATE_IDENTIFIER_SHORT_CODE)) {
+                    votesTransformer.registerCandidateVotes(aggregated, electionData);
+                } else {
+                    votesTransformer.registerPartyVotes(aggregated, electionData);
+                }
+                electionData.popScope();
+            }
+            case TOTAL_VOTES_TAG, REPORTING_UNIT_VOTES_TAG -> {
+                votesTransformer.registerMetadata(aggregated, electionData);
+                if (tag == TOTAL_VOTES_TAG) {
+                    aggregated = false;
+                }
+                electionData.popScope();
+            }
+        }
+    }
+
+    // The equivalent of startElement for a TypedVotesTransformer, see EMLHandler.
+    private void startTypedElement(XMLStreamReader reader) {
+        String localName = reader.getLocalName();
+        int tag = tags.id(localName);
+        switch (tag) {
+            case TOTAL_VOTES_TAG -> {
+                aggregated = true;
+                votes.clearReportingUnit();
+            }
+            case REPORTING_UNIT_VOTES_TAG -> votes.clearReportingUnit();
+            case SELECTION_TAG -> votes.clearSelection();
+        }
+
+        if (tags.hasAttributes(tag)) {
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                String attribute = reader.getAttributeLocalName(i);
+                if (!trustedInput && tags.attributeSlot(tag, attribute) < 0) {
+                    // TODO replace with proper usage of a logging framework or exceptions
+                    System.err.printf("Tag %s has a unknown attribute: %s\n", localName, attribute);
+                } else if (isUnprefixed(reader.getAttributePrefix(i))) {
+                    votes.setAttribute(localName, attribute, reader.getAttributeValue(i));
+                }
+            }
+        } else if (tag == UNKNOWN) {
+            // TODO replace with proper usage of a logging framework or exceptions
+            System.err.println("Ignoring unknown start tag: " + localName);
+        }
+        if (tags.isCount(tag)) {
+            counting = true;
+            count.reset();
+        }
+    }
+
+    // The equivalent of endElement for a TypedVotesTransformer, see EMLHandler.
+    private void endTypedElement(String localName) {
+        int tag = tags.id(localName);
+        if (counting) {
+            // Decoded while the characters arrived, see read(). An empty tag counts as 0, so no value of an
+            // earlier tag is left in the record
+            votes.setCount(localName, count.hasValue() ? count.value() : 0);
+            counting = false;
+        } else if (tag != UNKNOWN) {
+            votes.setValue(localName, text);
+        } else {
+            // TODO replace with proper usage of a logging framework or exceptions
+            System.err.println("Ignoring unknown closing tag: " + localName);
+        }
+
+        text.setLength(0);
+        switch (tag) {
+            case SELECTION_TAG -> {
+                if (votes.isCandidate()) {
+                    typedVotesTransformer.registerCandidateVotes(aggregated, votes);
+                } else {
+                    typedVotesTransformer.registerPartyVotes(aggregated, votes);
+                }
+                votes.clearSelection();
+            }
+            case TOTAL_VOTES_TAG, REPORTING_UNIT_VOTES_TAG -> {
+                typedVotesTransformer.registerMetadata(aggregated, votes);
+                if (tag == TOTAL_VOTES_TAG) {
+                    aggregated = false;
+                }
+                votes.clearReportingUnit();
+            }
+        }
+    }
+
+    private static boolean hasDerivedKey(int tag) {
+        return tag == REJECTED_VOTES_TAG || tag == UNCOUNTED_VOTES_TAG || tag == NAME_LINE_TAG;
+    }
+
+    private String derivedKey(String localName, String attributeValue) {
+        return derivedKeys.computeIfAbsent(localName, name -> new HashMap<>())
+                .computeIfAbsent(attributeValue, value -> String.format("%s-%s", localName, value));
+    }
+
+    private static boolean isUnprefixed(String prefix) {
+        return prefix == null || prefix.isEmpty();
+    }
+}
@@ -0,0 +1,145 @@
+package nl.hva.ict.sm3.backend.utils.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The files that have been parsed for an election, with their size, modification time and SHA-256 hash.<br/>
+ * <br/>
+ * When a manifest is set with {@link DutchElectionParser#setManifest(FileManifest)} the parser adds every file it
+ * reads. The hash is calculated from the bytes the parser reads anyway, so this doesn't cost an extra pass over the
+ * files. Storing the manifest is up to the application.<br/>
+ * <br/>
+ * On a reload {@link #isUnchanged(Path)} tells whether a file is still the one that was parsed. The size and
+ * modification time are compared first, a file is only hashed again when one of them differs. This way a copy of the
+ * same file (with a new modification time) is still recognised as unchanged.<br/>
+ * <br/>
+ * A manifest can be filled by several parser threads at the same time.
+ */
+public class FileManifest {
+    private static final String ALGORITHM = "SHA-256";
+
+    /**
+     * A file that has been parsed.
+     *
+     * @param fileName the name of the file, without the folder.
+     * @param size the size in bytes.
+     * @param lastModified the modification time in milliseconds since the epoch.
+     * @param sha256 the SHA-256 hash of the contents, as lower case hex.
+     */
+    public record Entry(String fileName, long size, long lastModified, String sha256) {}
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public FileManifest() {
+    }
+
+    /**
+     * @param entries the entries of a manifest that has been stored before.
+     */
+    public FileManifest(Collection<Entry> entries) {
+        entries.forEach(this::add);
+    }
+
+    /**
+     * Adds a file or replaces the entry of a file with the same name.
+     *
+     * @param entry the file.
+     */
+    public void add(Entry entry) {
+        entries.put(entry.fileName(), entry);
+    }
+
+    /**
+     * @param fileName the name of the file.
+     * @return the entry of the file, or <code>null</code> when it isn't part of the manifest.
+     */
+    public Entry get(String fileName) {
+        return entries.get(fileName);
+    }
+
+    /**
+     * @return all the entries, in no particular order.
+     */
+    public List<Entry> getEntries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * @return whether the manifest has no entries.
+     */
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Checks whether a file still has the contents it had when it was added to the manifest.
+     *
+     * @param file the file to check.
+     * @return <code>true</code> when the file is part of the manifest and its contents haven't changed.
+     * @throws IOException in case something goes wrong while reading the file.
+     */
+    public boolean isUnchanged(Path file) throws IOException {
+        Entry entry = get(file.getFileName().toString());
+        if (entry == null) {
+            return false;
+        }
+        if (entry.size() != Files.size(file)) {
+            return false;
+        }
+        if (entry.lastModified() == Files.getLastModifiedTime(file).toMillis()) {
+            return true;
+        }
+        return entry.sha256().equals(describe(file).sha256());
+    }
+
+    /**
+     * Reads a file completely and describes it.
+     *
+     * @param file the file.
+     * @return the entry for the file.
+     * @throws IOException in case something goes wrong while reading the file.
+     */
+    public static Entry describe(Path file) throws IOException {
+        try (DigestInputStream in = new DigestInputStream(Files.newInputStream(file), newDigest())) {
+            in.transferTo(OutputStream.nullOutputStream());
+            return entryOf(file, in.getMessageDigest());
+        }
+    }
+
+    /**
+     * Wraps the stream of a file, so the hash is calculated while the file is parsed.
+     */
+    static DigestInputStream digesting(InputStream in) {
+        return new DigestInputStream(in, newDigest());
+    }
+
+    /**
+     * Creates the entry of a file that has been read completely through {@link #digesting(InputStream)}.
+     */
+    static Entry entryOf(Path file, MessageDigest digest) throws IOException {
+        return new Entry(file.getFileName().toString(), Files.size(file), Files.getLastModifiedTime(file).toMillis(),
+                HexFormat.of().formatHex(digest.digest()));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package nl.hva.ict.sm3.backend.utils.xml;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the pipeline that the {@link DutchElectionParser} uses when votes files are parsed in parallel, see
+ * {@link DutchElectionParser#setPipelined(boolean)}. The parse stage runs on the worker threads and the build stage,
+ * which calls the transformer, on the calling thread.<br/>
+ * <br/>
+ * The stall time of the parse stage is the time the workers waited because the build stage couldn't keep up
+ * (backpressure). The idle time of the build stage is the time it waited for the workers. A high stall time means the
+ * model building is the bottleneck, a high idle time means the parsing is.
+ */
+public class PipelineStatistics {
+    private final LongAdder files = new LongAdder();
+    private final LongAdder events = new LongAdder();
+    private final LongAdder parseNanos = new LongAdder();
+    private final LongAdder stallNanos = new LongAdder();
+    private final LongAdder buildNanos = new LongAdder();
+    private final LongAdder idleNanos = new LongAdder();
+
+    void fileParsed(long nanos) {
+        files.increment();
+        parseNanos.add(nanos);
+    }
+
+    void stalled(long nanos) {
+        stallNanos.add(nanos);
+    }
+
+    void built(int count, long nanos) {
+        events.add(count);
+        buildNanos.add(nanos);
+    }
+
+    void idled(long nanos) {
+        idleNanos.add(nanos);
+    }
+
+    /**
+     * @return the number of files that have gone through the pipeline.
+     */
+    public long getFiles() {
+        return files.sum();
+    }
+
+    /**
+     * @return the number of votes, candidate votes and metadata calls that have been passed to the transformer.
+     */
+    public long getEvents() {
+        return events.sum();
+    }
+
+    /**
+     * @return the time the workers spent parsing, added up over all workers, in milliseconds.
+     */
+    public long getParseMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(parseNanos.sum());
+    }
+
+    /**
+     * @return the time the workers waited for room in a full buffer, added up over all workers, in milliseconds.
+     */
+    public long getStallMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(stallNanos.sum());
+    }
+
+    /**
+     * @return the time the transformer spent building the model, in milliseconds.
+     */
+    public long getBuildMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(buildNanos.sum());
+    }
+
+    /**
+     * @return the time the build stage waited for events, in milliseconds.
+     */
+    public long getIdleMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(idleNanos.sum());
+    }
+
+    /**
+     * @return the number of events the build stage processed per second of build time.
+     */
+    public long getBuildThroughput() {
+        long nanos = buildNanos.sum();
+        return nanos == 0 ? 0 : events.sum() * TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return "%d files, %d events: parse %d ms (stalled %d ms), build %d ms (idle %d ms), %d events/s"
+                .formatted(getFiles(), getEvents(), getParseMillis(), getStallMillis(), getBuildMillis(),
+                        getIdleMillis(), getBuildThroughput());
+    }
+}
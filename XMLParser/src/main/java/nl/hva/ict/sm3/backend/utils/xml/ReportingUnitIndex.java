@@ -0,0 +1,404 @@
+package nl.hva.ict.sm3.backend.utils.xml;
+
+import nl.hva.ict.sm3.backend.utils.PathUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Remembers where the <code>ReportingUnitVotes</code> blocks (the votes per polling station) of each municipality
+ * are found in the <code>Telling_xxx_gemeente</code> files, so they can be parsed when they are needed instead of
+ * when the election is loaded, see {@link DutchElectionParser#parseReportingUnits(Entry)}.<br/>
+ * <br/>
+ * When an index is set with {@link DutchElectionParser#setReportingUnitIndex(ReportingUnitIndex)} the parser records
+ * the byte offsets of the blocks while it reads the municipality files, so this doesn't cost an extra pass over the
+ * files. The postal codes in the names of the polling stations are recorded too, so a postal code can be looked up
+ * without parsing any polling station.<br/>
+ * <br/>
+ * An index can be written to and read from a sidecar file with {@link #write(Path)} and {@link #read(Path)}, and be
+ * filled by several parser threads at the same time.
+ */
+public class ReportingUnitIndex {
+    private static final int MAGIC = 0x52554958; // "RUIX"
+    private static final int VERSION = 1;
+    private static final Pattern UNIT_ID = Pattern.compile("\\sId\\s*=\\s*[\"']([^\"']*)[\"']");
+    private static final Pattern POSTAL_CODE = Pattern.compile("\\(postcode: (.*?)\\)");
+
+    /**
+     * The blocks of one municipality. The blocks of a municipality follow each other in its file, so a single range
+     * covers all of them.
+     *
+     * @param file the location of the file, see {@link #resolve(String)}.
+     * @param rootTag the start tag of the root element of the file, it declares the namespaces used by the blocks.
+     * @param start the offset of the first byte of the first block.
+     * @param end the offset just after the last block.
+     */
+    public record Entry(String file, String rootTag, long start, long end) {
+        /**
+         * @return the name of the root element, including its prefix.
+         */
+        public String rootName() {
+            int end = 1;
+            while (end < rootTag.length() && !Character.isWhitespace(rootTag.charAt(end))
+                    && rootTag.charAt(end) != '>' && rootTag.charAt(end) != '/') {
+                end++;
+            }
+            return rootTag.substring(1, end);
+        }
+    }
+
+    // Raw municipality id (e.g. 0363) -> blocks
+    private final Map<String, Entry> municipalities = new ConcurrentHashMap<>();
+    // Normalized postal code (e.g. 1011PN) -> raw municipality id
+    private final Map<String, String> postalCodes = new ConcurrentHashMap<>();
+
+    /**
+     * @param municipalityId the id of the municipality as found in the files, e.g. <code>0363</code>.
+     * @return the blocks of the municipality, or <code>null</code> when none have been recorded.
+     */
+    public Entry get(String municipalityId) {
+        return municipalities.get(municipalityId);
+    }
+
+    /**
+     * @param postalCode a postal code, spaces and case are ignored.
+     * @return the id of the municipality (as found in the files) with a polling station with this postal code, or
+     *         <code>null</code> when there is none.
+     */
+    public String findMunicipalityByPostalCode(String postalCode) {
+        return postalCode == null ? null : postalCodes.get(normalize(postalCode));
+    }
+
+    /**
+     * @return the number of municipalities in the index.
+     */
+    public int size() {
+        return municipalities.size();
+    }
+
+    /**
+     * @return whether the index has no municipalities.
+     */
+    public boolean isEmpty() {
+        return municipalities.isEmpty();
+    }
+
+    /**
+     * Adds all the municipalities of another index, replacing the ones that are already present.
+     *
+     * @param other the index to copy.
+     */
+    public void putAll(ReportingUnitIndex other) {
+        municipalities.putAll(other.municipalities);
+        postalCodes.putAll(other.postalCodes);
+    }
+
+    /**
+     * Writes the index to a sidecar file.
+     *
+     * @param file the file to write, it is replaced when it exists.
+     * @throws IOException in case something goes wrong while writing the file.
+     */
+    public void write(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(municipalities.size());
+            for (Map.Entry<String, Entry> municipality : municipalities.entrySet()) {
+                Entry entry = municipality.getValue();
+                out.writeUTF(municipality.getKey());
+                out.writeUTF(entry.file());
+                out.writeUTF(entry.rootTag());
+                out.writeLong(entry.start());
+                out.writeLong(entry.end());
+            }
+            out.writeInt(postalCodes.size());
+            for (Map.Entry<String, String> postalCode : postalCodes.entrySet()) {
+                out.writeUTF(postalCode.getKey());
+                out.writeUTF(postalCode.getValue());
+            }
+        }
+    }
+
+    /**
+     * Reads an index that has been written with {@link #write(Path)}.
+     *
+     * @param file the sidecar file.
+     * @return the index, or <code>null</code> when the file doesn't exist or was written by another version.
+     * @throws IOException in case something goes wrong while reading the file.
+     */
+    public static ReportingUnitIndex read(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            ReportingUnitIndex index = new ReportingUnitIndex();
+            for (int i = in.readInt(); i > 0; i--) {
+                String municipalityId = in.readUTF();
+                index.municipalities.put(municipalityId,
+                        new Entry(in.readUTF(), in.readUTF(), in.readLong(), in.readLong()));
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                index.postalCodes.put(in.readUTF(), in.readUTF());
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Builds an index by reading the files, without parsing them.
+     *
+     * @param files the <code>Telling_xxx_gemeente</code> files.
+     * @return the index.
+     * @throws IOException in case something goes wrong while reading a file.
+     */
+    public static ReportingUnitIndex scan(Iterable<Path> files) throws IOException {
+        ReportingUnitIndex index = new ReportingUnitIndex();
+        for (Path file : files) {
+            try (Scanner scanner = index.scanning(file, Files.newInputStream(file))) {
+                scanner.transferTo(OutputStream.nullOutputStream());
+                scanner.finish();
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Finds a file that has been recorded in an entry, it may be inside a ZIP archive.
+     *
+     * @param file the location of the file, as found in {@link Entry#file()}.
+     * @return the path of the file.
+     * @throws IOException when the archive of the file can't be opened.
+     */
+    public static Path resolve(String file) throws IOException {
+        return file.startsWith("file:") ? Path.of(URI.create(file)) : PathUtils.toPath(file);
+    }
+
+    /**
+     * Wraps the stream of a file, so the blocks are recorded while the file is parsed. The blocks are added to the
+     * index by {@link Scanner#finish()}, once the whole file has been read.
+     */
+    Scanner scanning(Path file, InputStream in) {
+        return new Scanner(file.toUri().toString(), in);
+    }
+
+    private static String normalize(String postalCode) {
+        return postalCode.replace(" ", "").toUpperCase();
+    }
+
+    /**
+     * Looks for the tags of the blocks in the bytes that pass through. Only the names of the tags are looked at, the
+     * XML itself is left to the parser.
+     */
+    final class Scanner extends FilterInputStream {
+        private static final int TEXT = 0, OPEN = 1, NAME = 2, TAG = 3, SKIP = 4;
+
+        private final String file;
+        private final StringBuilder name = new StringBuilder();
+        private final Map<String, long[]> ranges = new HashMap<>();
+        private final Map<String, String> stationPostalCodes = new HashMap<>();
+        private long offset;
+        private int state = TEXT;
+        private boolean closing;
+        private long tagStart;
+        private String rootTag;
+        private long blockStart = -1;
+        private boolean blockEnds;
+        private String unitId;
+        private String postalCode;
+        // The bytes of the root tag or of the identifier of a block, while they are being collected
+        private ByteArrayOutputStream capture;
+        private boolean captureText;
+
+        private Scanner(String file, InputStream in) {
+            super(in);
+            this.file = file;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                scan((byte) b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int off, int len) throws IOException {
+            int n = super.read(buffer, off, len);
+            for (int i = 0; i < n; i++) {
+                scan(buffer[off + i]);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes have to be scanned too
+            byte[] buffer = new byte[(int) Math.min(n, 8192)];
+            long skipped = 0;
+            while (skipped < n) {
+                int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+                if (read < 0) {
+                    break;
+                }
+                skipped += read;
+            }
+            return skipped;
+        }
+
+        /**
+         * Adds the blocks that have been found to the index.
+         */
+        void finish() {
+            if (rootTag == null) {
+                return;
+            }
+            ranges.forEach((municipalityId, range) ->
+                    municipalities.put(municipalityId, new Entry(file, rootTag, range[0], range[1])));
+            postalCodes.putAll(stationPostalCodes);
+        }
+
+        private void scan(byte b) {
+            switch (state) {
+                case TEXT -> {
+                    if (b == '<') {
+                        if (captureText) {
+                            identified();
+                        }
+                        state = OPEN;
+                        tagStart = offset;
+                        closing = false;
+                        name.setLength(0);
+                    } else if (captureText) {
+                        capture.write(b);
+                    }
+                }
+                case OPEN -> {
+                    if (b == '/') {
+                        closing = true;
+                    } else if (b == '!' || b == '?') {
+                        state = SKIP;
+                    } else {
+                        name.append((char) b);
+                        state = NAME;
+                    }
+                }
+                case NAME -> {
+                    if (isNameChar(b)) {
+                        name.append((char) b);
+                    } else {
+                        named();
+                        state = TAG;
+                        tag(b);
+                    }
+                }
+                case TAG -> tag(b);
+                case SKIP -> {
+                    if (b == '>') {
+                        state = TEXT;
+                    }
+                }
+                default -> throw new IllegalStateException("Unknown state " + state);
+            }
+            offset++;
+        }
+
+        private void named() {
+            String localName = name.substring(name.indexOf(":") + 1);
+            if (rootTag == null && capture == null && !closing) {
+                startCapture();
+            } else if (localName.equals(TagAndAttributeNames.REPORTING_UNIT_VOTES)) {
+                if (closing) {
+                    blockEnds = blockStart >= 0;
+                } else {
+                    blockStart = tagStart;
+                    unitId = null;
+                    postalCode = null;
+                }
+            } else if (localName.equals(TagAndAttributeNames.REPORTING_UNIT_IDENTIFIER) && !closing && blockStart >= 0) {
+                startCapture();
+            }
+        }
+
+        private void startCapture() {
+            capture = new ByteArrayOutputStream();
+            capture.write('<');
+            capture.writeBytes(name.toString().getBytes(StandardCharsets.US_ASCII));
+        }
+
+        private void tag(byte b) {
+            if (capture != null) {
+                capture.write(b);
+            }
+            if (b != '>') {
+                return;
+            }
+            state = TEXT;
+            if (capture != null) {
+                if (rootTag == null) {
+                    rootTag = capture.toString(StandardCharsets.UTF_8);
+                    capture = null;
+                } else {
+                    // The name of the polling station follows the start tag of the identifier
+                    captureText = true;
+                }
+            }
+            if (blockEnds) {
+                blockEnds = false;
+                block(offset + 1);
+            }
+        }
+
+        private void identified() {
+            String identifier = capture.toString(StandardCharsets.UTF_8);
+            capture = null;
+            captureText = false;
+            Matcher id = UNIT_ID.matcher(identifier);
+            unitId = id.find() ? id.group(1) : null;
+            Matcher postal = POSTAL_CODE.matcher(identifier);
+            postalCode = postal.find() ? postal.group(1) : null;
+        }
+
+        private void block(long end) {
+            if (unitId != null && unitId.contains("::")) {
+                String municipalityId = unitId.substring(0, unitId.indexOf("::"));
+                long[] range = ranges.computeIfAbsent(municipalityId, id -> new long[]{blockStart, end});
+                range[0] = Math.min(range[0], blockStart);
+                range[1] = Math.max(range[1], end);
+                if (postalCode != null) {
+                    stationPostalCodes.put(normalize(postalCode), municipalityId);
+                }
+            }
+            blockStart = -1;
+        }
+
+        private static boolean isNameChar(byte b) {
+            return b == ':' || b == '_' || b == '-' || b == '.' || b < 0
+                    || (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9');
+        }
+    }
+}
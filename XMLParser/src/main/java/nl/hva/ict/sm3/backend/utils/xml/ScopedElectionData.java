@@ -0,0 +1,158 @@
+package nl.hva.ict.sm3.backend.utils.xml;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The election data of the {@link EMLReader}, stored as a stack of key-value pairs in two arrays.<br/>
+ * <br/>
+ * Where the {@link EMLHandler} copies the complete map whenever a repeating tag starts, this class just remembers
+ * the current height of the stack. Values that are put while a scope is open are pushed on top of the stack and hide
+ * any value with the same key further down. Closing the scope drops everything above the remembered height, which
+ * restores the previous state without copying anything.<br/>
+ * <br/>
+ * Transformers receive this class as an unmodifiable {@link Map}. They must not hold on to it after the call has
+ * returned, because its content changes while the file is being read. Use {@link #snapshot()} or copy the map when
+ * the data is needed later on.
+ */
+class ScopedElectionData extends AbstractMap<String, String> {
+    private String[] keys = new String[32];
+    private String[] values = new String[32];
+    private int size;
+    private int[] scopes = new int[16];
+    private int depth;
+
+    /**
+     * Opens a new scope. Everything that is put after this call is removed again by the matching {@link #popScope()}.
+     */
+    void pushScope() {
+        if (depth == scopes.length) {
+            scopes = Arrays.copyOf(scopes, depth * 2);
+        }
+        scopes[depth++] = size;
+    }
+
+    /**
+     * Closes the current scope and thereby restores the state as it was when the scope was opened.
+     */
+    void popScope() {
+        int mark = scopes[--depth];
+        Arrays.fill(keys, mark, size, null);
+        Arrays.fill(values, mark, size, null);
+        size = mark;
+    }
+
+    /**
+     * Stores a value. A value with the same key that was stored in the current scope is overwritten, a value from an
+     * enclosing scope is hidden until the current scope is closed.
+     *
+     * @param key the key, preferably one of the constants so the identity check hits.
+     * @param value the value.
+     */
+    void set(String key, String value) {
+        int mark = depth == 0 ? 0 : scopes[depth - 1];
+        for (int i = size - 1; i >= mark; i--) {
+            if (sameKey(keys[i], key)) {
+                values[i] = value;
+                return;
+            }
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        keys[size] = key;
+        values[size++] = value;
+    }
+
+    /**
+     * @return a copy of the currently visible data that is not affected by any later changes.
+     */
+    Map<String, String> snapshot() {
+        Map<String, String> copy = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            copy.put(keys[i], values[i]);
+        }
+        return copy;
+    }
+
+    @Override
+    public String get(Object key) {
+        int index = indexOf(key);
+        return index < 0 ? null : values[index];
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new Iterator<>() {
+                    private int next = nextVisible(size - 1);
+
+                    @Override
+                    public boolean hasNext() {
+                        return next >= 0;
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        if (next < 0) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<String, String> entry = new SimpleImmutableEntry<>(keys[next], values[next]);
+                        next = nextVisible(next - 1);
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                int count = 0;
+                for (int i = nextVisible(size - 1); i >= 0; i = nextVisible(i - 1)) {
+                    count++;
+                }
+                return count;
+            }
+        };
+    }
+
+    private int indexOf(Object key) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (sameKey(keys[i], key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Walks down from the given index to the first entry that is not hidden by an entry higher up the stack.
+    private int nextVisible(int from) {
+        for (int i = from; i >= 0; i--) {
+            boolean hidden = false;
+            for (int j = i + 1; j < size && !hidden; j++) {
+                hidden = sameKey(keys[j], keys[i]);
+            }
+            if (!hidden) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean sameKey(String stored, Object key) {
+        return stored == key || stored.equals(key);
+    }
+}
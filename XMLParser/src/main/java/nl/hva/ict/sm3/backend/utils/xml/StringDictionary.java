@@ -0,0 +1,129 @@
+package nl.hva.ict.sm3.backend.utils.xml;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonical instances of the names and identifiers found in the files of one load, so the model doesn't hold
+ * thousands of copies of the same party name or id. It replaces <code>String.intern()</code>, which puts every value
+ * in the string table of the JVM for as long as it runs. A dictionary is created by the {@link DutchElectionParser}
+ * for each load and dropped afterward, together with everything in it that the model doesn't use.<br/>
+ * <br/>
+ * Every file gets its own {@link Local} table, which is only used by the thread that parses the file. It looks up a
+ * range of characters without creating a <code>String</code> first, so a value that has been seen before in the file
+ * costs no allocation at all. Only the first occurrence in a file is looked up in the shared map, which makes the
+ * instances canonical across all the files of the load, also when they are parsed in parallel.<br/>
+ * <br/>
+ * Counts should not be passed to a dictionary, they are parsed into numbers or kept as they are.
+ */
+final class StringDictionary {
+    private final Map<String, String> shared = new ConcurrentHashMap<>();
+
+    /**
+     * @return a new table for a single file, to be used by one thread only.
+     */
+    Local local() {
+        return new Local();
+    }
+
+    /**
+     * @return the number of distinct values in the dictionary.
+     */
+    int size() {
+        return shared.size();
+    }
+
+    private String canonical(String value) {
+        String existing = shared.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+
+    /**
+     * An open addressing (linear probing) table of the values found in one file. The hash of the characters is stored
+     * next to each value, so most mismatches are found without comparing any characters.
+     */
+    final class Local {
+        private static final int INITIAL_CAPACITY = 256;
+
+        private String[] values = new String[INITIAL_CAPACITY];
+        private int[] hashes = new int[INITIAL_CAPACITY];
+        private int size;
+
+        private Local() {
+        }
+
+        /**
+         * @param value a value that has already been turned into a <code>String</code>, like the value of an
+         *              attribute.
+         * @return the canonical instance of the value.
+         */
+        String get(String value) {
+            return value == null ? null : get(value, 0, value.length());
+        }
+
+        /**
+         * @param text the characters, e.g. the text of a tag.
+         * @param start the index of the first character of the value.
+         * @param end the index after the last character of the value.
+         * @return the canonical instance of the characters from start to end.
+         */
+        String get(CharSequence text, int start, int end) {
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + text.charAt(i);
+            }
+            int mask = values.length - 1;
+            int index = spread(hash) & mask;
+            String value;
+            while ((value = values[index]) != null) {
+                if (hashes[index] == hash && matches(value, text, start, end)) {
+                    return value;
+                }
+                index = (index + 1) & mask;
+            }
+
+            value = canonical(text.subSequence(start, end).toString());
+            values[index] = value;
+            hashes[index] = hash;
+            if (++size * 2 > values.length) {
+                grow();
+            }
+            return value;
+        }
+
+        private static boolean matches(String value, CharSequence text, int start, int end) {
+            if (value.length() != end - start) {
+                return false;
+            }
+            for (int i = 0; i < value.length(); i++) {
+                if (value.charAt(i) != text.charAt(start + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void grow() {
+            String[] oldValues = values;
+            int[] oldHashes = hashes;
+            values = new String[oldValues.length * 2];
+            hashes = new int[oldValues.length * 2];
+            int mask = values.length - 1;
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != null) {
+                    int index = spread(oldHashes[i]) & mask;
+                    while (values[index] != null) {
+                        index = (index + 1) & mask;
+                    }
+                    values[index] = oldValues[i];
+                    hashes[index] = oldHashes[i];
+                }
+            }
+        }
+
+        private static int spread(int hash) {
+            // The same mixing as HashMap, so similar ids (e.g. 0453::SB1 and 0453::SB2) don't end up next to each other
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
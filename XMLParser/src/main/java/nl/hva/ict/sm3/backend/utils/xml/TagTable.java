@@ -0,0 +1,189 @@
+package nl.hva.ict.sm3.backend.utils.xml;
+
+import java.util.*;
+
+/**
+ * The known tags of {@link TagAndAttributeNames}, as registered by the {@link EMLHandler}, compiled into small integer
+ * ids. A tag name is turned into its id with a single probe of a perfect hash table, after which the handlers can
+ * dispatch on an <code>int</code> instead of comparing strings over and over again.<br/>
+ * <br/>
+ * The tags that the handlers treat in a special way have a fixed id, so they can be used as case labels. All the other
+ * tags get an id after these. Id {@link #UNKNOWN} is used for tags that are not known at all.<br/>
+ * <br/>
+ * The attributes of a tag have a slot, their index in {@link #attributeNames(int)}, which also gives the key that is
+ * used for the value of the attribute in the <code>electionData</code> map.
+ */
+final class TagTable implements TagAndAttributeNames {
+    static final int UNKNOWN = 0;
+    static final int AFFILIATION_TAG = 1;
+    static final int CANDIDATE_TAG = 2;
+    static final int COMMITTEE_TAG = 3;
+    static final int ELECTION_TREE_TAG = 4;
+    static final int NAME_LINE_TAG = 5;
+    static final int REGION_TAG = 6;
+    static final int REGISTERED_PARTY_TAG = 7;
+    static final int REJECTED_VOTES_TAG = 8;
+    static final int REPORTING_UNIT_VOTES_TAG = 9;
+    static final int SELECTION_TAG = 10;
+    static final int TOTAL_VOTES_TAG = 11;
+    static final int UNCOUNTED_VOTES_TAG = 12;
+    private static final List<String> FIXED = List.of(AFFILIATION, CANDIDATE, COMMITTEE, ELECTION_TREE, NAME_LINE,
+            REGION, REGISTERED_PARTY, REJECTED_VOTES, REPORTING_UNIT_VOTES, SELECTION, TOTAL_VOTES, UNCOUNTED_VOTES);
+
+    // Indexed by id.
+    private final String[] names;
+    private final boolean[] withAttributes;
+    private final boolean[] numeric;
+    private final boolean[] counts;
+    private final String[][] attributeNames;
+    private final String[][] attributeKeys;
+    // The perfect hash table: slot -> name and id, see slot(String).
+    private final String[] hashedNames;
+    private final int[] hashedIds;
+    private final int seed;
+    private final int shift;
+
+    /**
+     * @param tagsWithoutAttributes the tags whose value is stored under their own name.
+     * @param tagsWithAttributes the tags with their known attributes, a tag in both wins here.
+     * @param numericTags the tags whose values are numbers.
+     */
+    TagTable(Set<String> tagsWithoutAttributes, Map<String, Set<String>> tagsWithAttributes, Set<String> numericTags) {
+        List<String> all = new ArrayList<>(FIXED);
+        // Sorted, so the ids are the same on every run
+        new TreeSet<>(tagsWithoutAttributes).stream().filter(name -> !all.contains(name)).forEach(all::add);
+        new TreeSet<>(tagsWithAttributes.keySet()).stream().filter(name -> !all.contains(name)).forEach(all::add);
+
+        int size = all.size() + 1;
+        names = new String[size];
+        withAttributes = new boolean[size];
+        numeric = new boolean[size];
+        counts = new boolean[size];
+        attributeNames = new String[size][];
+        attributeKeys = new String[size][];
+        attributeNames[UNKNOWN] = attributeKeys[UNKNOWN] = new String[0];
+        for (int id = 1; id < size; id++) {
+            String name = all.get(id - 1);
+            names[id] = name;
+            numeric[id] = numericTags.contains(name);
+            counts[id] = VoteRecord.isCount(name);
+            Set<String> attributes = tagsWithAttributes.get(name);
+            withAttributes[id] = attributes != null;
+            attributeNames[id] = attributes == null ? new String[0] : new TreeSet<>(attributes).toArray(new String[0]);
+            attributeKeys[id] = new String[attributeNames[id].length];
+            for (int slot = 0; slot < attributeNames[id].length; slot++) {
+                attributeKeys[id][slot] = String.format("%s-%s", name, attributeNames[id][slot]);
+            }
+        }
+
+        // Look for a multiplier that maps every name to a slot of its own, doubling the table until one is found
+        int bits = 32 - Integer.numberOfLeadingZeros(size * 8);
+        int candidate = 1;
+        String[] slots = new String[1 << bits];
+        while (!fill(slots, candidate * 0x9E3779B9, 32 - bits)) {
+            candidate += 2;
+            if (candidate > 100_000) {
+                candidate = 1;
+                slots = new String[1 << ++bits];
+            } else {
+                Arrays.fill(slots, null);
+            }
+        }
+        hashedNames = slots;
+        hashedIds = new int[slots.length];
+        seed = candidate * 0x9E3779B9;
+        shift = 32 - bits;
+        for (int id = 1; id < size; id++) {
+            hashedIds[slot(names[id])] = id;
+        }
+    }
+
+    private boolean fill(String[] slots, int seed, int shift) {
+        for (int id = 1; id < names.length; id++) {
+            int slot = (names[id].hashCode() * seed) >>> shift;
+            if (slots[slot] != null) {
+                return false;
+            }
+            slots[slot] = names[id];
+        }
+        return true;
+    }
+
+    private int slot(String name) {
+        return (name.hashCode() * seed) >>> shift;
+    }
+
+    /**
+     * @param localName the name of a tag, as provided by the parser.
+     * @return the id of the tag, or {@link #UNKNOWN}.
+     */
+    int id(String localName) {
+        int slot = slot(localName);
+        // The parsers intern the names, so equals() mostly ends at its identity check
+        return localName.equals(hashedNames[slot]) ? hashedIds[slot] : UNKNOWN;
+    }
+
+    /**
+     * @return the number of ids, including {@link #UNKNOWN}.
+     */
+    int size() {
+        return names.length;
+    }
+
+    /**
+     * @return the name of the tag, <code>null</code> for {@link #UNKNOWN}.
+     */
+    String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * @return whether the tag has known attributes, otherwise its value is stored under its own name.
+     */
+    boolean hasAttributes(int id) {
+        return withAttributes[id];
+    }
+
+    /**
+     * @return whether the value of the tag is a number, which is not worth keeping a canonical instance of.
+     */
+    boolean isNumeric(int id) {
+        return numeric[id];
+    }
+
+    /**
+     * @return whether the value of the tag is a count of a {@link VoteRecord}, see {@link VoteRecord#isCount(String)}.
+     */
+    boolean isCount(int id) {
+        return counts[id];
+    }
+
+    /**
+     * @return the known attributes of the tag, indexed by slot.
+     */
+    String[] attributeNames(int id) {
+        return attributeNames[id];
+    }
+
+    /**
+     * @return the keys of the known attributes of the tag in the <code>electionData</code> map, indexed by slot.
+     */
+    String[] attributeKeys(int id) {
+        return attributeKeys[id];
+    }
+
+    /**
+     * @param id the id of the tag.
+     * @param attribute the local name of an attribute.
+     * @return the slot of the attribute, or -1 when the tag doesn't have such an attribute.
+     */
+    int attributeSlot(int id, String attribute) {
+        String[] attributes = attributeNames[id];
+        for (int slot = 0; slot < attributes.length; slot++) {
+            if (attributes[slot].equals(attribute)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,53 @@
+package nl.hva.ict.sm3.backend.utils.xml;
+
+import java.util.Map;
+
+/**
+ * A <code>TypedVotesTransformer</code> is a {@link VotesTransformer} that receives the data of a votes file as a
+ * {@link VoteRecord} instead of a map.<br/>
+ * <br/>
+ * When the parser detects that a transformer implements this interface it fills the record directly, without
+ * building any map, and calls the methods below. The methods taking a map are still available for existing callers
+ * and are translated into a record.
+ */
+public interface TypedVotesTransformer extends VotesTransformer {
+
+    /**
+     * Called whenever a Selection closing tag is parsed that is not about a candidate.
+     * @param aggregated <code>true</code> when the votes at the aggregation level are processed, <code>false</code>
+     *                   otherwise.
+     * @param votes the values of the current row. Only valid during this call.
+     */
+    void registerPartyVotes(boolean aggregated, VoteRecord votes);
+
+    /**
+     * Called whenever a Selection closing tag is parsed that has a CandidateIdentifier Id or ShortCode.
+     * @param aggregated <code>true</code> when the votes at the aggregation level are processed, <code>false</code>
+     *                   otherwise.
+     * @param votes the values of the current row. Only valid during this call.
+     */
+    void registerCandidateVotes(boolean aggregated, VoteRecord votes);
+
+    /**
+     * Called whenever either a TotalVotes or ReportingUnitVotes closing tag is parsed.
+     * @param aggregated <code>true</code> when the votes at the aggregation level are processed, <code>false</code>
+     *                   otherwise.
+     * @param votes the values of the current row. Only valid during this call.
+     */
+    void registerMetadata(boolean aggregated, VoteRecord votes);
+
+    @Override
+    default void registerPartyVotes(boolean aggregated, Map<String, String> electionData) {
+        registerPartyVotes(aggregated, VoteRecord.of(electionData));
+    }
+
+    @Override
+    default void registerCandidateVotes(boolean aggregated, Map<String, String> electionData) {
+        registerCandidateVotes(aggregated, VoteRecord.of(electionData));
+    }
+
+    @Override
+    default void registerMetadata(boolean aggregated, Map<String, String> electionData) {
+        registerMetadata(aggregated, VoteRecord.of(electionData));
+    }
+}
@@ -0,0 +1,168 @@
+package nl.hva.ict.sm3.backend.utils.xml;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded ring buffer between one parser thread (the producer) and the thread that builds the model (the consumer).
+ * The parser calls it as a {@link TypedVotesTransformer}, every call is stored as an event in a slot with its own
+ * {@link VoteRecord}. The slots are allocated once and reused, so passing an event doesn't create any objects.<br/>
+ * <br/>
+ * There is exactly one producer and one consumer, so no locks or compare-and-set operations are needed: the producer
+ * only moves the tail and the consumer only moves the head. When the ring is full the producer waits for the
+ * consumer (backpressure), when it is empty the consumer waits for the producer. Both wait by spinning briefly and
+ * then parking for short moments, there is no signalling between the threads.<br/>
+ * <br/>
+ * A ring can be used for one file after another, see {@link #reset()}.
+ */
+final class VoteEventRing implements TypedVotesTransformer {
+    private static final byte PARTY_VOTES = 0, CANDIDATE_VOTES = 1, METADATA = 2;
+    private static final int SPINS = 100;
+    private static final long PARK_NANOS = 20_000;
+
+    private final VoteRecord[] records;
+    private final byte[] kinds;
+    private final boolean[] aggregated;
+    private final int mask;
+    private final PipelineStatistics statistics;
+    // The next slot to read, only written by the consumer.
+    private final AtomicLong head = new AtomicLong();
+    // The next slot to write, only written by the producer.
+    private final AtomicLong tail = new AtomicLong();
+    private volatile boolean finished;
+    private volatile boolean cancelled;
+
+    /**
+     * @param capacity the number of slots, rounded up to a power of two.
+     * @param statistics receives the time the threads spend waiting and building.
+     */
+    VoteEventRing(int capacity, PipelineStatistics statistics) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        records = new VoteRecord[size];
+        for (int i = 0; i < size; i++) {
+            records[i] = new VoteRecord();
+        }
+        kinds = new byte[size];
+        aggregated = new boolean[size];
+        mask = size - 1;
+        this.statistics = statistics;
+    }
+
+    @Override
+    public void registerPartyVotes(boolean aggregated, VoteRecord votes) {
+        publish(PARTY_VOTES, aggregated, votes);
+    }
+
+    @Override
+    public void registerCandidateVotes(boolean aggregated, VoteRecord votes) {
+        publish(CANDIDATE_VOTES, aggregated, votes);
+    }
+
+    @Override
+    public void registerMetadata(boolean aggregated, VoteRecord votes) {
+        publish(METADATA, aggregated, votes);
+    }
+
+    private void publish(byte kind, boolean aggregated, VoteRecord votes) {
+        long sequence = tail.get();
+        if (sequence - head.get() > mask) {
+            awaitRoom(sequence);
+        }
+        int slot = (int) sequence & mask;
+        records[slot].set(votes);
+        kinds[slot] = kind;
+        this.aggregated[slot] = aggregated;
+        // Publishes the slot, the consumer reads the tail before it reads the slot
+        tail.lazySet(sequence + 1);
+    }
+
+    private void awaitRoom(long sequence) {
+        long start = System.nanoTime();
+        for (int spins = 0; sequence - head.get() > mask; spins++) {
+            if (cancelled || Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("The votes are no longer consumed");
+            }
+            if (spins < SPINS) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+        statistics.stalled(System.nanoTime() - start);
+    }
+
+    /**
+     * Called by the producer when it won't publish any more events, also when it failed.
+     */
+    void finish() {
+        finished = true;
+    }
+
+    /**
+     * Called by the consumer when it stops consuming, a producer that is waiting for room gives up.
+     */
+    void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Passes all events to the transformer, in the order in which they were published, until the producer has
+     * finished and the ring is empty.
+     *
+     * @param target the transformer that builds the model.
+     */
+    void drainTo(TypedVotesTransformer target) {
+        long sequence = head.get();
+        int spins = 0;
+        long idleSince = 0;
+        while (true) {
+            long available = tail.get();
+            if (sequence == available) {
+                if (finished && sequence == tail.get()) {
+                    break;
+                }
+                if (idleSince == 0) {
+                    idleSince = System.nanoTime();
+                }
+                if (spins++ < SPINS) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(PARK_NANOS);
+                }
+                continue;
+            }
+            long start = System.nanoTime();
+            if (idleSince != 0) {
+                statistics.idled(start - idleSince);
+                idleSince = 0;
+            }
+            spins = 0;
+            int count = (int) (available - sequence);
+            for (; sequence < available; sequence++) {
+                int slot = (int) sequence & mask;
+                switch (kinds[slot]) {
+                    case PARTY_VOTES -> target.registerPartyVotes(aggregated[slot], records[slot]);
+                    case CANDIDATE_VOTES -> target.registerCandidateVotes(aggregated[slot], records[slot]);
+                    default -> target.registerMetadata(aggregated[slot], records[slot]);
+                }
+                // Hands the slot back to the producer
+                head.lazySet(sequence + 1);
+            }
+            statistics.built(count, System.nanoTime() - start);
+        }
+        if (idleSince != 0) {
+            statistics.idled(System.nanoTime() - idleSince);
+        }
+    }
+
+    /**
+     * Makes the ring ready for the next file, only after the producer has finished and the ring has been drained.
+     */
+    void reset() {
+        head.set(0);
+        tail.set(0);
+        finished = false;
+        cancelled = false;
+    }
+}
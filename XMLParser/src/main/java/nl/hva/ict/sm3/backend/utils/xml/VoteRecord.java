@@ -0,0 +1,356 @@
+package nl.hva.ict.sm3.backend.utils.xml;
+
+import java.util.Map;
+
+/**
+ * A <code>VoteRecord</code> holds the data of a single row of a votes file in typed fields. It is the counterpart of
+ * the <code>electionData</code> map for a {@link TypedVotesTransformer}.<br/>
+ * <br/>
+ * There is only one instance per {@link EMLHandler} or {@link EMLReader}, which is filled while the file is being
+ * processed and handed to the transformer over and over again. The counts are parsed directly from the characters of
+ * the file, so no <code>String</code> is created for them, and the identifiers and names are taken from the
+ * {@link StringDictionary} of the load, so they can be compared and used as keys without any further processing.<br/>
+ * <br/>
+ * Just like the map, the content changes as soon as the transformer returns. A transformer that needs the data later
+ * on must either copy the values it needs or use {@link #copy()}.
+ */
+public final class VoteRecord implements TagAndAttributeNames {
+    // Available throughout the complete file.
+    private String electionId;
+    private String electionName;
+    private String contestId;
+    private String contestName;
+    private String authorityId;
+    private String authorityName;
+    private int numberOfSeats;
+    // Only available within a TotalVotes or ReportingUnitVotes tag.
+    private String reportingUnitId;
+    private String reportingUnitName;
+    private int cast;
+    private int totalCounted;
+    private int rejectedVotes;
+    private int uncountedVotes;
+    // Only available within a Selection tag.
+    private String partyId;
+    private String partyName;
+    private String candidateId;
+    private String candidateShortCode;
+    private int validVotes;
+    // Where the identifiers and names are looked up, not part of the data and never copied.
+    private StringDictionary.Local dictionary;
+
+    VoteRecord() {
+    }
+
+    /**
+     * Creates a record from the data that a {@link VotesTransformer} would receive. This is only meant for code that
+     * still works with maps, the parser fills the record directly.
+     *
+     * @param electionData the tags and values.
+     * @return a new record containing the values that are known to this class.
+     */
+    public static VoteRecord of(Map<String, String> electionData) {
+        VoteRecord record = new VoteRecord();
+        record.electionId = electionData.get(ELECTION_IDENTIFIER + "-" + ID);
+        record.electionName = electionData.get(ELECTION_NAME);
+        record.contestId = electionData.get(CONTEST_IDENTIFIER + "-" + ID);
+        record.contestName = electionData.get(CONTEST_NAME);
+        record.authorityId = electionData.get(AUTHORITY_IDENTIFIER + "-" + ID);
+        record.authorityName = electionData.get(AUTHORITY_IDENTIFIER);
+        record.numberOfSeats = parseInt(electionData.get(NUMBER_OF_SEATS));
+        record.reportingUnitId = electionData.get(REPORTING_UNIT_IDENTIFIER + "-" + ID);
+        record.reportingUnitName = electionData.get(REPORTING_UNIT_IDENTIFIER);
+        record.cast = parseInt(electionData.get(CAST));
+        record.totalCounted = parseInt(electionData.get(TOTAL_COUNTED));
+        record.partyId = electionData.get(AFFILIATION_IDENTIFIER + "-" + ID);
+        record.partyName = electionData.get(REGISTERED_NAME);
+        record.candidateId = electionData.get(CANDIDATE_IDENTIFIER_ID);
+        record.candidateShortCode = electionData.get(CANDIDATE_IDENTIFIER_SHORT_CODE);
+        record.validVotes = parseInt(electionData.get(VALID_VOTES));
+        electionData.forEach((key, value) -> {
+            if (key.startsWith(REJECTED_VOTES + "-")) {
+                record.rejectedVotes += parseInt(value);
+            } else if (key.startsWith(UNCOUNTED_VOTES + "-")) {
+                record.uncountedVotes += parseInt(value);
+            }
+        });
+        return record;
+    }
+
+    /**
+     * @return a copy that is not affected by the parser reusing this record.
+     */
+    public VoteRecord copy() {
+        VoteRecord copy = new VoteRecord();
+        copy.set(this);
+        return copy;
+    }
+
+    /**
+     * Overwrites all the values with those of another record, so a record can be reused instead of copied.
+     */
+    void set(VoteRecord other) {
+        electionId = other.electionId;
+        electionName = other.electionName;
+        contestId = other.contestId;
+        contestName = other.contestName;
+        authorityId = other.authorityId;
+        authorityName = other.authorityName;
+        numberOfSeats = other.numberOfSeats;
+        reportingUnitId = other.reportingUnitId;
+        reportingUnitName = other.reportingUnitName;
+        cast = other.cast;
+        totalCounted = other.totalCounted;
+        rejectedVotes = other.rejectedVotes;
+        uncountedVotes = other.uncountedVotes;
+        partyId = other.partyId;
+        partyName = other.partyName;
+        candidateId = other.candidateId;
+        candidateShortCode = other.candidateShortCode;
+        validVotes = other.validVotes;
+    }
+
+    /**
+     * Called when a new file is started, forgets everything.
+     */
+    void clear() {
+        electionId = null;
+        electionName = null;
+        contestId = null;
+        contestName = null;
+        authorityId = null;
+        authorityName = null;
+        numberOfSeats = 0;
+        clearReportingUnit();
+    }
+
+    /**
+     * Called when a TotalVotes or ReportingUnitVotes tag starts or ends.
+     */
+    void clearReportingUnit() {
+        reportingUnitId = null;
+        reportingUnitName = null;
+        cast = 0;
+        totalCounted = 0;
+        rejectedVotes = 0;
+        uncountedVotes = 0;
+        clearSelection();
+    }
+
+    /**
+     * Called when a Selection tag starts or ends.
+     */
+    void clearSelection() {
+        partyId = null;
+        partyName = null;
+        candidateId = null;
+        candidateShortCode = null;
+        validVotes = 0;
+    }
+
+    /**
+     * @param dictionary the table of the file that is being processed.
+     */
+    void setDictionary(StringDictionary.Local dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    private StringDictionary.Local dictionary() {
+        if (dictionary == null) {
+            // Only a record that is filled without a parser, e.g. in a test, gets a dictionary of its own
+            dictionary = new StringDictionary().local();
+        }
+        return dictionary;
+    }
+
+    /**
+     * Stores the value of an attribute, if it is one of the identifiers this record knows about.
+     *
+     * @param localName the name of the tag.
+     * @param attribute the name of the attribute.
+     * @param value the value of the attribute.
+     */
+    void setAttribute(String localName, String attribute, String value) {
+        if (ID.equals(attribute)) {
+            switch (localName) {
+                case AFFILIATION_IDENTIFIER -> partyId = dictionary().get(value);
+                case CANDIDATE_IDENTIFIER -> candidateId = dictionary().get(value);
+                case REPORTING_UNIT_IDENTIFIER -> reportingUnitId = dictionary().get(value);
+                case AUTHORITY_IDENTIFIER -> authorityId = dictionary().get(value);
+                case CONTEST_IDENTIFIER -> contestId = dictionary().get(value);
+                case ELECTION_IDENTIFIER -> electionId = dictionary().get(value);
+            }
+        } else if (SHORT_CODE.equals(attribute) && CANDIDATE_IDENTIFIER.equals(localName)) {
+            candidateShortCode = dictionary().get(value);
+        }
+    }
+
+    /**
+     * Stores the value of a tag, if it is one this record knows about. Counts are parsed without creating a
+     * <code>String</code> first.
+     *
+     * @param localName the name of the tag.
+     * @param text the characters found between the start and closing tag, surrounding whitespace included.
+     */
+    void setValue(String localName, CharSequence text) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && Character.isWhitespace(text.charAt(start))) start++;
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) end--;
+        if (start == end) {
+            return;
+        }
+        switch (localName) {
+            case VALID_VOTES, CAST, TOTAL_COUNTED, NUMBER_OF_SEATS, REJECTED_VOTES, UNCOUNTED_VOTES ->
+                    setCount(localName, Integer.parseInt(text, start, end, 10));
+            case REGISTERED_NAME -> partyName = dictionary().get(text, start, end);
+            case REPORTING_UNIT_IDENTIFIER -> reportingUnitName = dictionary().get(text, start, end);
+            case AUTHORITY_IDENTIFIER -> authorityName = dictionary().get(text, start, end);
+            case CONTEST_NAME -> contestName = dictionary().get(text, start, end);
+            case ELECTION_NAME -> electionName = dictionary().get(text, start, end);
+        }
+    }
+
+    /**
+     * @param localName the name of a tag.
+     * @return whether the value of the tag is a count, which can be passed to {@link #setCount(String, int)}.
+     */
+    static boolean isCount(String localName) {
+        return switch (localName) {
+            case VALID_VOTES, CAST, TOTAL_COUNTED, NUMBER_OF_SEATS, REJECTED_VOTES, UNCOUNTED_VOTES -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Stores a count that has already been decoded, for example by a {@link CountParser}.
+     *
+     * @param localName the name of the tag, see {@link #isCount(String)}.
+     * @param count the value of the tag.
+     */
+    void setCount(String localName, int count) {
+        switch (localName) {
+            case VALID_VOTES -> validVotes = count;
+            case CAST -> cast = count;
+            case TOTAL_COUNTED -> totalCounted = count;
+            case NUMBER_OF_SEATS -> numberOfSeats = count;
+            // A tag that is repeated for every reason, the total is kept
+            case REJECTED_VOTES -> rejectedVotes += count;
+            case UNCOUNTED_VOTES -> uncountedVotes += count;
+        }
+    }
+
+    /**
+     * @return <code>true</code> when the current Selection is about a candidate instead of a party.
+     */
+    boolean isCandidate() {
+        return candidateId != null || candidateShortCode != null;
+    }
+
+    private static int parseInt(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /** @return the Id attribute of the ElectionIdentifier tag, e.g. <code>TK2023</code>. */
+    public String getElectionId() {
+        return electionId;
+    }
+
+    /** @return the value of the ElectionName tag. */
+    public String getElectionName() {
+        return electionName;
+    }
+
+    /** @return the Id attribute of the ContestIdentifier tag, which identifies the constituency. */
+    public String getContestId() {
+        return contestId;
+    }
+
+    /** @return the value of the ContestName tag. */
+    public String getContestName() {
+        return contestName;
+    }
+
+    /** @return the Id attribute of the AuthorityIdentifier tag, which identifies the municipality. */
+    public String getAuthorityId() {
+        return authorityId;
+    }
+
+    /** @return the value of the AuthorityIdentifier tag. */
+    public String getAuthorityName() {
+        return authorityName;
+    }
+
+    /** @return the value of the NumberOfSeats tag, or 0 when it was not present. */
+    public int getNumberOfSeats() {
+        return numberOfSeats;
+    }
+
+    /** @return the Id attribute of the ReportingUnitIdentifier tag, e.g. <code>0363::SB1</code>. */
+    public String getReportingUnitId() {
+        return reportingUnitId;
+    }
+
+    /** @return the value of the ReportingUnitIdentifier tag, the name of the polling station including its postcode. */
+    public String getReportingUnitName() {
+        return reportingUnitName;
+    }
+
+    /** @return the value of the Cast tag, or 0 when it was not present. */
+    public int getCast() {
+        return cast;
+    }
+
+    /** @return the value of the TotalCounted tag, or 0 when it was not present. */
+    public int getTotalCounted() {
+        return totalCounted;
+    }
+
+    /** @return the sum of all RejectedVotes tags, regardless of their ReasonCode. */
+    public int getRejectedVotes() {
+        return rejectedVotes;
+    }
+
+    /** @return the sum of all UncountedVotes tags, regardless of their ReasonCode. */
+    public int getUncountedVotes() {
+        return uncountedVotes;
+    }
+
+    /** @return the Id attribute of the AffiliationIdentifier tag. */
+    public String getPartyId() {
+        return partyId;
+    }
+
+    /** @return the value of the RegisteredName tag. */
+    public String getPartyName() {
+        return partyName;
+    }
+
+    /** @return the Id attribute of the CandidateIdentifier tag. */
+    public String getCandidateId() {
+        return candidateId;
+    }
+
+    /** @return the ShortCode attribute of the CandidateIdentifier tag. */
+    public String getCandidateShortCode() {
+        return candidateShortCode;
+    }
+
+    /** @return the value of the ValidVotes tag, or 0 when it was not present. */
+    public int getValidVotes() {
+        return validVotes;
+    }
+
+    @Override
+    public String toString() {
+        return "VoteRecord{electionId='%s', contestId='%s', authorityId='%s', reportingUnitId='%s', partyId='%s', candidateId='%s', validVotes=%d}"
+                .formatted(electionId, contestId, authorityId, reportingUnitId, partyId, candidateId, validVotes);
+    }
+}
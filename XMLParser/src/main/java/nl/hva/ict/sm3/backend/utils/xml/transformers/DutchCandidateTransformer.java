@@ -50,11 +50,16 @@ public class DutchCandidateTransformer implements CandidateTransformer {
         String uniqueId = String.format("%s-%s-%s", election.getId(), partyId, candidateId);
         Candidate candidate = new Candidate(uniqueId, firstName, lastName, initials, residence, partyId, partyName, candidateIdentifier, shortCode, 0);
 
-        boolean alreadyExists = election.getCandidates().stream()
-                .anyMatch(c -> c.getId().equals(uniqueId));
-
-        if (!alreadyExists) {
+        if (election.getCandidateById(uniqueId) == null) {
             election.addCandidate(candidate);
         }
     }
+
+    /**
+     * Builds the short code index of the election, the Totaaltelling file refers to the candidates by short code.
+     */
+    @Override
+    public void candidateListsCompleted() {
+        election.indexCandidateShortCodes();
+    }
 }
@@ -2,16 +2,16 @@ package nl.hva.ict.sm3.backend.utils.xml.transformers;
 
 import nl.hva.ict.sm3.backend.model.Constituency;
 import nl.hva.ict.sm3.backend.model.Election;
-import nl.hva.ict.sm3.backend.utils.xml.VotesTransformer;
-
-import java.util.Map;
+import nl.hva.ict.sm3.backend.utils.xml.TypedVotesTransformer;
+import nl.hva.ict.sm3.backend.utils.xml.VoteRecord;
 
 /**
  * Just prints to content of electionData to the standard output.>br/>
  * <b>This class needs heavy modification!</b>
  */
-public class DutchConstituencyVotesTransformer implements VotesTransformer {
+public class DutchConstituencyVotesTransformer implements TypedVotesTransformer {
     private final Election election;
+    private final ElectionIds ids;
 
     /**
      * Creates a new transformer for handling the votes at the constituency level. It expects an instance of
@@ -20,34 +20,34 @@ public class DutchConstituencyVotesTransformer implements VotesTransformer {
      */
     public DutchConstituencyVotesTransformer(Election election) {
         this.election = election;
+        this.ids = new ElectionIds(election.getId());
     }
 
     @Override
-    public void registerPartyVotes(boolean aggregated, Map<String, String> electionData) {
+    public void registerPartyVotes(boolean aggregated, VoteRecord votes) {
         if (aggregated) {
-            String rawId = electionData.getOrDefault("ContestIdentifier-Id", "unknown").trim();
+            String rawId = votes.getContestId() != null ? votes.getContestId().trim() : "unknown";
             // Prefix with election ID to make unique across elections
-            String id = election.getId() + "-" + rawId;
-            String name = electionData.getOrDefault("ContestName", "Unnamed Constituency");
+            String id = ids.of(rawId);
 
             Constituency existing = election.getConstituencyById(id);
             if (existing == null) {
+                String name = votes.getContestName() != null ? votes.getContestName() : "Unnamed Constituency";
                 existing = new Constituency(id, name);
                 election.addConstituency(existing);
             }
 
-            int votes = Integer.parseInt(electionData.getOrDefault("ValidVotes", "0"));
-            existing.addToTotalVotes(votes);
+            existing.addToTotalVotes(votes.getValidVotes());
         }
     }
 
     @Override
-    public void registerCandidateVotes(boolean aggregated, Map<String, String> electionData) {
+    public void registerCandidateVotes(boolean aggregated, VoteRecord votes) {
         // Removed verbose logging for performance
     }
 
     @Override
-    public void registerMetadata(boolean aggregated, Map<String, String> electionData) {
+    public void registerMetadata(boolean aggregated, VoteRecord votes) {
         // Removed verbose logging for performance
     }
 }
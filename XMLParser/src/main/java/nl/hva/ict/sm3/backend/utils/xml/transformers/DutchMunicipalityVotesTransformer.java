@@ -4,9 +4,9 @@ import nl.hva.ict.sm3.backend.model.Constituency;
 import nl.hva.ict.sm3.backend.model.Election;
 import nl.hva.ict.sm3.backend.model.Municipality;
 import nl.hva.ict.sm3.backend.model.PollingStation;
-import nl.hva.ict.sm3.backend.utils.xml.VotesTransformer;
+import nl.hva.ict.sm3.backend.utils.xml.TypedVotesTransformer;
+import nl.hva.ict.sm3.backend.utils.xml.VoteRecord;
 
-import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -14,9 +14,16 @@ import java.util.regex.Pattern;
  * Just prints to content of electionData to the standard output.>br/>
  * <b>This class needs heavy modification!</b>
  */
-public class DutchMunicipalityVotesTransformer implements VotesTransformer {
+public class DutchMunicipalityVotesTransformer implements TypedVotesTransformer {
+    // Splits "Stembureau Stadhuis (postcode: 1011 PN)" into the name and the postal code.
+    private static final Pattern STATION_NAME = Pattern.compile("^(.*?) \\(postcode: (.*?)\\)$");
+
     /** The election instance to which data will be added. */
     private final Election election;
+    /** Creates the election-prefixed ids, once per raw id. */
+    private final ElectionIds ids;
+    /** Whether the votes of the polling stations are registered too. */
+    private boolean pollingStations = true;
 
     /**
      * Creates a new transformer for registering municipality vote data
@@ -26,126 +33,113 @@ public class DutchMunicipalityVotesTransformer implements VotesTransformer {
      */
     public DutchMunicipalityVotesTransformer(Election election) {
         this.election = election;
+        this.ids = new ElectionIds(election.getId());
+    }
+
+    /**
+     * Sets whether the polling stations (SB) are registered. When they are skipped only the totals of the
+     * municipalities are registered, the polling stations can be parsed later on when they are needed, see
+     * {@link nl.hva.ict.sm3.backend.utils.xml.ReportingUnitIndex}.
+     *
+     * @param pollingStations <code>false</code> to skip the polling stations, the default is <code>true</code>.
+     */
+    public void setPollingStations(boolean pollingStations) {
+        this.pollingStations = pollingStations;
     }
 
     @Override
-    public void registerPartyVotes(boolean aggregated, Map<String, String> data) {
+    public void registerPartyVotes(boolean aggregated, VoteRecord votes) {
         // Municipality-level aggregated votes
         if (aggregated) {
-            handleMunicipalityVotes(data);
+            handleMunicipalityVotes(votes);
+        }
+        if (pollingStations) {
+            handleSBPartyVotes(votes);
         }
-        handleSBPartyVotes(data);
     }
 
     // ---------------------------------------------------------
     // MUNICIPALITY (aggregated = true)
     // ---------------------------------------------------------
-    private void handleMunicipalityVotes(Map<String, String> data) {
-        String municipalityName = data.getOrDefault("AuthorityIdentifier", "unknown");
-        String rawMunicipalityId = data.getOrDefault("AuthorityIdentifier-Id", "unknown");
-        String rawConstituencyId = data.getOrDefault("ContestIdentifier-Id", "unknown");
+    private void handleMunicipalityVotes(VoteRecord votes) {
+        String rawMunicipalityId = votes.getAuthorityId() != null ? votes.getAuthorityId() : "unknown";
+        String rawConstituencyId = votes.getContestId() != null ? votes.getContestId() : "unknown";
 
         // Prefix IDs with election ID to make unique across elections
-        String municipalityId = election.getId() + "-" + rawMunicipalityId;
-        String constituencyId = election.getId() + "-" + rawConstituencyId;
+        String municipalityId = ids.of(rawMunicipalityId);
+        String constituencyId = ids.of(rawConstituencyId);
 
-        String partyId = data.getOrDefault("AffiliationIdentifier-Id", "unknown");
-        String partyName = data.getOrDefault("RegisteredName", "unknown");
-        int validVotes = Integer.parseInt(data.getOrDefault("ValidVotes", "0"));
+        String partyId = votes.getPartyId() != null ? votes.getPartyId() : "unknown";
+        String partyName = votes.getPartyName() != null ? votes.getPartyName() : "unknown";
 
         Constituency constituency = election.getConstituencyById(constituencyId);
         if (constituency == null) return;
 
         Municipality municipality = constituency.getMunicipalityById(municipalityId);
         if (municipality == null) {
+            String municipalityName = votes.getAuthorityName() != null ? votes.getAuthorityName() : "unknown";
             municipality = new Municipality(municipalityId, municipalityName, 0);
             constituency.addMunicipality(municipality);
         }
 
-        municipality.addVotesForParty(partyId, partyName, validVotes);
+        municipality.addVotesForParty(partyId, partyName, votes.getValidVotes());
     }
-    
-    private void handleSBPartyVotes(Map<String, String> data) {
-        String stationId = data.get("ReportingUnitIdentifier-Id");
-        if (stationId == null || !stationId.contains("SB")) return;
-
-        String fullName = data.get("ReportingUnitIdentifier");
-        if (fullName == null) return;
-
-        Matcher matcher = Pattern
-                .compile("^(.*?) \\(postcode: (.*?)\\)$")
-                .matcher(fullName);
-
-        if (!matcher.find()) return;
-
-        String stationName = matcher.group(1);
-        String postalCode = matcher.group(2).replace(" ", "").toUpperCase();
-
-        String partyId = data.get("AffiliationIdentifier-Id");
-        String partyName = data.get("RegisteredName");
-        int votes = Integer.parseInt(data.getOrDefault("ValidVotes", "0"));
 
+    private void handleSBPartyVotes(VoteRecord votes) {
+        String partyId = votes.getPartyId();
+        String partyName = votes.getPartyName();
         if (partyId == null || partyName == null) return;
 
-        // Municipality ID extracted from prefix (e.g. "0363" from "0363::SB1")
-        // Prefix with election ID
-        String rawMunicipalityId = stationId.substring(0, 4);
-        String municipalityId = election.getId() + "-" + rawMunicipalityId;
-        
-        // Station ID also needs to be unique
-        String uniqueStationId = election.getId() + "-" + stationId;
-
-        Municipality municipality = election.getMunicipalityById(municipalityId);
-        if (municipality == null) return;
+        PollingStation station = findOrCreateStation(votes);
+        if (station == null) return;
 
-        PollingStation station = municipality.getPollingStationById(uniqueStationId);
-        if (station == null) {
-            station = new PollingStation(uniqueStationId, stationName, postalCode);
-            municipality.addPollingStation(station);
-        }
-
-        station.addVotes(partyId, partyName, votes);
+        station.addVotes(partyId, partyName, votes.getValidVotes());
     }
 
     @Override
-    public void registerCandidateVotes(boolean aggregated, Map<String, String> electionData) {
+    public void registerCandidateVotes(boolean aggregated, VoteRecord votes) {
         // Not needed here
     }
 
     @Override
-    public void registerMetadata(boolean aggregated, Map<String, String> data) {
-        if (aggregated) {
+    public void registerMetadata(boolean aggregated, VoteRecord votes) {
+        if (aggregated || !pollingStations) {
             return;
         }
 
         // -------- SB LEVEL METADATA --------
-        String stationId = data.get("ReportingUnitIdentifier-Id");
-        String fullName = data.get("ReportingUnitIdentifier");
-
-        if (stationId == null || fullName == null || !stationId.contains("SB")) return;
-
-        Matcher matcher = Pattern
-                .compile("^(.*?) \\(postcode: (.*?)\\)$")
-                .matcher(fullName);
-
-        if (!matcher.find()) return;
-
-        String stationName = matcher.group(1);
-        String postalCode = matcher.group(2).replace(" ", "").toUpperCase();
+        findOrCreateStation(votes);
+    }
 
-        // Municipality ID prefix with election ID
-        String rawMunicipalityId = stationId.substring(0, 4);
-        String municipalityId = election.getId() + "-" + rawMunicipalityId;
-        String uniqueStationId = election.getId() + "-" + stationId;
+    /**
+     * Looks up the polling station (SB) the record belongs to and creates it when it doesn't exist yet. The name
+     * and postal code are only extracted when the station is created.
+     *
+     * @param votes the current row.
+     * @return the polling station, or <code>null</code> when the row is not about a polling station of a known
+     *         municipality.
+     */
+    private PollingStation findOrCreateStation(VoteRecord votes) {
+        String stationId = votes.getReportingUnitId();
+        String fullName = votes.getReportingUnitName();
+        if (stationId == null || fullName == null || !stationId.contains("SB")) return null;
 
-        Municipality municipality = election.getMunicipalityById(municipalityId);
-        if (municipality == null) return;
+        // Municipality ID extracted from prefix (e.g. "0363" from "0363::SB1")
+        // Prefix with election ID, the station ID also needs to be unique
+        Municipality municipality = election.getMunicipalityById(ids.municipalityOf(stationId));
+        if (municipality == null) return null;
 
-        // Find or create SB
+        String uniqueStationId = ids.of(stationId);
         PollingStation station = municipality.getPollingStationById(uniqueStationId);
         if (station == null) {
+            Matcher matcher = STATION_NAME.matcher(fullName);
+            if (!matcher.find()) return null;
+
+            String stationName = matcher.group(1);
+            String postalCode = matcher.group(2).replace(" ", "").toUpperCase();
             station = new PollingStation(uniqueStationId, stationName, postalCode);
             municipality.addPollingStation(station);
         }
+        return station;
     }
 }
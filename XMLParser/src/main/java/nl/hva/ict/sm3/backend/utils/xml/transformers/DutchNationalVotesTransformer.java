@@ -3,7 +3,8 @@ package nl.hva.ict.sm3.backend.utils.xml.transformers;
 import nl.hva.ict.sm3.backend.model.Candidate;
 import nl.hva.ict.sm3.backend.model.Election;
 import nl.hva.ict.sm3.backend.utils.xml.TagAndAttributeNames;
-import nl.hva.ict.sm3.backend.utils.xml.VotesTransformer;
+import nl.hva.ict.sm3.backend.utils.xml.TypedVotesTransformer;
+import nl.hva.ict.sm3.backend.utils.xml.VoteRecord;
 import nl.hva.ict.sm3.backend.model.National;
 import nl.hva.ict.sm3.backend.model.NationalResult;
 import nl.hva.ict.sm3.backend.dto.NationalDto;
@@ -19,7 +20,7 @@ import java.util.List;
  */
 
 
-public class DutchNationalVotesTransformer implements VotesTransformer, TagAndAttributeNames {
+public class DutchNationalVotesTransformer implements TypedVotesTransformer, TagAndAttributeNames {
     private final Election election;
 
     /**
@@ -32,28 +33,24 @@ public class DutchNationalVotesTransformer implements VotesTransformer, TagAndAt
     }
 
     @Override
-    public void registerPartyVotes(boolean aggregated, Map<String, String> electionData) {
+    public void registerPartyVotes(boolean aggregated, VoteRecord votes) {
 
         // Core
-        String electionId = electionData.getOrDefault(ELECTION_IDENTIFIER, "unknown"); // no
-        String electionName = electionData.getOrDefault(ELECTION_NAME, "Unknown Election");
-        // ElectionInfo electionInfo = new ElectionInfo(electionId, electionName);
+        String electionId = votes.getElectionId() != null ? votes.getElectionId() : "unknown";
+        String electionName = votes.getElectionName() != null ? votes.getElectionName() : "Unknown Election";
 
         // Party info
-        String partyId = electionData.getOrDefault(AFFILIATION_IDENTIFIER + "-Id", "unknown");
-        String partyName = electionData.getOrDefault(REGISTERED_NAME, "Unknown Party");
-        String shortCode = electionData.getOrDefault(CANDIDATE_IDENTIFIER_SHORT_CODE, null); // no
-       //  PartyInfo partyInfo = new PartyInfo(partyId, partyName, shortCode);
+        String partyId = votes.getPartyId() != null ? votes.getPartyId() : "unknown";
+        String partyName = votes.getPartyName() != null ? votes.getPartyName() : "Unknown Party";
+        String shortCode = votes.getCandidateShortCode(); // no
 
         // Look for the seats data
-        int validVotes = parseIntSafe(electionData.getOrDefault(VALID_VOTES, "0"));
-        int numberOfSeats = parseIntSafe(electionData.getOrDefault(NUMBER_OF_SEATS, "0")); // no
-        // VoteTotals voteTotals = new VoteTotals(validVotes, numberOfSeats);
+        int validVotes = votes.getValidVotes();
+        int numberOfSeats = votes.getNumberOfSeats(); // no
 
         // Seperated from the rest of the data up here
-        int rejectedVotes = parseIntSafe(electionData.getOrDefault(REJECTED_VOTES, "0")); // no
-        int totalCounted = parseIntSafe(electionData.getOrDefault(TOTAL_COUNTED, "0")); // no
-        // RejectedData rejectedData = new RejectedData(rejectedVotes, totalCounted);
+        int rejectedVotes = votes.getRejectedVotes(); // no
+        int totalCounted = votes.getTotalCounted(); // no
 
         String combinedId = String.format("%s-%s-PARTY_VOTES", electionId, partyId);
 
@@ -230,29 +227,25 @@ public class DutchNationalVotesTransformer implements VotesTransformer, TagAndAt
     }
 
     @Override
-    public void registerCandidateVotes(boolean aggregated, Map<String, String> electionData) {
+    public void registerCandidateVotes(boolean aggregated, VoteRecord votes) {
         if (aggregated) {
-            String shortCode = electionData.get(CANDIDATE_IDENTIFIER_SHORT_CODE);
-            String validVotesStr = electionData.getOrDefault(VALID_VOTES, "0");
-            
+            String shortCode = votes.getCandidateShortCode();
+
             if (shortCode != null && !shortCode.trim().isEmpty()) {
-                try {
-                    int votes = Integer.parseInt(validVotesStr.trim());
-                    Candidate candidate = election.getCandidateByShortCode(shortCode.trim());
-                    
-                    if (candidate != null) {
-                        candidate.addVotes(votes);
+                Candidate candidate = election.getCandidateByShortCode(shortCode.trim());
+
+                if (candidate != null) {
+                    candidate.addVotes(votes.getValidVotes());
+                    if (candidate.getShortCode() == null) {
+                        candidate.setShortCode(shortCode.trim());
                     }
-                } catch (NumberFormatException e) {
-                    System.err.printf("Invalid vote count '%s' for candidate with ShortCode '%s'\n", 
-                            validVotesStr, shortCode);
                 }
             }
         }
     }
 
     @Override
-    public void registerMetadata(boolean aggregated, Map<String, String> electionData) {
+    public void registerMetadata(boolean aggregated, VoteRecord votes) {
         // Removed verbose logging for performance
     }
 
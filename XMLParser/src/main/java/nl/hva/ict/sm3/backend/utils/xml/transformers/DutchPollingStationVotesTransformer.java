@@ -1,19 +1,27 @@
-
 package nl.hva.ict.sm3.backend.utils.xml.transformers;
 
 import nl.hva.ict.sm3.backend.model.Election;
 import nl.hva.ict.sm3.backend.model.Municipality;
 import nl.hva.ict.sm3.backend.model.PollingStation;
-import nl.hva.ict.sm3.backend.utils.xml.VotesTransformer;
+import nl.hva.ict.sm3.backend.utils.xml.TypedVotesTransformer;
+import nl.hva.ict.sm3.backend.utils.xml.VoteRecord;
 
-import java.util.Map;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * Transformer voor het verwerken van stembureau stemmen.
  * Verwerkt SB entries uit XML data en registreert stemmen per stembureau.
  */
-public class DutchPollingStationVotesTransformer implements VotesTransformer {
+public class DutchPollingStationVotesTransformer implements TypedVotesTransformer {
+    /** Herkent SB entries, bijvoorbeeld "0363::SB1". */
+    private static final Pattern STATION_ID = Pattern.compile(".*SB\\d+.*");
+    /** De eerste 4 cijfers van een stembureau ID vormen het gemeente ID. */
+    private static final Pattern MUNICIPALITY_ID = Pattern.compile("^(\\d{4})");
+    /** Postcode zoals: (postcode: 1011 PN) */
+    private static final Pattern POSTAL_CODE =
+            Pattern.compile("\\(postcode\\s*:\\s*([0-9A-Z]{4}\\s*[A-Z]{2})\\)", Pattern.CASE_INSENSITIVE);
+
     /** De verkiezing instantie waaraan data wordt toegevoegd. */
     private final Election election;
 
@@ -29,26 +37,26 @@ public class DutchPollingStationVotesTransformer implements VotesTransformer {
      * Detecteert SB entries en maakt stembureaus aan indien nodig.
      *
      * @param aggregated niet gebruikt voor stembureaus
-     * @param data XML verkiezingsdata
+     * @param votes XML verkiezingsdata van de huidige regel
      */
     @Override
-    public void registerPartyVotes(boolean aggregated, Map<String, String> data) {
-        handlePollingStationVotes(data);
+    public void registerPartyVotes(boolean aggregated, VoteRecord votes) {
+        handlePollingStationVotes(votes);
     }
 
     /**
      * Verwerkt stembureau stemmen (SB entries).
      *
-     * @param data verkiezingsdata
+     * @param votes verkiezingsdata
      */
-    private void handlePollingStationVotes(Map<String, String> data) {
-        String reportingUnit = data.get("ReportingUnitIdentifier");
-        String reportingUnitId = data.get("ReportingUnitIdentifier-Id");
+    private void handlePollingStationVotes(VoteRecord votes) {
+        String reportingUnit = votes.getReportingUnitName();
+        String reportingUnitId = votes.getReportingUnitId();
 
         if (reportingUnit == null || reportingUnitId == null) return;
 
         // Detecteer SB entries robuust
-        if (!reportingUnitId.matches(".*SB\\d+.*")) return;
+        if (!STATION_ID.matcher(reportingUnitId).matches()) return;
 
         // Extraheer gemeente ID
         String municipalityId = extractMunicipalityId(reportingUnitId);
@@ -61,20 +69,13 @@ public class DutchPollingStationVotesTransformer implements VotesTransformer {
             return;
         }
 
-        String stationName = reportingUnit;
-        String postalCode = extractPostalCode(reportingUnit);
-
         PollingStation station = municipality.getPollingStationById(reportingUnitId);
         if (station == null) {
-            station = new PollingStation(reportingUnitId, stationName, postalCode);
+            station = new PollingStation(reportingUnitId, reportingUnit, extractPostalCode(reportingUnit));
             municipality.addPollingStation(station);
         }
 
-        String partyId = data.get("AffiliationIdentifier-Id");
-        String partyName = data.get("RegisteredName");
-        int votes = Integer.parseInt(data.getOrDefault("ValidVotes", "0"));
-
-        station.addVotes(partyId, partyName, votes);
+        station.addVotes(votes.getPartyId(), votes.getPartyName(), votes.getValidVotes());
     }
 
     /**
@@ -87,7 +88,7 @@ public class DutchPollingStationVotesTransformer implements VotesTransformer {
     private String extractMunicipalityId(String stationId) {
         if (stationId == null) return null;
 
-        var m = Pattern.compile("^(\\d{4})").matcher(stationId);
+        Matcher m = MUNICIPALITY_ID.matcher(stationId);
         return m.find() ? m.group(1) : null;
     }
 
@@ -100,11 +101,7 @@ public class DutchPollingStationVotesTransformer implements VotesTransformer {
     private String extractPostalCode(String text) {
         if (text == null) return null;
 
-        // Match alles zoals: (postcode: 1011 PN)
-        var m = Pattern
-                .compile("\\(postcode\\s*:\\s*([0-9A-Z]{4}\\s*[A-Z]{2})\\)", Pattern.CASE_INSENSITIVE)
-                .matcher(text);
-
+        Matcher m = POSTAL_CODE.matcher(text);
         if (m.find()) {
             return m.group(1).replace(" ", "").toUpperCase();
         }
@@ -113,12 +110,12 @@ public class DutchPollingStationVotesTransformer implements VotesTransformer {
     }
 
     @Override
-    public void registerCandidateVotes(boolean aggregated, Map<String, String> electionData) {
+    public void registerCandidateVotes(boolean aggregated, VoteRecord votes) {
         // Interface vereist, maar niet gebruikt voor stembureaus
     }
 
     @Override
-    public void registerMetadata(boolean aggregated, Map<String, String> electionData) {
+    public void registerMetadata(boolean aggregated, VoteRecord votes) {
         // Interface vereist, maar niet gebruikt voor stembureaus
     }
 }
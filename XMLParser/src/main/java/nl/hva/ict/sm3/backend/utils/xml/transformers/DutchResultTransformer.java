@@ -1,15 +1,14 @@
 package nl.hva.ict.sm3.backend.utils.xml.transformers;
 
 import nl.hva.ict.sm3.backend.model.Election;
-import nl.hva.ict.sm3.backend.utils.xml.VotesTransformer;
-
-import java.util.Map;
+import nl.hva.ict.sm3.backend.utils.xml.TypedVotesTransformer;
+import nl.hva.ict.sm3.backend.utils.xml.VoteRecord;
 
 /**
  * Just prints to content of electionData to the standard output.>br/>
  * <b>This class needs heavy modification!</b>
  */
-public class DutchResultTransformer implements VotesTransformer {
+public class DutchResultTransformer implements TypedVotesTransformer {
     private final Election election;
 
     /**
@@ -23,17 +22,17 @@ public class DutchResultTransformer implements VotesTransformer {
     }
 
     @Override
-    public void registerPartyVotes(boolean aggregated, Map<String, String> electionData) {
+    public void registerPartyVotes(boolean aggregated, VoteRecord votes) {
         // Removed verbose logging for performance
     }
 
     @Override
-    public void registerCandidateVotes(boolean aggregated, Map<String, String> electionData) {
+    public void registerCandidateVotes(boolean aggregated, VoteRecord votes) {
         // Removed verbose logging for performance
     }
 
     @Override
-    public void registerMetadata(boolean aggregated, Map<String, String> electionData) {
+    public void registerMetadata(boolean aggregated, VoteRecord votes) {
         throw new IllegalStateException("There is no implementation on purpose.");
     }
 }
@@ -0,0 +1,46 @@
+package nl.hva.ict.sm3.backend.utils.xml.transformers;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Creates the ids that are used in the model, which are prefixed with the id of the election to make them unique
+ * across elections (e.g. <code>0363</code> becomes <code>TK2023-0363</code>).<br/>
+ * The same raw ids show up in every row of a votes file, so each prefixed id is created only once and reused from
+ * then on.
+ */
+class ElectionIds {
+    private final String electionId;
+    private final Map<String, String> prefixed = new HashMap<>();
+    private final Map<String, String> municipalities = new HashMap<>();
+
+    ElectionIds(String electionId) {
+        this.electionId = electionId;
+    }
+
+    /**
+     * @param rawId the id as found in the file.
+     * @return the id prefixed with the election id.
+     */
+    String of(String rawId) {
+        String id = prefixed.get(rawId);
+        if (id == null) {
+            id = electionId + "-" + rawId;
+            prefixed.put(rawId, id);
+        }
+        return id;
+    }
+
+    /**
+     * @param stationId the id of a polling station as found in the file, e.g. <code>0363::SB1</code>.
+     * @return the prefixed id of the municipality the polling station belongs to, e.g. <code>TK2023-0363</code>.
+     */
+    String municipalityOf(String stationId) {
+        String id = municipalities.get(stationId);
+        if (id == null) {
+            id = of(stationId.substring(0, 4));
+            municipalities.put(stationId, id);
+        }
+        return id;
+    }
+}
@@ -1,18 +1,32 @@
 package nl.hva.ict.sm3.backend.api;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nl.hva.ict.sm3.backend.mapper.ElectionMapper;
 import nl.hva.ict.sm3.backend.model.*;
+import nl.hva.ict.sm3.backend.repository.ElectionRepository;
 import nl.hva.ict.sm3.backend.service.DutchElectionService;
+import nl.hva.ict.sm3.backend.service.ElectionCache;
+import nl.hva.ict.sm3.backend.service.PollingStationService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -37,7 +51,9 @@ class ElectionControllerTest {
     @Mock
     private DutchElectionService electionService;
 
-    @InjectMocks
+    @Mock
+    private ElectionRepository electionRepository;
+
     private ElectionController controller;
     /**
      * Initializes Mockito and prepares a standalone MockMvc instance before each test.
@@ -45,6 +61,11 @@ class ElectionControllerTest {
     @BeforeEach
     void setup() {
         MockitoAnnotations.openMocks(this);
+        // The polling stations are part of the mocked elections, so the real service only has to look them up
+        controller = new ElectionController(electionService, electionRepository,
+                new PollingStationService(electionService, 10), new ElectionResponseCache(new ObjectMapper(),
+                new ElectionCache(1024, 60)),
+                new ElectionMapper(), new ObjectMapper());
         mockMvc = standaloneSetup(controller).build();
     }
 
@@ -198,6 +219,215 @@ class ElectionControllerTest {
 
         verify(electionService, times(1)).readResults("2021", "2021");
     }
+    /**
+     * Ensures that a client that already has the municipalities gets 304 Not Modified,
+     * until the election changes.
+     */
+    @Test
+    void BR_municipalities_notModifiedUntilElectionChanges() throws Exception {
+        Constituency c = new Constituency("C1", "Region");
+        c.addMunicipality(new Municipality("M1", "Amsterdam", 0));
+        Election election = new Election("2021");
+        election.addConstituency(c);
+        when(electionService.getElectionById("2021")).thenReturn(election);
+
+        String etag = mockMvc.perform(get("/elections/2021/municipalities"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Vary", "Accept-Encoding"))
+                .andExpect(jsonPath("$[0].name").value("Amsterdam"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/elections/2021/municipalities").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag));
+
+        // A municipality that is published again changes the election and thereby the response
+        Municipality republished = new Municipality("M1", "Amsterdam", 0);
+        republished.addVotesForParty("1", "VVD", 100);
+        election.replaceMunicipality("C1", republished);
+        mockMvc.perform(get("/elections/2021/municipalities").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)));
+    }
+
+    /**
+     * Ensures that clients that accept gzip get the compressed response.
+     */
+    @Test
+    void BR_pollingStations_gzipWhenAccepted() throws Exception {
+        Municipality m = new Municipality("M1", "Amsterdam", 0);
+        m.addPollingStation(new PollingStation("SB1", "Stembureau 1", "1234AB"));
+        Constituency c = new Constituency("C1", "Region");
+        c.addMunicipality(m);
+        Election election = new Election("2021");
+        election.addConstituency(c);
+        when(electionService.getElectionById("2021")).thenReturn(election);
+
+        byte[] body = mockMvc.perform(get("/elections/2021/pollingstations").header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertTrue(new String(in.readAllBytes()).contains("Stembureau 1"));
+        }
+    }
+
+    /**
+     * Ensures that an election is returned as a summary with counts and links by default,
+     * and that the constituencies are only expanded as far as the requested depth.
+     */
+    @Test
+    void BR_election_summaryUnlessDepthRequested() throws Exception {
+        Municipality m = new Municipality("M1", "Amsterdam", 0);
+        m.addPollingStation(new PollingStation("SB1", "Stembureau 1", "1234AB"));
+        m.addPollingStation(new PollingStation("SB2", "Stembureau 2", "1234AC"));
+        Constituency c = new Constituency("C1", "Region");
+        c.addMunicipality(m);
+        Election election = new Election("2021");
+        election.addConstituency(c);
+        when(electionService.getElectionById("2021")).thenReturn(election);
+
+        mockMvc.perform(get("/elections/2021"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.municipalityCount").value(1))
+                .andExpect(jsonPath("$.pollingStationCount").value(2))
+                .andExpect(jsonPath("$.links.pollingStations").value("/elections/2021/pollingstations"))
+                .andExpect(jsonPath("$.constituencies").doesNotExist());
+
+        mockMvc.perform(get("/elections/2021").param("depth", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.constituencies[0].municipalities[0].name").value("Amsterdam"))
+                .andExpect(jsonPath("$.constituencies[0].municipalities[0].pollingStations").doesNotExist())
+                .andExpect(jsonPath("$.parties").doesNotExist());
+
+        mockMvc.perform(get("/elections/2021").param("fields", "parties,seatAllocations"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.parties").isArray())
+                .andExpect(jsonPath("$.constituencies").doesNotExist());
+    }
+
+    /**
+     * Ensures that the polling station count is left out when the polling stations are loaded lazily,
+     * because they are not in memory to be counted.
+     */
+    @Test
+    void BR_election_noPollingStationCountWhenLazy() throws Exception {
+        ElectionMapper lazyMapper = new ElectionMapper();
+        ReflectionTestUtils.setField(lazyMapper, "lazyPollingStations", true);
+        MockMvc lazyMockMvc = standaloneSetup(new ElectionController(electionService, electionRepository,
+                new PollingStationService(electionService, 10), new ElectionResponseCache(new ObjectMapper(),
+                new ElectionCache(1024, 60)), lazyMapper, new ObjectMapper())).build();
+        Constituency c = new Constituency("C1", "Region");
+        c.addMunicipality(new Municipality("M1", "Amsterdam", 0));
+        Election election = new Election("2021");
+        election.addConstituency(c);
+        when(electionService.getElectionById("2021")).thenReturn(election);
+
+        lazyMockMvc.perform(get("/elections/2021"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.municipalityCount").value(1))
+                .andExpect(jsonPath("$.pollingStationCount").doesNotExist());
+    }
+
+    /**
+     * Ensures that an unknown depth or field is rejected instead of silently returning everything.
+     */
+    @Test
+    void II_election_unknownDepthOrField_badRequest() throws Exception {
+        mockMvc.perform(get("/elections/2021").param("depth", "4"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/elections/2021").param("fields", "constituencies,password"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(electionService);
+    }
+
+    /**
+     * Ensures that the polling stations are streamed one per line,
+     * filtered on municipality and party.
+     */
+    @Test
+    void BR_pollingStations_streamedAsNdjson() throws Exception {
+        PollingStation first = new PollingStation("SB1", "Stembureau 1", "1234AB");
+        first.addVotes("1", "VVD", 10);
+        first.addVotes("2", "D66", 5);
+        PollingStation second = new PollingStation("SB2", "Stembureau 2", "1234AC");
+        second.addVotes("2", "D66", 7);
+        Municipality amsterdam = new Municipality("2021-0363", "Amsterdam", 0);
+        amsterdam.addPollingStation(first);
+        amsterdam.addPollingStation(second);
+        Municipality utrecht = new Municipality("2021-0344", "Utrecht", 0);
+        utrecht.addPollingStation(new PollingStation("SB3", "Stembureau 3", "3511AA"));
+        Constituency c = new Constituency("C1", "Region");
+        c.addMunicipality(amsterdam);
+        c.addMunicipality(utrecht);
+        Election election = new Election("2021");
+        election.addConstituency(c);
+        when(electionService.getElectionById("2021")).thenReturn(election);
+
+        MvcResult all = mockMvc.perform(get("/elections/2021/pollingstations/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String[] lines = mockMvc.perform(asyncDispatch(all))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString().split("\n");
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<String> ids = new ArrayList<>();
+        for (String line : lines) {
+            ids.add(objectMapper.readTree(line).get("id").asText());
+        }
+        assertEquals(List.of("SB1", "SB2", "SB3"), ids);
+
+        MvcResult filtered = mockMvc.perform(get("/elections/2021/pollingstations/stream")
+                        .param("municipality", "2021-0363").param("party", "vvd"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        lines = mockMvc.perform(asyncDispatch(filtered))
+                .andReturn().getResponse().getContentAsString().split("\n");
+        assertEquals(1, lines.length);
+        JsonNode station = objectMapper.readTree(lines[0]);
+        assertEquals("SB1", station.get("id").asText());
+        assertEquals("2021-0363", station.get("municipalityId").asText());
+        assertEquals(1, station.get("partyResults").size());
+        assertEquals(10, station.get("partyResults").get(0).get("votes").asInt());
+    }
+
+    /**
+     * Ensures that the polling stations of a municipality can be streamed using
+     * the code of the municipality, as it is used in the files.
+     */
+    @Test
+    void BR_pollingStations_streamedForMunicipalityCode() throws Exception {
+        Municipality amsterdam = new Municipality("TK2023-0363", "Amsterdam", 0);
+        amsterdam.addPollingStation(new PollingStation("TK2023-0363::SB1", "Stembureau 1", "1011AB"));
+        Municipality utrecht = new Municipality("TK2023-0344", "Utrecht", 0);
+        utrecht.addPollingStation(new PollingStation("TK2023-0344::SB1", "Stembureau 1", "3511AA"));
+        Constituency c = new Constituency("TK2023-1", "Region");
+        c.addMunicipality(amsterdam);
+        c.addMunicipality(utrecht);
+        Election election = new Election("TK2023");
+        election.addConstituency(c);
+        when(electionService.getElectionById("TK2023")).thenReturn(election);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        for (String municipality : List.of("0363", "TK2023-0363")) {
+            MvcResult result = mockMvc.perform(get("/elections/TK2023/pollingstations/stream")
+                            .param("municipality", municipality))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            String[] lines = mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString().split("\n");
+            assertEquals(1, lines.length, municipality);
+            assertEquals("TK2023-0363", objectMapper.readTree(lines[0]).get("municipalityId").asText());
+        }
+
+        mockMvc.perform(get("/elections/TK2023/pollingstations/stream").param("municipality", "9999"))
+                .andExpect(status().isNotFound());
+    }
+
     /**
      * Ensures that the /top-parties endpoint always returns exactly 3 parties,
      * following the business rule of selecting top 3 results.
@@ -0,0 +1,102 @@
+package nl.hva.ict.sm3.backend.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nl.hva.ict.sm3.backend.model.Election;
+import nl.hva.ict.sm3.backend.service.ElectionCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the header handling and the caching of {@link ElectionResponseCache}.
+ */
+class ElectionResponseCacheTest {
+
+    @Test
+    @DisplayName("Should prefer brotli over gzip and skip encodings with q=0")
+    void testEncodingIsSelectedFromAcceptEncoding() {
+        assertEquals("br", ElectionResponseCache.selectEncoding("gzip, deflate, br", true));
+        assertEquals("gzip", ElectionResponseCache.selectEncoding("gzip, deflate, br", false));
+        assertEquals("gzip", ElectionResponseCache.selectEncoding("br;q=0, GZIP;q=0.5", true));
+        assertEquals("br", ElectionResponseCache.selectEncoding("*", true));
+        assertNull(ElectionResponseCache.selectEncoding("gzip;q=0, deflate", true));
+        assertNull(ElectionResponseCache.selectEncoding("identity", true));
+        assertNull(ElectionResponseCache.selectEncoding(null, true));
+    }
+
+    @Test
+    @DisplayName("Should match the entity tags of every encoding of the same response")
+    void testIfNoneMatchComparesWeakly() {
+        String etag = "\"0123456789abcdef\"";
+        assertTrue(ElectionResponseCache.matches(etag, etag));
+        assertTrue(ElectionResponseCache.matches("\"0123456789abcdef-gzip\"", etag));
+        assertTrue(ElectionResponseCache.matches("\"other\", W/\"0123456789abcdef-br\"", etag));
+        assertTrue(ElectionResponseCache.matches("*", etag));
+        assertFalse(ElectionResponseCache.matches("\"0123456789abcdee\"", etag));
+        assertFalse(ElectionResponseCache.matches(null, etag));
+    }
+
+    @Test
+    @DisplayName("Should render a response once while the election is cached")
+    void testResponseIsRenderedOncePerVersion() {
+        ElectionCache electionCache = new ElectionCache(1024, 60);
+        ElectionResponseCache cache = new ElectionResponseCache(new ObjectMapper(), electionCache);
+        Election election = new Election("TK2023");
+        electionCache.put("TK2023", election);
+        AtomicInteger renders = new AtomicInteger();
+
+        cache.respond(new MockHttpServletRequest(), election, "parties", () -> List.of(renders.incrementAndGet()));
+        cache.respond(new MockHttpServletRequest(), election, "parties", () -> List.of(renders.incrementAndGet()));
+        assertEquals(1, renders.get());
+
+        // Dropped together with the election
+        electionCache.invalidate("TK2023");
+        cache.respond(new MockHttpServletRequest(), election, "parties", () -> List.of(renders.incrementAndGet()));
+        assertEquals(2, renders.get());
+    }
+
+    @Test
+    @DisplayName("Should let concurrent requests wait for the response that is being rendered")
+    void testConcurrentRequestsRenderOnce() throws Exception {
+        ElectionResponseCache cache = new ElectionResponseCache(new ObjectMapper(),
+                new ElectionCache(1024, 60));
+        Election election = new Election("TK2023");
+        AtomicInteger renders = new AtomicInteger();
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<byte[]> first = CompletableFuture.supplyAsync(() -> cache.respond(
+                new MockHttpServletRequest(), election, "parties", () -> {
+                    renders.incrementAndGet();
+                    rendering.countDown();
+                    await(release);
+                    return List.of("VVD");
+                }).getBody());
+        assertTrue(rendering.await(5, TimeUnit.SECONDS));
+        CompletableFuture<byte[]> second = CompletableFuture.supplyAsync(() -> cache.respond(
+                new MockHttpServletRequest(), election, "parties", () -> {
+                    renders.incrementAndGet();
+                    return List.of("VVD");
+                }).getBody());
+        release.countDown();
+
+        assertArrayEquals(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, renders.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -5,12 +5,14 @@ import nl.hva.ict.sm3.backend.dto.NationalDto;
 import nl.hva.ict.sm3.backend.model.Election;
 import nl.hva.ict.sm3.backend.model.National;
 import nl.hva.ict.sm3.backend.service.DutchElectionService;
+import nl.hva.ict.sm3.backend.service.ElectionCache;
 import nl.hva.ict.sm3.backend.service.NationalService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
 // import org.springframework.test.context.mockito.MockitoBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
@@ -29,6 +31,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * Unit tests for NationalController.
  */
 @WebMvcTest(NationalController.class)
+@Import({ElectionResponseCache.class, ElectionCache.class})
 class NationalControllerTest {
 
     @Autowired
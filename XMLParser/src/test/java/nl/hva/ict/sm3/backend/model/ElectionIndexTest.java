@@ -0,0 +1,94 @@
+package nl.hva.ict.sm3.backend.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ElectionIndexTest {
+
+    private Election election;
+    private Constituency constituency;
+    private Municipality municipality;
+
+    @BeforeEach
+    void setUp() {
+        election = new Election("TK2023");
+        constituency = new Constituency("TK2023-10", "Haarlem");
+        municipality = new Municipality("TK2023-0453", "Velsen", 0);
+        constituency.addMunicipality(municipality);
+        election.addConstituency(constituency);
+    }
+
+    @Test
+    void lookupsFindEntitiesAddedThroughTheModel() {
+        PollingStation station = new PollingStation("TK2023-0453::SB1", "Stadhuis", "1971EN");
+        municipality.addPollingStation(station);
+        Candidate candidate = new Candidate("P1-1", "Dilan", "Yeşilgöz", "D.", "Amsterdam", "P1", "VVD", 1);
+        election.addCandidate(candidate);
+
+        assertSame(constituency, election.getConstituencyById("TK2023-10"));
+        assertSame(municipality, election.getMunicipalityById("TK2023-0453"));
+        assertSame(municipality, constituency.getMunicipalityById("TK2023-0453"));
+        assertSame(station, municipality.getPollingStationById("TK2023-0453::SB1"));
+        assertSame(candidate, election.getCandidateById("P1-1"));
+        assertSame(candidate, election.getCandidateByShortCode("YeşilgözD"));
+        assertSame(candidate, election.getCandidateByShortCode(" yeşilgözd "));
+        assertNull(election.getCandidateById("P1-2"));
+        assertNull(election.getCandidateByShortCode("JettenRAA"));
+    }
+
+    @Test
+    void indexesFollowChangesMadeOutsideTheModel() {
+        // Build the indexes first.
+        assertNull(election.getMunicipalityById("TK2023-0363"));
+        assertNull(election.getCandidateById("P1-1"));
+
+        Municipality amsterdam = new Municipality("TK2023-0363", "Amsterdam", 0);
+        constituency.getMunicipalities().add(amsterdam);
+        Candidate candidate = new Candidate("P1-1", "Rob", "Jetten", "R.A.A.", "Ubbergen", "P1", "D66", 1);
+        election.getCandidates().add(candidate);
+
+        assertSame(amsterdam, election.getMunicipalityById("TK2023-0363"));
+        assertSame(candidate, election.getCandidateById("P1-1"));
+        assertSame(candidate, election.getCandidateByShortCode("JettenRAA"));
+    }
+
+    @Test
+    void firstEntityWithTheSameIdWins() {
+        Candidate first = new Candidate("P1-1", "A", "Jansen", "A.", "Utrecht", "P1", "Party", 1);
+        Candidate second = new Candidate("P1-1", "B", "Jansen", "A.", "Utrecht", "P1", "Party", 1);
+        election.addCandidate(first);
+        assertSame(first, election.getCandidateById("P1-1"));
+        election.addCandidate(second);
+
+        assertSame(first, election.getCandidateById("P1-1"));
+        assertSame(first, election.getCandidateByShortCode("JansenA"));
+    }
+
+    @Test
+    void replacingMunicipalitiesLeavesRunningIterationsAlone() {
+        Municipality haarlem = new Municipality("TK2023-0392", "Haarlem", 0);
+        constituency.addMunicipality(haarlem);
+        Iterator<Municipality> iterator = constituency.getMunicipalities().iterator();
+        assertSame(municipality, iterator.next());
+
+        Municipality republished = new Municipality("TK2023-0453", "Velsen", 0);
+        Municipality added = new Municipality("TK2023-0375", "Heemskerk", 0);
+        election.replaceMunicipality("TK2023-10", republished);
+        election.replaceMunicipality("TK2023-10", added);
+
+        // The iteration that was running sees the old list
+        assertSame(haarlem, iterator.next());
+        assertFalse(iterator.hasNext());
+        assertEquals(List.of(republished, haarlem, added), constituency.getMunicipalities());
+        assertSame(republished, election.getMunicipalityById("TK2023-0453"));
+        assertSame(added, constituency.getMunicipalityById("TK2023-0375"));
+    }
+}
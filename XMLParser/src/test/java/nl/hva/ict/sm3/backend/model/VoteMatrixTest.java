@@ -0,0 +1,102 @@
+package nl.hva.ict.sm3.backend.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VoteMatrixTest {
+
+    private Election election;
+    private Municipality velsen;
+
+    @BeforeEach
+    void setUp() {
+        election = new Election("TK2023");
+        Constituency haarlem = new Constituency("TK2023-10", "Haarlem");
+        velsen = new Municipality("TK2023-0453", "Velsen", 0);
+        velsen.addVotesForParty("1", "VVD", 7000);
+        velsen.addVotesForParty("2", "D66", 3000);
+        PollingStation station = new PollingStation("TK2023-0453::SB1", "Stadhuis", "1971EN");
+        station.addVotes("1", "VVD", 700);
+        station.addVotes("2", "D66", 300);
+        velsen.addPollingStation(station);
+        haarlem.addMunicipality(velsen);
+        Municipality haarlemmermeer = new Municipality("TK2023-0394", "Haarlemmermeer", 0);
+        haarlemmermeer.addVotesForParty("1", "VVD", 9000);
+        haarlemmermeer.addVotesForParty("3", "PVV", 0);
+        haarlem.addMunicipality(haarlemmermeer);
+        election.addConstituency(haarlem);
+
+        Constituency denHelder = new Constituency("TK2023-9", "Den Helder");
+        Municipality texel = new Municipality("TK2023-0448", "Texel", 0);
+        texel.addVotesForParty("2", "D66", 500);
+        denHelder.addMunicipality(texel);
+        election.addConstituency(denHelder);
+    }
+
+    @Test
+    void totalsMatchTheVotesOfTheMunicipalities() {
+        VoteMatrix matrix = election.getVoteMatrix();
+
+        assertEquals(3, matrix.getPartyCount());
+        assertEquals(4, matrix.getUnitCount());
+        VoteMatrix.Totals national = matrix.getNationalTotals();
+        assertEquals(16000, national.getVotes(matrix.getPartyIndex("1")));
+        assertEquals(3500, national.getVotes(matrix.getPartyIndex("2")));
+        assertEquals(19500, national.sum());
+
+        VoteMatrix.Totals haarlem = matrix.getConstituencyTotals("TK2023-10");
+        assertEquals(3000, haarlem.getVotes(matrix.getPartyIndex("2")));
+        // A party with a result of 0 votes is still part of the totals
+        assertTrue(haarlem.contains(matrix.getPartyIndex("3")));
+        assertFalse(matrix.getConstituencyTotals("TK2023-9").contains(matrix.getPartyIndex("3")));
+        assertEquals(0, matrix.getConstituencyTotals("unknown").sum());
+    }
+
+    @Test
+    void partiesOfAReportingUnitAreSortedByVotes() {
+        VoteMatrix matrix = election.getVoteMatrix();
+
+        assertEquals(velsen.getAllParties().toString(), matrix.getParties("TK2023-0453").toString());
+        assertEquals(700, matrix.getVotes(matrix.getUnitIndex("TK2023-0453::SB1"), matrix.getPartyIndex("1")));
+        assertEquals("D66", matrix.getPartyName(matrix.getPartyIndex("2")));
+        assertTrue(matrix.getParties("unknown").isEmpty());
+    }
+
+    @Test
+    void matrixIsRebuiltWhenReportingUnitsAreAdded() {
+        VoteMatrix before = election.getVoteMatrix();
+        assertSame(before, election.getVoteMatrix());
+
+        PollingStation station = new PollingStation("TK2023-0453::SB2", "Zeewijk", "1975AB");
+        station.addVotes("4", "GL-PvdA", 250);
+        velsen.addPollingStation(station);
+
+        VoteMatrix after = election.getVoteMatrix();
+        assertNotSame(before, after);
+        assertEquals(4, after.getPartyCount());
+        assertEquals(250, after.getVotes(after.getUnitIndex("TK2023-0453::SB2"), after.getPartyIndex("4")));
+    }
+
+    @Test
+    void replacingAMunicipalityReplacesItsVotes() {
+        election.getVoteMatrix();
+        Constituency haarlem = election.getConstituencyById("TK2023-10");
+        assertEquals(19000, haarlem.getTotalVotes());
+
+        // Velsen is published again with more votes and without polling stations
+        Municipality republished = new Municipality("TK2023-0453", "Velsen", 0);
+        republished.addVotesForParty("1", "VVD", 7500);
+        republished.addVotesForParty("2", "D66", 3000);
+        assertSame(velsen, election.replaceMunicipality("TK2023-10", republished));
+
+        assertSame(republished, election.getMunicipalityById("TK2023-0453"));
+        assertEquals(2, haarlem.getMunicipalities().size());
+        assertEquals(19500, haarlem.getTotalVotes());
+        VoteMatrix matrix = election.getVoteMatrix();
+        assertEquals(16500, matrix.getNationalTotals().getVotes(matrix.getPartyIndex("1")));
+        assertEquals(-1, matrix.getUnitIndex("TK2023-0453::SB1"));
+        assertNull(election.replaceMunicipality("unknown", republished));
+    }
+}
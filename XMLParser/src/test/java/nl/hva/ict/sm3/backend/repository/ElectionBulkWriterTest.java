@@ -0,0 +1,181 @@
+package nl.hva.ict.sm3.backend.repository;
+
+import jakarta.persistence.Cache;
+import nl.hva.ict.sm3.backend.model.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.transaction.TestTransaction;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for ElectionBulkWriter.
+ * The batch size is kept small, so rows of children are sent before all rows of their parents have been collected.
+ */
+@DataJpaTest
+@Import(ElectionBulkWriter.class)
+@TestPropertySource(properties = "election.persistence.batch-size=2")
+class ElectionBulkWriterTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ElectionRepository electionRepository;
+
+    @Autowired
+    private ElectionBulkWriter bulkWriter;
+
+    private Election election;
+
+    @BeforeEach
+    void setUp() {
+        election = new Election("TK2023");
+        for (int c = 1; c <= 2; c++) {
+            Constituency constituency = new Constituency("TK2023-" + c, "Kieskring " + c);
+            constituency.addToTotalVotes(300);
+            for (int m = 1; m <= 3; m++) {
+                Municipality municipality = new Municipality("TK2023-0" + c + m, "Gemeente " + c + m, 0);
+                municipality.addVotesForParty("1", "VVD", 200);
+                municipality.addVotesForParty("2", "D66", 100);
+                for (int s = 1; s <= 2; s++) {
+                    PollingStation station = new PollingStation(municipality.getId() + "::SB" + s, "Stembureau " + s, "1234AB");
+                    station.addVotes("1", "VVD", 100);
+                    station.addVotes("2", "D66", 50);
+                    municipality.addPollingStation(station);
+                }
+                constituency.addMunicipality(municipality);
+            }
+            election.addConstituency(constituency);
+        }
+        election.addParty(new Party("TK2023-1", "VVD"));
+        election.addParty(new Party("TK2023-2", "D66"));
+        election.addCandidate(new Candidate("TK2023-1-1", "Dilan", "Yeşilgöz-Zegerius", "D.", "Amsterdam", "1", "VVD", 1));
+        election.addNationalVotes(National.forCombined("TK2023-N1", "TK2023", "Tweede Kamer 2023", "1", "VVD", null, 1200));
+    }
+
+    // HAPPY FLOWS
+
+    @Test
+    void testWrite_RowsCanBeLoadedWithJpa() {
+        // Act
+        long rows = bulkWriter.write(election);
+        entityManager.clear();
+
+        // Assert: 1 election, 2 parties, 1 candidate, 1 national result, 2 constituencies, 6 municipalities with
+        // 2 votes and 2 names each, 12 polling stations with 2 votes and 2 names each
+        assertThat(rows).isEqualTo(1 + 2 + 1 + 1 + 2 + 6 * 5 + 12 * 5);
+
+        Election loaded = electionRepository.findById("TK2023").orElseThrow();
+        assertThat(loaded.getParties()).hasSize(2);
+        assertThat(loaded.getCandidates()).extracting(Candidate::getLastName).containsExactly("Yeşilgöz-Zegerius");
+        assertThat(loaded.getNationalVotes()).hasSize(1);
+        assertThat(loaded.getConstituencies()).hasSize(2);
+
+        Municipality municipality = loaded.getMunicipalityById("TK2023-012");
+        assertThat(municipality.getValidVotes()).isEqualTo(300);
+        assertThat(municipality.getAllParties()).extracting(Party::getName).containsExactly("VVD", "D66");
+        PollingStation station = municipality.getPollingStationById("TK2023-012::SB2");
+        assertThat(station.getPostalCode()).isEqualTo("1234AB");
+        assertThat(station.getAllParties()).extracting(Party::getVotes).containsExactly(100, 50);
+    }
+
+    // BUSINESS RULES
+
+    @Test
+    void testWrite_TwiceUpdatesExistingRows() {
+        // Arrange
+        bulkWriter.write(election);
+        election.getMunicipalityById("TK2023-011").addVotesForParty("2", "D66", 25);
+
+        // Act: writing the same election again must not fail on the primary keys
+        bulkWriter.write(election);
+        entityManager.clear();
+
+        // Assert
+        Election loaded = electionRepository.findById("TK2023").orElseThrow();
+        assertThat(loaded.getAllMunicipalities()).hasSize(6);
+        assertThat(loaded.getMunicipalityById("TK2023-011").getValidVotes()).isEqualTo(325);
+    }
+
+    @Test
+    void testWriteMunicipalities_ReplacesOnlyThoseMunicipalities() {
+        // Arrange: the first municipality is published again with one polling station less
+        bulkWriter.write(election);
+        Municipality republished = new Municipality("TK2023-011", "Gemeente 11", 0);
+        republished.addVotesForParty("1", "VVD", 250);
+        PollingStation station = new PollingStation("TK2023-011::SB1", "Stembureau 1", "1234AB");
+        station.addVotes("1", "VVD", 250);
+        republished.addPollingStation(station);
+        election.replaceMunicipality("TK2023-1", republished);
+
+        // Act
+        long rows = bulkWriter.writeMunicipalities(election, List.of("TK2023-011"));
+        entityManager.clear();
+
+        // Assert: 2 parties, 2 constituencies, 1 municipality and 1 polling station with 1 vote and 1 name each
+        assertThat(rows).isEqualTo(2 + 2 + 3 + 3);
+        Election loaded = electionRepository.findById("TK2023").orElseThrow();
+        Municipality municipality = loaded.getMunicipalityById("TK2023-011");
+        assertThat(municipality.getValidVotes()).isEqualTo(250);
+        assertThat(municipality.getAllParties()).extracting(Party::getName).containsExactly("VVD");
+        assertThat(municipality.getPollingStations()).hasSize(1);
+        assertThat(loaded.getConstituencyById("TK2023-1").getTotalVotes()).isEqualTo(1150);
+        assertThat(loaded.getMunicipalityById("TK2023-012").getPollingStations()).hasSize(2);
+    }
+
+    @Test
+    void testWriteMunicipalities_EvictsCachedVotes() {
+        // Arrange: loading the municipality puts its votes in the second-level cache
+        bulkWriter.write(election);
+        entityManager.clear();
+        Municipality cached = electionRepository.findById("TK2023").orElseThrow().getMunicipalityById("TK2023-011");
+        assertThat(cached.getAllParties()).extracting(Party::getVotes).containsExactly(200, 100);
+        entityManager.clear();
+        election.getMunicipalityById("TK2023-011").addVotesForParty("2", "D66", 150);
+
+        // Act: the rows are written with JDBC, bypassing Hibernate
+        bulkWriter.writeMunicipalities(election, List.of("TK2023-011"));
+        entityManager.clear();
+
+        // Assert: the votes are loaded from the database again instead of from the cache
+        Municipality loaded = electionRepository.findById("TK2023").orElseThrow().getMunicipalityById("TK2023-011");
+        assertThat(loaded.getAllParties()).extracting(Party::getVotes).containsExactly(250, 200);
+    }
+
+    @Test
+    void testWrite_RollbackEvictsCachedElection() {
+        // Arrange: an election that is read from the uncommitted rows ends up in the second-level cache
+        bulkWriter.write(election);
+        entityManager.clear();
+        electionRepository.findById("TK2023").orElseThrow();
+        Cache cache = entityManager.getEntityManager().getEntityManagerFactory().getCache();
+        assertThat(cache.contains(Election.class, "TK2023")).isTrue();
+
+        // Act
+        TestTransaction.flagForRollback();
+        TestTransaction.end();
+
+        // Assert: the rows are gone, so the cached election must be too
+        assertThat(cache.contains(Election.class, "TK2023")).isFalse();
+    }
+
+    @Test
+    void testWriteNationalData_SkipsRegions() {
+        // Act
+        bulkWriter.writeNationalData(election);
+        entityManager.clear();
+
+        // Assert
+        Election loaded = electionRepository.findById("TK2023").orElseThrow();
+        assertThat(loaded.getCandidates()).hasSize(1);
+        assertThat(loaded.getConstituencies()).isEmpty();
+    }
+}
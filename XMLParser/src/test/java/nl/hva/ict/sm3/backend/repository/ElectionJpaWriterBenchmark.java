@@ -0,0 +1,69 @@
+package nl.hva.ict.sm3.backend.repository;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import static nl.hva.ict.sm3.backend.repository.ElectionJpaWriterTest.createElection;
+
+/**
+ * Compares the cascading save that was used before with ElectionJpaWriter and the settings of the bulk-load profile,
+ * both the timings and the number of statements.<br/>
+ * <br/>
+ * This is not a test, the build doesn't run it because the name doesn't end with <code>Test</code>. Run it from the
+ * IDE, the results are printed.
+ */
+@DataJpaTest
+@Import(ElectionJpaWriter.class)
+@ActiveProfiles("bulk-load")
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "election.persistence.clear-interval=100"
+})
+class ElectionJpaWriterBenchmark {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ElectionRepository electionRepository;
+
+    @Autowired
+    private ElectionJpaWriter jpaWriter;
+
+    @Test
+    void compareWithSave() {
+        Session session = entityManager.getEntityManager().unwrap(Session.class);
+        Statistics statistics = session.getSessionFactory().unwrap(SessionFactory.class).getStatistics();
+
+        // Before: the cascading save without batching
+        session.setJdbcBatchSize(1);
+        statistics.clear();
+        long start = System.nanoTime();
+        electionRepository.save(createElection("TK2021"));
+        electionRepository.flush();
+        long saveMillis = (System.nanoTime() - start) / 1_000_000;
+        long saveStatements = statistics.getPrepareStatementCount();
+        int saveManaged = session.getStatistics().getEntityCount();
+        entityManager.clear();
+
+        // After: the writer with the batch size of the bulk-load profile
+        session.setJdbcBatchSize(null);
+        statistics.clear();
+        start = System.nanoTime();
+        jpaWriter.write(createElection("TK2023"));
+        long writeMillis = (System.nanoTime() - start) / 1_000_000;
+        long writeStatements = statistics.getPrepareStatementCount();
+        int writeManaged = session.getStatistics().getEntityCount();
+
+        System.out.printf("save: %d ms, %d statements, %d managed - bulk-load writer: %d ms, %d statements, %d managed%n",
+                saveMillis, saveStatements, saveManaged, writeMillis, writeStatements, writeManaged);
+    }
+}
@@ -0,0 +1,245 @@
+package nl.hva.ict.sm3.backend.repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import nl.hva.ict.sm3.backend.model.*;
+import org.hibernate.Session;
+import org.hibernate.SessionEventListener;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for ElectionJpaWriter with the settings of the bulk-load profile.
+ * The comparison with the save that was used before is in {@link ElectionJpaWriterBenchmark}.
+ */
+@DataJpaTest
+@Import(ElectionJpaWriter.class)
+@ActiveProfiles("bulk-load")
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "election.persistence.clear-interval=100"
+})
+class ElectionJpaWriterTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ElectionRepository electionRepository;
+
+    @Autowired
+    private ElectionJpaWriter jpaWriter;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    /**
+     * Creates an election with 2 constituencies, 20 municipalities and 200 polling stations with 5 parties each.
+     */
+    static Election createElection(String electionId) {
+        Election election = new Election(electionId);
+        for (int c = 1; c <= 2; c++) {
+            Constituency constituency = new Constituency(electionId + "-" + c, "Kieskring " + c);
+            for (int m = 0; m < 10; m++) {
+                Municipality municipality = new Municipality(electionId + "-0" + c + m, "Gemeente " + c + m, 0);
+                for (int s = 1; s <= 10; s++) {
+                    PollingStation station = new PollingStation(municipality.getId() + "::SB" + s, "Stembureau " + s, "1234AB");
+                    for (int p = 1; p <= 5; p++) {
+                        station.addVotes(Integer.toString(p), "Partij " + p, 10 * p);
+                        municipality.addVotesForParty(Integer.toString(p), "Partij " + p, 10 * p);
+                    }
+                    municipality.addPollingStation(station);
+                }
+                constituency.addMunicipality(municipality);
+            }
+            election.addConstituency(constituency);
+        }
+        for (int p = 1; p <= 5; p++) {
+            election.addParty(new Party(electionId + "-" + p, "Partij " + p));
+        }
+        return election;
+    }
+
+    // HAPPY FLOWS
+
+    @Test
+    void testWrite_ElectionCanBeLoaded() {
+        // Act
+        long entities = jpaWriter.write(createElection("TK2023"));
+        entityManager.clear();
+
+        // Assert: 1 election, 5 parties, 2 constituencies, 20 municipalities and 200 polling stations
+        assertThat(entities).isEqualTo(1 + 5 + 2 + 20 + 200);
+        Election loaded = electionRepository.findById("TK2023").orElseThrow();
+        assertThat(loaded.getConstituencies()).hasSize(2);
+        assertThat(loaded.getAllMunicipalities()).hasSize(20);
+        Municipality municipality = loaded.getMunicipalityById("TK2023-015");
+        assertThat(municipality.getPollingStations()).hasSize(10);
+        assertThat(municipality.getValidVotes()).isEqualTo(10 * (10 + 20 + 30 + 40 + 50));
+    }
+
+    // BUSINESS RULES
+
+    @Test
+    void testWrite_ReplacesElectionThatIsAlreadyStored() {
+        // Arrange: the election is stored and cached
+        jpaWriter.write(createElection("TK2023"));
+        entityManager.clear();
+        electionRepository.findById("TK2023").orElseThrow();
+        entityManager.clear();
+
+        // Act
+        Election reparsed = createElection("TK2023");
+        reparsed.getPartyById("TK2023-1").addVotes(100);
+        jpaWriter.write(reparsed);
+        entityManager.clear();
+
+        // Assert
+        Election loaded = electionRepository.findById("TK2023").orElseThrow();
+        assertThat(loaded.getConstituencies()).hasSize(2);
+        assertThat(loaded.getAllMunicipalities()).hasSize(20);
+        assertThat(loaded.getPartyById("TK2023-1").getVotes()).isEqualTo(100);
+    }
+
+    @Test
+    void testWriteMunicipalities_ReplacesOnlyTheChangedMunicipalities() {
+        // Arrange: the municipality is published again with fewer polling stations and votes for a new party
+        Election election = createElection("TK2023");
+        jpaWriter.write(election);
+        entityManager.clear();
+        Municipality republished = new Municipality("TK2023-015", "Gemeente 15", 0);
+        for (int s = 1; s <= 2; s++) {
+            PollingStation station = new PollingStation(republished.getId() + "::SB" + s, "Stembureau " + s, "1234AB");
+            station.addVotes("6", "Partij 6", 5);
+            republished.addPollingStation(station);
+        }
+        republished.addVotesForParty("6", "Partij 6", 10);
+        election.replaceMunicipality("TK2023-1", republished);
+        election.addParty(new Party("TK2023-6", "Partij 6"));
+
+        // Act
+        jpaWriter.writeMunicipalities(election, List.of("TK2023-015"));
+        entityManager.clear();
+
+        // Assert
+        Election loaded = electionRepository.findById("TK2023").orElseThrow();
+        assertThat(loaded.getAllMunicipalities()).hasSize(20);
+        Municipality municipality = loaded.getMunicipalityById("TK2023-015");
+        assertThat(municipality.getPollingStations()).hasSize(2);
+        assertThat(municipality.getValidVotes()).isEqualTo(10);
+        assertThat(loaded.getMunicipalityById("TK2023-016").getPollingStations()).hasSize(10);
+        assertThat(loaded.getConstituencyById("TK2023-1").getTotalVotes())
+                .isEqualTo(election.getConstituencyById("TK2023-1").getTotalVotes());
+        assertThat(loaded.getParties()).hasSize(6);
+    }
+
+    @Test
+    void testWrite_KeepsConstituenciesOfElectionWithSamePrefix() {
+        // Arrange: the ids of the constituencies of TK2023-A start with TK2023-
+        jpaWriter.write(createElection("TK2023-A"));
+        entityManager.clear();
+
+        // Act
+        jpaWriter.write(createElection("TK2023"));
+        entityManager.clear();
+
+        // Assert
+        assertThat(electionRepository.findById("TK2023-A").orElseThrow().getConstituencies())
+                .extracting(Constituency::getId).containsExactlyInAnyOrder("TK2023-A-1", "TK2023-A-2");
+        assertThat(electionRepository.findById("TK2023").orElseThrow().getConstituencies())
+                .extracting(Constituency::getId).containsExactlyInAnyOrder("TK2023-1", "TK2023-2");
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testWrite_SavedAgainWithSecondLevelCache() {
+        // Entities that were inserted in the running transaction are not put in the second-level cache, so every step
+        // commits its own transaction and uses its own persistence context
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        try {
+            // Arrange: the election is written and loaded once, so it is in the second-level cache
+            Election election = createElection("TK2023");
+            jpaWriter.write(election);
+            int parties = transaction.execute(status ->
+                    electionRepository.findById("TK2023").orElseThrow().getParties().size());
+            assertThat(parties).isEqualTo(5);
+            assertThat(entityManagerFactory.getCache().contains(Election.class, "TK2023")).isTrue();
+
+            // Act: saved again when election.persistence.bulk is off, as after the candidate lists have been parsed
+            election.addCandidate(new Candidate("TK2023-1-1", "Dilan", "Yeşilgöz", "D.", "Amsterdam", "1", "Partij 1", 1, 500));
+            election.getPartyById("TK2023-1").addVotes(500);
+            transaction.executeWithoutResult(status -> electionRepository.save(election));
+
+            // Assert: the cached entities are updated instead of rejected
+            transaction.executeWithoutResult(status -> {
+                Election loaded = electionRepository.findById("TK2023").orElseThrow();
+                assertThat(loaded.getCandidates()).extracting(Candidate::getId).containsExactly("TK2023-1-1");
+                assertThat(loaded.getPartyById("TK2023-1").getVotes()).isEqualTo(500);
+            });
+        } finally {
+            // Committed, so it isn't rolled back after the test
+            transaction.executeWithoutResult(status -> electionRepository.deleteById("TK2023"));
+        }
+    }
+
+    @Test
+    void testWrite_BatchesAndClears() {
+        // Arrange: count the JDBC batches and the managed entities at every flush of the session of the test
+        Session session = entityManager.getEntityManager().unwrap(Session.class);
+        int[] batches = new int[1];
+        int[] maxManaged = new int[1];
+        session.addEventListeners(new SessionEventListener() {
+            @Override
+            public void jdbcExecuteBatchStart() {
+                batches[0]++;
+            }
+
+            @Override
+            public void flushEnd(int numberOfEntities, int numberOfCollections) {
+                maxManaged[0] = Math.max(maxManaged[0], numberOfEntities);
+            }
+        });
+
+        // Act: the writer with the batch size of the bulk-load profile
+        long entities = jpaWriter.write(createElection("TK2023"));
+
+        // Assert: every entity is inserted, with the element collections there are more than 2400 rows, yet the
+        // batches need about one statement per table for the election and for each of the 2 constituencies
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(entities);
+        assertThat(batches[0]).isPositive();
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(30);
+
+        // Assert: the persistence context is cleared once clear-interval entities are persisted, so it never holds
+        // more than one constituency with its 10 municipalities and 100 polling stations, and nothing stays managed
+        assertThat(statistics.getFlushCount()).isGreaterThanOrEqualTo(3);
+        assertThat(maxManaged[0]).isPositive().isLessThanOrEqualTo(1 + 10 + 100);
+        assertThat(session.getStatistics().getEntityCount()).isZero();
+    }
+}
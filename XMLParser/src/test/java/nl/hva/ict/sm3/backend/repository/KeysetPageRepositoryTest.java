@@ -0,0 +1,132 @@
+package nl.hva.ict.sm3.backend.repository;
+
+import nl.hva.ict.sm3.backend.model.Candidate;
+import nl.hva.ict.sm3.backend.model.Constituency;
+import nl.hva.ict.sm3.backend.model.Election;
+import nl.hva.ict.sm3.backend.model.Municipality;
+import nl.hva.ict.sm3.backend.model.PollingStation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the keyset finders of the municipality, polling station and candidate repositories.
+ * Each page continues after the key of the last row of the previous page, and only rows of the election are returned.
+ */
+@DataJpaTest
+class KeysetPageRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ElectionRepository electionRepository;
+
+    @Autowired
+    private MunicipalityRepository municipalityRepository;
+
+    @Autowired
+    private PollingStationRepository pollingStationRepository;
+
+    @Autowired
+    private CandidateRepository candidateRepository;
+
+    @BeforeEach
+    void setUp() {
+        Election election = new Election("TK2023");
+        Constituency kieskring = new Constituency("TK2023-01", "Groningen");
+        Municipality groningen = new Municipality("TK2023-0014", "Groningen", 0);
+        groningen.addPollingStation(new PollingStation("TK2023-0014-SB3", "Stembureau 3", "9711AB"));
+        groningen.addPollingStation(new PollingStation("TK2023-0014-SB1", "Stembureau 1", "9712CD"));
+        Municipality haren = new Municipality("TK2023-0017", "Haren", 0);
+        haren.addPollingStation(new PollingStation("TK2023-0017-SB2", "Stembureau 2", "9751AA"));
+        haren.addPollingStation(new PollingStation("TK2023-0017-SB4", "Stembureau 4", "9711AB"));
+        kieskring.addMunicipality(groningen);
+        kieskring.addMunicipality(haren);
+        election.addConstituency(kieskring);
+        election.addCandidate(new Candidate("TK2023-1-1", "Dilan", "Yeşilgöz", "D.", "Amsterdam", "1", "VVD", 1, 500));
+        election.addCandidate(new Candidate("TK2023-1-2", "Sophie", "Hermans", "S.", "Den Haag", "1", "VVD", 2, 300));
+        election.addCandidate(new Candidate("TK2023-2-1", "Rob", "Jetten", "R.", "Ubbergen", "2", "D66", 1, 500));
+        electionRepository.save(election);
+
+        // Another election, its rows must never show up in the pages of TK2023
+        Election other = new Election("TK2021");
+        Constituency otherKieskring = new Constituency("TK2021-01", "Groningen");
+        Municipality otherGemeente = new Municipality("TK2021-0014", "Groningen", 0);
+        otherGemeente.addPollingStation(new PollingStation("TK2021-0014-SB1", "Stembureau 1", "9711AB"));
+        otherKieskring.addMunicipality(otherGemeente);
+        other.addConstituency(otherKieskring);
+        electionRepository.save(other);
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    // HAPPY FLOWS
+
+    @Test
+    void testMunicipalityPages_HappyFlow() {
+        List<Municipality> first = municipalityRepository.findPageByElectionId("TK2023", "", Limit.of(1));
+        assertThat(first).extracting(Municipality::getId).containsExactly("TK2023-0014");
+
+        List<Municipality> second = municipalityRepository.findPageByElectionId("TK2023", "TK2023-0014", Limit.of(1));
+        assertThat(second).extracting(Municipality::getId).containsExactly("TK2023-0017");
+
+        assertThat(municipalityRepository.findPageByElectionId("TK2023", "TK2023-0017", Limit.of(1))).isEmpty();
+    }
+
+    @Test
+    void testPollingStationPages_ByIdWithMunicipality() {
+        List<Object[]> first = pollingStationRepository.findPageByElectionId("TK2023", "", Limit.of(3));
+        assertThat(first).extracting(row -> ((PollingStation) row[0]).getId())
+                .containsExactly("TK2023-0014-SB1", "TK2023-0014-SB3", "TK2023-0017-SB2");
+        assertThat(first).extracting(row -> row[1])
+                .containsExactly("TK2023-0014", "TK2023-0014", "TK2023-0017");
+
+        List<Object[]> second = pollingStationRepository.findPageByElectionId("TK2023", "TK2023-0017-SB2",
+                Limit.of(3));
+        assertThat(second).extracting(row -> ((PollingStation) row[0]).getId())
+                .containsExactly("TK2023-0017-SB4");
+    }
+
+    // BUSINESS RULES
+
+    @Test
+    void testPollingStationPages_ByPostalCodeContinueAfterEqualPostalCodes() {
+        // Two stations share 9711AB, the id decides their order
+        List<Object[]> first = pollingStationRepository.findPageByElectionIdAndPostalCodeRange("TK2023",
+                "9700AA", "9799ZZ", "9700AA", "", Limit.of(1));
+        assertThat(first).extracting(row -> ((PollingStation) row[0]).getId())
+                .containsExactly("TK2023-0014-SB3");
+
+        List<Object[]> rest = pollingStationRepository.findPageByElectionIdAndPostalCodeRange("TK2023",
+                "9700AA", "9799ZZ", "9711AB", "TK2023-0014-SB3", Limit.of(10));
+        assertThat(rest).extracting(row -> ((PollingStation) row[0]).getId())
+                .containsExactly("TK2023-0017-SB4", "TK2023-0014-SB1", "TK2023-0017-SB2");
+    }
+
+    @Test
+    void testCandidatePages_MostVotesFirst() {
+        List<Candidate> first = candidateRepository.findPageByElectionId("TK2023", Integer.MAX_VALUE, "\uffff",
+                Limit.of(2));
+        assertThat(first).extracting(Candidate::getId).containsExactly("TK2023-2-1", "TK2023-1-1");
+
+        List<Candidate> second = candidateRepository.findPageByElectionId("TK2023", 500, "TK2023-1-1", Limit.of(2));
+        assertThat(second).extracting(Candidate::getId).containsExactly("TK2023-1-2");
+    }
+
+    // INVALID INPUT
+
+    @Test
+    void testPages_UnknownElectionIsEmpty() {
+        assertThat(municipalityRepository.findPageByElectionId("NIET_BESTAAND", "", Limit.of(10))).isEmpty();
+        assertThat(pollingStationRepository.findPageByElectionId("NIET_BESTAAND", "", Limit.of(10))).isEmpty();
+    }
+}
@@ -0,0 +1,37 @@
+package nl.hva.ict.sm3.backend.repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.TestExecutionListener;
+
+/**
+ * Clears the Hibernate second-level and query cache before and after every test. The regions live in the JCache
+ * cache manager of <code>ehcache.xml</code>, which is shared by all application contexts in the JVM, so without this
+ * the entities of one test would still be cached in the next one while their rows have been rolled back.<br/>
+ * <br/>
+ * Registered for all tests in <code>META-INF/spring.factories</code>.
+ */
+public class SecondLevelCacheCleaner implements TestExecutionListener {
+
+    @Override
+    public void beforeTestMethod(TestContext testContext) {
+        evictAll(testContext);
+    }
+
+    @Override
+    public void afterTestMethod(TestContext testContext) {
+        evictAll(testContext);
+    }
+
+    private static void evictAll(TestContext testContext) {
+        if (!testContext.hasApplicationContext()) {
+            return;
+        }
+        EntityManagerFactory entityManagerFactory = testContext.getApplicationContext()
+                .getBeanProvider(EntityManagerFactory.class).getIfAvailable();
+        if (entityManagerFactory != null) {
+            entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package nl.hva.ict.sm3.backend.service;
+
+import nl.hva.ict.sm3.backend.model.*;
+import nl.hva.ict.sm3.backend.repository.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for applying a municipality file that has been published again with
+ * {@link DutchElectionService#applyMunicipalityFile(Election, Path)}. The repositories and writers are mocked, the
+ * file is parsed for real.
+ */
+class DutchElectionServiceTest {
+
+    @TempDir
+    Path folder;
+
+    private ElectionJpaWriter jpaWriter;
+    private NationalService nationalService;
+    private DutchElectionService service;
+    private Election election;
+
+    @BeforeEach
+    void setUp() {
+        jpaWriter = mock(ElectionJpaWriter.class);
+        nationalService = new NationalService();
+        service = new DutchElectionService(mock(ElectionRepository.class), mock(PartyRepository.class),
+                mock(CandidateRepository.class), mock(NationalRepository.class), mock(ConstituencyRepository.class),
+                mock(MunicipalityRepository.class), mock(PollingStationRepository.class),
+                mock(ElectionBulkWriter.class), jpaWriter, mock(ElectionFileRepository.class),
+                new ElectionCache(1024, 60), nationalService, mock(PlatformTransactionManager.class));
+
+        // Velsen and Haarlem in constituency 10, as they were loaded before
+        election = new Election("TK2023");
+        Constituency constituency = new Constituency("TK2023-10", "Haarlem");
+        Municipality velsen = new Municipality("TK2023-0453", "Velsen", 0);
+        velsen.addVotesForParty("1", "VVD", 100);
+        velsen.addVotesForParty("2", "D66", 50);
+        constituency.addMunicipality(velsen);
+        Municipality haarlem = new Municipality("TK2023-0392", "Haarlem", 0);
+        haarlem.addVotesForParty("1", "VVD", 30);
+        constituency.addMunicipality(haarlem);
+        election.addConstituency(constituency);
+        election.addParty(new Party("TK2023-1", "VVD", 130));
+        election.addParty(new Party("TK2023-2", "D66", 50));
+        election.setSeatAllocations(nationalService.calculateSeatsDHondt(election));
+    }
+
+    @Test
+    @DisplayName("Should replace the municipality and recalculate the totals when its file is published again")
+    void testApplyMunicipalityFile_RecalculatesTotals() throws IOException {
+        // Arrange: Velsen has been counted again and now has votes for a third party
+        Path file = folder.resolve("Telling_TK2023_gemeente_Velsen.eml.xml");
+        Files.writeString(file, """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <EML xmlns="urn:oasis:names:tc:evs:schema:eml" Id="510b" SchemaVersion="5">
+                <ManagingAuthority><AuthorityIdentifier Id="0453">Velsen</AuthorityIdentifier></ManagingAuthority>
+                <Count><Election>
+                <ElectionIdentifier Id="TK2023"><ElectionName>Tweede Kamer der Staten-Generaal 2023</ElectionName></ElectionIdentifier>
+                <Contests><Contest>
+                <ContestIdentifier Id="10"><ContestName>Haarlem</ContestName></ContestIdentifier>
+                <TotalVotes>
+                <Selection><AffiliationIdentifier Id="1"><RegisteredName>VVD</RegisteredName></AffiliationIdentifier><ValidVotes>90</ValidVotes></Selection>
+                <Selection><AffiliationIdentifier Id="2"><RegisteredName>D66</RegisteredName></AffiliationIdentifier><ValidVotes>40</ValidVotes></Selection>
+                <Selection><AffiliationIdentifier Id="3"><RegisteredName>GROENLINKS / PvdA</RegisteredName></AffiliationIdentifier><ValidVotes>60</ValidVotes></Selection>
+                <Cast>200</Cast><TotalCounted>190</TotalCounted>
+                </TotalVotes>
+                <ReportingUnitVotes>
+                <ReportingUnitIdentifier Id="0453::SB1">Stembureau Stadhuis (postcode: 1971 EN)</ReportingUnitIdentifier>
+                <Selection><AffiliationIdentifier Id="1"><RegisteredName>VVD</RegisteredName></AffiliationIdentifier><ValidVotes>90</ValidVotes></Selection>
+                <Selection><AffiliationIdentifier Id="2"><RegisteredName>D66</RegisteredName></AffiliationIdentifier><ValidVotes>40</ValidVotes></Selection>
+                <Selection><AffiliationIdentifier Id="3"><RegisteredName>GROENLINKS / PvdA</RegisteredName></AffiliationIdentifier><ValidVotes>60</ValidVotes></Selection>
+                <Cast>200</Cast><TotalCounted>190</TotalCounted>
+                </ReportingUnitVotes>
+                </Contest></Contests></Election></Count></EML>
+                """);
+
+        // Act
+        List<String> applied = service.applyMunicipalityFile(election, file);
+
+        // Assert: only Velsen is replaced and written
+        assertEquals(List.of("TK2023-0453"), applied);
+        verify(jpaWriter).writeMunicipalities(eq(election), eq(List.of("TK2023-0453")));
+
+        Municipality velsen = election.getMunicipalityById("TK2023-0453");
+        assertEquals(190, velsen.getValidVotes());
+        assertEquals(1, velsen.getPollingStations().size());
+        assertEquals(30, election.getMunicipalityById("TK2023-0392").getValidVotes());
+        assertEquals(190 + 30, election.getConstituencyById("TK2023-10").getTotalVotes());
+
+        // Assert: the parties have the totals of both municipalities, the new party included
+        assertEquals(90 + 30, election.getPartyById("TK2023-1").getVotes());
+        assertEquals(40, election.getPartyById("TK2023-2").getVotes());
+        assertEquals(60, election.getPartyById("TK2023-3").getVotes());
+
+        // Assert: the seats are calculated again with the new votes
+        Map<String, Integer> seats = election.getSeatAllocations();
+        assertEquals(nationalService.calculateSeatsDHondt(election), seats);
+        assertTrue(seats.containsKey("3"));
+    }
+
+    @Test
+    @DisplayName("Should ignore a file that doesn't contain the votes of a municipality")
+    void testApplyMunicipalityFile_OtherFile() throws IOException {
+        // Arrange
+        Path file = folder.resolve("Telling_TK2023_kieskring_Haarlem.eml.xml");
+        Files.writeString(file, "<EML/>");
+
+        // Act
+        List<String> applied = service.applyMunicipalityFile(election, file);
+
+        // Assert
+        assertTrue(applied.isEmpty());
+        assertEquals(100 + 50, election.getMunicipalityById("TK2023-0453").getValidVotes());
+        assertEquals(130, election.getPartyById("TK2023-1").getVotes());
+    }
+}
@@ -0,0 +1,143 @@
+package nl.hva.ict.sm3.backend.service;
+
+import nl.hva.ict.sm3.backend.model.Election;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ElectionCache.
+ */
+class ElectionCacheTest {
+
+    @Test
+    @DisplayName("Should load an election once for concurrent first requests")
+    void testConcurrentMissesShareOneLoad() throws Exception {
+        ElectionCache cache = new ElectionCache(Long.MAX_VALUE, Long.MAX_VALUE, election -> 1, Runnable::run);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService requests = Executors.newFixedThreadPool(10);
+        try {
+            List<Future<Election>> results = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                results.add(requests.submit(() -> cache.get("TK2025", id -> {
+                    loads.incrementAndGet();
+                    loading.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return new Election(id);
+                })));
+            }
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            // Give the other requests the time to arrive while the election is being loaded
+            Thread.sleep(100);
+            release.countDown();
+
+            Election first = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<Election> result : results) {
+                assertSame(first, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            requests.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+        ElectionCache.Stats stats = cache.getStats();
+        assertEquals(1, stats.loads());
+        assertEquals(10, stats.hits() + stats.misses());
+        assertEquals(1, stats.size());
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used elections when the cache is too heavy")
+    void testLeastRecentlyUsedElectionsAreEvicted() {
+        ElectionCache cache = new ElectionCache(25, Long.MAX_VALUE, election -> 10, Runnable::run);
+        cache.get("TK2021", Election::new);
+        cache.get("TK2023", Election::new);
+        // TK2021 is now used more recently than TK2023
+        cache.get("TK2021", id -> fail("TK2021 should be cached"));
+
+        cache.get("TK2025", Election::new);
+
+        assertNotNull(cache.getIfPresent("TK2021"));
+        assertNull(cache.getIfPresent("TK2023"));
+        assertNotNull(cache.getIfPresent("TK2025"));
+        ElectionCache.Stats stats = cache.getStats();
+        assertEquals(1, stats.evictions());
+        assertEquals(20, stats.weight());
+        assertEquals(1, stats.hits());
+        assertEquals(3, stats.misses());
+    }
+
+    @Test
+    @DisplayName("Should not cache an election that is heavier than the maximum on its own")
+    void testTooHeavyElectionIsNotCached() {
+        ElectionCache cache = new ElectionCache(25, Long.MAX_VALUE,
+                election -> election.getId().equals("TK2023") ? 30 : 10, Runnable::run);
+        cache.get("TK2021", Election::new);
+        cache.put("TK2023", new Election("TK2023"));
+
+        Election loaded = cache.get("TK2023", Election::new);
+
+        assertNotNull(loaded);
+        assertNull(cache.getIfPresent("TK2023"));
+        // The other elections are kept
+        assertNotNull(cache.getIfPresent("TK2021"));
+        ElectionCache.Stats stats = cache.getStats();
+        assertEquals(0, stats.evictions());
+        assertEquals(10, stats.weight());
+    }
+
+    @Test
+    @DisplayName("Should serve the cached election while it is refreshed")
+    void testOldElectionsAreRefreshedAhead() {
+        List<Runnable> refreshes = new ArrayList<>();
+        ElectionCache cache = new ElectionCache(Long.MAX_VALUE, 0, election -> 1, refreshes::add);
+        Election loaded = cache.get("TK2023", Election::new);
+
+        Election refreshed = new Election("TK2023");
+        assertSame(loaded, cache.get("TK2023", id -> refreshed));
+        // Only one refresh at a time
+        assertSame(loaded, cache.get("TK2023", id -> refreshed));
+        assertEquals(1, refreshes.size());
+
+        refreshes.get(0).run();
+        assertSame(refreshed, cache.getIfPresent("TK2023"));
+        assertEquals(1, cache.getStats().refreshes());
+        assertEquals(2, cache.getStats().loads());
+    }
+
+    @Test
+    @DisplayName("Should keep the cached election when a refresh fails and not cache missing elections")
+    void testFailedLoadsAreNotCached() {
+        ElectionCache cache = new ElectionCache(Long.MAX_VALUE, 0, election -> 1, Runnable::run);
+        assertNull(cache.get("TK1900", id -> null));
+        assertNull(cache.getIfPresent("TK1900"));
+
+        Election loaded = cache.get("TK2023", Election::new);
+        assertSame(loaded, cache.get("TK2023", id -> {
+            throw new IllegalStateException("database is gone");
+        }));
+        assertSame(loaded, cache.getIfPresent("TK2023"));
+        assertEquals(1, cache.getStats().loadFailures());
+
+        assertThrows(IllegalStateException.class, () -> cache.get("TK2025", id -> {
+            throw new IllegalStateException("database is gone");
+        }));
+    }
+}
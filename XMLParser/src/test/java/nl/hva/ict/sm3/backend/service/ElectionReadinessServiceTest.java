@@ -0,0 +1,57 @@
+package nl.hva.ict.sm3.backend.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ElectionReadinessService.
+ */
+class ElectionReadinessServiceTest {
+
+    private final ElectionReadinessService readinessService = new ElectionReadinessService();
+
+    @Test
+    @DisplayName("Should hold back elections until they are ready")
+    void testElectionsAreLoadingUntilReady() {
+        readinessService.queued("TK2023");
+        readinessService.queued("TK2021");
+
+        assertTrue(readinessService.isLoading("TK2023"));
+        assertFalse(readinessService.isReady());
+        // Elections that are not loaded in the background are never held back
+        assertFalse(readinessService.isLoading("TK2017"));
+        assertTrue(readinessService.getStatus("TK2017").isEmpty());
+
+        readinessService.loading("TK2023", "parsing");
+        ElectionReadinessService.Status loading = readinessService.getStatus("TK2023").orElseThrow();
+        assertEquals(ElectionReadinessService.State.LOADING, loading.state());
+        assertEquals("parsing", loading.phase());
+        assertNotNull(loading.startedAt());
+
+        readinessService.ready("TK2023");
+        assertFalse(readinessService.isLoading("TK2023"));
+        assertEquals(loading.startedAt(), readinessService.getStatus("TK2023").orElseThrow().startedAt());
+
+        readinessService.failed("TK2021", "could not be loaded");
+        assertFalse(readinessService.isLoading("TK2021"));
+        assertTrue(readinessService.isReady());
+    }
+
+    @Test
+    @DisplayName("Should report the elections in the order in which they are loaded")
+    void testStatusesAreInLoadOrder() {
+        readinessService.queued("TK2023");
+        readinessService.queued("TK2021");
+        readinessService.queued("TK2025");
+        readinessService.ready("TK2025");
+
+        List<String> order = readinessService.getStatuses().stream()
+                .map(ElectionReadinessService.Status::electionId).toList();
+        assertEquals(List.of("TK2023", "TK2021", "TK2025"), order);
+        assertEquals(ElectionReadinessService.State.READY, readinessService.getStatuses().get(2).state());
+    }
+}
@@ -0,0 +1,41 @@
+package nl.hva.ict.sm3.backend.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for KeysetCursor.
+ */
+class KeysetCursorTest {
+
+    @Test
+    @DisplayName("Should decode the sort key that was encoded")
+    void testRoundTrip() {
+        String token = KeysetCursor.encode("pollingstations-postalcode", "1011 AB", "TK2023-0363-SB1");
+
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+        assertArrayEquals(new String[]{"1011 AB", "TK2023-0363-SB1"},
+                KeysetCursor.decode("pollingstations-postalcode", token, 2));
+    }
+
+    @Test
+    @DisplayName("Should keep empty parts of the sort key")
+    void testEmptyKey() {
+        String token = KeysetCursor.encode("candidates", "0", "");
+
+        assertArrayEquals(new String[]{"0", ""}, KeysetCursor.decode("candidates", token, 2));
+    }
+
+    @Test
+    @DisplayName("Should reject tokens of another listing and tokens that were not encoded")
+    void testInvalidTokens() {
+        String token = KeysetCursor.encode("municipalities", "0363");
+
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("candidates", token, 2));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("municipalities", token, 2));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("municipalities", "not a token", 1));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("municipalities", "", 1));
+    }
+}
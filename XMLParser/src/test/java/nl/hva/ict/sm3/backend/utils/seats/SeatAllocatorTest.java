@@ -0,0 +1,81 @@
+package nl.hva.ict.sm3.backend.utils.seats;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeatAllocatorTest {
+    private static final int[] VOTES = {100_000, 80_000, 30_000, 20_000};
+
+    private final SeatAllocator allocator = new SeatAllocator(4);
+
+    private int[] allocate(SeatAllocationMethod method, int[] votes, int[] alliances, int seats) {
+        return allocator.allocate(method, votes, alliances, votes.length, seats, new int[votes.length]);
+    }
+
+    @Test
+    void testHighestAverages() {
+        assertArrayEquals(new int[]{4, 3, 1, 0}, allocate(SeatAllocationMethod.D_HONDT, VOTES, null, 8));
+        // The tie between the third average of the first list and the first of the last list goes to the most votes
+        assertArrayEquals(new int[]{3, 3, 1, 1}, allocate(SeatAllocationMethod.SAINTE_LAGUE, VOTES, null, 8));
+    }
+
+    @Test
+    void testLargestRemainder() {
+        // Quota 28.750: 3.48, 2.78, 1.04 and 0.70 quotas, the two seats left go to the second and the last list
+        assertArrayEquals(new int[]{3, 3, 1, 1}, allocate(SeatAllocationMethod.LARGEST_REMAINDER, VOTES, null, 8));
+    }
+
+    @Test
+    void testKieswetThreshold() {
+        // 5 votes is less than the kiesdeler of 1005 / 150
+        assertArrayEquals(new int[]{150, 0}, allocate(SeatAllocationMethod.KIESWET, new int[]{1000, 5}, null, 150));
+        assertArrayEquals(new int[]{0, 0}, allocate(SeatAllocationMethod.KIESWET, new int[]{0, 0}, null, 150));
+    }
+
+    @Test
+    void testKieswetLijstverbinding() {
+        int[] votes = {450, 350, 200};
+        // Kiesdeler 100: full seats 4, 3 and 2, the remainder seat goes to the highest average 450 / 5
+        assertArrayEquals(new int[]{5, 3, 2}, allocate(SeatAllocationMethod.KIESWET, votes, null, 10));
+
+        // Combined the last two lists have 5 full seats and the highest average 550 / 6, the 6 seats are divided by
+        // largest remainders: 3.82 and 2.18 quotas
+        assertArrayEquals(new int[]{4, 4, 2}, allocate(SeatAllocationMethod.KIESWET, votes, new int[]{-1, 7, 7}, 10));
+    }
+
+    @Test
+    void testSeatsAddUp() {
+        int[] votes = {2_400_000, 1_600_000, 1_300_000, 900_000, 600_000, 480_000, 300_000, 150_000, 90_000, 60_000};
+        for (SeatAllocationMethod method : SeatAllocationMethod.values()) {
+            int total = 0;
+            for (int seats : allocate(method, votes, null, 150)) {
+                total += seats;
+            }
+            assertEquals(150, total, method.name());
+        }
+    }
+
+    @Test
+    void testNoAllocationsAfterWarmUp() {
+        int[] votes = {2_400_000, 1_600_000, 1_300_000, 900_000, 600_000, 480_000, 300_000, 150_000, 90_000, 60_000};
+        int[] alliances = {-1, 1, 1, -1, 2, 2, -1, -1, -1, -1};
+        int[] result = new int[votes.length];
+        for (int i = 0; i < 1_000; i++) {
+            allocator.allocate(SeatAllocationMethod.KIESWET, votes, alliances, votes.length, 150, result);
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 1_000; i++) {
+            allocator.allocate(SeatAllocationMethod.KIESWET, votes, alliances, votes.length, 150, result);
+            allocator.allocate(SeatAllocationMethod.SAINTE_LAGUE, votes, votes.length, 150, result);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        // A few bytes may be used by the measurement itself, 2000 allocations would use far more
+        assertTrue(allocated < 1_024, "Expected no allocations, but " + allocated + " bytes were allocated");
+    }
+}
@@ -0,0 +1,82 @@
+package nl.hva.ict.sm3.backend.utils.snapshot;
+
+import nl.hva.ict.sm3.backend.model.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ElectionSnapshotTest {
+    @TempDir
+    Path folder;
+
+    private static Election createElection() {
+        Election election = new Election("TK2023");
+        election.addParty(new Party("TK2023-1", "VVD", 1589519));
+        election.addParty(new Party("TK2023-2", "D66", 656292));
+        election.addCandidate(new Candidate("TK2023-1-1", "Dilan", "Yeşilgöz-Zegerius", "D.", "Amsterdam", "1", "VVD", 1, "YeşilgözD", 1316513));
+        election.addNationalVotes(National.forCombined("TK2023-N1", "TK2023", "Tweede Kamer 2023", "1", "VVD", null, 1589519));
+        election.addNationalVotes(National.forSeats("TK2023-N2", "TK2023", "Tweede Kamer 2023", "1", "VVD", null, 24));
+        election.setSeatAllocations(Map.of("TK2023-1", 24, "TK2023-2", 9));
+
+        Constituency constituency = new Constituency("TK2023-10", "Haarlem");
+        Municipality municipality = new Municipality("TK2023-0453", "Velsen", 0);
+        constituency.addMunicipality(municipality);
+        municipality.addVotesForParty("1", "VVD", 7000);
+        municipality.addVotesForParty("2", "D66", 3000);
+        constituency.addToTotalVotes(10000);
+        PollingStation station = new PollingStation("TK2023-0453::SB1", "Stadhuis", "1971EN");
+        station.addVotes("1", "VVD", 700);
+        station.addVotes("2", null, 300);
+        municipality.addPollingStation(station);
+        election.addConstituency(constituency);
+        return election;
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        Path file = folder.resolve("TK2023.snapshot");
+        ElectionSnapshot.write(createElection(), file);
+
+        Election election = ElectionSnapshot.read(file);
+
+        assertEquals("TK2023", election.getId());
+        assertEquals(2, election.getParties().size());
+        assertEquals(1589519, election.getPartyById("TK2023-1").getVotes());
+        Candidate candidate = election.getCandidateById("TK2023-1-1");
+        assertNotNull(candidate);
+        assertEquals("Yeşilgöz-Zegerius", candidate.getLastName());
+        assertEquals("YeşilgözD", candidate.getShortCode());
+        assertEquals(1316513, candidate.getVotes());
+        assertEquals(2, election.getNationalVotes().size());
+        assertEquals(NationalResult.SEATS, election.getNationalVotes().get(1).getType());
+        assertEquals(24, election.getSeatsForParty("TK2023-1"));
+
+        Constituency constituency = election.getConstituencyById("TK2023-10");
+        assertEquals(10000, constituency.getTotalVotes());
+        Municipality municipality = election.getMunicipalityById("TK2023-0453");
+        assertEquals(10000, municipality.getValidVotes());
+        assertEquals(7000, municipality.getAllParties().get(0).getVotes());
+        PollingStation station = municipality.getPollingStationById("TK2023-0453::SB1");
+        assertEquals("1971EN", station.getPostalCode());
+        assertEquals(1000, station.getValidVotes());
+        assertNull(station.getAllParties().get(1).getName());
+    }
+
+    @Test
+    void testOtherVersionIsRefused() throws IOException {
+        Path file = folder.resolve("TK2023.snapshot");
+        ElectionSnapshot.write(createElection(), file);
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(Integer.BYTES);
+            raw.writeInt(ElectionSnapshot.VERSION + 1);
+        }
+
+        assertThrows(IOException.class, () -> ElectionSnapshot.read(file));
+    }
+}
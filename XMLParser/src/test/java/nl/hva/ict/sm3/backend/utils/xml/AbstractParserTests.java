@@ -2,6 +2,9 @@ package nl.hva.ict.sm3.backend.utils.xml;
 
 import org.junit.jupiter.api.BeforeEach;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -100,4 +103,48 @@ abstract class AbstractParserTests {
             assertEquals(0, valueDifferences.get(), "There are values differences!");
         }
     }
+
+    /**
+     * Writes a votes file with the same structure as the municipality files of the Kiesraad.
+     */
+    protected static void writeVotesFile(Path folder, String fileName, int pollingStations, int parties, int candidates) throws IOException {
+        StringBuilder xml = new StringBuilder("""
+                <?xml version="1.0" encoding="UTF-8"?>
+                <EML xmlns="urn:oasis:names:tc:evs:schema:eml" xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance" Id="510b" SchemaVersion="5" xsi:schemaLocation="urn:oasis:names:tc:evs:schema:eml 510-count-v5-0.xsd">
+                <TransactionId>1</TransactionId>
+                <ManagingAuthority><AuthorityIdentifier Id="0453">Velsen</AuthorityIdentifier></ManagingAuthority>
+                <Count><Election>
+                <ElectionIdentifier Id="TK2023"><ElectionName>Tweede Kamer der Staten-Generaal 2023</ElectionName><ElectionCategory>TK</ElectionCategory></ElectionIdentifier>
+                <Contests><Contest>
+                <ContestIdentifier Id="10"><ContestName>Haarlem</ContestName></ContestIdentifier>
+                """);
+        writeVotes(xml, "TotalVotes", null, parties, candidates, 0);
+        for (int station = 1; station <= pollingStations; station++) {
+            writeVotes(xml, "ReportingUnitVotes", "0453::SB" + station, parties, candidates, station);
+        }
+        xml.append("</Contest></Contests></Election></Count></EML>\n");
+        Files.writeString(folder.resolve(fileName), xml);
+    }
+
+    private static void writeVotes(StringBuilder xml, String tag, String reportingUnit, int parties, int candidates, int seed) {
+        xml.append('<').append(tag).append(">\n");
+        if (reportingUnit != null) {
+            xml.append("<ReportingUnitIdentifier Id=\"%s\">Stembureau %d (postcode: 1971 EN)</ReportingUnitIdentifier>\n"
+                    .formatted(reportingUnit, seed));
+        }
+        for (int party = 1; party <= parties; party++) {
+            xml.append("<Selection><AffiliationIdentifier Id=\"%d\"><RegisteredName>Party %d</RegisteredName></AffiliationIdentifier><ValidVotes>%d</ValidVotes></Selection>\n"
+                    .formatted(party, party, 100 + party * 7 + seed));
+            for (int candidate = 1; candidate <= candidates; candidate++) {
+                xml.append("<Selection><Candidate><CandidateIdentifier Id=\"%d\"/></Candidate><ValidVotes>%d</ValidVotes></Selection>\n"
+                        .formatted(candidate, candidate + seed));
+            }
+        }
+        xml.append("""
+                <Cast>1758</Cast><TotalCounted>2315</TotalCounted>
+                <RejectedVotes ReasonCode="ongeldig">15</RejectedVotes><RejectedVotes ReasonCode="blanco">8</RejectedVotes>
+                <UncountedVotes ReasonCode="geen verklaring">0</UncountedVotes>
+                """);
+        xml.append("</").append(tag).append(">\n");
+    }
 }
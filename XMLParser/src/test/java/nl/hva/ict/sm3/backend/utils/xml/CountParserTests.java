@@ -0,0 +1,46 @@
+package nl.hva.ict.sm3.backend.utils.xml;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CountParserTests {
+    private final CountParser parser = new CountParser();
+
+    private void append(String text) {
+        parser.append(text.toCharArray(), 0, text.length());
+    }
+
+    @Test
+    void testCountsSplitOverBuffers() {
+        parser.reset();
+        assertFalse(parser.hasValue());
+        append("\n   12");
+        append("");
+        append("345  \n");
+        assertTrue(parser.hasValue());
+        assertEquals(12345, parser.value());
+
+        parser.reset();
+        char[] buffer = "<ValidVotes>2147483647</ValidVotes>".toCharArray();
+        parser.append(buffer, 12, 10);
+        assertEquals(Integer.MAX_VALUE, parser.value());
+
+        parser.reset();
+        append("  ");
+        assertFalse(parser.hasValue());
+    }
+
+    @Test
+    void testInvalidCounts() {
+        parser.reset();
+        assertThrows(NumberFormatException.class, () -> append("12a"));
+        parser.reset();
+        assertThrows(NumberFormatException.class, () -> append("-1"));
+        parser.reset();
+        append("1 ");
+        assertThrows(NumberFormatException.class, () -> append("2"));
+        parser.reset();
+        assertThrows(NumberFormatException.class, () -> append("2147483648"));
+    }
+}
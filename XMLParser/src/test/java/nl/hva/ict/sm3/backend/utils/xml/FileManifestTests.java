@@ -0,0 +1,55 @@
+package nl.hva.ict.sm3.backend.utils.xml;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileManifestTests extends AbstractParserTests {
+    private static final String EML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<EML Id=\"510b\"/>\n\n";
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void testParsedFilesAreAddedWithTheirHash() throws IOException, XMLStreamException, ParserConfigurationException, SAXException {
+        Path file = Files.writeString(folder.resolve("Telling_TK2023_gemeente_Velsen.eml.xml"), EML);
+        for (boolean streaming : new boolean[]{false, true}) {
+            FileManifest manifest = new FileManifest();
+            electionProcessor.setManifest(manifest);
+            electionProcessor.setStreaming(streaming);
+
+            assertTrue(electionProcessor.parseMunicipalityFile("TK2023", file));
+
+            // The hash covers the whole file, also the bytes after the root element
+            assertEquals(FileManifest.describe(file), manifest.get(file.getFileName().toString()));
+            assertTrue(manifest.isUnchanged(file));
+        }
+        assertFalse(electionProcessor.parseMunicipalityFile("TK2021", file));
+    }
+
+    @Test
+    void testOnlyNewAndChangedFilesAreFound() throws IOException {
+        Path velsen = Files.writeString(folder.resolve("Telling_TK2023_gemeente_Velsen.eml.xml"), EML);
+        Path texel = Files.writeString(folder.resolve("Telling_TK2023_gemeente_Texel.eml.xml"), EML);
+        Files.writeString(folder.resolve("Telling_TK2021_gemeente_Texel.eml.xml"), EML);
+        FileManifest manifest = new FileManifest(List.of(FileManifest.describe(velsen), FileManifest.describe(texel)));
+        assertEquals(List.of(), DutchElectionParser.findChangedFiles("TK2023", folder.toString(), manifest));
+
+        // Touching a file doesn't change it, a different content does
+        Files.setLastModifiedTime(velsen, FileTime.fromMillis(0));
+        Files.writeString(texel, EML.replace("510b", "510c"));
+        Path haarlem = Files.writeString(folder.resolve("Telling_TK2023_gemeente_Haarlem.eml.xml"), EML);
+
+        assertEquals(List.of(haarlem, texel), DutchElectionParser.findChangedFiles("TK2023", folder.toString(), manifest));
+    }
+}
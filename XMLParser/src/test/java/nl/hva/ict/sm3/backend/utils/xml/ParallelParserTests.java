@@ -0,0 +1,63 @@
+package nl.hva.ict.sm3.backend.utils.xml;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ParallelParserTests extends AbstractParserTests {
+    @TempDir
+    Path folder;
+
+    @Test
+    void testParallelMatchesSequential() throws IOException, XMLStreamException, ParserConfigurationException, SAXException {
+        // The first files are the largest, so with several workers they finish last
+        String[] municipalities = {"Amsterdam", "Bloemendaal", "Castricum", "Diemen", "Edam-Volendam", "Velsen"};
+        for (int i = 0; i < municipalities.length; i++) {
+            writeVotesFile(folder, "Telling_TK2023_gemeente_%s.eml.xml".formatted(municipalities[i]),
+                    5 * (municipalities.length - i), 3, 2);
+        }
+
+        electionProcessor.parseResults("TK2023", folder.toString());
+        List<Map<String, String>> sequential = new ArrayList<>(transformer.data);
+        int sequentialPartyVoteCalls = transformer.partyVoteCalls;
+        int sequentialCandidateVoteCalls = transformer.candidateVoteCalls;
+        int sequentialMetadataCalls = transformer.metadataCalls;
+        assertEquals(municipalities.length, fileOrder(sequential).size());
+
+        setUp();
+        electionProcessor.setParallelism(4);
+        electionProcessor.parseResults("TK2023", folder.toString());
+
+        assertEquals(fileOrder(sequential), fileOrder(transformer.data), "The files must be merged in the same order!");
+        assertEquals(sequential, transformer.data, "The parallel mode must replay the calls in the same order!");
+        assertEquals(sequentialPartyVoteCalls, transformer.partyVoteCalls);
+        assertEquals(sequentialCandidateVoteCalls, transformer.candidateVoteCalls);
+        assertEquals(sequentialMetadataCalls, transformer.metadataCalls);
+    }
+
+    @Test
+    void testInvalidParallelism() {
+        assertThrows(IllegalArgumentException.class, () -> electionProcessor.setParallelism(0));
+    }
+
+    // The files in the order in which their data was passed to the transformer.
+    private static List<String> fileOrder(List<Map<String, String>> data) {
+        LinkedHashSet<String> files = new LinkedHashSet<>();
+        for (Map<String, String> row : data) {
+            files.add(row.get("fileName"));
+        }
+        return List.copyOf(files);
+    }
+}
@@ -0,0 +1,68 @@
+package nl.hva.ict.sm3.backend.utils.xml;
+
+import nl.hva.ict.sm3.backend.model.Election;
+import nl.hva.ict.sm3.backend.utils.xml.transformers.DutchConstituencyVotesTransformer;
+import nl.hva.ict.sm3.backend.utils.xml.transformers.DutchMunicipalityVotesTransformer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Compares the ways the votes files can be passed to the transformers: inline on the calling thread, in parallel with
+ * every file buffered completely before it is replayed, and in parallel through the ring buffers of the pipeline.<br/>
+ * <br/>
+ * This is not a test, run it with the test classpath, for example from the IDE:
+ * <code>PipelineBenchmark [files] [polling stations per file] [threads]</code>. The files are generated in a
+ * temporary folder and the real transformers build a new {@link Election} for every run.
+ */
+class PipelineBenchmark {
+    private static final int WARM_UP_RUNS = 3;
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int pollingStations = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        Path folder = Files.createTempDirectory("pipeline-benchmark");
+        AbstractParserTests.writeVotesFile(folder, "Telling_TK2023_kieskring_Haarlem.eml.xml", 0, 20, 30);
+        for (int file = 0; file < files; file++) {
+            AbstractParserTests.writeVotesFile(folder, "Telling_TK2023_gemeente_%04d.eml.xml".formatted(file),
+                    pollingStations, 20, 30);
+        }
+        System.out.printf("%d files with %d polling stations, %d threads%n", files, pollingStations, threads);
+
+        for (boolean streaming : new boolean[]{false, true}) {
+            String reader = streaming ? "StAX" : "SAX";
+            run(reader + " inline", folder, streaming, 1, false);
+            run(reader + " buffered", folder, streaming, threads, false);
+            run(reader + " pipelined", folder, streaming, threads, true);
+        }
+    }
+
+    private static void run(String name, Path folder, boolean streaming, int parallelism, boolean pipelined) throws Exception {
+        long best = Long.MAX_VALUE;
+        DutchElectionParser parser = null;
+        for (int run = 0; run < WARM_UP_RUNS + RUNS; run++) {
+            Election election = new Election("TK2023");
+            // There are only votes files, the other transformers are never called
+            AbstractParserTests.TestTransformer unused = new AbstractParserTests.TestTransformer();
+            parser = new DutchElectionParser(unused, unused, unused, unused,
+                    new DutchConstituencyVotesTransformer(election),
+                    new DutchMunicipalityVotesTransformer(election),
+                    unused);
+            parser.setStreaming(streaming);
+            parser.setParallelism(parallelism);
+            parser.setPipelined(pipelined);
+
+            long start = System.nanoTime();
+            parser.parseResults("TK2023", folder.toString());
+            long elapsed = System.nanoTime() - start;
+            if (run >= WARM_UP_RUNS) {
+                best = Math.min(best, elapsed);
+            }
+        }
+        System.out.printf("%-16s %6d ms%s%n", name, best / 1_000_000,
+                pipelined ? "   " + parser.getPipelineStatistics() : "");
+    }
+}
@@ -0,0 +1,85 @@
+package nl.hva.ict.sm3.backend.utils.xml;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportingUnitIndexTests extends AbstractParserTests {
+    private static final String EML = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <EML xmlns="urn:oasis:names:tc:evs:schema:eml" xmlns:kr="http://www.kiesraad.nl/extensions" Id="510b">
+              <Count>
+                <Election>
+                  <Contests>
+                    <Contest>
+                      <TotalVotes>
+                        <Selection><AffiliationIdentifier Id="1"><RegisteredName>VVD</RegisteredName></AffiliationIdentifier><ValidVotes>30</ValidVotes></Selection>
+                      </TotalVotes>
+                      <ReportingUnitVotes>
+                        <ReportingUnitIdentifier Id="0453::SB1">Stembureau Stadhuis (postcode: 1971 EN)</ReportingUnitIdentifier>
+                        <Selection><AffiliationIdentifier Id="1"><RegisteredName>VVD</RegisteredName></AffiliationIdentifier><ValidVotes>10</ValidVotes></Selection>
+                      </ReportingUnitVotes>
+                      <ReportingUnitVotes>
+                        <ReportingUnitIdentifier Id="0453::SB2">Stembureau De Hoeve (postcode: 1974 AB)</ReportingUnitIdentifier>
+                        <Selection><AffiliationIdentifier Id="1"><RegisteredName>VVD</RegisteredName></AffiliationIdentifier><ValidVotes>20</ValidVotes></Selection>
+                      </ReportingUnitVotes>
+                    </Contest>
+                  </Contests>
+                </Election>
+              </Count>
+            </EML>
+            """;
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void testBlocksAreRecordedWhileParsing() throws IOException, XMLStreamException, ParserConfigurationException, SAXException {
+        Path file = Files.writeString(folder.resolve("Telling_TK2023_gemeente_Velsen.eml.xml"), EML);
+        for (boolean streaming : new boolean[]{false, true}) {
+            ReportingUnitIndex index = new ReportingUnitIndex();
+            electionProcessor.setReportingUnitIndex(index);
+            electionProcessor.setStreaming(streaming);
+
+            assertTrue(electionProcessor.parseMunicipalityFile("TK2023", file));
+
+            ReportingUnitIndex.Entry entry = index.get("0453");
+            assertEquals(EML.indexOf("<ReportingUnitVotes>"), entry.start());
+            assertEquals(EML.lastIndexOf("</ReportingUnitVotes>") + "</ReportingUnitVotes>".length(), entry.end());
+            assertEquals("EML", entry.rootName());
+            assertEquals("0453", index.findMunicipalityByPostalCode("1974 ab"));
+            assertNull(index.findMunicipalityByPostalCode("1011PN"));
+            // Reading the files without parsing them gives the same index
+            assertEquals(entry, ReportingUnitIndex.scan(List.of(file)).get("0453"));
+        }
+    }
+
+    @Test
+    void testOnlyTheBlocksAreParsedAgain() throws IOException, XMLStreamException {
+        Path file = Files.writeString(folder.resolve("Telling_TK2023_gemeente_Velsen.eml.xml"), EML);
+        ReportingUnitIndex index = ReportingUnitIndex.scan(List.of(file));
+        Path sidecar = folder.resolve("TK2023.stations");
+        index.write(sidecar);
+
+        electionProcessor.parseReportingUnits(ReportingUnitIndex.read(sidecar).get("0453"));
+
+        // The totals are not part of the blocks, the votes of the polling stations are not aggregated
+        assertEquals(2, transformer.partyVoteCalls);
+        assertEquals(2, transformer.metadataCalls);
+        List<Map<String, String>> votes = transformer.data.stream()
+                .filter(data -> data.containsKey("ValidVotes")).toList();
+        assertEquals(List.of("0453::SB1", "0453::SB2"), votes.stream().map(data -> data.get("ReportingUnitIdentifier-Id")).toList());
+        assertEquals(List.of("10", "20"), votes.stream().map(data -> data.get("ValidVotes")).toList());
+        assertTrue(transformer.data.stream().allMatch(data -> "false".equals(data.get("aggregated"))));
+    }
+}
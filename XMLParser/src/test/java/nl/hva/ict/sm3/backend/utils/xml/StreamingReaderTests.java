@@ -0,0 +1,154 @@
+package nl.hva.ict.sm3.backend.utils.xml;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static nl.hva.ict.sm3.backend.utils.xml.TagAndAttributeNames.VALID_VOTES;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamingReaderTests extends AbstractParserTests {
+    @TempDir
+    Path folder;
+
+    /**
+     * Only looks at the votes, so the allocations of the transformer itself don't influence the measurement.
+     */
+    private static class CountingTransformer implements DefinitionTransformer, CandidateTransformer, VotesTransformer {
+        private long votes;
+
+        @Override
+        public void registerRegion(Map<String, String> electionData) {
+        }
+
+        @Override
+        public void registerParty(Map<String, String> electionData) {
+        }
+
+        @Override
+        public void registerCandidate(Map<String, String> electionData) {
+        }
+
+        @Override
+        public void registerPartyVotes(boolean aggregated, Map<String, String> electionData) {
+            votes += electionData.get(VALID_VOTES).length();
+        }
+
+        @Override
+        public void registerCandidateVotes(boolean aggregated, Map<String, String> electionData) {
+            votes += electionData.get(VALID_VOTES).length();
+        }
+
+        @Override
+        public void registerMetadata(boolean aggregated, Map<String, String> electionData) {
+        }
+    }
+
+    @Test
+    void testStreamingMatchesSax() throws IOException, XMLStreamException, ParserConfigurationException, SAXException {
+        writeVotesFile(folder, "Telling_TK2023_gemeente_Velsen.eml.xml", 20, 5, 4);
+
+        electionProcessor.parseResults("TK2023", folder.toString());
+        List<Map<String, String>> sax = new ArrayList<>(transformer.data);
+        int saxPartyVoteCalls = transformer.partyVoteCalls;
+        int saxCandidateVoteCalls = transformer.candidateVoteCalls;
+        int saxMetadataCalls = transformer.metadataCalls;
+
+        setUp();
+        electionProcessor.setStreaming(true);
+        electionProcessor.parseResults("TK2023", folder.toString());
+
+        assertEquals(sax, transformer.data, "The streaming reader must provide exactly the same data!");
+        assertEquals(saxPartyVoteCalls, transformer.partyVoteCalls);
+        assertEquals(saxCandidateVoteCalls, transformer.candidateVoteCalls);
+        assertEquals(saxMetadataCalls, transformer.metadataCalls);
+    }
+
+    @Test
+    void testStreamingAllocatesLess() throws IOException, XMLStreamException, ParserConfigurationException, SAXException {
+        writeVotesFile(folder, "Telling_TK2023_gemeente_Velsen.eml.xml", 300, 25, 10);
+
+        // Run both once first, so class loading and the creation of the parsers are not measured.
+        long saxBytes = measure(false);
+        long streamingBytes = measure(true);
+        saxBytes = measure(false);
+        streamingBytes = measure(true);
+
+        assertTrue(saxBytes >= 3 * streamingBytes,
+                "Expected at least 3x fewer allocations, SAX: %d, StAX: %d".formatted(saxBytes, streamingBytes));
+    }
+
+    @Test
+    void testTrustedInputSkipsAttributeValidation() throws XMLStreamException {
+        CountingTransformer counter = new CountingTransformer();
+        int[] typedRows = new int[1];
+        TypedVotesTransformer typed = new TypedVotesTransformer() {
+            @Override
+            public void registerPartyVotes(boolean aggregated, VoteRecord votes) {
+                typedRows[0]++;
+            }
+
+            @Override
+            public void registerCandidateVotes(boolean aggregated, VoteRecord votes) {
+            }
+
+            @Override
+            public void registerMetadata(boolean aggregated, VoteRecord votes) {
+            }
+        };
+
+        for (EMLReader reader : new EMLReader[]{new EMLReader((VotesTransformer) counter), new EMLReader(typed)}) {
+            assertTrue(readWithUnknownAttribute(reader, false).contains("Tag AffiliationIdentifier has a unknown attribute: Logo"));
+            assertFalse(readWithUnknownAttribute(reader, true).contains("unknown attribute"));
+        }
+        // The votes are still read, only the check is skipped
+        assertEquals(4, counter.votes);
+        assertEquals(2, typedRows[0]);
+    }
+
+    // Returns what the reader reported on standard error.
+    private static String readWithUnknownAttribute(EMLReader reader, boolean trustedInput) throws XMLStreamException {
+        String xml = """
+                <EML><Count><Election><Contests><Contest><TotalVotes><Selection>
+                <AffiliationIdentifier Id="1" Logo="logo.png"><RegisteredName>Partij 1</RegisteredName></AffiliationIdentifier>
+                <ValidVotes>12</ValidVotes>
+                </Selection></TotalVotes></Contest></Contests></Election></Count></EML>""";
+        PrintStream err = System.err;
+        ByteArrayOutputStream reported = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(reported, true, StandardCharsets.UTF_8));
+        try {
+            reader.setTrustedInput(trustedInput);
+            reader.read(XMLInputFactory.newFactory(), new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)),
+                    "Telling_TK2023_gemeente_Velsen.eml.xml");
+        } finally {
+            System.setErr(err);
+        }
+        return reported.toString(StandardCharsets.UTF_8);
+    }
+
+    private long measure(boolean streaming) throws IOException, XMLStreamException, ParserConfigurationException, SAXException {
+        CountingTransformer counter = new CountingTransformer();
+        DutchElectionParser parser = new DutchElectionParser(counter, counter, counter, counter, counter, counter, counter);
+        parser.setStreaming(streaming);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        parser.parseResults("TK2023", folder.toString());
+        return threads.getCurrentThreadAllocatedBytes() - before;
+    }
+}
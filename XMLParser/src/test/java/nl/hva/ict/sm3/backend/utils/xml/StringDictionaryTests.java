@@ -0,0 +1,63 @@
+package nl.hva.ict.sm3.backend.utils.xml;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StringDictionaryTests extends AbstractParserTests {
+    @TempDir
+    Path folder;
+
+    @Test
+    void testRangesAreLookedUpWithoutCreatingAString() {
+        StringDictionary dictionary = new StringDictionary();
+        StringDictionary.Local first = dictionary.local();
+        StringDictionary.Local second = dictionary.local();
+
+        String party = first.get(new StringBuilder("  VVD  "), 2, 5);
+        assertEquals("VVD", party);
+        assertSame(party, first.get(new StringBuilder("VVD"), 0, 3));
+        // Another file of the same load gets the same instance
+        assertSame(party, second.get(new String("VVD")));
+        assertNotSame(party, new StringDictionary().local().get(new String("VVD")));
+
+        // Far more values than the initial capacity of the table
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals("0453::SB" + i, first.get("0453::SB" + i));
+        }
+        assertSame(party, first.get("VVD"));
+        assertSame(first.get("0453::SB42"), second.get(new StringBuilder("0453::SB42"), 0, 10));
+        assertEquals(10_001, dictionary.size());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void testValuesAreSharedAcrossTheFilesOfALoad(boolean streaming) throws IOException, XMLStreamException, ParserConfigurationException, SAXException {
+        writeVotesFile(folder, "Telling_TK2023_gemeente_Velsen.eml.xml", 1, 2, 0);
+        writeVotesFile(folder, "Telling_TK2023_gemeente_Haarlem.eml.xml", 1, 2, 0);
+        electionProcessor.setStreaming(streaming);
+
+        electionProcessor.parseResults("TK2023", folder.toString());
+
+        List<Map<String, String>> totals = transformer.data.stream()
+                .filter(data -> "true".equals(data.get("aggregated")) && "Party 1".equals(data.get("RegisteredName")))
+                .toList();
+        assertEquals(2, totals.size());
+        assertSame(totals.get(0).get("RegisteredName"), totals.get(1).get("RegisteredName"));
+        assertSame(totals.get(0).get("AuthorityIdentifier-Id"), totals.get(1).get("AuthorityIdentifier-Id"));
+        // Counts are not pooled
+        assertEquals(totals.get(0).get("ValidVotes"), totals.get(1).get("ValidVotes"));
+        assertNotSame(totals.get(0).get("ValidVotes"), totals.get(1).get("ValidVotes"));
+    }
+}
@@ -0,0 +1,66 @@
+package nl.hva.ict.sm3.backend.utils.xml;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static nl.hva.ict.sm3.backend.utils.xml.TagAndAttributeNames.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TagTableTests extends AbstractParserTests {
+    @TempDir
+    Path folder;
+
+    @Test
+    void testEveryKnownTagHasAnIdOfItsOwn() {
+        TagTable tags = EMLHandler.tags;
+        Set<String> known = new HashSet<>(EMLHandler.tagsWithoutAttributes);
+        known.addAll(EMLHandler.tagsWithAttributes.keySet());
+        assertEquals(known.size() + 1, tags.size());
+        for (String name : known) {
+            // A copy, so the lookup can't rely on the identity of the name
+            int id = tags.id(new String(name));
+            assertNotEquals(TagTable.UNKNOWN, id, name);
+            assertEquals(name, tags.name(id));
+            assertEquals(EMLHandler.tagsWithAttributes.containsKey(name), tags.hasAttributes(id), name);
+        }
+        assertEquals(TagTable.UNKNOWN, tags.id("Signature"));
+        assertEquals(TagTable.UNKNOWN, tags.id(""));
+
+        assertEquals(TagTable.SELECTION_TAG, tags.id(SELECTION));
+        assertEquals(TagTable.REGION_TAG, tags.id(REGION));
+        assertTrue(tags.hasAttributes(TagTable.REGION_TAG));
+        assertTrue(tags.isNumeric(TagTable.REJECTED_VOTES_TAG));
+        assertTrue(tags.isCount(tags.id(NUMBER_OF_SEATS)));
+        assertFalse(tags.isNumeric(tags.id(NUMBER_OF_SEATS)));
+
+        int candidate = tags.id(CANDIDATE_IDENTIFIER);
+        int slot = tags.attributeSlot(candidate, SHORT_CODE);
+        assertEquals(CANDIDATE_IDENTIFIER_SHORT_CODE, tags.attributeKeys(candidate)[slot]);
+        assertEquals(-1, tags.attributeSlot(candidate, "Unknown"));
+    }
+
+    @Test
+    void testTrustedInputGivesTheSameData() throws IOException, XMLStreamException, ParserConfigurationException, SAXException {
+        writeVotesFile(folder, "Telling_TK2023_gemeente_Velsen.eml.xml", 2, 2, 2);
+        electionProcessor.parseResults("TK2023", folder.toString());
+        List<Map<String, String>> validated = List.copyOf(transformer.data);
+
+        for (boolean streaming : new boolean[]{false, true}) {
+            transformer.data.clear();
+            electionProcessor.setStreaming(streaming);
+            electionProcessor.setTrustedInput(true);
+            electionProcessor.parseResults("TK2023", folder.toString());
+            assertEquals(validated, transformer.data);
+        }
+    }
+}
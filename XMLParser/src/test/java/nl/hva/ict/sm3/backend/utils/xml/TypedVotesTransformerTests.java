@@ -0,0 +1,183 @@
+package nl.hva.ict.sm3.backend.utils.xml;
+
+import nl.hva.ict.sm3.backend.model.Constituency;
+import nl.hva.ict.sm3.backend.model.Election;
+import nl.hva.ict.sm3.backend.model.Municipality;
+import nl.hva.ict.sm3.backend.model.PollingStation;
+import nl.hva.ict.sm3.backend.utils.xml.transformers.DutchConstituencyVotesTransformer;
+import nl.hva.ict.sm3.backend.utils.xml.transformers.DutchMunicipalityVotesTransformer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static nl.hva.ict.sm3.backend.utils.xml.TagAndAttributeNames.CANDIDATE_IDENTIFIER_ID;
+import static nl.hva.ict.sm3.backend.utils.xml.TagAndAttributeNames.VALID_VOTES;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class TypedVotesTransformerTests extends AbstractParserTests {
+    @TempDir
+    Path folder;
+
+    /**
+     * Turns every record into a line of text, so the records that are reused by the parser can be compared afterward.
+     */
+    private static class RecordingTransformer implements TypedVotesTransformer, DefinitionTransformer, CandidateTransformer {
+        private final List<String> rows = new ArrayList<>();
+
+        @Override
+        public void registerPartyVotes(boolean aggregated, VoteRecord votes) {
+            rows.add(describe("party", aggregated, votes));
+        }
+
+        @Override
+        public void registerCandidateVotes(boolean aggregated, VoteRecord votes) {
+            rows.add(describe("candidate", aggregated, votes));
+        }
+
+        @Override
+        public void registerMetadata(boolean aggregated, VoteRecord votes) {
+            rows.add(describe("metadata", aggregated, votes));
+        }
+
+        @Override
+        public void registerRegion(Map<String, String> electionData) {
+        }
+
+        @Override
+        public void registerParty(Map<String, String> electionData) {
+        }
+
+        @Override
+        public void registerCandidate(Map<String, String> electionData) {
+        }
+    }
+
+    private static String describe(String kind, boolean aggregated, VoteRecord votes) {
+        return String.join("|", kind, Boolean.toString(aggregated), votes.getElectionId(), votes.getElectionName(),
+                votes.getContestId(), votes.getContestName(), votes.getAuthorityId(), votes.getAuthorityName(),
+                votes.getReportingUnitId(), votes.getReportingUnitName(), votes.getPartyId(), votes.getPartyName(),
+                votes.getCandidateId(), votes.getCandidateShortCode(), Integer.toString(votes.getValidVotes()),
+                Integer.toString(votes.getCast()), Integer.toString(votes.getTotalCounted()),
+                Integer.toString(votes.getRejectedVotes()), Integer.toString(votes.getUncountedVotes()));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void testRecordsMatchElectionData(boolean streaming) throws IOException, XMLStreamException, ParserConfigurationException, SAXException {
+        writeVotesFile(folder, "Telling_TK2023_gemeente_Velsen.eml.xml", 10, 4, 3);
+
+        electionProcessor.setStreaming(streaming);
+        electionProcessor.parseResults("TK2023", folder.toString());
+        List<String> expected = new ArrayList<>();
+        for (Map<String, String> electionData : transformer.data) {
+            boolean aggregated = Boolean.parseBoolean(electionData.get("aggregated"));
+            String kind = electionData.containsKey(CANDIDATE_IDENTIFIER_ID) ? "candidate"
+                    : electionData.containsKey(VALID_VOTES) ? "party" : "metadata";
+            expected.add(describe(kind, aggregated, VoteRecord.of(electionData)));
+        }
+
+        RecordingTransformer recorder = new RecordingTransformer();
+        DutchElectionParser parser = new DutchElectionParser(recorder, recorder, recorder, recorder, recorder, recorder, recorder);
+        parser.setStreaming(streaming);
+        parser.parseResults("TK2023", folder.toString());
+
+        assertEquals(expected, recorder.rows);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void testEmptyCountsAreZero(boolean streaming) throws IOException, XMLStreamException, ParserConfigurationException, SAXException {
+        Files.writeString(folder.resolve("Telling_TK2023_gemeente_Velsen.eml.xml"), """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <EML xmlns="urn:oasis:names:tc:evs:schema:eml" Id="510b" SchemaVersion="5">
+                <ManagingAuthority><AuthorityIdentifier Id="0453">Velsen</AuthorityIdentifier></ManagingAuthority>
+                <Count><Election>
+                <ElectionIdentifier Id="TK2023"><ElectionName>Tweede Kamer der Staten-Generaal 2023</ElectionName></ElectionIdentifier>
+                <Contests><Contest>
+                <ContestIdentifier Id="10"><ContestName>Haarlem</ContestName></ContestIdentifier>
+                <ReportingUnitVotes>
+                <ReportingUnitIdentifier Id="0453::SB1">Stembureau 1 (postcode: 1971 EN)</ReportingUnitIdentifier>
+                <Selection><AffiliationIdentifier Id="1"><RegisteredName>Party 1</RegisteredName></AffiliationIdentifier><ValidVotes>120</ValidVotes></Selection>
+                <Selection><AffiliationIdentifier Id="2"><RegisteredName>Party 2</RegisteredName></AffiliationIdentifier><ValidVotes/></Selection>
+                <Selection><AffiliationIdentifier Id="3"><RegisteredName>Party 3</RegisteredName></AffiliationIdentifier><ValidVotes>80</ValidVotes><ValidVotes> </ValidVotes></Selection>
+                <Cast>1758</Cast><Cast/>
+                </ReportingUnitVotes>
+                </Contest></Contests></Election></Count></EML>
+                """);
+        RecordingTransformer recorder = new RecordingTransformer();
+        DutchElectionParser parser = new DutchElectionParser(recorder, recorder, recorder, recorder, recorder, recorder, recorder);
+        parser.setStreaming(streaming);
+
+        parser.parseResults("TK2023", folder.toString());
+
+        // The valid votes and the cast votes of each record, see describe(). The cast votes follow the selections, so
+        // they are only part of the metadata
+        List<String> counts = recorder.rows.stream()
+                .map(row -> row.split("\\|", -1))
+                .map(fields -> fields[0] + " " + fields[14] + " " + fields[15])
+                .toList();
+        assertEquals(List.of("party 120 0", "party 0 0", "party 0 0", "metadata 0 0"), counts);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void testPipelineMatchesSequential(boolean streaming) throws IOException, XMLStreamException, ParserConfigurationException, SAXException {
+        for (String municipality : List.of("Velsen", "Texel", "Haarlem", "Bloemendaal", "Zandvoort")) {
+            writeVotesFile(folder, "Telling_TK2023_gemeente_%s.eml.xml".formatted(municipality), 6, 4, 3);
+        }
+        RecordingTransformer sequential = new RecordingTransformer();
+        DutchElectionParser parser = new DutchElectionParser(sequential, sequential, sequential, sequential, sequential, sequential, sequential);
+        parser.setStreaming(streaming);
+        parser.parseResults("TK2023", folder.toString());
+
+        RecordingTransformer pipelined = new RecordingTransformer();
+        parser = new DutchElectionParser(pipelined, pipelined, pipelined, pipelined, pipelined, pipelined, pipelined);
+        parser.setStreaming(streaming);
+        parser.setParallelism(3);
+        parser.setPipelined(true);
+        // A tiny ring makes the workers wait for the transformer all the time
+        parser.setRingCapacity(2);
+        parser.parseResults("TK2023", folder.toString());
+
+        assertEquals(sequential.rows, pipelined.rows, "The pipeline must pass the calls in the same order!");
+        assertEquals(5, parser.getPipelineStatistics().getFiles());
+        assertEquals(sequential.rows.size(), parser.getPipelineStatistics().getEvents());
+    }
+
+    @Test
+    void testDutchTransformersUseRecords() throws IOException, XMLStreamException, ParserConfigurationException, SAXException {
+        writeVotesFile(folder, "Telling_TK2023_kieskring_Haarlem.eml.xml", 0, 3, 2);
+        writeVotesFile(folder, "Telling_TK2023_gemeente_Velsen.eml.xml", 2, 3, 2);
+        Election election = new Election("TK2023");
+        DutchElectionParser parser = new DutchElectionParser(transformer, transformer, transformer, transformer,
+                new DutchConstituencyVotesTransformer(election),
+                new DutchMunicipalityVotesTransformer(election),
+                transformer);
+
+        parser.parseResults("TK2023", folder.toString());
+
+        Constituency constituency = election.getConstituencyById("TK2023-10");
+        assertNotNull(constituency);
+        Municipality municipality = constituency.getMunicipalityById("TK2023-0453");
+        assertNotNull(municipality);
+        assertEquals("Velsen", municipality.getName());
+        PollingStation station = municipality.getPollingStationById("TK2023-0453::SB2");
+        assertNotNull(station);
+        assertEquals("Stembureau 2", station.getName());
+        assertEquals("1971EN", station.getPostalCode());
+        // Per party 100 + 7 * party + 2 votes
+        assertEquals(109 + 116 + 123, station.getValidVotes());
+    }
+}
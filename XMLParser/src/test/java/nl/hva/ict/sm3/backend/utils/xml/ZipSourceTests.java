@@ -0,0 +1,70 @@
+package nl.hva.ict.sm3.backend.utils.xml;
+
+import nl.hva.ict.sm3.backend.utils.PathUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZipSourceTests extends AbstractParserTests {
+    private static final String EML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<EML Id=\"510b\"/>\n";
+
+    @TempDir
+    Path folder;
+
+    private Path createArchive(String name, String... entries) throws IOException {
+        Path archive = folder.resolve(name);
+        try (OutputStream out = Files.newOutputStream(archive); ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (String entry : entries) {
+                zip.putNextEntry(new ZipEntry(entry));
+                zip.write(EML.getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return archive;
+    }
+
+    @Test
+    void testFilesAreFoundInsideTheArchive() throws IOException {
+        Path archive = createArchive("TK2023.zip",
+                "TK2023/Gemeente/Telling_TK2023_gemeente_Velsen.eml.xml",
+                "TK2023/Gemeente/Telling_TK2023_gemeente_Texel.eml.xml",
+                "TK2023/Kieskring/Telling_TK2023_kieskring_Haarlem.eml.xml");
+
+        List<Path> files = PathUtils.findFilesToScan(archive.toString(), "Telling_TK2023_gemeente");
+
+        assertEquals(2, files.size());
+        Path root = PathUtils.toPath(archive.toString());
+        assertTrue(files.stream().allMatch(file -> file.getFileSystem() == root.getFileSystem()));
+        // Folders and archives are found by the name of the resource
+        assertEquals(archive.toString(), PathUtils.getResourcePath(folder.resolve("TK2023").toString()));
+    }
+
+    @Test
+    void testEntriesAreParsedWithoutExtracting() throws IOException, XMLStreamException, ParserConfigurationException, SAXException {
+        Path archive = createArchive("TK2021.zip",
+                "Telling_TK2021_gemeente_Velsen.eml.xml", "Telling_TK2021_gemeente_Texel.eml.xml");
+        FileManifest manifest = new FileManifest();
+        electionProcessor.setManifest(manifest);
+        electionProcessor.setParallelism(2);
+
+        electionProcessor.parseResults("TK2021", archive.toString());
+
+        assertEquals(2, manifest.getEntries().size());
+        Path entry = PathUtils.toPath(archive.toString()).resolve("Telling_TK2021_gemeente_Velsen.eml.xml");
+        assertTrue(manifest.isUnchanged(entry));
+        assertEquals(List.of(), DutchElectionParser.findChangedFiles("TK2021", archive.toString(), manifest));
+    }
+}
@@ -5,8 +5,11 @@ import nl.hva.ict.sm3.backend.model.Election;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static nl.hva.ict.sm3.backend.utils.xml.TagAndAttributeNames.AFFILIATION_IDENTIFIER;
 import static nl.hva.ict.sm3.backend.utils.xml.TagAndAttributeNames.CANDIDATE_IDENTIFIER_ID;
@@ -16,6 +19,7 @@ import static nl.hva.ict.sm3.backend.utils.xml.TagAndAttributeNames.ID;
 import static nl.hva.ict.sm3.backend.utils.xml.TagAndAttributeNames.VALID_VOTES;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class DutchNationalVotesTransformerTest {
 
@@ -69,4 +73,67 @@ class DutchNationalVotesTransformerTest {
         assertEquals(77, candidate.getVotes());
         assertEquals("TesterT", candidate.getShortCode());
     }
-}
\ No newline at end of file
+
+    @Test
+    void registerCandidateVotes_matchesShortCodesIgnoringCaseAndDiacritics() {
+        Candidate yesilgoz = new Candidate("P2-1", "Dilan", "Yeşilgöz-Zegerius", "D.", "Amsterdam", "P2", "VVD", 1);
+        election.addCandidate(yesilgoz);
+        election.indexCandidateShortCodes();
+
+        Map<String, String> data = new HashMap<>();
+        data.put(CANDIDATE_IDENTIFIER_SHORT_CODE, "YesilgozZegeriusD");
+        data.put(VALID_VOTES, "10");
+        transformer.registerCandidateVotes(true, data);
+
+        assertEquals(10, yesilgoz.getVotes());
+    }
+
+    @Test
+    void registerCandidateVotes_matchesLargeCandidateListInLinearTime() {
+        int count = 2_000;
+        String[] lastNames = {"Jansen", "de Vries", "Yeşilgöz", "Çelik", "Öztürk", "van den Berg", "Müller", "Đorđević"};
+        Election large = new Election("TK2023");
+        AtomicLong nameReads = new AtomicLong();
+        List<Map<String, String>> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            // Unique initials per candidate, built from the letters A-Z.
+            String initials = "%c.%c.%c.".formatted('A' + i % 26, 'A' + i / 26 % 26, 'A' + i / 676 % 26);
+            String lastName = lastNames[i % lastNames.length];
+            large.addCandidate(new CountingCandidate("P%d-%d".formatted(i / 50, i % 50), lastName, initials, nameReads));
+            Map<String, String> data = new HashMap<>();
+            data.put(CANDIDATE_IDENTIFIER_SHORT_CODE, lastName.replace(" ", "") + initials.replace(".", ""));
+            data.put(VALID_VOTES, Integer.toString(i + 1));
+            rows.add(data);
+        }
+        DutchNationalVotesTransformer largeTransformer = new DutchNationalVotesTransformer(large);
+
+        large.indexCandidateShortCodes();
+        for (Map<String, String> data : rows) {
+            largeTransformer.registerCandidateVotes(true, data);
+        }
+
+        for (int i = 0; i < count; i++) {
+            assertEquals(i + 1, large.getCandidates().get(i).getVotes());
+        }
+        // Scanning the list for every row would read the names count * count / 2 times, the index reads them once.
+        assertTrue(nameReads.get() <= 2L * count, "The names were read %d times".formatted(nameReads.get()));
+    }
+
+    /**
+     * Keeps track of how often the name of a candidate is read to build or search a short code.
+     */
+    private static class CountingCandidate extends Candidate {
+        private final AtomicLong nameReads;
+
+        CountingCandidate(String id, String lastName, String initials, AtomicLong nameReads) {
+            super(id, "First", lastName, initials, "Amsterdam", id.substring(0, id.indexOf('-')), "Party", 1);
+            this.nameReads = nameReads;
+        }
+
+        @Override
+        public String getLastName() {
+            nameReads.incrementAndGet();
+            return super.getLastName();
+        }
+    }
+}
@@ -1,8 +1,18 @@
 import { API_BASE_URL } from '../config/api.js'
 
 export const ElectionService = {
-  async getElection(electionId) {
-    const response = await fetch(`${API_BASE_URL}/elections/${electionId}`)
+  /**
+   * Retrieves an election. Without options only a summary with counts and links is returned.
+   * @param {string} electionId
+   * @param {{ depth?: number, fields?: Array<string> }} [options] how far the constituencies are expanded
+   * and which parts (e.g. 'parties', 'seatAllocations') are included
+   */
+  async getElection(electionId, { depth, fields } = {}) {
+    const params = new URLSearchParams()
+    if (depth) params.set('depth', depth)
+    if (fields && fields.length) params.set('fields', fields.join(','))
+    const query = params.toString() ? `?${params}` : ''
+    const response = await fetch(`${API_BASE_URL}/elections/${electionId}${query}`)
     if (!response.ok) throw new Error(`Failed to get election ${electionId}`)
     return await response.json()
   },